@@ -3,7 +3,9 @@ package de.pxlab.pxl;
 import java.util.*;
 
 import de.pxlab.util.*;
+import de.pxlab.stat.BinomialPMFFitter;
 import de.pxlab.stat.IsotonicPMF;
+import de.pxlab.stat.PsiMethod;
 
 /**
  * A class for controlling adaptive psychophysical procedures.
@@ -72,7 +74,7 @@ import de.pxlab.stat.IsotonicPMF;
  */
 public class AdaptiveControl implements AdaptiveProcedureCodes,
 		AdaptiveStopCodes, AdaptiveResultCodes {
-	private static final int LastAdaptiveProcedureCode = DELAYED_UP_1_DOWN_1;
+	private static final int LastAdaptiveProcedureCode = PSI;
 	private static final int LastAdaptiveStopCode = STOPKEY_RESPONSE;
 	/** True if this sequence has reached the minimum step size. */
 	private boolean atMinimumStepSize = false;
@@ -116,6 +118,13 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 	 * True if the current trial contains an illegal response code.
 	 */
 	private boolean responseError = false;
+	/**
+	 * The index of the adaptive sequences of the current block. If this is
+	 * null then the trial list is searched for the next trial of a sequence.
+	 */
+	private AdaptiveSequenceIndex sequenceIndex = null;
+	/** The posterior distribution of a Psi procedure. */
+	private PsiMethod psi = null;
 
 	/**
 	 * Create an adaptive sequence control object for the given trial. This
@@ -178,6 +187,34 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 			Debug.show(Debug.ADAPTIVE, "AdaptiveControl() Parameter limits = "
 					+ ExPar.AdaptiveParameterLimits);
 		}
+		if (adaptiveProcedure == PSI) {
+			psi = new PsiMethod(ExPar.AdaptivePsiFunction.getInt(),
+					psiGrid(ExPar.AdaptivePsiStimuli),
+					psiGrid(ExPar.AdaptivePsiThresholds),
+					psiGrid(ExPar.AdaptivePsiSlopes),
+					ExPar.AdaptiveGuessingRate.getDouble(),
+					ExPar.AdaptiveLapsingRate.getDouble());
+		}
+	}
+
+	/**
+	 * Get the grid values defined by a Psi procedure parameter. Three values
+	 * define the smallest and largest value and the number of values.
+	 */
+	private double[] psiGrid(ExPar x) {
+		double[] g = x.getDoubleArray();
+		if (g.length == 3) {
+			g = PsiMethod.linearGrid(g[0], g[1], (int) Math.round(g[2]));
+		}
+		return g;
+	}
+
+	/**
+	 * Set the index of adaptive sequences which contains this object's
+	 * sequence.
+	 */
+	void setSequenceIndex(AdaptiveSequenceIndex index) {
+		sequenceIndex = index;
 	}
 
 	/**
@@ -193,22 +230,32 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 	public int fixForward(ExDesignNode currentTrial) {
 		if (nonAdaptive)
 			return 0;
-		ArrayList trials = ((ExDesignNode) currentTrial.getParent())
-				.getChildrenList();
-		int currentTrialIndex = trials.indexOf(currentTrial);
-		int nextTrialIndex = 0;
 		ExParValue[] parValues = null;
+		ArrayList trials = null;
+		int nextTrialIndex = 0;
 		boolean found = false;
 		if (adaptiveSequenceIDIndex >= 0) {
-			for (nextTrialIndex = currentTrialIndex + 1; nextTrialIndex < trials
-					.size(); nextTrialIndex++) {
-				parValues = ((ExDesignNode) trials.get(nextTrialIndex))
-						.getParValues();
-				if (parValues[adaptiveSequenceIDIndex].getInt() == adaptiveSequenceID) {
+			if (sequenceIndex != null) {
+				ExDesignNode nextTrial = sequenceIndex.nextTrial(
+						adaptiveSequenceID, currentTrial);
+				if (nextTrial != null) {
+					parValues = nextTrial.getParValues();
 					found = true;
-					// System.out.println("AdaptiveControl.fixForward(): next index = "
-					// + nextTrialIndex);
-					break;
+				}
+			} else {
+				trials = ((ExDesignNode) currentTrial.getParent())
+						.getChildrenList();
+				int currentTrialIndex = trials.indexOf(currentTrial);
+				for (nextTrialIndex = currentTrialIndex + 1; nextTrialIndex < trials
+						.size(); nextTrialIndex++) {
+					parValues = ((ExDesignNode) trials.get(nextTrialIndex))
+							.getParValues();
+					if (parValues[adaptiveSequenceIDIndex].getInt() == adaptiveSequenceID) {
+						found = true;
+						// System.out.println("AdaptiveControl.fixForward(): next index = "
+						// + nextTrialIndex);
+						break;
+					}
 				}
 			}
 		} else {
@@ -245,11 +292,15 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 			// System.out.println("AdaptiveControl.fixForward(): stopped - removing trials "
 			// + nextTrialIndex);
 			if (ExPar.AdaptiveRemoveTrailingTrials.getFlag()) {
-				for (int i = trials.size() - 1; i > nextTrialIndex; i--) {
-					ExParValue[] pv = ((ExDesignNode) trials.get(i))
-							.getParValues();
-					if (pv[adaptiveSequenceIDIndex].getInt() == adaptiveSequenceID) {
-						trials.remove(i);
+				if (sequenceIndex != null) {
+					sequenceIndex.removeTrailingTrials(adaptiveSequenceID);
+				} else {
+					for (int i = trials.size() - 1; i > nextTrialIndex; i--) {
+						ExParValue[] pv = ((ExDesignNode) trials.get(i))
+								.getParValues();
+						if (pv[adaptiveSequenceIDIndex].getInt() == adaptiveSequenceID) {
+							trials.remove(i);
+						}
 					}
 				}
 			}
@@ -392,6 +443,7 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 		switch (adaptiveProcedure) {
 		case NON_ADAPTIVE:
 		case NON_CHANGING:
+		case PSI:
 			return (nonChangingTransform);
 		case UP_1_DOWN_1:
 		case DELAYED_UP_1_DOWN_1:
@@ -435,10 +487,31 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 		case DELAYED_UP_1_DOWN_1:
 			retVal = fixDelayedUp1Down1(parValues, state);
 			break;
+		case PSI:
+			fixPsi(parValues);
+			break;
 		}
 		return retVal;
 	}
 
+	/**
+	 * Update the posterior of the Psi procedure by the current response and
+	 * set the next trial's stimulus to the value which minimizes the expected
+	 * posterior entropy. A response which is neither the yes key nor the no
+	 * key is ignored and the stimulus is repeated.
+	 */
+	private void fixPsi(ExParValue[] parValues) {
+		int response = ExPar.get(ExPar.AdaptiveResponseParameter.getString())
+				.getInt();
+		if ((response != yesKey) && (response != noKey)) {
+			fixNoChange(parValues, 0);
+			return;
+		}
+		psi.update(ExPar.get(adaptiveParameterName).getDouble(),
+				response == yesKey);
+		parValues[adaptiveParameterIndex].set(psi.nextStimulus());
+	}
+
 	private void fixNoChange(ExParValue[] parValues, int state) {
 		parValues[adaptiveParameterIndex].set(ExPar.get(adaptiveParameterName)
 				.getDouble());
@@ -784,6 +857,9 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 		case ISOTONIC_REGRESSION:
 			n = computeIsotonicRegression(adaptiveResultComputation, pva);
 			break;
+		case POSTERIOR_MEAN:
+			n = computePosteriorMean();
+			break;
 		}
 		pv = (ExParValue[]) pva.get(pva.size() - 1);
 		if (adaptiveResultsIndex >= 0) {
@@ -796,6 +872,26 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 		}
 	}
 
+	/**
+	 * Get the posterior means and standard deviations of threshold and slope
+	 * of a Psi procedure.
+	 * 
+	 * @return the number of responses contained in the posterior.
+	 */
+	private int computePosteriorMean() {
+		adaptiveResults = new double[4];
+		if (psi == null) {
+			new ParameterValueError(
+					"Posterior mean results need the Psi adaptive procedure.");
+			return 0;
+		}
+		adaptiveResults[0] = psi.thresholdMean();
+		adaptiveResults[1] = psi.slopeMean();
+		adaptiveResults[2] = psi.thresholdDeviation();
+		adaptiveResults[3] = psi.slopeDeviation();
+		return psi.getTrials();
+	}
+
 	/**
 	 * Compute the mean of those stimuli which are turn point stimuli. These are
 	 * stimuli where the subject's response differed from the previous response.
@@ -952,9 +1048,24 @@ public class AdaptiveControl implements AdaptiveProcedureCodes,
 		System.out
 				.println("AdaptiveControl.computePsychometricFunction():  ssq = "
 						+ lsq.valueOf(adaptiveResults));
-		adaptiveResults[0] = tpr[0];
-		adaptiveResults[1] = tpr[1];
-		praxis.minimize(mle, adaptiveResults);
+		// The maximum likelihood fit uses analytic derivatives and is started
+		// from the least squares solution and from points around the turn
+		// point mean. Praxis is used only if this fails.
+		double[][] tps = BinomialPMFFitter.startsAround(tpr);
+		double[][] starts = new double[tps.length + 1][];
+		starts[0] = new double[] { adaptiveResults[0], adaptiveResults[1] };
+		System.arraycopy(tps, 0, starts, 1, tps.length);
+		BinomialPMFFitter fitter = new BinomialPMFFitter(pmfType, x, r,
+				ExPar.AdaptiveGuessingRate.getDouble(),
+				ExPar.AdaptiveLapsingRate.getDouble());
+		double[] ml = fitter.fit(starts, null);
+		if (ml != null) {
+			adaptiveResults = ml;
+		} else {
+			adaptiveResults[0] = tpr[0];
+			adaptiveResults[1] = tpr[1];
+			praxis.minimize(mle, adaptiveResults);
+		}
 		System.out
 				.println("AdaptiveControl.computePsychometricFunction(): Estimated values: ");
 		System.out
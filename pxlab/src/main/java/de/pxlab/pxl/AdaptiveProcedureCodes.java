@@ -18,5 +18,13 @@ public interface AdaptiveProcedureCodes {
 	public static final int UP_1_DOWN_2 = 4;
 	public static final int UP_1_DOWN_3 = 5;
 	public static final int DELAYED_UP_1_DOWN_1 = 6;
+	/**
+	 * The Bayesian Psi method. The next stimulus is the candidate stimulus
+	 * which minimizes the expected entropy of the posterior distribution of
+	 * threshold and slope.
+	 * 
+	 * @see de.pxlab.stat.PsiMethod
+	 */
+	public static final int PSI = 7;
 	// Modify AdaptiveControl.LastAdaptiveProcedureCode if you add another code!
 }
@@ -34,4 +34,10 @@ public interface AdaptiveResultCodes extends PsychometricFunctionCodes {
 	 * This allows arbitrary quantile estimation by isotonic regression.
 	 */
 	public static final int ISOTONIC_REGRESSION = 3;
+	/**
+	 * The pse and the jnd are the posterior means of threshold and slope of a
+	 * Psi procedure. They are followed by their posterior standard deviations.
+	 * This is available only for the PSI adaptive procedure.
+	 */
+	public static final int POSTERIOR_MEAN = 4;
 }
@@ -0,0 +1,348 @@
+package de.pxlab.pxl;
+
+import java.util.*;
+
+/**
+ * An index of the adaptive sequences which are mixed within a block. For
+ * every adaptive sequence the index contains its AdaptiveControl object and a
+ * queue of those trials of the sequence which have not yet been run. The
+ * queues are built once when the block starts and are maintained while trials
+ * are run, copied, repeated and removed. Thus finding the next trial of a
+ * sequence and removing a sequence's trailing trials does not need to scan
+ * the block's trial list.
+ *
+ * <p>
+ * Trials which are removed from a sequence are not removed from the trial
+ * list immediately since this would need a list copy for every removed trial.
+ * They are marked as removed and must be skipped by the runtime controller.
+ * The trial list is compacted by a single call to compact() at the end of the
+ * block.
+ *
+ * <p>
+ * Every trial of the block gets an order label which grows with its position
+ * in the trial list. A trial which is inserted into the list gets a label
+ * between the labels of its neighbors. This places it at its correct position
+ * in its sequence's queue without scanning the trial list. All labels are
+ * renumbered only if there is no free label left between two neighbors.
+ *
+ * <p>
+ * Sequences are accessed by their integer ID without creating key objects.
+ *
+ * @version 0.1.0
+ * @see AdaptiveControl
+ */
+public class AdaptiveSequenceIndex {
+	/** Open addressing hash table of sequences keyed by their ID. */
+	private int[] keys = new int[64];
+	private Sequence[] table = new Sequence[64];
+	private int size = 0;
+	/** Sequences in the order of their creation. */
+	private ArrayList sequences = new ArrayList(20);
+	/** Maps pending trials to the queue which contains them. */
+	private IdentityHashMap pending = new IdentityHashMap();
+	/** Trials which have been removed from their sequence. */
+	private IdentityHashMap removed = new IdentityHashMap();
+	/** Distance of the order labels of neighboring trials after renumbering. */
+	private static final long LABEL_GAP = 1L << 20;
+	/** Maps the block's trials to their order labels. */
+	private IdentityHashMap labels = new IdentityHashMap();
+
+	/**
+	 * Create an index for the given list of trials.
+	 *
+	 * @param trialList
+	 *            the list of trials in the order of execution.
+	 */
+	public AdaptiveSequenceIndex(ArrayList trialList) {
+		setLabels(trialList);
+		addTrials(trialList, 0);
+	}
+
+	/**
+	 * Get the adaptive control object of a sequence. If the sequence does not
+	 * yet have one then it is created for the given trial.
+	 *
+	 * @param id
+	 *            the adaptive sequence ID.
+	 * @param currentTrial
+	 *            the current trial which is the first trial of the sequence
+	 *            if the control object has to be created.
+	 * @return the sequence's adaptive control object.
+	 */
+	public AdaptiveControl getControl(int id, ExDesignNode currentTrial) {
+		Sequence s = sequence(id);
+		if (s.control == null) {
+			s.control = new AdaptiveControl(currentTrial);
+			s.control.setSequenceIndex(this);
+			Debug.show(Debug.ADAPTIVE,
+					"AdaptiveSequenceIndex() Entered adaptive sequence ID = "
+							+ id);
+		}
+		return s.control;
+	}
+
+	/**
+	 * Get all adaptive control objects which have been created.
+	 *
+	 * @return a list of AdaptiveControl objects in the order of their
+	 *         creation.
+	 */
+	public ArrayList getControls() {
+		ArrayList a = new ArrayList(sequences.size());
+		for (int i = 0; i < sequences.size(); i++) {
+			Sequence s = (Sequence) sequences.get(i);
+			if (s.control != null)
+				a.add(s.control);
+		}
+		return a;
+	}
+
+	/**
+	 * Find the next trial of a sequence following the current trial. The
+	 * current trial and all trials of the sequence preceding it are removed
+	 * from the sequence's queue.
+	 *
+	 * @param id
+	 *            the adaptive sequence ID.
+	 * @param currentTrial
+	 *            the trial which has just been run.
+	 * @return the next trial of the sequence or null if there is none.
+	 */
+	public ExDesignNode nextTrial(int id, ExDesignNode currentTrial) {
+		Sequence s = sequence(id);
+		s.pollThrough(currentTrial);
+		return s.peek();
+	}
+
+	/**
+	 * Remove all trials of a sequence which follow its next trial.
+	 *
+	 * @param id
+	 *            the adaptive sequence ID.
+	 */
+	public void removeTrailingTrials(int id) {
+		Sequence s = sequence(id);
+		while (s.tail - s.head > 1) {
+			ExDesignNode t = s.trials[--s.tail];
+			s.trials[s.tail] = null;
+			pending.remove(t);
+			removed.put(t, t);
+		}
+	}
+
+	/**
+	 * Check whether a trial has been removed from its sequence.
+	 *
+	 * @param trial
+	 *            a trial of the block.
+	 * @return true if the trial has been removed and must not be run.
+	 */
+	public boolean isRemoved(ExDesignNode trial) {
+		return !removed.isEmpty() && removed.containsKey(trial);
+	}
+
+	/**
+	 * Enter a trial which has been inserted into the trial list at a position
+	 * following the current trial. The current trial is removed from its
+	 * sequence's queue.
+	 *
+	 * @param trialList
+	 *            the block's trial list which already contains the new trial.
+	 * @param p
+	 *            the list index of the new trial.
+	 * @param currentTrial
+	 *            the trial which has just been run.
+	 */
+	public void insert(ArrayList trialList, int p, ExDesignNode currentTrial) {
+		Sequence c = (Sequence) pending.get(currentTrial);
+		if (c != null)
+			c.pollThrough(currentTrial);
+		ExDesignNode trial = (ExDesignNode) trialList.get(p);
+		long lo = label(trialList.get(p - 1));
+		long hi = (p + 1 < trialList.size()) ? label(trialList.get(p + 1))
+				: lo + 2 * LABEL_GAP;
+		if (hi - lo < 2) {
+			setLabels(trialList);
+		} else {
+			labels.put(trial, Long.valueOf(lo + (hi - lo) / 2));
+		}
+		int k = trial.getParIndex("AdaptiveSequenceID");
+		if (k >= 0) {
+			Sequence s = sequence(trial.getParValues()[k].getInt());
+			s.insert(trial);
+			pending.put(trial, s);
+		}
+	}
+
+	/**
+	 * Remove all trials which have been removed from their sequences from the
+	 * trial list.
+	 *
+	 * @param trialList
+	 *            the block's trial list.
+	 */
+	public void compact(ArrayList trialList) {
+		if (removed.isEmpty())
+			return;
+		int n = trialList.size();
+		ArrayList a = new ArrayList(n);
+		for (int i = 0; i < n; i++) {
+			Object t = trialList.get(i);
+			if (!removed.containsKey(t))
+				a.add(t);
+		}
+		trialList.clear();
+		trialList.addAll(a);
+		for (Iterator i = removed.keySet().iterator(); i.hasNext();)
+			labels.remove(i.next());
+		removed.clear();
+	}
+
+	/** Number the order labels of all trials by their list position. */
+	private void setLabels(ArrayList trialList) {
+		int n = trialList.size();
+		for (int i = 0; i < n; i++)
+			labels.put(trialList.get(i), Long.valueOf(i * LABEL_GAP));
+	}
+
+	/** Get the order label of a trial of the block. */
+	private long label(Object trial) {
+		return ((Long) labels.get(trial)).longValue();
+	}
+
+	private void addTrials(ArrayList trialList, int from) {
+		int n = trialList.size();
+		for (int i = from; i < n; i++) {
+			ExDesignNode t = (ExDesignNode) trialList.get(i);
+			if (isRemoved(t))
+				continue;
+			int k = t.getParIndex("AdaptiveSequenceID");
+			if (k >= 0) {
+				// Reading the ID does not create the values of trials
+				// which have not yet been used.
+				Sequence s = sequence(t.peekParValue(k).getInt());
+				s.addLast(t);
+				pending.put(t, s);
+			}
+		}
+	}
+
+	/** Get the sequence with the given ID and create it if necessary. */
+	private Sequence sequence(int id) {
+		int mask = keys.length - 1;
+		int i = mix(id) & mask;
+		while (table[i] != null) {
+			if (keys[i] == id)
+				return table[i];
+			i = (i + 1) & mask;
+		}
+		Sequence s = new Sequence();
+		keys[i] = id;
+		table[i] = s;
+		sequences.add(s);
+		if (++size > keys.length / 2)
+			grow();
+		return s;
+	}
+
+	private void grow() {
+		int[] k = keys;
+		Sequence[] t = table;
+		keys = new int[2 * k.length];
+		table = new Sequence[2 * k.length];
+		int mask = keys.length - 1;
+		for (int j = 0; j < k.length; j++) {
+			if (t[j] != null) {
+				int i = mix(k[j]) & mask;
+				while (table[i] != null)
+					i = (i + 1) & mask;
+				keys[i] = k[j];
+				table[i] = t[j];
+			}
+		}
+	}
+
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** An adaptive sequence's control object and its pending trials. */
+	private class Sequence {
+		AdaptiveControl control;
+		ExDesignNode[] trials = new ExDesignNode[16];
+		int head = 0;
+		int tail = 0;
+
+		ExDesignNode peek() {
+			return (head < tail) ? trials[head] : null;
+		}
+
+		void addLast(ExDesignNode t) {
+			if (tail == trials.length)
+				resize(0, 1);
+			trials[tail++] = t;
+		}
+
+		/**
+		 * Insert a trial at the position given by its order label. The
+		 * position is found by a binary search on the labels of the queue.
+		 */
+		void insert(ExDesignNode t) {
+			long r = label(t);
+			int lo = head;
+			int hi = tail;
+			while (lo < hi) {
+				int m = (lo + hi) >>> 1;
+				if (label(trials[m]) < r) {
+					lo = m + 1;
+				} else {
+					hi = m;
+				}
+			}
+			if ((lo == head) && (head > 0)) {
+				trials[--head] = t;
+				return;
+			}
+			if (tail == trials.length) {
+				int d = lo - head;
+				resize(0, 1);
+				lo = head + d;
+			}
+			System.arraycopy(trials, lo, trials, lo + 1, tail - lo);
+			trials[lo] = t;
+			tail++;
+		}
+
+		/**
+		 * Remove the given trial and all trials preceding it from the queue.
+		 * Nothing is removed if the trial is not contained in this queue.
+		 */
+		void pollThrough(ExDesignNode t) {
+			if (pending.get(t) != this)
+				return;
+			ExDesignNode p;
+			do {
+				p = trials[head];
+				trials[head++] = null;
+				pending.remove(p);
+			} while (p != t);
+		}
+
+		/**
+		 * Move the queue into a new array which has at least the given free
+		 * space at its front and at least minTail free entries at its end.
+		 */
+		private void resize(int front, int minTail) {
+			int n = tail - head;
+			int cap = Math.max(2 * n, 16);
+			while (cap < front + n + minTail)
+				cap *= 2;
+			ExDesignNode[] a = new ExDesignNode[cap];
+			System.arraycopy(trials, head, a, front, n);
+			trials = a;
+			head = front;
+			tail = front + n;
+		}
+	}
+}
@@ -594,6 +594,30 @@ public class Base {
 		return exportJavaClass;
 	}
 	// ----------------------------------------------------------------
+	// Design snapshot option '-C'
+	// ----------------------------------------------------------------
+	/**
+	 * If true then parsed design files are saved as binary snapshots and are
+	 * loaded from their snapshot if the design file has not been changed.
+	 */
+	private static boolean designSnapshots = false;
+
+	/**
+	 * Set a flag such that design files are loaded from and saved to binary
+	 * design snapshots.
+	 * 
+	 * @see ExDesignSnapshot
+	 */
+	public static void setDesignSnapshots(boolean s) {
+		designSnapshots = s;
+		Debug.show(Debug.BASE, "Base.setDesignSnapshots(): " + designSnapshots);
+	}
+
+	/** Get the design snapshot flag. */
+	public static boolean getDesignSnapshots() {
+		return designSnapshots;
+	}
+	// ----------------------------------------------------------------
 	// Print design file option '-T'
 	// ----------------------------------------------------------------
 	/**
@@ -27,6 +27,8 @@ import java.util.*;
  * 2006/02/10 added support for scalable vector graphics images.
  * 
  * 2007/05/12 moved all methods from the class PictureElement into this file.
+ * 
+ * 2026/10/19 added support for pre-rendered images.
  */
 public class BitMapElement extends DisplayElement implements
 		PositionReferenceCodes {
@@ -48,6 +50,11 @@ public class BitMapElement extends DisplayElement implements
 	private String filePath = null;
 	/** An array of images for a movie. */
 	protected BufferedImage[] movie = null;
+	/**
+	 * Indicates that the current image has been loaded from the pre-rendered
+	 * image directory. Such an image must not be modified.
+	 */
+	protected boolean prerendered = false;
 
 	public BitMapElement() {
 	}
@@ -105,10 +112,48 @@ public class BitMapElement extends DisplayElement implements
 
 	public void setImage(BufferedImage i) {
 		image = i;
+		prerendered = false;
 		setSize(image.getWidth(), image.getHeight());
 		setScalingFactor(1f);
 	}
 
+	/**
+	 * Set this element's image to the pre-rendered image with the given key
+	 * if there is one.
+	 * 
+	 * @param key
+	 *            the key of the image. It must be computed from all
+	 *            parameters which affect the image.
+	 * @return true if a pre-rendered image has been found and false if the
+	 *         image has to be computed.
+	 * @see PrerenderedImages
+	 */
+	public boolean setPrerenderedImage(String key) {
+		BufferedImage i = PrerenderedImages.getImage(key);
+		if (i == null)
+			return false;
+		setImage(i);
+		prerendered = true;
+		return true;
+	}
+
+	/**
+	 * Set a computed image and send it to the pre-rendered image export if
+	 * an export run is active.
+	 * 
+	 * @param i
+	 *            the computed image.
+	 * @param key
+	 *            the key of the image which has been used for
+	 *            setPrerenderedImage().
+	 * @param kind
+	 *            the kind of image which is written to the manifest.
+	 */
+	public void setImage(BufferedImage i, String key, String kind) {
+		setImage(i);
+		PrerenderedImages.putImage(key, kind, i);
+	}
+
 	public void setSelectedImage(BufferedImage i) {
 		selectedImage = i;
 	}
@@ -15,6 +15,8 @@ import java.io.*;
  */
 /*
  * 11/22/01 allow URLs as image directories
+ * 
+ * 2026/10/19 use pre-rendered images
  */
 public class ColorTransformedBitMapElement extends BitMapElement {
 	protected ExPar shortColorPar;
@@ -47,7 +49,22 @@ public class ColorTransformedBitMapElement extends BitMapElement {
 			}
 		}
 		setColorTransform();
-		recomputeImage();
+		if (imageModified && PrerenderedImages.isActive()) {
+			String key = new PrerenderedImages.Key(
+					"ColorTransformedBitMapElement").add(sourceImage).add(
+					previousColorA).add(previousColorB).toString();
+			BufferedImage pi = PrerenderedImages.getImage(key);
+			if (pi != null) {
+				reducedImage = pi;
+				imageModified = false;
+			} else {
+				recomputeImage();
+				PrerenderedImages.putImage(key,
+						"ColorTransformedBitMapElement", reducedImage);
+			}
+		} else {
+			recomputeImage();
+		}
 		setImage(showSubspace ? reducedImage : sourceImage);
 	}
 
@@ -289,7 +289,8 @@ public class DataDestination {
 
 	/**
 	 * Return the most recent data file name which contains data from the
-	 * current subject.
+	 * current subject. If the run which created it has been aborted then the
+	 * data tree file is recovered from the run's spool files.
 	 * 
 	 * @return a string containing the file name or null if no data files exist
 	 *         for the current subject.
@@ -299,7 +300,15 @@ public class DataDestination {
 		if (fn != null) {
 			int i = fn.lastIndexOf(ExPar.DataFileExtension.getString());
 			fn = fn.substring(0, i) + ExPar.DataTreeFileExtension.getString();
+			// Data tree files are stored in their own subdirectory
+			File t = new File(destinationDirectory(ExPar.DataTreeDirectory),
+					new File(fn).getName());
+			if (t.exists() || DataTreeWriter.canRecover(t.getPath()))
+				fn = t.getPath();
 			File f = new File(fn);
+			if (!f.exists() && DataTreeWriter.recover(fn)) {
+				f = new File(fn);
+			}
 			if (!f.exists()) {
 				System.out
 						.println("DataWriter.getMostRecentDataFileName(): File "
@@ -350,6 +359,16 @@ public class DataDestination {
 		trialDataWriter.setDataFileHeader(dfh);
 	}
 
+	/**
+	 * Create a writer which stores the data tree while it is being created.
+	 * 
+	 * @return the data tree writer or null if there is no data tree file.
+	 */
+	public DataTreeWriter createDataTreeWriter() {
+		return (dataTreeFileName != null) ? new DataTreeWriter(
+				dataTreeFileName) : null;
+	}
+
 	public void storeDataTree(ExDesignNode data) {
 		if (dataTreeFileName != null) {
 			data.store(dataTreeFileName);
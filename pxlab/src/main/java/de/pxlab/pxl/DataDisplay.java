@@ -52,6 +52,15 @@ import de.pxlab.stat.*;
  * on the subtable.
  * 
  * <p>
+ * If the data are read from raw data files and the Include and Exclude
+ * conditions and the table columns only depend on the data file columns, then
+ * the data table is a typed ColumnDataTable and is sent to the subclass's
+ * processColumnTable() method. Subclasses which only need numeric columns
+ * override this method and read the columns without creating an ExParValue
+ * object for every table entry. The default implementation converts the table
+ * into an ExParValueTable and calls processDataTable().
+ * 
+ * <p>
  * Subclasses may generate two types of computed results files:
  * 
  * <ul>
@@ -100,6 +109,8 @@ import de.pxlab.stat.*;
  * 
  * 2007/05/12 allow empty data tables for objects which get their data from
  * other sources.
+ * 
+ * 2026/10/19 typed column tables for data collected from raw data files.
  */
 abstract public class DataDisplay extends DisplaySupport implements
 		ExParTypeCodes {
@@ -166,6 +177,11 @@ abstract public class DataDisplay extends DisplaySupport implements
 	public void destroyInstance() {
 	}
 	private ExParValueTable dataTable;
+	/**
+	 * The typed data table which is used instead of dataTable if the data
+	 * have been collected from raw data files by a compiled row evaluator.
+	 */
+	private ColumnDataTable columnTable;
 	protected int total_N;
 	protected int included_N;
 	protected int excluded_N;
@@ -186,6 +202,7 @@ abstract public class DataDisplay extends DisplaySupport implements
 	 */
 	public void createDataTable(String[] parNames, ExDesignNode data) {
 		dataTable = new ExParValueTable(parNames, 500);
+		columnTable = null;
 		total_N = 0;
 		included_N = 0;
 		excluded_N = 0;
@@ -230,6 +247,7 @@ abstract public class DataDisplay extends DisplaySupport implements
 	public void createDataTable(ExDesign exDesignDataProc, String[] parNames,
 			File[] dataFiles, int fileType) {
 		dataTable = new ExParValueTable(parNames, 2000);
+		columnTable = null;
 		total_N = 0;
 		included_N = 0;
 		excluded_N = 0;
@@ -270,7 +288,9 @@ abstract public class DataDisplay extends DisplaySupport implements
 			System.out.println("     total = " + total_N);
 			System.out.println("  included = " + included_N);
 			System.out.println("  excluded = " + excluded_N);
-			System.out.println("     final = " + dataTable.size() + nl);
+			System.out.println("     final = "
+					+ ((columnTable != null) ? columnTable.getRows()
+							: dataTable.size()) + nl);
 		}
 	}
 
@@ -361,29 +381,80 @@ abstract public class DataDisplay extends DisplaySupport implements
 				ExPar.enter(parNames[i], tablePars[i]);
 			}
 		}
+		// If the inclusion and exclusion conditions and the table columns
+		// only depend on the data file columns then they are evaluated
+		// directly on the rows of the column table.
+		DataRowEvaluator rowEvaluator = DataRowEvaluator.compile(dataPars,
+				Include, Exclude, tablePars);
+		Debug.show(Debug.DATA, "DataDisplay.collectData() Row evaluation is "
+				+ ((rowEvaluator != null) ? "compiled" : "interpreted"));
+		// If all table columns are data file columns then the selected rows
+		// are copied into a typed column table.
+		int[] projection = (rowEvaluator != null) ? rowEvaluator
+				.columnProjection() : null;
+		if (projection != null) {
+			columnTable = new ColumnDataTable();
+			columnTable.setColumnNames(parNames);
+		}
+		// The pushed values are cloned by ExPar.push() thus a single
+		// ExParValue per data column is sufficient for converting the table
+		// entries.
+		ExParValue[] a = new ExParValue[dm];
+		for (int k = 0; k < dm; k++) {
+			a[k] = new ExParValue("");
+		}
 		for (int i = 0; i < dataFiles.length; i++) {
-			ExParValueTable d = new ExParValueTable(dataFiles[i].getPath());
+			ColumnDataTable d = new ColumnDataTable(dataFiles[i].getPath());
+			if (d.getRows() > 0 && d.getColumns() < dm) {
+				System.out
+						.println("DataDisplay.collectData() Too few columns in file "
+								+ dataFiles[i].getPath());
+				System.exit(3);
+			}
 			int n = d.getRows();
-			for (int j = 0; j < n; j++) {
-				ExParValue[] a = (ExParValue[]) (d.row(j));
-				for (int k = 0; k < dm; k++) {
-					dataPars[k].push(a[k]);
-				}
-				ExParValue[] b = new ExParValue[tm];
-				total_N++;
-				if (Include.getFlag()) {
-					included_N++;
-					if (Exclude.getFlag()) {
-						excluded_N++;
-					} else {
-						for (int k = 0; k < tm; k++) {
-							b[k] = tablePars[k].getValue().getValue();
+			DataColumn[] c = new DataColumn[(n > 0) ? dm : 0];
+			for (int k = 0; k < c.length; k++) {
+				c[k] = d.column(k);
+			}
+			if (rowEvaluator != null) {
+				if (n > 0)
+					rowEvaluator.setTable(d);
+				for (int j = 0; j < n; j++) {
+					rowEvaluator.setRow(j);
+					total_N++;
+					if (rowEvaluator.isIncluded()) {
+						included_N++;
+						if (rowEvaluator.isExcluded()) {
+							excluded_N++;
+						} else if (projection != null) {
+							columnTable.addRow(d, j, projection);
+						} else {
+							dataTable.addRow(rowEvaluator.projectedRow());
 						}
-						dataTable.addRow(b);
 					}
 				}
-				for (int k = 0; k < dm; k++) {
-					dataPars[k].pop();
+			} else {
+				for (int j = 0; j < n; j++) {
+					for (int k = 0; k < dm; k++) {
+						ExParValueTable.setEntry(a[k], c[k], j);
+						dataPars[k].push(a[k]);
+					}
+					ExParValue[] b = new ExParValue[tm];
+					total_N++;
+					if (Include.getFlag()) {
+						included_N++;
+						if (Exclude.getFlag()) {
+							excluded_N++;
+						} else {
+							for (int k = 0; k < tm; k++) {
+								b[k] = tablePars[k].getValue().getValue();
+							}
+							dataTable.addRow(b);
+						}
+					}
+					for (int k = 0; k < dm; k++) {
+						dataPars[k].pop();
+					}
 				}
 			}
 		}
@@ -403,13 +474,15 @@ abstract public class DataDisplay extends DisplaySupport implements
 	 */
 	public int doProcessDataTable(ExDesign exDesign, DataDestination dataDest) {
 		// System.out.println("DataDisplay.compute()");
-		if (valid(dataTable)) {
+		boolean columns = (columnTable != null) && (columnTable.getRows() > 0);
+		if (columns || valid(dataTable)) {
 			dataDestination = dataDest;
 			String[] pn = getExDesignNode().getParNames();
 			if (pn == null || pn.length == 0) {
 				pn = dataTable.getColumnNames();
 			}
-			int r = processDataTable(exDesign, pn, dataTable);
+			int r = columns ? processColumnTable(exDesign, pn, columnTable)
+					: processDataTable(exDesign, pn, dataTable);
 		} else {
 			System.out
 					.println("DataDisplay.processDataTable(): data table empty.");
@@ -441,6 +514,26 @@ abstract public class DataDisplay extends DisplaySupport implements
 	abstract protected int processDataTable(ExDesign exDesign,
 			String[] parNames, ExParValueTable table);
 
+	/**
+	 * Process a typed data table which has been collected from raw data
+	 * files. The default implementation converts the table into an
+	 * ExParValueTable and calls processDataTable(). Subclasses which only need
+	 * numeric columns should override this method.
+	 * 
+	 * @param exDesign
+	 *            the experimental design tree which contained the data
+	 *            processing list object which is the parent of this data
+	 *            processing object.
+	 * @param parNames
+	 *            the argument list of this object's design file node.
+	 * @param table
+	 *            the data table.
+	 */
+	protected int processColumnTable(ExDesign exDesign, String[] parNames,
+			ColumnDataTable table) {
+		return processDataTable(exDesign, parNames, new ExParValueTable(table));
+	}
+
 	/**
 	 * Send the results string given as an argument to the data destination for
 	 * this display object.
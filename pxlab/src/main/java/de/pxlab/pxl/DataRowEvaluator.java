@@ -0,0 +1,412 @@
+package de.pxlab.pxl;
+
+import java.util.*;
+
+import de.pxlab.stat.*;
+
+/**
+ * Evaluates the Include and Exclude conditions and the column projection of a
+ * DataDisplay object directly on the rows of a ColumnDataTable. The condition
+ * expressions are compiled once into a tree of evaluation nodes which read the
+ * current row's entries from the table columns. This avoids pushing every
+ * table entry onto its experimental parameter's value stack and evaluating the
+ * conditions through the ExParValue expression interpreter for every row.
+ *
+ * <p>
+ * Only expressions made of literal values, parameter references, comparison,
+ * logical, arithmetic and conditional operators can be compiled. Parameters
+ * which are not data columns must have constant values during data
+ * collection. If anything else is found then compile() returns null and the
+ * caller has to use the stack based evaluation.
+ *
+ * @version 0.1.0
+ * @see DataDisplay
+ */
+public class DataRowEvaluator {
+	/** Maximum depth of parameter references followed when compiling. */
+	private static final int MAX_REFERENCE_DEPTH = 32;
+	private ExPar[] dataPars;
+	private ColumnDataTable table;
+	private int row;
+	private Node include;
+	private Node exclude;
+	/**
+	 * For every projected table column this is the index of the data column
+	 * which contains its values or -1 if the projected parameter is constant.
+	 */
+	private int[] projection;
+	/** Values of the constant projected parameters. */
+	private ExParValue[] constants;
+	private ArrayList columnNodes = new ArrayList(8);
+
+	private DataRowEvaluator(ExPar[] dataPars) {
+		this.dataPars = dataPars;
+	}
+
+	/**
+	 * Compile the given conditions and projected parameters into a row
+	 * evaluator.
+	 *
+	 * @param dataPars
+	 *            the parameters contained in the data file columns.
+	 * @param include
+	 *            the inclusion condition.
+	 * @param exclude
+	 *            the exclusion condition.
+	 * @param tablePars
+	 *            the parameters whose values are entered into the data table.
+	 * @return a row evaluator or null if any of the arguments cannot be
+	 *         compiled.
+	 */
+	public static DataRowEvaluator compile(ExPar[] dataPars, ExPar include,
+			ExPar exclude, ExPar[] tablePars) {
+		DataRowEvaluator e = new DataRowEvaluator(dataPars);
+		e.include = e.compile(include.getValue(), 0);
+		e.exclude = e.compile(exclude.getValue(), 0);
+		if (e.include == null || e.exclude == null)
+			return null;
+		int m = tablePars.length;
+		e.projection = new int[m];
+		e.constants = new ExParValue[m];
+		for (int i = 0; i < m; i++) {
+			int k = e.dataColumnOf(tablePars[i]);
+			if (k < 0) {
+				ExParValue v = tablePars[i].getValue();
+				if (v.getNeedsEvaluation())
+					return null;
+				e.constants[i] = v;
+			}
+			e.projection[i] = k;
+		}
+		return e;
+	}
+
+	/**
+	 * Set the table whose rows are evaluated by subsequent calls.
+	 *
+	 * @param t
+	 *            a table whose columns correspond to the data parameter names
+	 *            given to compile().
+	 */
+	public void setTable(ColumnDataTable t) {
+		table = t;
+		for (int i = 0; i < columnNodes.size(); i++)
+			((ColumnNode) columnNodes.get(i)).bind();
+	}
+
+	/**
+	 * Select the row which is evaluated by subsequent calls.
+	 *
+	 * @param r
+	 *            the row index.
+	 */
+	public void setRow(int r) {
+		row = r;
+	}
+
+	/** Get the value of the Include condition for the current row. */
+	public boolean isIncluded() {
+		return flag(include);
+	}
+
+	/** Get the value of the Exclude condition for the current row. */
+	public boolean isExcluded() {
+		return flag(exclude);
+	}
+
+	/**
+	 * Get the projected parameter values of the current row. Values of data
+	 * columns are created from the typed column entries.
+	 *
+	 * @return an array of values for the data table.
+	 */
+	public ExParValue[] projectedRow() {
+		int m = projection.length;
+		ExParValue[] b = new ExParValue[m];
+		for (int i = 0; i < m; i++) {
+			int k = projection[i];
+			if (k >= 0) {
+				b[i] = new ExParValue(0);
+				ExParValueTable.setEntry(b[i], table.column(k), row);
+			} else {
+				b[i] = constants[i];
+			}
+		}
+		return b;
+	}
+
+	/**
+	 * Get the data columns which contain the values of the projected
+	 * parameters.
+	 *
+	 * @return an array which contains for every projected parameter the index
+	 *         of its data column or null if any of the projected parameters
+	 *         is not a data column.
+	 */
+	public int[] columnProjection() {
+		for (int i = 0; i < projection.length; i++)
+			if (projection[i] < 0)
+				return null;
+		return (int[]) projection.clone();
+	}
+
+	/**
+	 * Find the data column which contains the values of the given parameter.
+	 *
+	 * @return the column index or -1 if the parameter is not a data column.
+	 */
+	private int dataColumnOf(ExPar x) {
+		for (int i = 0; i < dataPars.length; i++)
+			if (dataPars[i] == x)
+				return i;
+		return -1;
+	}
+
+	private static boolean flag(Node n) {
+		return Math.round(n.number()) != 0L;
+	}
+
+	/**
+	 * Compile a parameter value into an evaluation node.
+	 *
+	 * @return the evaluation node or null if the value cannot be compiled.
+	 */
+	private Node compile(ExParValue v, int depth) {
+		if (v == null || depth > MAX_REFERENCE_DEPTH)
+			return null;
+		if (v.isExpression()) {
+			return compileExpression(v.getExParExpression().getOpCode(), v,
+					depth);
+		}
+		if (v.isVariable()) {
+			ExPar x = ExPar.get(v.getValueParam(), false);
+			if (x == null)
+				return null;
+			int k = dataColumnOf(x);
+			if (k >= 0) {
+				ColumnNode c = new ColumnNode(k);
+				columnNodes.add(c);
+				return c;
+			}
+			return compile(x.getValue(), depth + 1);
+		}
+		if (v.getNeedsEvaluation() || v.length != 1)
+			return null;
+		return new ConstantNode(v);
+	}
+
+	private Node compileExpression(int op, ExParValue v, int depth) {
+		Node a = compile(v.getSubValue(0), depth);
+		if (a == null)
+			return null;
+		switch (op) {
+		case ExParExpression.BRACKET_OP:
+			return a;
+		case ExParExpression.POS_OP:
+		case ExParExpression.NEG_OP:
+		case ExParExpression.NOT_OP:
+			return new UnaryNode(op, a);
+		}
+		Node b = compile(v.getSubValue(1), depth);
+		if (b == null)
+			return null;
+		switch (op) {
+		case ExParExpression.EQ_OP:
+		case ExParExpression.NE_OP:
+			if (a.isNumericOnly() || b.isNumericOnly())
+				return null;
+			return new BinaryNode(op, a, b);
+		case ExParExpression.ADD_OP:
+		case ExParExpression.SUB_OP:
+		case ExParExpression.MUL_OP:
+		case ExParExpression.DIV_OP:
+		case ExParExpression.MOD_OP:
+		case ExParExpression.GT_OP:
+		case ExParExpression.GE_OP:
+		case ExParExpression.LT_OP:
+		case ExParExpression.LE_OP:
+		case ExParExpression.AND_OP:
+		case ExParExpression.OR_OP:
+			return new BinaryNode(op, a, b);
+		case ExParExpression.CONDITIONAL_OP:
+			Node c = compile(v.getSubValue(2), depth);
+			return (c == null) ? null : new ConditionalNode(a, b, c);
+		}
+		return null;
+	}
+
+	/** An evaluation node of a compiled expression. */
+	private abstract class Node {
+		/**
+		 * Get the numeric value of this node in the same way as
+		 * ExParValue.getDouble() does.
+		 */
+		abstract double number();
+
+		/**
+		 * Get the String value of this node in the same way as
+		 * ExParValue.getString() does.
+		 */
+		String string() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Nodes which are results of numeric operations do not have a String
+		 * value which is known without formatting the result.
+		 */
+		boolean isNumericOnly() {
+			return true;
+		}
+	}
+
+	/** A node which reads the current row's entry of a data column. */
+	private class ColumnNode extends Node {
+		private int index;
+		private DataColumn column;
+		/** Numeric values of the dictionary entries of a String column. */
+		private double[] codeValues;
+
+		ColumnNode(int k) {
+			index = k;
+		}
+
+		void bind() {
+			column = table.column(index);
+			codeValues = null;
+			if (column.getType() == DataColumn.STRING) {
+				StringDataColumn sc = (StringDataColumn) column;
+				int n = sc.getDictionarySize();
+				codeValues = new double[n];
+				for (int i = 0; i < n; i++)
+					codeValues[i] = (new ExParValue(sc.dictionaryEntry(i)))
+							.getDouble();
+			}
+		}
+
+		double number() {
+			return (codeValues != null) ? codeValues[((StringDataColumn) column)
+					.code(row)] : column.doubleValue(row);
+		}
+
+		String string() {
+			return column.stringValue(row);
+		}
+
+		boolean isNumericOnly() {
+			return false;
+		}
+	}
+
+	/** A node which has a constant value. */
+	private class ConstantNode extends Node {
+		private double d;
+		private String s;
+
+		ConstantNode(ExParValue v) {
+			d = v.getDouble();
+			s = v.getString();
+		}
+
+		double number() {
+			return d;
+		}
+
+		String string() {
+			return s;
+		}
+
+		boolean isNumericOnly() {
+			return false;
+		}
+	}
+
+	private class UnaryNode extends Node {
+		private int op;
+		private Node a;
+
+		UnaryNode(int op, Node a) {
+			this.op = op;
+			this.a = a;
+		}
+
+		double number() {
+			switch (op) {
+			case ExParExpression.NEG_OP:
+				return -a.number();
+			case ExParExpression.NOT_OP:
+				return flag(a) ? 0.0 : 1.0;
+			default:
+				return a.number();
+			}
+		}
+	}
+
+	private class BinaryNode extends Node {
+		private int op;
+		private Node a;
+		private Node b;
+
+		BinaryNode(int op, Node a, Node b) {
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		double number() {
+			switch (op) {
+			case ExParExpression.EQ_OP:
+				return a.string().equals(b.string()) ? 1.0 : 0.0;
+			case ExParExpression.NE_OP:
+				return a.string().equals(b.string()) ? 0.0 : 1.0;
+			case ExParExpression.ADD_OP:
+				return a.number() + b.number();
+			case ExParExpression.SUB_OP:
+				return a.number() - b.number();
+			case ExParExpression.MUL_OP:
+				return a.number() * b.number();
+			case ExParExpression.DIV_OP:
+				return a.number() / b.number();
+			case ExParExpression.MOD_OP:
+				return (int) Math.round(a.number())
+						% (int) Math.round(b.number());
+			case ExParExpression.GT_OP:
+				return (a.number() > b.number()) ? 1.0 : 0.0;
+			case ExParExpression.GE_OP:
+				return (a.number() >= b.number()) ? 1.0 : 0.0;
+			case ExParExpression.LT_OP:
+				return (a.number() < b.number()) ? 1.0 : 0.0;
+			case ExParExpression.LE_OP:
+				return (a.number() <= b.number()) ? 1.0 : 0.0;
+			case ExParExpression.AND_OP:
+				return (flag(a) && flag(b)) ? 1.0 : 0.0;
+			default:
+				return (flag(a) || flag(b)) ? 1.0 : 0.0;
+			}
+		}
+	}
+
+	private class ConditionalNode extends Node {
+		private Node a;
+		private Node b;
+		private Node c;
+
+		ConditionalNode(Node a, Node b, Node c) {
+			this.a = a;
+			this.b = b;
+			this.c = c;
+		}
+
+		double number() {
+			return flag(a) ? b.number() : c.number();
+		}
+
+		String string() {
+			return flag(a) ? b.string() : c.string();
+		}
+
+		boolean isNumericOnly() {
+			return b.isNumericOnly() || c.isNumericOnly();
+		}
+	}
+}
@@ -0,0 +1,631 @@
+package de.pxlab.pxl;
+
+import java.io.*;
+import java.util.ArrayList;
+
+import de.pxlab.util.FileExt;
+
+/**
+ * Writes the data tree of an experimental run while the run is going on.
+ * Every trial, block and session data node is written as soon as it is
+ * complete. Thus the data tree need not be kept in memory and a crash does
+ * not lose the data which have been collected so far.
+ * 
+ * <p>
+ * The parameter values of a block, session and procedure data node are known
+ * only after their children have been run, but the data tree file contains
+ * a node's values before its children. Thus completed nodes are appended to
+ * a spool file for every tree level: trials go to the trial spool file of the
+ * current block. When the block is complete then the block node is appended
+ * to the block spool file of the current session followed by the content of
+ * the trial spool file which then is cleared. Sessions are handled the same
+ * way. When the run is finished then the data tree file is created from the
+ * top level nodes and the session spool file. The data tree file is identical
+ * to the file which is written by ExDesignNode.store() and may be read by
+ * the design file parser.
+ * 
+ * <p>
+ * Spool files are deleted after the data tree file has been written. If a
+ * run is aborted by a crash then the spool files contain the data of all
+ * trials, blocks and sessions which have been completed. The spool files
+ * are named by the data tree file name followed by the extensions
+ * ".trials", ".blocks" and ".sessions". Two more files support recovery:
+ * the ".head" file contains the top level nodes up to the procedure node's
+ * opening brace and the ".open" file contains the session and block which
+ * are running. The method recover() assembles a valid data tree file from
+ * these files after a crash. This is done automatically when the data tree
+ * file is needed by a later run or when a new writer is created for the same
+ * file. It may also be done from the command line:
+ * 
+ * <pre>
+ *    java de.pxlab.pxl.DataTreeWriter file.dtr ...
+ * </pre>
+ * 
+ * @version 0.1.0
+ * @see DataDestination
+ * @see ExDesign
+ */
+public class DataTreeWriter {
+	private static final int TRIAL = 0;
+	private static final int BLOCK = 1;
+	private static final int SESSION = 2;
+	private static final String[] SPOOL_EXTENSIONS = { ".trials", ".blocks",
+			".sessions" };
+	/** Indentation depth of the node types in the data tree file. */
+	private static final int[] DEPTH = { 8, 6, 4 };
+	private static final int PROCEDURE_DEPTH = 2;
+	private static final String HEAD_EXTENSION = ".head";
+	private static final String OPEN_EXTENSION = ".open";
+	private String filePath;
+	private File[] spool = new File[3];
+	private OutputStream[] stream = new OutputStream[3];
+	private PrintWriter[] writer = new PrintWriter[3];
+	/** Number of nodes in every spool file. */
+	private int[] spooled = new int[3];
+	/** Number of nodes which have been written in total. */
+	private int[] written = new int[3];
+	private boolean failed = false;
+	/** Header lines of the running session and block. */
+	private String openSession = null;
+	private String openBlock = null;
+
+	/**
+	 * Create a data tree writer and its spool files. Spool files which have
+	 * been left by a crashed run for the same data tree file are recovered
+	 * first.
+	 * 
+	 * @param filePath
+	 *            the path of the data tree file.
+	 */
+	public DataTreeWriter(String filePath) {
+		this.filePath = filePath;
+		if (canRecover(filePath) && !recover(filePath)) {
+			// Keep the old spool files
+			failed = true;
+			return;
+		}
+		try {
+			for (int i = 0; i < 3; i++) {
+				spool[i] = new File(filePath + SPOOL_EXTENSIONS[i]);
+				open(i);
+			}
+		} catch (IOException iox) {
+			fail(iox);
+		}
+	}
+
+	private void open(int level) throws IOException {
+		stream[level] = new BufferedOutputStream(new FileOutputStream(
+				spool[level]));
+		writer[level] = new PrintWriter(new OutputStreamWriter(stream[level]));
+		spooled[level] = 0;
+	}
+
+	/**
+	 * Write the top level nodes of the data tree which precede the
+	 * procedure's sessions to the head file. This must be called when the
+	 * procedure starts.
+	 * 
+	 * @param root
+	 *            the root node of the data tree.
+	 * @param procedure
+	 *            the procedure data node which is a child of the root node.
+	 */
+	public void start(ExDesignNode root, ExDesignNode procedure) {
+		if (failed)
+			return;
+		try {
+			PrintWriter w = new PrintWriter(new OutputStreamWriter(
+					new BufferedOutputStream(new FileOutputStream(filePath
+							+ HEAD_EXTENSION))));
+			printComment(w, root, 0);
+			w.println(root.toString());
+			w.println("{");
+			ArrayList c = root.getChildrenList();
+			for (int i = 0; i < c.size(); i++) {
+				ExDesignNode nd = (ExDesignNode) c.get(i);
+				if (nd != procedure)
+					nd.print(w, PROCEDURE_DEPTH);
+			}
+			printComment(w, procedure, PROCEDURE_DEPTH);
+			w.println(indent(PROCEDURE_DEPTH) + currentValueString(procedure));
+			w.println(indent(PROCEDURE_DEPTH) + "{");
+			w.close();
+			if (w.checkError())
+				throw new IOException("Error writing " + filePath
+						+ HEAD_EXTENSION);
+		} catch (IOException iox) {
+			fail(iox);
+		}
+	}
+
+	/**
+	 * Note that a session starts. Its current parameter values are used if
+	 * the session has to be recovered after a crash.
+	 * 
+	 * @param session
+	 *            the session data node.
+	 */
+	public void beginSession(ExDesignNode session) {
+		openSession = indent(DEPTH[SESSION]) + currentValueString(session);
+		openBlock = null;
+		writeOpen();
+	}
+
+	/**
+	 * Note that a block starts. Its current parameter values are used if the
+	 * block has to be recovered after a crash.
+	 * 
+	 * @param block
+	 *            the block data node.
+	 */
+	public void beginBlock(ExDesignNode block) {
+		openBlock = indent(DEPTH[BLOCK]) + currentValueString(block);
+		writeOpen();
+	}
+
+	private void writeOpen() {
+		if (failed)
+			return;
+		try {
+			PrintWriter w = new PrintWriter(new OutputStreamWriter(
+					new FileOutputStream(filePath + OPEN_EXTENSION)));
+			w.println((openSession != null) ? openSession : "");
+			w.println((openBlock != null) ? openBlock : "");
+			w.close();
+			if (w.checkError())
+				throw new IOException("Error writing " + filePath
+						+ OPEN_EXTENSION);
+		} catch (IOException iox) {
+			fail(iox);
+		}
+	}
+
+	/**
+	 * Get the header line of a data node which has the current values of the
+	 * node's parameters.
+	 */
+	private static String currentValueString(ExDesignNode node) {
+		ExDesignNode nd = new ExDesignNode(node.getType(), node.getParNames(),
+				null, 0);
+		nd.setName(node.getName());
+		nd.setParValuesToCurrentValues();
+		return nd.toString();
+	}
+
+	/**
+	 * Write a completed trial data node.
+	 * 
+	 * @param trial
+	 *            the trial data node.
+	 */
+	public void storeTrial(ExDesignNode trial) {
+		append(TRIAL, trial);
+	}
+
+	/**
+	 * Write a completed block data node and the trials which have been
+	 * written since the previous block.
+	 * 
+	 * @param block
+	 *            the block data node. Its children, if any, are ignored.
+	 */
+	public void storeBlock(ExDesignNode block) {
+		append(BLOCK, block);
+	}
+
+	/**
+	 * Write a completed session data node and the blocks which have been
+	 * written since the previous session.
+	 * 
+	 * @param session
+	 *            the session data node. Its children, if any, are ignored.
+	 */
+	public void storeSession(ExDesignNode session) {
+		append(SESSION, session);
+	}
+
+	/**
+	 * Write a session data node and all of its children. This is used for the
+	 * sessions of previous runs which are joined to the current data tree.
+	 * 
+	 * @param session
+	 *            the complete session data node.
+	 */
+	public void storeSessionTree(ExDesignNode session) {
+		if (failed)
+			return;
+		session.print(writer[SESSION], DEPTH[SESSION]);
+		spooled[SESSION]++;
+		written[SESSION]++;
+		flush(SESSION);
+	}
+
+	/**
+	 * Append a node to its level's spool file. Nodes above trial level are
+	 * followed by the content of the next lower level's spool file.
+	 */
+	private void append(int level, ExDesignNode node) {
+		if (failed)
+			return;
+		try {
+			PrintWriter w = writer[level];
+			if (level == TRIAL) {
+				printComment(w, node, DEPTH[level]);
+				w.println(indent(DEPTH[level]) + node.toString() + ";");
+			} else {
+				writeParent(level, node, DEPTH[level]);
+			}
+			spooled[level]++;
+			written[level]++;
+			flush(level);
+		} catch (IOException iox) {
+			fail(iox);
+		}
+	}
+
+	/**
+	 * Write a node whose children are contained in the spool file of the
+	 * next lower level to this level's spool file. The lower level's spool
+	 * file then is cleared.
+	 */
+	private void writeParent(int level, ExDesignNode node, int depth)
+			throws IOException {
+		PrintWriter w = writer[level];
+		int child = level - 1;
+		printComment(w, node, depth);
+		if (spooled[child] == 0) {
+			w.println(indent(depth) + node.toString() + ";");
+		} else {
+			w.println(indent(depth) + node.toString());
+			w.println(indent(depth) + "{");
+			w.flush();
+			copySpool(child, stream[level]);
+			w.println(indent(depth) + "}");
+			// The parent must be on disk before its children are removed.
+			w.flush();
+			if (w.checkError())
+				throw new IOException("Error writing " + spool[level]);
+			writer[child].close();
+			open(child);
+		}
+	}
+
+	/** Copy the content of a spool file to an output stream. */
+	private void copySpool(int level, OutputStream out) throws IOException {
+		writer[level].close();
+		if (writer[level].checkError())
+			throw new IOException("Error writing " + spool[level]);
+		InputStream in = new BufferedInputStream(new FileInputStream(
+				spool[level]));
+		try {
+			byte[] b = new byte[1 << 16];
+			int n;
+			while ((n = in.read(b)) > 0)
+				out.write(b, 0, n);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Flush a spool file such that its content survives a crash of the
+	 * application.
+	 */
+	private void flush(int level) {
+		writer[level].flush();
+		if (writer[level].checkError())
+			fail(new IOException("Error writing " + spool[level]));
+	}
+
+	/**
+	 * Write the data tree file. The spool files are deleted if the file has
+	 * been written successfully.
+	 * 
+	 * @param root
+	 *            the root node of the data tree.
+	 * @param procedure
+	 *            the procedure data node which is a child of the root node.
+	 *            Its children are taken from the session spool file and its
+	 *            children in memory, if any, are ignored.
+	 * @return true if the data tree file has been written.
+	 */
+	public boolean finish(ExDesignNode root, ExDesignNode procedure) {
+		if (failed) {
+			close();
+			return false;
+		}
+		File f = new File(filePath);
+		if (f.exists()) {
+			FileExt.backupFile(f);
+		}
+		boolean r = false;
+		try {
+			Debug.show(Debug.FILES, "DataTreeWriter.finish(): Open file "
+					+ filePath);
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(f));
+			PrintWriter ps = new PrintWriter(new OutputStreamWriter(os));
+			try {
+				printComment(ps, root, 0);
+				ps.println(root.toString());
+				ps.println("{");
+				ArrayList c = root.getChildrenList();
+				for (int i = 0; i < c.size(); i++) {
+					ExDesignNode nd = (ExDesignNode) c.get(i);
+					if (nd == procedure) {
+						writer[SESSION].flush();
+						ps.flush();
+						writeProcedure(ps, os, procedure);
+					} else {
+						nd.print(ps, PROCEDURE_DEPTH);
+					}
+				}
+				ps.println("}");
+			} finally {
+				ps.close();
+			}
+			r = !ps.checkError();
+			Debug.show(Debug.FILES, "DataTreeWriter.finish(): Closed file "
+					+ filePath);
+		} catch (IOException iox) {
+			r = false;
+		}
+		close();
+		if (r) {
+			deleteSpoolFiles(filePath);
+		} else {
+			new FileError("DataTreeWriter.finish(): Error writing file "
+					+ filePath);
+		}
+		return r;
+	}
+
+	private void writeProcedure(PrintWriter ps, OutputStream os,
+			ExDesignNode procedure) throws IOException {
+		String b = indent(PROCEDURE_DEPTH);
+		printComment(ps, procedure, PROCEDURE_DEPTH);
+		if (spooled[SESSION] == 0) {
+			ps.println(b + procedure.toString() + ";");
+		} else {
+			ps.println(b + procedure.toString());
+			ps.println(b + "{");
+			ps.flush();
+			copySpool(SESSION, os);
+			ps.println(b + "}");
+		}
+	}
+
+	/**
+	 * Close and delete the spool files without writing the data tree file.
+	 */
+	public void discard() {
+		close();
+		deleteSpoolFiles(filePath);
+	}
+
+	private static void deleteSpoolFiles(String filePath) {
+		for (int i = 0; i < 3; i++)
+			new File(filePath + SPOOL_EXTENSIONS[i]).delete();
+		new File(filePath + HEAD_EXTENSION).delete();
+		new File(filePath + OPEN_EXTENSION).delete();
+	}
+
+	/**
+	 * Check whether there are spool files of an aborted run which may be
+	 * recovered.
+	 * 
+	 * @param filePath
+	 *            the path of the data tree file.
+	 * @return true if recover() will find spool files.
+	 */
+	public static boolean canRecover(String filePath) {
+		return new File(filePath + HEAD_EXTENSION).exists();
+	}
+
+	/**
+	 * Assemble a data tree file from the spool files of a run which has been
+	 * aborted. The file contains all completed sessions. A session which has
+	 * been running when the run was aborted is added with its completed blocks
+	 * and the completed trials of its running block. The values of the
+	 * procedure and of a running session or block are those at their start.
+	 * An existing data tree file is kept as a backup. The spool files are
+	 * deleted if the data tree file has been written.
+	 * 
+	 * @param filePath
+	 *            the path of the data tree file.
+	 * @return true if a data tree file has been recovered and false if there
+	 *         was nothing to recover or recovery failed.
+	 */
+	public static boolean recover(String filePath) {
+		if (!canRecover(filePath))
+			return false;
+		File head = new File(filePath + HEAD_EXTENSION);
+		File[] sp = new File[3];
+		for (int i = 0; i < 3; i++)
+			sp[i] = new File(filePath + SPOOL_EXTENSIONS[i]);
+		String[] open = readOpen(new File(filePath + OPEN_EXTENSION));
+		File f = new File(filePath);
+		if (f.exists()) {
+			FileExt.backupFile(f);
+		}
+		boolean r = false;
+		try {
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(f));
+			PrintWriter ps = new PrintWriter(new OutputStreamWriter(os));
+			try {
+				copyLines(head, os);
+				copyLines(sp[SESSION], os);
+				boolean blocks = completeLength(sp[BLOCK]) > 0L;
+				boolean trials = completeLength(sp[TRIAL]) > 0L;
+				if (blocks || trials) {
+					String b = indent(DEPTH[SESSION]);
+					ps.println((open[0] != null) ? open[0] : (b + "Session()"));
+					ps.println(b + "{");
+					ps.flush();
+					copyLines(sp[BLOCK], os);
+					if (trials) {
+						String t = indent(DEPTH[BLOCK]);
+						ps.println((open[1] != null) ? open[1] : (t + "Block()"));
+						ps.println(t + "{");
+						ps.flush();
+						copyLines(sp[TRIAL], os);
+						ps.println(t + "}");
+					}
+					ps.println(b + "}");
+				}
+				ps.println(indent(PROCEDURE_DEPTH) + "}");
+				ps.println("}");
+			} finally {
+				ps.close();
+			}
+			r = !ps.checkError();
+		} catch (IOException iox) {
+			r = false;
+		}
+		if (r) {
+			deleteSpoolFiles(filePath);
+			Syslog.out.println("DataTreeWriter.recover(): Recovered data tree "
+					+ filePath);
+		} else {
+			new FileError("DataTreeWriter.recover(): Error writing file "
+					+ filePath);
+		}
+		return r;
+	}
+
+	/**
+	 * Read the header lines of the running session and block. Missing lines
+	 * are returned as null.
+	 */
+	private static String[] readOpen(File f) {
+		String[] s = new String[2];
+		if (!f.exists())
+			return s;
+		try {
+			BufferedReader r = new BufferedReader(new FileReader(f));
+			try {
+				for (int i = 0; i < 2; i++) {
+					String a = r.readLine();
+					s[i] = ((a != null) && (a.trim().length() > 0)) ? a : null;
+				}
+			} finally {
+				r.close();
+			}
+		} catch (IOException iox) {
+		}
+		return s;
+	}
+
+	/**
+	 * Get the length of a spool file up to its last line feed. A crash may
+	 * have interrupted writing the last line.
+	 */
+	private static long completeLength(File f) throws IOException {
+		if (!f.exists())
+			return 0L;
+		RandomAccessFile a = new RandomAccessFile(f, "r");
+		try {
+			byte[] b = new byte[4096];
+			long n = a.length();
+			while (n > 0L) {
+				int k = (int) Math.min(b.length, n);
+				a.seek(n - k);
+				a.readFully(b, 0, k);
+				for (int i = k - 1; i >= 0; i--)
+					if (b[i] == '\n')
+						return n - k + i + 1;
+				n -= k;
+			}
+			return 0L;
+		} finally {
+			a.close();
+		}
+	}
+
+	/** Copy the complete lines of a spool file to an output stream. */
+	private static void copyLines(File f, OutputStream out)
+			throws IOException {
+		long n = completeLength(f);
+		if (n == 0L)
+			return;
+		InputStream in = new BufferedInputStream(new FileInputStream(f));
+		try {
+			byte[] b = new byte[1 << 16];
+			while (n > 0L) {
+				int k = in.read(b, 0, (int) Math.min(b.length, n));
+				if (k <= 0)
+					break;
+				out.write(b, 0, k);
+				n -= k;
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Recover the data tree files given as command line arguments.
+	 */
+	public static void main(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String p = args[i];
+			// Accept the name of any of the spool files
+			for (int j = 0; j < 3; j++)
+				if (p.endsWith(SPOOL_EXTENSIONS[j]))
+					p = p.substring(0, p.length()
+							- SPOOL_EXTENSIONS[j].length());
+			if (p.endsWith(HEAD_EXTENSION) || p.endsWith(OPEN_EXTENSION))
+				p = p.substring(0, p.length() - 5);
+			System.out.println(p + ": "
+					+ (recover(p) ? "recovered" : "nothing recovered"));
+		}
+	}
+
+	private void close() {
+		for (int i = 0; i < 3; i++)
+			if (writer[i] != null)
+				writer[i].close();
+	}
+
+	/**
+	 * Get the number of trial data nodes which have been written.
+	 */
+	public int getTrialCount() {
+		return written[TRIAL];
+	}
+
+	/**
+	 * Get the number of block data nodes which have been written.
+	 */
+	public int getBlockCount() {
+		return written[BLOCK];
+	}
+
+	/**
+	 * Get the number of session data nodes which have been written.
+	 */
+	public int getSessionCount() {
+		return written[SESSION];
+	}
+
+	private void fail(IOException iox) {
+		if (!failed) {
+			failed = true;
+			new FileError("DataTreeWriter: Error writing data tree spool files for "
+					+ filePath + ": " + iox.getMessage());
+		}
+	}
+
+	/** Print a node's comment the same way as ExDesignNode.print() does. */
+	private static void printComment(PrintWriter w, ExDesignNode node,
+			int depth) {
+		String c = node.getComment();
+		if (c != null)
+			w.println(indent(depth) + c);
+	}
+
+	private static String indent(int depth) {
+		String b = "                    ";
+		return b.substring(0, Math.min(depth, b.length()));
+	}
+}
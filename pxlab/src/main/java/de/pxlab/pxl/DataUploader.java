@@ -0,0 +1,566 @@
+package de.pxlab.pxl;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import de.pxlab.util.StringExt;
+
+/**
+ * Uploads data records to an URL while a session runs. Records are appended
+ * to a local spool file and a background thread sends them to the
+ * destination URL in compressed batches. Only the batch which is currently
+ * being sent is held in memory. If the spool file cannot be created, as for
+ * example in an unsigned applet, then records are spooled in memory until
+ * they have been sent.
+ *
+ * <p>
+ * Spool files are kept in the subdirectory 'pxlab-spool' of the directory
+ * given by the PXLab property 'pxlab.local'. Their names are derived from the
+ * data file name. Next to every spool file there is a state file which
+ * contains the destination URL, the data file name, and the offset and
+ * sequence number of the next batch. The spool file is synchronized to the
+ * disk before a batch is sent and the state file whenever a batch has been
+ * acknowledged. Both files are deleted when the final batch has been
+ * acknowledged. Whenever a new uploader is created, it first resumes the
+ * uploads of all spool files which have been left over by earlier sessions,
+ * as for example after a crash or a network failure. A spool file which is
+ * still used by a running uploader is locked and is not resumed.
+ *
+ * <p>
+ * Every batch is sent by an HTTP POST request whose body contains the gzip
+ * compressed UTF-8 data. The request URL gets these query parameters:
+ *
+ * <ul>
+ * <li>DataFileName: the data file name.
+ *
+ * <li>Seq: the sequence number of the batch starting at 0.
+ *
+ * <li>Offset: the byte offset of the batch's first byte in the data file.
+ *
+ * <li>Final: 1 for the last batch of a session and 0 otherwise.
+ *
+ * <li>Email: the data file destination address if it is defined.
+ *
+ * </ul>
+ *
+ * A batch is acknowledged by a 2xx response. Failed batches are sent again
+ * with the same sequence number, offset, and content after a growing delay.
+ * A receiver thus should append the data of a batch only if its offset is
+ * equal to the current size of the data file and ignore batches with smaller
+ * offsets. This makes repeated requests harmless.
+ *
+ * @version 0.1.0
+ * @see URLDataWriter
+ */
+public class DataUploader implements Runnable {
+	/** Time to wait for more data before a batch is sent. */
+	private static final long BATCH_INTERVAL = 2000L;
+	/** Maximum number of uncompressed bytes in a batch. */
+	private static final int MAX_BATCH_SIZE = 256 * 1024;
+	/** Initial retry delay in milliseconds. */
+	private static final long MIN_RETRY_DELAY = 500L;
+	/** Maximum retry delay in milliseconds. */
+	private static final long MAX_RETRY_DELAY = 30000L;
+	/** Name of the spool directory within the local PXLab directory. */
+	private static final String SPOOL_DIRECTORY = "pxlab-spool";
+	private static final String SPOOL_EXTENSION = ".spool";
+	private static final String STATE_EXTENSION = ".state";
+	private URL dataURL;
+	private String fileName;
+	private String email;
+	/** The spool file or null if records are spooled in memory. */
+	private File spoolFile;
+	private RandomAccessFile spool;
+	/** The file which stores the upload state of the spool file. */
+	private File stateFile;
+	/** Marks the spool file as being used by this uploader. */
+	private FileLock lock;
+	private boolean closed;
+	/** Memory spool. The first byte has data offset memoryOffset. */
+	private byte[] memory;
+	private int memoryCount;
+	private long memoryOffset;
+	/** Number of bytes spooled. */
+	private long spoolLength;
+	/** Number of bytes acknowledged by the receiver. */
+	private long sentLength;
+	private int sequence;
+	private boolean finishing;
+	private boolean stopped;
+	/** True while the upload thread may still use the spool. */
+	private boolean running;
+	/** True if the final batch has been acknowledged. */
+	private boolean complete;
+	private Thread thread;
+
+	/**
+	 * Create an uploader and start its upload thread.
+	 *
+	 * @param dest
+	 *            the destination URL.
+	 * @param fn
+	 *            the data file name which is sent to the receiver.
+	 * @param email
+	 *            the data file destination address or null.
+	 */
+	public DataUploader(URL dest, String fn, String email) {
+		dataURL = dest;
+		fileName = fn;
+		this.email = email;
+		try {
+			File dir = new File(Base.getProperty("pxlab.local"),
+					SPOOL_DIRECTORY);
+			resumePending(dir);
+			openSpool(dir);
+		} catch (IOException iox) {
+			discardSpool();
+		} catch (SecurityException sex) {
+			discardSpool();
+		}
+		if (spool == null)
+			memory = new byte[4096];
+		start();
+	}
+
+	/**
+	 * Create an uploader which resumes the upload of a spool file which has
+	 * been left over by an earlier session.
+	 */
+	private DataUploader(File spoolFile, File stateFile, RandomAccessFile spool,
+			FileLock lock, Properties state) throws IOException {
+		this.spoolFile = spoolFile;
+		this.stateFile = stateFile;
+		this.spool = spool;
+		this.lock = lock;
+		dataURL = new URL(state.getProperty("URL"));
+		fileName = state.getProperty("DataFileName");
+		email = state.getProperty("Email");
+		try {
+			sentLength = Long.parseLong(state.getProperty("Offset"));
+			sequence = Integer.parseInt(state.getProperty("Seq"));
+		} catch (NumberFormatException nfx) {
+			throw new IOException("Invalid state file " + stateFile.getPath());
+		}
+		spoolLength = spool.length();
+		if ((fileName == null) || (sentLength > spoolLength))
+			throw new IOException("Invalid state file " + stateFile.getPath());
+		finishing = true;
+		System.out.println("DataUploader: Resume upload of "
+				+ spoolFile.getPath() + " to " + dataURL);
+		start();
+	}
+
+	private void start() {
+		thread = new Thread(this, "DataUploader");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		running = true;
+		thread.start();
+	}
+
+	/**
+	 * Create a new spool file and its state file in the given directory and
+	 * lock the spool file.
+	 */
+	private void openSpool(File dir) throws IOException {
+		dir.mkdirs();
+		StringBuffer b = new StringBuffer(fileName.length());
+		for (int i = 0; i < fileName.length(); i++) {
+			char c = fileName.charAt(i);
+			boolean ok = Character.isLetterOrDigit(c) || (c == '.')
+					|| (c == '-');
+			b.append(ok ? c : '_');
+		}
+		String base = b.toString();
+		for (int i = 0; spoolFile == null; i++) {
+			File f = new File(dir, base + "_" + i + SPOOL_EXTENSION);
+			File s = new File(dir, base + "_" + i + STATE_EXTENSION);
+			if (!s.exists() && f.createNewFile()) {
+				spoolFile = f;
+				stateFile = s;
+			}
+		}
+		spool = new RandomAccessFile(spoolFile, "rw");
+		lock = spool.getChannel().tryLock();
+		writeState();
+	}
+
+	/** Remove a spool file which could not be set up completely. */
+	private void discardSpool() {
+		if (spool != null) {
+			try {
+				spool.close();
+			} catch (IOException iox) {
+			}
+			spool = null;
+		}
+		if (spoolFile != null)
+			spoolFile.delete();
+		if (stateFile != null)
+			stateFile.delete();
+		spoolFile = null;
+		stateFile = null;
+	}
+
+	/**
+	 * Start uploaders for all spool files in the given directory which are
+	 * not locked by another uploader.
+	 */
+	private static void resumePending(File dir) {
+		File[] f = dir.listFiles();
+		if (f == null)
+			return;
+		for (int i = 0; i < f.length; i++) {
+			String n = f[i].getName();
+			if (!n.endsWith(STATE_EXTENSION))
+				continue;
+			File s = new File(dir, n.substring(0, n.length()
+					- STATE_EXTENSION.length())
+					+ SPOOL_EXTENSION);
+			if (!s.isFile())
+				continue;
+			RandomAccessFile r = null;
+			try {
+				r = new RandomAccessFile(s, "rw");
+				FileLock l = r.getChannel().tryLock();
+				if (l != null) {
+					Properties p = new Properties();
+					InputStream in = new FileInputStream(f[i]);
+					try {
+						p.load(in);
+					} finally {
+						in.close();
+					}
+					new DataUploader(s, f[i], r, l, p);
+					r = null;
+				}
+			} catch (IOException iox) {
+				System.out.println("DataUploader: Can't resume upload of "
+						+ s.getPath() + ": " + iox.getMessage());
+			} catch (OverlappingFileLockException olx) {
+				// The spool file is used by an uploader of this application.
+			} finally {
+				if (r != null) {
+					try {
+						r.close();
+					} catch (IOException iox) {
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the upload state to the state file and synchronize it to the
+	 * disk.
+	 */
+	private void writeState() throws IOException {
+		Properties p = new Properties();
+		p.setProperty("URL", dataURL.toString());
+		p.setProperty("DataFileName", fileName);
+		if (StringExt.nonEmpty(email))
+			p.setProperty("Email", email);
+		p.setProperty("Offset", Long.toString(sentLength));
+		p.setProperty("Seq", Integer.toString(sequence));
+		FileOutputStream out = new FileOutputStream(stateFile);
+		try {
+			p.store(out, "PXLab data upload state");
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Append a record to the spool.
+	 *
+	 * @param s
+	 *            the record including its line break.
+	 */
+	public synchronized void append(String s) {
+		byte[] b;
+		try {
+			b = s.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException uex) {
+			b = s.getBytes();
+		}
+		if (spool != null) {
+			try {
+				spool.seek(spoolLength);
+				spool.write(b);
+			} catch (IOException iox) {
+				new FileError("Can't write spool file " + spoolFile.getPath());
+				return;
+			}
+		} else {
+			if (memoryCount + b.length > memory.length) {
+				byte[] m = new byte[Math.max(memoryCount + b.length,
+						2 * memory.length)];
+				System.arraycopy(memory, 0, m, 0, memoryCount);
+				memory = m;
+			}
+			System.arraycopy(b, 0, memory, memoryCount, b.length);
+			memoryCount += b.length;
+		}
+		spoolLength += b.length;
+		if ((spoolLength - sentLength) >= MAX_BATCH_SIZE)
+			notifyAll();
+	}
+
+	/**
+	 * Send all remaining records and stop the upload thread. The spool file
+	 * is deleted if all data have been sent. Otherwise it is kept and its
+	 * upload is resumed by the next uploader which is created. If the upload
+	 * thread is still sending a request when the timeout has passed then the
+	 * spool file is closed by the upload thread when the request returns.
+	 *
+	 * @param timeout
+	 *            maximum time in milliseconds to wait for the upload.
+	 * @return true if all data have been sent.
+	 */
+	public boolean finish(long timeout) {
+		synchronized (this) {
+			finishing = true;
+			notifyAll();
+		}
+		try {
+			thread.join(timeout);
+		} catch (InterruptedException iex) {
+		}
+		boolean done;
+		synchronized (this) {
+			stopped = true;
+			done = complete;
+			notifyAll();
+			if (!running)
+				closeSpool();
+		}
+		if (!done) {
+			if (spool != null) {
+				System.out.println("DataUploader.finish(): Data not sent to "
+						+ dataURL + " are stored in " + spoolFile.getPath()
+						+ " and will be sent by the next session.");
+			} else {
+				System.out.println("DataUploader.finish(): Can't send data to "
+						+ dataURL + " - Data are not stored.");
+			}
+		}
+		return done;
+	}
+
+	/**
+	 * Close the spool file and delete it and its state file if all data have
+	 * been sent. Must be called while holding the lock after the upload thread
+	 * has stopped using the spool.
+	 */
+	private void closeSpool() {
+		if ((spool != null) && !closed) {
+			closed = true;
+			try {
+				// This also releases the file lock.
+				spool.close();
+			} catch (IOException iox) {
+			}
+			if (complete) {
+				spoolFile.delete();
+				stateFile.delete();
+			}
+		}
+	}
+
+	/** Get the number of bytes which have been acknowledged. */
+	public synchronized long getSentLength() {
+		return sentLength;
+	}
+
+	/** Get the number of bytes which have been spooled. */
+	public synchronized long getSpoolLength() {
+		return spoolLength;
+	}
+
+	public void run() {
+		try {
+			upload();
+		} finally {
+			synchronized (this) {
+				running = false;
+				if (stopped || complete)
+					closeSpool();
+			}
+		}
+	}
+
+	/** Send batches until the final batch has been acknowledged. */
+	private void upload() {
+		byte[] batch = null;
+		int batchLength = 0;
+		boolean last = false;
+		long retryDelay = MIN_RETRY_DELAY;
+		while (true) {
+			byte[] raw = null;
+			synchronized (this) {
+				if (batch == null) {
+					long t = System.currentTimeMillis() + BATCH_INTERVAL;
+					long w;
+					while (!stopped && !finishing
+							&& ((spoolLength - sentLength) < MAX_BATCH_SIZE)
+							&& ((w = t - System.currentTimeMillis()) > 0L)) {
+						try {
+							wait(w);
+						} catch (InterruptedException iex) {
+						}
+					}
+					if (stopped)
+						return;
+					batchLength = (int) Math.min(MAX_BATCH_SIZE, spoolLength
+							- sentLength);
+					last = finishing
+							&& ((sentLength + batchLength) == spoolLength);
+					if ((batchLength == 0) && !last)
+						continue;
+					raw = readBatch(batchLength);
+					if (raw == null)
+						return;
+				}
+			}
+			if (raw != null) {
+				batch = compress(raw);
+				if (batch == null)
+					return;
+			}
+			if (send(batch, last)) {
+				synchronized (this) {
+					sentLength += batchLength;
+					sequence++;
+					if (spool == null) {
+						discardMemory();
+					} else if (!last) {
+						try {
+							writeState();
+						} catch (IOException iox) {
+							new FileError("Can't write spool state file "
+									+ stateFile.getPath());
+						}
+					}
+					complete = last;
+				}
+				batch = null;
+				retryDelay = MIN_RETRY_DELAY;
+				if (last)
+					return;
+			} else {
+				synchronized (this) {
+					long t = System.currentTimeMillis() + retryDelay;
+					long w;
+					while (!stopped
+							&& ((w = t - System.currentTimeMillis()) > 0L)) {
+						try {
+							wait(w);
+						} catch (InterruptedException iex) {
+						}
+					}
+					if (stopped)
+						return;
+				}
+				retryDelay = Math.min(2 * retryDelay, MAX_RETRY_DELAY);
+			}
+		}
+	}
+
+	/**
+	 * Read the next batch of spooled data. Must be called while holding the
+	 * lock.
+	 */
+	private byte[] readBatch(int n) {
+		byte[] b = new byte[n];
+		if (spool != null) {
+			try {
+				spool.getFD().sync();
+				spool.seek(sentLength);
+				spool.readFully(b);
+			} catch (IOException iox) {
+				new FileError("Can't read spool file " + spoolFile.getPath());
+				return null;
+			}
+		} else {
+			System.arraycopy(memory, (int) (sentLength - memoryOffset), b, 0,
+					n);
+		}
+		return b;
+	}
+
+	/** Compress a batch. */
+	private byte[] compress(byte[] b) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(b.length / 4 + 64);
+		try {
+			GZIPOutputStream z = new GZIPOutputStream(out);
+			z.write(b);
+			z.close();
+		} catch (IOException iox) {
+			return null;
+		}
+		return out.toByteArray();
+	}
+
+	/** Remove acknowledged data from the memory spool. */
+	private void discardMemory() {
+		int n = (int) (sentLength - memoryOffset);
+		System.arraycopy(memory, n, memory, 0, memoryCount - n);
+		memoryCount -= n;
+		memoryOffset = sentLength;
+	}
+
+	/**
+	 * Send a batch to the destination URL.
+	 *
+	 * @return true if the receiver has acknowledged the batch.
+	 */
+	private boolean send(byte[] batch, boolean last) {
+		HttpURLConnection con = null;
+		try {
+			StringBuffer q = new StringBuffer(dataURL.toString());
+			q.append((dataURL.getQuery() == null) ? '?' : '&');
+			q.append("DataFileName=").append(URLEncoder.encode(fileName,
+					"UTF-8"));
+			q.append("&Seq=").append(sequence);
+			q.append("&Offset=").append(sentLength);
+			q.append("&Final=").append(last ? 1 : 0);
+			if (StringExt.nonEmpty(email))
+				q.append("&Email=").append(URLEncoder.encode(email, "UTF-8"));
+			con = (HttpURLConnection) new URL(q.toString()).openConnection();
+			con.setDoOutput(true);
+			con.setUseCaches(false);
+			con.setConnectTimeout(10000);
+			con.setReadTimeout(30000);
+			con.setRequestMethod("POST");
+			con.setRequestProperty("Content-Type", "application/octet-stream");
+			con.setRequestProperty("Content-Encoding", "gzip");
+			con.setFixedLengthStreamingMode(batch.length);
+			OutputStream out = con.getOutputStream();
+			out.write(batch);
+			out.close();
+			int code = con.getResponseCode();
+			InputStream in = (code < 400) ? con.getInputStream() : con
+					.getErrorStream();
+			if (in != null) {
+				byte[] b = new byte[256];
+				while (in.read(b) >= 0)
+					;
+				in.close();
+			}
+			if ((code / 100) == 2)
+				return true;
+			System.out.println("DataUploader.send(): " + dataURL
+					+ " responded " + code);
+		} catch (IOException iox) {
+			System.out.println("DataUploader.send(): " + iox);
+		} finally {
+			if (con != null)
+				con.disconnect();
+		}
+		return false;
+	}
+}
@@ -144,6 +144,39 @@ public class Debug {
 		show(v, null, msg);
 	}
 
+	/**
+	 * Show the given debug message followed by the given value iff the current
+	 * debug mask pattern contains the given mask. The message is put together
+	 * only if it is shown.
+	 */
+	public static void show(long v, String msg, int x) {
+		if ((mask & v) != 0L) {
+			Syslog.out.println(msg + x);
+		}
+	}
+
+	/**
+	 * Show the given debug message followed by the given value iff the current
+	 * debug mask pattern contains the given mask. The message is put together
+	 * only if it is shown.
+	 */
+	public static void show(long v, String msg, long x) {
+		if ((mask & v) != 0L) {
+			Syslog.out.println(msg + x);
+		}
+	}
+
+	/**
+	 * Show the given debug message followed by the given value iff the current
+	 * debug mask pattern contains the given mask. The message is put together
+	 * only if it is shown.
+	 */
+	public static void show(long v, String msg, double x) {
+		if ((mask & v) != 0L) {
+			Syslog.out.println(msg + x);
+		}
+	}
+
 	/**
 	 * Show the given debug message iff the current debug mask pattern contains
 	 * the given mask.
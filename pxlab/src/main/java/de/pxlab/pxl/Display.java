@@ -386,6 +386,22 @@ abstract public class Display extends DisplaySupport implements ExParTypeCodes,
 	 * This is the bounding box of this Display object AFTER it has been drawn!
 	 */
 	protected Rectangle boundingBox;
+	/**
+	 * If true then repaints of the current timing group which are caused by
+	 * response events only render the regions of display elements which have
+	 * been changed.
+	 */
+	private boolean incrementalRepaint = false;
+	/** Contains the image of the current timing group for repaints. */
+	private BufferedImage repaintImage;
+	/** A tiny image which is used to compute new bounding boxes. */
+	private BufferedImage boundsImage;
+	/** True if repaintImage contains the current timing group. */
+	private boolean repaintValid = false;
+	/** The timing group pattern whose image is in repaintImage. */
+	private long repaintGroup;
+	/** Extra border of repaint regions for antialiased edges. */
+	private static final int REPAINT_MARGIN = 2;
 	/**
 	 * If true then this Display will have its screen button Rectangle defined.
 	 * This will result in a timer stop for mouse button events while a mouse
@@ -1320,6 +1336,7 @@ abstract public class Display extends DisplaySupport implements ExParTypeCodes,
 		TimingElement te = getActiveTimingElement();
 		int timerType = te.getTimerType();
 		boolean vsync = (timerType & TimerBitCodes.VIDEO_SYNCHRONIZATION_BIT) != 0;
+		repaintValid = false;
 		if (te.isImagePreloaded()) {
 			// The image is already preloaded, we only have to switch buffers
 			// System.out.println("Display.showCurrentTimingGroup(): show preloaded image for "
@@ -1371,7 +1388,11 @@ abstract public class Display extends DisplaySupport implements ExParTypeCodes,
 					if (!isJoinOverlay() && isGraphic()) {
 						// System.out.println("Display.showCurrentTimingGroup(): no JOIN overlay");
 						Graphics gr = displayDevice.getGraphics();
-						showGroup(gr);
+						if (canRepaintIncrementally(timerType)) {
+							showGroupToRepaintImage(gr);
+						} else {
+							showGroup(gr);
+						}
 					} else {
 						// System.out.println("Display.showCurrentTimingGroup(): JOIN overlay");
 						if (Execute.getFlag()) {
@@ -1414,6 +1435,179 @@ abstract public class Display extends DisplaySupport implements ExParTypeCodes,
 		return tmc;
 	}
 
+	/**
+	 * Enable or disable incremental repaints. Subclasses which change display
+	 * elements in response to pointer or adjustment events may enable
+	 * incremental repaints. They must call DisplayElement.setDirty() for
+	 * elements whose changes are not detected from their location, size, line
+	 * width and color.
+	 */
+	public void setIncrementalRepaint(boolean s) {
+		incrementalRepaint = s;
+		if (!s)
+			repaintImage = null;
+	}
+
+	/** Check whether incremental repaints are enabled. */
+	public boolean getIncrementalRepaint() {
+		return incrementalRepaint;
+	}
+
+	/**
+	 * Check whether the current timing group may be repainted incrementally.
+	 * This is not possible for overlays, stereographic displays and delayed
+	 * timing groups since these do not paint their background.
+	 */
+	private boolean canRepaintIncrementally(int timerType) {
+		return incrementalRepaint && isGraphic()
+				&& (Overlay.getInt() == OverlayCodes.NONE)
+				&& (listOverlay == null)
+				&& (next == null) && !ExPar.Stereographic.getFlag()
+				&& ((timerType & TimerBitCodes.FIXED_DELAY_BIT) == 0)
+				&& (width > 0) && (height > 0);
+	}
+
+	/**
+	 * Paint the background and the current timing group into the repaint
+	 * image and copy the image to the given graphics context. This leaves the
+	 * display's graphics context set to the given context.
+	 */
+	private void showGroupToRepaintImage(Graphics gr) {
+		if ((repaintImage == null) || (repaintImage.getWidth() != width)
+				|| (repaintImage.getHeight() != height)) {
+			GraphicsConfiguration gc = displayDevice.getComponent()
+					.getGraphicsConfiguration();
+			repaintImage = (gc != null) ? gc.createCompatibleImage(width,
+					height) : new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_RGB);
+		}
+		Graphics ig = repaintImage.createGraphics();
+		clearBoundingBox();
+		showGroup(ig);
+		markGroupPainted();
+		ig.dispose();
+		gr.drawImage(repaintImage, 0, 0, null);
+		setGraphicsContext(gr);
+		repaintGroup = activeTimingGroup;
+		repaintValid = true;
+	}
+
+	/**
+	 * Store the painted state of the background and of all display elements
+	 * of the current timing group.
+	 */
+	private void markGroupPainted() {
+		if (backgroundFieldIndex >= 0)
+			((DisplayElement) displayElementList.get(backgroundFieldIndex))
+					.markPainted();
+		int n = displayElementList.size();
+		for (int i = 0; i < n; i++) {
+			DisplayElement de = (DisplayElement) displayElementList.get(i);
+			if ((de.getTimingGroupPattern() & activeTimingGroup) != 0L)
+				de.markPainted();
+		}
+	}
+
+	/**
+	 * Show the current timing group after some of its display elements have
+	 * been changed by a response event. If incremental repaints are enabled
+	 * then only the regions covered by changed display elements are rendered
+	 * again into a cached image of the timing group. The timing group is
+	 * painted by showGroup(Graphics) with a clip set to these regions such
+	 * that subclasses which override showGroup() are painted correctly. If
+	 * incremental repaints are not possible then the timing group is shown by
+	 * showCurrentTimingGroup().
+	 * 
+	 * @return the nanosecond time when the timing group has been shown.
+	 */
+	public long updateCurrentTimingGroup() {
+		TimingElement te = getActiveTimingElement();
+		int timerType = te.getTimerType();
+		if (!repaintValid || (repaintGroup != activeTimingGroup)
+				|| te.isImagePreloaded()
+				|| !canRepaintIncrementally(timerType)) {
+			return showCurrentTimingGroup();
+		}
+		Rectangle r = repaintRegion();
+		if (r == null)
+			return showCurrentTimingGroup();
+		if (!r.isEmpty()) {
+			r.grow(REPAINT_MARGIN, REPAINT_MARGIN);
+			// Element bounds have their origin at the screen center
+			r.translate(width / 2, height / 2);
+			r = r.intersection(new Rectangle(0, 0, width, height));
+			Graphics ig = repaintImage.createGraphics();
+			ig.clipRect(r.x, r.y, r.width, r.height);
+			showGroup(ig);
+			markGroupPainted();
+			ig.dispose();
+		}
+		Graphics gr = displayDevice.getGraphics();
+		if (!r.isEmpty()) {
+			if ((displayDevice instanceof ExperimentalDisplayDevice)
+					&& ((ExperimentalDisplayDevice) displayDevice)
+							.hasRetainedBackBuffer()) {
+				gr.drawImage(repaintImage, r.x, r.y, r.x + r.width, r.y
+						+ r.height, r.x, r.y, r.x + r.width, r.y + r.height,
+						null);
+			} else {
+				gr.drawImage(repaintImage, 0, 0, null);
+			}
+		}
+		setGraphicsContext(gr);
+		if ((timerType & TimerBitCodes.VIDEO_SYNCHRONIZATION_BIT) != 0)
+			VideoSystem.waitForBeginOfVerticalBlank();
+		displayDevice.show();
+		Debug.time("Display repainted and shown: ");
+		disposeGraphicsContext();
+		return HiresClock.getTimeNanos();
+	}
+
+	/**
+	 * Compute the region which has to be repainted. This is the union of the
+	 * old and the new bounds of all changed display elements of the current
+	 * timing group in display element coordinates. The new bounds are
+	 * computed by painting the changed elements into a tiny image.
+	 * 
+	 * @return the region to be repainted or null if the bounds of a changed
+	 *         element are not known or the background has been changed.
+	 */
+	private Rectangle repaintRegion() {
+		if ((backgroundFieldIndex >= 0)
+				&& ((DisplayElement) displayElementList
+						.get(backgroundFieldIndex)).isDirty())
+			return null;
+		if (boundsImage == null)
+			boundsImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+		// A rectangle with negative size is replaced by the first one added
+		Rectangle r = new Rectangle(0, 0, -1, -1);
+		Graphics bg = null;
+		int n = displayElementList.size();
+		for (int i = 0; i < n; i++) {
+			DisplayElement de = (DisplayElement) displayElementList.get(i);
+			if (((de.getTimingGroupPattern() & activeTimingGroup) != 0L)
+					&& de.isDirty()) {
+				Rectangle b = de.getPaintedBounds();
+				if (b.isEmpty()) {
+					r = null;
+					break;
+				}
+				if (bg == null) {
+					bg = boundsImage.createGraphics();
+					setGraphicsContext(bg);
+				}
+				r.add(b);
+				de.show();
+				b = de.getBounds();
+				if (!b.isEmpty())
+					r.add(b);
+			}
+		}
+		if (bg != null)
+			bg.dispose();
+		return r;
+	}
+
 	/**
 	 * Start a thread which will show the currently active timing group of this
 	 * Display object delayed by this timing element's duration.
@@ -1438,7 +1632,9 @@ abstract public class Display extends DisplaySupport implements ExParTypeCodes,
 	public void clearNextTimingGroupImagePreload() {
 		// System.out.println("Display[" + getInstanceName() +
 		// "].clearNextTimingGroupImagePreload()");
-		((ExperimentalDisplayDevice) displayDevice).clearPreloadedTimingGroup();
+		if (displayDevice instanceof ExperimentalDisplayDevice)
+			((ExperimentalDisplayDevice) displayDevice)
+					.clearPreloadedTimingGroup();
 	}
 
 	/**
@@ -1477,8 +1673,9 @@ abstract public class Display extends DisplaySupport implements ExParTypeCodes,
 					Debug.timeMsg(m + HiresClock.ms(t1, t2));
 				}
 				te.setImagePreloaded(true);
-				((ExperimentalDisplayDevice) displayDevice)
-						.setPreloadedTimingGroup(te);
+				if (displayDevice instanceof ExperimentalDisplayDevice)
+					((ExperimentalDisplayDevice) displayDevice)
+							.setPreloadedTimingGroup(te);
 				// System.out.println("Display.preloadTimingGroupImage(): " +
 				// ((Object)nextTimingElement));
 			} else {
@@ -47,6 +47,8 @@ import java.awt.*;
  * PresentationManager now.
  * 
  * 2005/07/21 convertPoint() added.
+ * 
+ * 2026/10/19 keep the painted state for incremental repaints.
  */
 abstract public class DisplayElement {
 	/** These object types are known. */
@@ -148,6 +150,25 @@ abstract public class DisplayElement {
 	 * This is the bounding box of each object AFTER it has been drawn!
 	 */
 	private Rectangle bounds = new Rectangle();
+	/**
+	 * The state of this object when it has been painted most recently by an
+	 * incremental repaint. It is used to detect objects which have been
+	 * changed since then.
+	 */
+	private Rectangle paintedBounds = new Rectangle();
+	private Point paintedLocation = new Point();
+	private Dimension paintedSize = new Dimension();
+	private int paintedLineWidth;
+	/**
+	 * The color coordinates of this object's color parameter when it has been
+	 * painted. Comparing these does not need a device color for every check.
+	 */
+	private double[] paintedColor;
+	/**
+	 * True if this object has been changed in a way which can not be detected
+	 * from its location, size, line width and color.
+	 */
+	private boolean dirty = true;
 	/** This object's selection state. */
 	protected boolean selected = false;
 	/** Color for showing selection frames. */
@@ -312,6 +333,60 @@ abstract public class DisplayElement {
 		// graphics.drawRect(bounds.x, bounds.y, bounds.width, bounds.height);
 	}
 
+	/**
+	 * Tell this object that it has been changed and has to be repainted by the
+	 * next incremental repaint. Only changes which do not modify location,
+	 * size, line width or color have to be signaled this way.
+	 */
+	public void setDirty() {
+		dirty = true;
+	}
+
+	/**
+	 * Check whether this object has been changed since it has been painted by
+	 * the most recent incremental repaint.
+	 */
+	public boolean isDirty() {
+		return dirty || !location.equals(paintedLocation)
+				|| !size.equals(paintedSize)
+				|| (lineWidth != paintedLineWidth) || !colorEquals();
+	}
+
+	private boolean colorEquals() {
+		double[] c = (colorPar != null) ? colorPar.getDoubleArray() : null;
+		return (c == null) ? (paintedColor == null) : java.util.Arrays.equals(
+				c, paintedColor);
+	}
+
+	/**
+	 * Store the current state as the painted state. This must be called
+	 * immediately after the object has been painted by an incremental
+	 * repaint.
+	 */
+	void markPainted() {
+		paintedBounds.setBounds(bounds);
+		paintedLocation.setLocation(location);
+		paintedSize.setSize(size);
+		paintedLineWidth = lineWidth;
+		double[] c = (colorPar != null) ? colorPar.getDoubleArray() : null;
+		if (c == null) {
+			paintedColor = null;
+		} else {
+			if ((paintedColor == null) || (paintedColor.length != c.length))
+				paintedColor = new double[c.length];
+			System.arraycopy(c, 0, paintedColor, 0, c.length);
+		}
+		dirty = false;
+	}
+
+	/**
+	 * Get the bounding box of this object when it has been painted by the
+	 * most recent incremental repaint.
+	 */
+	Rectangle getPaintedBounds() {
+		return paintedBounds;
+	}
+
 	/**
 	 * Returns true if this shape's bounding box contains the given point. Note
 	 * that this method must not be called before the shape has been painted.
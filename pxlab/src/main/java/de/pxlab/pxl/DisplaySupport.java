@@ -212,61 +212,11 @@ abstract public class DisplaySupport {
 	 * Display object is created.
 	 */
 	protected void createExParFields() {
-		Field[] flds = getClass().getFields();
-		int nflds = flds.length;
-		if (nflds > 0) {
-			ArrayList fldsa = new ArrayList();
-			for (int i = 0; i < nflds; i++) {
-				// System.out.println("Field " + flds[i].getName());
-				try {
-					Object a = flds[i].get(this);
-					// System.out.println(" is class " +
-					// a.getClass().getName());
-					if (a instanceof ExPar) {
-						int type = ((ExPar) a).getType();
-						String n = flds[i].getName();
-						// System.out.println("Display.createExParFields(): Check Field "
-						// + n);
-						// fix up some parameter types according to their names
-						/*
-						 * if (type == ExParType.UNKNOWN) { if
-						 * (n.endsWith("Color")) ((ExPar)a).setType(type =
-						 * ExPar.COLOR); else if (n.endsWith("Timer"))
-						 * ((ExPar)a).setType(type = ExParType.TIMER); else if
-						 * (n.endsWith("Duration")) ((ExPar)a).setType(type =
-						 * ExParType.DURATION); }
-						 */
-						String fn = null;
-						if (instanceName == null)
-							fn = n;
-						else
-							fn = instanceName + "." + n;
-						fldsa.add(new ExParDescriptor(fn, (ExPar) a,
-								ExParTypeCodes.editor[type]));
-						// System.out.println("Display.createExParFields(): ExPar Field "
-						// + fn);
-					}
-				} catch (IllegalAccessException iae) {
-					// System.out.println(iae.getMessage());
-				}
-			}
-			int n = fldsa.size();
-			if (n > 0) {
-				exParFields = new ExParDescriptor[n];
-				for (int i = 0; i < n; i++) {
-					ExParDescriptor xpd = (ExParDescriptor) fldsa.get(i);
-					/*
-					 * ExPar p = xpd.getValue(); // Fix duration parameters
-					 * which do not have a proper range if (p.getType() ==
-					 * ExParType.DURATION) { if (p.getValue().length < 3) {
-					 * p.set(p.getInt(), 0, 5000); } }
-					 */
-					exParFields[i] = xpd;
-					// System.out.println(xpd);
-				}
-				// reportPars();
-			}
-		}
+		// The field list is reflected only once for every display class
+		ExParDescriptor[] d = ExParFields.of(getClass()).getDescriptors(this,
+				instanceName);
+		if (d != null)
+			exParFields = d;
 	}
 
 	/** Check whether the given ExPar seems to be a geometry parameter. */
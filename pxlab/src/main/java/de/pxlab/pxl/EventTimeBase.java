@@ -0,0 +1,164 @@
+package de.pxlab.pxl;
+
+/**
+ * Maps the time stamps of AWT input events onto the time base of the
+ * HiresClock. The time stamp of an InputEvent is set by the native event
+ * system when the event is created. It is given in milliseconds of the system
+ * clock. The HiresClock uses System.nanoTime() which has an arbitrary origin.
+ * The offset between the two clocks is estimated by looking for a tick of the
+ * system clock when the class is initialized. Both clocks may drift against
+ * each other and the system clock may be adjusted while an experiment runs.
+ * Thus the offset is continuously corrected by the minimum offset observed in
+ * a sliding window of clock reading pairs. Clock pairs are sampled whenever an
+ * event time is mapped.
+ *
+ * <p>
+ * On systems whose millisecond clock has a coarse granularity the event time
+ * stamps are less precise than the time of event delivery. In this case
+ * mapped event times are not used for response timing but the queueing
+ * latency still is estimated.
+ *
+ * @version 0.1.0
+ * @see HiresClock
+ * @see ResponseManager
+ */
+public class EventTimeBase {
+	/** Length of an offset estimation window in nanoseconds. */
+	private static final long WINDOW = 10000000000L;
+	/**
+	 * Mapped event times which are earlier than this before the time of
+	 * delivery are considered to be invalid.
+	 */
+	private static final long MAX_LATENCY = 500000000L;
+	/** Granularity of the millisecond clock in nanoseconds. */
+	private static long granularity;
+	/** Minimum offset of the current estimation window. */
+	private static long currentMin;
+	/** Minimum offset of the previous estimation window. */
+	private static long previousMin;
+	/** Start time of the current estimation window. */
+	private static long windowStart;
+	static {
+		calibrate();
+	}
+
+	/**
+	 * Estimate the clock offset by waiting for ticks of the millisecond clock.
+	 * This blocks for at most two ticks of the millisecond clock and should
+	 * not be called in time critical sections.
+	 */
+	public static synchronized void calibrate() {
+		long m0 = System.currentTimeMillis();
+		long m1 = tick(m0);
+		long n1 = System.nanoTime();
+		long m2 = tick(m1);
+		long n2 = System.nanoTime();
+		granularity = Math.max(1L, m2 - m1) * 1000000L;
+		currentMin = Math.min(n1 - m1 * 1000000L, n2 - m2 * 1000000L);
+		previousMin = currentMin;
+		windowStart = n2;
+	}
+
+	/** Wait until the millisecond clock changes its value. */
+	private static long tick(long m) {
+		long t = System.nanoTime() + 100000000L;
+		long k;
+		while (((k = System.currentTimeMillis()) == m)
+				&& (System.nanoTime() < t))
+			;
+		return k;
+	}
+
+	/**
+	 * Add a pair of clock readings to the offset estimation. The readings
+	 * should be taken immediately after each other.
+	 *
+	 * @param nanos
+	 *            the HiresClock time in nanoseconds.
+	 * @param millis
+	 *            the system clock time in milliseconds.
+	 */
+	private static synchronized void sample(long nanos, long millis) {
+		long d = nanos - millis * 1000000L;
+		if ((nanos - windowStart) > WINDOW) {
+			previousMin = currentMin;
+			currentMin = d;
+			windowStart = nanos;
+		} else if (d < currentMin) {
+			currentMin = d;
+		}
+	}
+
+	/**
+	 * Get the current estimate of the offset between the HiresClock and the
+	 * system clock.
+	 *
+	 * @return the offset in nanoseconds.
+	 */
+	public static synchronized long getOffset() {
+		// A sudden backward jump of the system clock shows up as a larger
+		// offset which is accepted only when the old window expires.
+		return Math.min(currentMin, previousMin);
+	}
+
+	/**
+	 * Check whether the millisecond clock has a granularity which is fine
+	 * enough to make event time stamps more precise than delivery times.
+	 */
+	public static boolean isPrecise() {
+		return granularity <= 1000000L;
+	}
+
+	/**
+	 * Map the system clock time stamp of an input event onto the HiresClock.
+	 * The result is the center of the system clock tick which contains the
+	 * event.
+	 *
+	 * @param when
+	 *            the event's time stamp in milliseconds as returned by
+	 *            InputEvent.getWhen().
+	 * @return the event time in HiresClock nanoseconds.
+	 */
+	public static long map(long when) {
+		return when * 1000000L + getOffset() + granularity / 2;
+	}
+
+	/**
+	 * Get the best available time of an event in HiresClock nanoseconds.
+	 *
+	 * @param when
+	 *            the event's time stamp in milliseconds as returned by
+	 *            InputEvent.getWhen().
+	 * @param arrival
+	 *            the HiresClock time in nanoseconds when the event has been
+	 *            delivered.
+	 * @return the mapped event time if it is valid and precise and the arrival
+	 *         time otherwise.
+	 */
+	public static long eventTime(long when, long arrival) {
+		sample(arrival, System.currentTimeMillis());
+		if (!isPrecise())
+			return arrival;
+		long t = map(when);
+		if ((t > arrival) || ((arrival - t) > MAX_LATENCY))
+			return arrival;
+		return t;
+	}
+
+	/**
+	 * Get the time an event has been waiting in the event queue.
+	 *
+	 * @param when
+	 *            the event's time stamp in milliseconds as returned by
+	 *            InputEvent.getWhen().
+	 * @param arrival
+	 *            the HiresClock time in nanoseconds when the event has been
+	 *            delivered.
+	 * @return the estimated queueing latency in nanoseconds or 0 if the event
+	 *         time stamp is invalid.
+	 */
+	public static long latency(long when, long arrival) {
+		long d = arrival - map(when);
+		return ((d < 0L) || (d > MAX_LATENCY)) ? 0L : d;
+	}
+}
@@ -201,6 +201,8 @@ import de.pxlab.pxl.parser.*;
  * 2006/11/17 fixed bug in method getActiveSessionList()
  * 
  * 2007/05/30 fixed bug when setting the designBase.
+ * 
+ * 2026/10/19 added runBatchSession()
  */
 public class ExDesign implements Cloneable {
 	/** The root node of the experimental design tree. */
@@ -226,10 +228,15 @@ public class ExDesign implements Cloneable {
 	 */
 	private HashMap displayListMap = null;
 	/**
-	 * A map which contains the adaptive control objects for all adaptive
-	 * sequences which are mixed within a block.
+	 * An index which contains the adaptive control objects and the pending
+	 * trials of all adaptive sequences which are mixed within a block.
+	 */
+	private AdaptiveSequenceIndex adaptiveSequenceIndex = null;
+	/**
+	 * The random number generator for block and trial orders of the current
+	 * session. It is created at the start of every session.
 	 */
-	private HashMap adaptiveControlMap = new HashMap(20);
+	private Randomizer orderRandomizer = new Randomizer();
 	/**
 	 * If true then nodes are expanded, multiplied and randomized at runtime.
 	 * Must be set to false by postprocessors of design trees.
@@ -266,7 +273,11 @@ public class ExDesign implements Cloneable {
 		Base.setDesignBase(fp.getCanonicalFile().getParent());
 		Debug.show(Debug.FILES, "ExDesign(): Open design file " + fileName);
 		FileInputStream rdr = new FileInputStream(fp);
-		exDesignTree = loadExDesignTree(rdr, fn);
+		if (Base.getDesignSnapshots()) {
+			exDesignTree = loadExDesignTree(rdr, fp, fn);
+		} else {
+			exDesignTree = loadExDesignTree(rdr, fn);
+		}
 		rdr.close();
 		Debug.show(Debug.FILES, "ExDesign(): Closed design file " + fileName);
 		if (as != null) {
@@ -352,6 +363,40 @@ public class ExDesign implements Cloneable {
 		return tree;
 	}
 
+	/**
+	 * Get the experimental design tree of a design file from its snapshot if
+	 * the snapshot belongs to the current file content. Otherwise the design
+	 * file is parsed and a new snapshot is written.
+	 * 
+	 * @param ins
+	 *            an InputStream which delivers the design file content.
+	 * @param fp
+	 *            the design file.
+	 * @param fn
+	 *            the name of the design file source.
+	 * @return the root node of the experimental design tree.
+	 * @see ExDesignSnapshot
+	 */
+	private ExDesignNode loadExDesignTree(InputStream ins, File fp, String fn)
+			throws IOException {
+		ByteArrayOutputStream bs = new ByteArrayOutputStream(
+				(int) Math.max(fp.length(), 1024L));
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = ins.read(buf)) > 0)
+			bs.write(buf, 0, n);
+		byte[] source = bs.toByteArray();
+		ExDesignSnapshot snapshot = new ExDesignSnapshot(source, Base
+				.getEncoding());
+		File sf = ExDesignSnapshot.snapshotFile(fp);
+		ExDesignNode dt = snapshot.read(sf);
+		if (dt == null) {
+			dt = loadExDesignTree(new ByteArrayInputStream(source), fn);
+			snapshot.write(sf, dt);
+		}
+		return dt;
+	}
+
 	/**
 	 * Get the experimental design tree from the given Reader object. Every
 	 * access to a complete design file is via this method. This also means that
@@ -1129,6 +1174,20 @@ public class ExDesign implements Cloneable {
 		// This sets all parameters derived from SubjectGroup as a covariate
 		// factor
 		pushCovariateFactors();
+		// The data tree is written while it is created. Data nodes are kept
+		// in memory only if data processing needs them.
+		DataTreeWriter dataTreeWriter = ExPar.StoreDataTree.getFlag() ? dataDestination
+				.createDataTreeWriter()
+				: null;
+		if (dataTreeWriter != null) {
+			for (int i = 0; i < currentProcedureData.getChildCount(); i++) {
+				dataTreeWriter.storeSessionTree((ExDesignNode) currentProcedureData
+						.getChildAt(i));
+			}
+			dataTreeWriter.start(exDesignDataTree, currentProcedureData);
+		}
+		boolean keepDataTree = hasDataDisplayLists("SessionData")
+				|| hasDataDisplayLists("ProcedureData");
 		// Prepare the Session loop using information about previous
 		// sessions of the same subject
 		ArrayList activeSessions = getActiveSessionList();
@@ -1157,6 +1216,7 @@ public class ExDesign implements Cloneable {
 			// If we get here, then we have to assume that the Session should be
 			// run
 			ExPar.SessionState.set(StateCodes.EXECUTE);
+			orderRandomizer = createOrderRandomizer();
 			// System.out.println("ExDesign.runSession() PointA");
 			// currentSession.print();
 			// Check whether the current subject group has to run this session
@@ -1171,7 +1231,7 @@ public class ExDesign implements Cloneable {
 					// Multiply blocks if necessary
 					currentSession.multiply(ExPar.BlockFactor.getInt());
 					if (ExPar.RandomizeBlocks.getInt() != 0)
-						currentSession.randomizeChildrenList();
+						randomizeChildren(currentSession, null);
 				}
 				// showAllPars();
 				// runtimeContext.setActive(true);
@@ -1183,9 +1243,12 @@ public class ExDesign implements Cloneable {
 				currentSessionData = new ExDesignNode(ExDesignNode.SessionNode,
 						currentSession.getParNames(), null, 10);
 				currentSessionData.setName(currentSession.getName());
+				if (dataTreeWriter != null)
+					dataTreeWriter.beginSession(currentSessionData);
 				// This is done after SessionEnd()
 				// currentSessionData.setParValuesToCurrentValues();
-				currentProcedureData.add(currentSessionData);
+				if (keepDataTree)
+					currentProcedureData.add(currentSessionData);
 				// exDesignDataTree.print();
 				// Prepare the block loop
 				ArrayList blockList = currentSession.getChildrenList();
@@ -1238,12 +1301,12 @@ public class ExDesign implements Cloneable {
 							currentBlock.multiply(ExPar.TrialFactor.getInt());
 							// currentBlock.print();
 							if (ExPar.RandomizeTrials.getInt() != 0)
-								currentBlock.randomizeChildrenList();
+								randomizeChildren(currentBlock, factorNames);
 							// currentBlock.print();
 						}
 						// System.out.println("ExDesign.runSession() PointD");
 						// currentSession.print();
-						clearAdaptiveControlMap();
+						createAdaptiveSequenceIndex(currentBlock);
 						// The application now starts the block
 						exDesignProcessor.startBlock(currentBlock,
 								getDisplayList(currentBlock.getInstanceName()));
@@ -1253,9 +1316,16 @@ public class ExDesign implements Cloneable {
 								ExDesignNode.BlockNode,
 								currentBlock.getParNames(), null, 10);
 						currentBlockData.setName(currentBlock.getName());
+						if (dataTreeWriter != null)
+							dataTreeWriter.beginBlock(currentBlockData);
 						// this is done after BlockEnd()
 						// currentBlockData.setParValuesToCurrentValues();
-						currentSessionData.add(currentBlockData);
+						if (keepDataTree)
+							currentSessionData.add(currentBlockData);
+						boolean keepTrialData = keepDataTree
+								|| (ExPar.AdaptiveResultComputation.getInt() != AdaptiveResultCodes.NO_RESULTS)
+								|| (ExPar.DataProcessingEnabled.getFlag() && (getDataDisplayList(currentBlock
+										.getInstanceName()) != null));
 						// exDesignDataTree.print();
 						ArrayList trialList = currentBlock.getChildrenList();
 						ExDesignNode currentTrialData;
@@ -1264,6 +1334,10 @@ public class ExDesign implements Cloneable {
 						for (int j = 0; (j < trialList.size())
 								&& (ExPar.BlockState.getInt() == StateCodes.EXECUTE)
 								&& !stopExRun; j++) {
+							// Skip trials which an adaptive sequence has removed
+							if (adaptiveSequenceIndex.isRemoved((ExDesignNode) trialList
+									.get(j)))
+								continue;
 							Debug.show(Debug.STATE_CTRL,
 									"ExDesign.runSession() TrialCounter = "
 											+ ExPar.TrialCounter.getInt());
@@ -1301,7 +1375,10 @@ public class ExDesign implements Cloneable {
 									currentTrial.getParNames(), null, 0);
 							currentTrialData.setName(currentTrial.getName());
 							currentTrialData.setParValuesToCurrentValues();
-							currentBlockData.add(currentTrialData);
+							if (keepTrialData)
+								currentBlockData.add(currentTrialData);
+							if (dataTreeWriter != null)
+								dataTreeWriter.storeTrial(currentTrialData);
 							// Check the trial return code whether we have to
 							// copy the trial
 							int trialState = ExPar.TrialState.getInt();
@@ -1313,6 +1390,8 @@ public class ExDesign implements Cloneable {
 								ExDesignNode newTrial = currentTrial.dupTree();
 								// System.out.println("Trial = " + newTrial);
 								trialList.add(j + 1, newTrial);
+								adaptiveSequenceIndex.insert(trialList, j + 1,
+										currentTrial);
 							}
 							// Check the trial return code whether we have to
 							// repeat the trial
@@ -1345,6 +1424,7 @@ public class ExDesign implements Cloneable {
 											+ ExPar.BlockState.getInt());
 						} // End of trial loop
 							// -----------------------------------------------------------------
+						adaptiveSequenceIndex.compact(trialList);
 						// If necessary compute the results of the
 						// adaptive sequences in this block
 						if (ExPar.AdaptiveResultComputation.getInt() != AdaptiveResultCodes.NO_RESULTS) {
@@ -1363,6 +1443,8 @@ public class ExDesign implements Cloneable {
 									getDataDisplayList(currentBlock
 											.getInstanceName()),
 									currentBlockData);
+						if (dataTreeWriter != null)
+							dataTreeWriter.storeBlock(currentBlockData);
 					} // End of subjectGroupIsActive() clause for this Block
 						// --------------------------------------
 					// Send the block to the data file
@@ -1395,6 +1477,8 @@ public class ExDesign implements Cloneable {
 					dataProcessor
 							.processData(getDataDisplayList(currentSession
 									.getInstanceName()), currentSessionData);
+				if (dataTreeWriter != null)
+					dataTreeWriter.storeSession(currentSessionData);
 			} // End of subjectGroupIsActive() clause for this Session
 				// ----------------------------------------
 			// Pop back the node arguments of the active session
@@ -1426,7 +1510,13 @@ public class ExDesign implements Cloneable {
 		// Store the data tree
 		if (ExPar.StoreDataTree.getFlag()) {
 			exDesignDataContextTree.add(sessionAssignmentsGroup());
-			dataDestination.storeDataTree(exDesignDataTree);
+			if (dataTreeWriter != null) {
+				dataTreeWriter.finish(exDesignDataTree, currentProcedureData);
+			} else {
+				dataDestination.storeDataTree(exDesignDataTree);
+			}
+		} else if (dataTreeWriter != null) {
+			dataTreeWriter.discard();
 		}
 		if (ExPar.DataProcessingEnabled.getFlag())
 			dataProcessor.processData(
@@ -1446,6 +1536,34 @@ public class ExDesign implements Cloneable {
 		ExPar.checkValueStack();
 	}
 
+	/**
+	 * Run the active session(s) of this experimental design in the current
+	 * thread without storing any data. The runtime context is initialized
+	 * first. This is used by batch tools which render the stimuli of a design
+	 * without a subject and without a screen.
+	 * 
+	 * @param exProc
+	 *            the design processor which actually executes the design nodes.
+	 * @param dataProc
+	 *            the data processor which gets the data display lists.
+	 * @return true if the run has been stopped before all trials have been
+	 *         run.
+	 * @see de.pxlab.pxl.run.StimulusExport
+	 */
+	public boolean runBatchSession(ExDesignProcessor exProc,
+			ExDesignDataProcessor dataProc) {
+		initRuntimeContext();
+		DataDestination dataDestination = new DataDestination((String) null);
+		dataProc.setDataDestination(dataDestination);
+		exDesignProcessor = exProc;
+		dataProcessor = dataProc;
+		stopExRun = false;
+		runSession(dataDestination);
+		exDesignProcessor = null;
+		dataProcessor = null;
+		return stopExRun;
+	}
+
 	public void runDataSession(ExDesignDataProcessor dataProcessor) {
 		// System.out.println("ExDesign.runDataSession()");
 		initRuntimeContext();
@@ -1760,6 +1878,25 @@ public class ExDesign implements Cloneable {
 		return r;
 	}
 
+	/**
+	 * Check whether data processing is enabled and there are data display
+	 * lists of the given type.
+	 * 
+	 * @param type
+	 *            the data display list type like "SessionData".
+	 * @return true if at least one data display list name starts with the
+	 *         given type name.
+	 */
+	private boolean hasDataDisplayLists(String type) {
+		if (!ExPar.DataProcessingEnabled.getFlag() || (displayListMap == null))
+			return false;
+		for (Iterator it = displayListMap.keySet().iterator(); it.hasNext();) {
+			if (((String) it.next()).startsWith(type))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Check whether the currently active subject group list contains the
 	 * current subject's group code. If yes, then the current subject should run
@@ -1927,15 +2064,8 @@ public class ExDesign implements Cloneable {
 	 * start of a block.
 	 */
 	private AdaptiveControl getAdaptiveControl(ExDesignNode currentTrial) {
-		Object key = new Integer(ExPar.AdaptiveSequenceID.getInt());
-		AdaptiveControl adc = (AdaptiveControl) adaptiveControlMap.get(key);
-		if (adc == null) {
-			adc = new AdaptiveControl(currentTrial);
-			adaptiveControlMap.put(key, adc);
-			Debug.show(Debug.ADAPTIVE,
-					"ExDesign() Entered adaptive sequence ID = " + key);
-		}
-		return adc;
+		return adaptiveSequenceIndex.getControl(
+				ExPar.AdaptiveSequenceID.getInt(), currentTrial);
 	}
 
 	/**
@@ -1946,7 +2076,7 @@ public class ExDesign implements Cloneable {
 	 *            the data tree for the current block.
 	 */
 	private void computeAdaptiveResults(ExDesignNode blockData) {
-		for (Iterator adcm = adaptiveControlMap.values().iterator(); adcm
+		for (Iterator adcm = adaptiveSequenceIndex.getControls().iterator(); adcm
 				.hasNext();) {
 			((AdaptiveControl) adcm.next()).computeResult(blockData
 					.getChildrenList());
@@ -1954,11 +2084,100 @@ public class ExDesign implements Cloneable {
 	}
 
 	/**
-	 * Clear the adaptive control map which contains the adaptive control
-	 * objects for the adaptive sequences mixed within a block.
+	 * Create the index of the adaptive sequences mixed within a block. This
+	 * must be done at the start of a block after its trials have been expanded
+	 * and randomized.
+	 */
+	private void createAdaptiveSequenceIndex(ExDesignNode block) {
+		adaptiveSequenceIndex = new AdaptiveSequenceIndex(block
+				.getChildrenList());
+	}
+
+	/**
+	 * Create the random number generator for the block and trial orders of a
+	 * session. If a randomization seed is given then the generator's sequence
+	 * depends on the seed and the session counter only.
+	 */
+	private Randomizer createOrderRandomizer() {
+		long seed = ExPar.RandomizationSeed.getInt();
+		if (seed == 0L)
+			return new Randomizer();
+		return new Randomizer(seed * 1000003L + ExPar.SessionCounter.getInt());
+	}
+
+	/**
+	 * Randomize the order of a node's children. If there are sequential
+	 * constraints then the ConstrainedRandomizer is used and otherwise the
+	 * children list is shuffled.
+	 * 
+	 * @param node
+	 *            the session or block node whose children are randomized.
+	 * @param keyNames
+	 *            the parameters which define a child's condition. If this is
+	 *            null or none of these is a child parameter then all child
+	 *            parameters are used.
+	 */
+	private void randomizeChildren(ExDesignNode node, String[] keyNames) {
+		ConstrainedRandomizer cr = new ConstrainedRandomizer(orderRandomizer);
+		cr.setMaxRunLength(ExPar.MaxConditionRunLength.getInt());
+		cr.setMinRepeatDistance(ExPar.MinConditionRepeatDistance.getInt());
+		cr.setBalanceTransitions(ExPar.BalanceConditionTransitions.getFlag());
+		if (!cr.isConstrained() || !node.hasChildren()) {
+			node.randomizeChildrenList(orderRandomizer);
+			return;
+		}
+		int[] order = cr.order(conditionLabels(node.getChildrenList(),
+				keyNames));
+		if (order != null) {
+			node.reorderChildrenList(order);
+		} else {
+			new ParameterValueError(
+					"ExDesign.randomizeChildren(): No order satisfies the sequential constraints of "
+							+ node.getInstanceName());
+			node.randomizeChildrenList(orderRandomizer);
+		}
+	}
+
+	/**
+	 * Assign a condition label to every node of a list. Nodes get the same
+	 * label if their values of the key parameters are equal. The values of
+	 * trials which have not yet been used are not created.
 	 */
-	private void clearAdaptiveControlMap() {
-		adaptiveControlMap.clear();
+	private int[] conditionLabels(ArrayList nodes, String[] keyNames) {
+		int n = nodes.size();
+		int[] labels = new int[n];
+		HashMap map = new HashMap();
+		StringBuffer key = new StringBuffer();
+		for (int i = 0; i < n; i++) {
+			ExDesignNode nd = (ExDesignNode) nodes.get(i);
+			String[] pn = nd.getParNames();
+			key.setLength(0);
+			int m = 0;
+			if (keyNames != null) {
+				for (int j = 0; j < keyNames.length; j++) {
+					ExParValue v = nd.peekParValue(nd.getParIndex(keyNames[j]));
+					if (v != null) {
+						appendConditionKey(key, v);
+						m++;
+					}
+				}
+			}
+			if ((m == 0) && (pn != null)) {
+				for (int k = 0; k < pn.length; k++) {
+					ExParValue v = nd.peekParValue(k);
+					if (v != null)
+						appendConditionKey(key, v);
+				}
+			}
+			String ks = key.toString();
+			Integer label = (Integer) map.get(ks);
+			if (label == null) {
+				label = Integer.valueOf(map.size());
+				map.put(ks, label);
+			}
+			labels[i] = label.intValue();
+		}
+		return labels;
 	}
 
 	/**
@@ -1974,10 +2193,10 @@ public class ExDesign implements Cloneable {
 		int p = i + 1;
 		if (ExPar.RandomizeTrials.getFlag()) {
 			int n = trialList.size() - i;
-			Randomizer rnd = new Randomizer();
-			p = rnd.nextInt(n);
+			p = i + 1 + orderRandomizer.nextInt(n);
 		}
 		trialList.add(p, dup);
+		adaptiveSequenceIndex.insert(trialList, p, trial);
 	}
 
 	/**
@@ -2106,6 +2325,11 @@ public class ExDesign implements Cloneable {
 	private String[] factorParNames = null;
 	private String[] extFactorParNames = null;
 	private ExDesignNode conditionTable = null;
+	/**
+	 * Maps the factor level values of a condition to its condition node. This
+	 * is null if some condition's factor levels are not literal constants.
+	 */
+	private HashMap conditionIndex = null;
 	/**
 	 * These are the lists of factor names which may later be used to retrieve
 	 * factor values for statistical analyses.
@@ -2228,6 +2452,7 @@ public class ExDesign implements Cloneable {
 		if (conTable != null) {
 			// conTable.print();
 			conditionTable = conTable;
+			createConditionIndex();
 			createExtendedFactorParNames();
 			return;
 		}
@@ -2311,6 +2536,7 @@ public class ExDesign implements Cloneable {
 		// System.out.println("ExDesign.createConditionTable(): ");
 		// conTable.print();
 		conditionTable = conTable;
+		createConditionIndex();
 		createExtendedFactorParNames();
 		createFactorialDataFormat();
 	}
@@ -2544,6 +2770,48 @@ public class ExDesign implements Cloneable {
 		return dependentFactorNames;
 	}
 
+	/**
+	 * Create the index which maps factor level combinations to condition
+	 * nodes. If two conditions have the same factor levels then the first one
+	 * is found, as with a sequential search of the condition table. No index
+	 * is created if a factor level value needs evaluation since its value
+	 * might change.
+	 */
+	private void createConditionIndex() {
+		conditionIndex = null;
+		if (conditionTable == null)
+			return;
+		HashMap index = new HashMap(2 * conditionTable.getChildCount() + 1);
+		for (Enumeration ct = conditionTable.children(); ct.hasMoreElements();) {
+			ExDesignNode condition = (ExDesignNode) ct.nextElement();
+			StringBuffer key = new StringBuffer();
+			for (int i = 0; i < nFactors; i++) {
+				ExParValue v = condition.getParValue(factorNames[i]);
+				if ((v == null) || !v.isLiteralConstant())
+					return;
+				appendConditionKey(key, v);
+			}
+			String k = key.toString();
+			if (!index.containsKey(k))
+				index.put(k, condition);
+		}
+		conditionIndex = index;
+	}
+
+	/**
+	 * Append a factor level value to a condition index key. Values are
+	 * compared by their string arrays like ExParValue.equals() does.
+	 */
+	static void appendConditionKey(StringBuffer key, ExParValue v) {
+		String[] a = v.getStringArray();
+		key.append(a.length);
+		for (int j = 0; j < a.length; j++) {
+			key.append('\u001F');
+			key.append(a[j]);
+		}
+		key.append('\u001E');
+	}
+
 	/**
 	 * Find that condition node which contains the experimental condition
 	 * realized in the given trial.
@@ -2552,6 +2820,11 @@ public class ExDesign implements Cloneable {
 		// System.out.println("ExDesign.getConditionForTrial(): " + trial);
 		if (conditionTable == null)
 			return (null);
+		if (conditionIndex != null) {
+			String key = trial.getConditionKey(factorNames);
+			return (key == null) ? null : ((ExDesignNode) conditionIndex
+					.get(key));
+		}
 		// Get the factor level values from the trial arguments list
 		ExParValue[] trialPars = new ExParValue[nFactors];
 		for (int i = 0; i < nFactors; i++) {
@@ -2960,7 +3233,9 @@ public class ExDesign implements Cloneable {
 
 	/**
 	 * Get the root node of the data tree. Note that the data tree does only
-	 * exist after the design tree has been executed.
+	 * exist after the design tree has been executed. Session, block and trial
+	 * data nodes are contained in this tree only if they are needed for data
+	 * processing. The complete data tree is written to the data tree file.
 	 */
 	public ExDesignNode getExDesignDataTree() {
 		return exDesignDataTree;
@@ -161,6 +161,36 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	 * node.
 	 */
 	private ExParValue[] parValues = null;
+	/**
+	 * Trials which are created by expandTrials() or multiply() do not get
+	 * their parameter values immediately. They keep a reference to a template
+	 * which is shared by all trials created from the same original trial and
+	 * an index into the template's set of value combinations. The parameter
+	 * value array is created when it is needed for the first time. This is
+	 * null for all other nodes and for trials whose values already exist.
+	 */
+	private TrialTemplate trialTemplate = null;
+	/** The value combination index of a trial which has a trialTemplate. */
+	private int trialTemplateIndex;
+	/**
+	 * The ExPar objects named by the parameter name array as they are found by
+	 * ExPar.get(). Entries are null for unknown names. The array is valid as
+	 * long as the parameter name array and the runtime parameter table do not
+	 * change.
+	 */
+	private ExPar[] parSlots = null;
+	/** The parameter name array which has been resolved into parSlots. */
+	private String[] parSlotNames = null;
+	/** The runtime parameter table version at the time of resolving. */
+	private int parSlotsVersion = -1;
+	/**
+	 * The condition index key of a trial node. It is valid as long as the
+	 * node has the same factor names and factor level value objects as when
+	 * it was built.
+	 */
+	private String conditionKey = null;
+	private String[] conditionKeyFactors = null;
+	private ExParValue[] conditionKeyValues = null;
 	/**
 	 * Experimental design nodes of type Experiment, Session, and Block have a
 	 * list of children which itself also are experimental design nodes.
@@ -196,6 +226,15 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 		}
 	}
 
+	/**
+	 * Get the comment which precedes this node in the design file.
+	 * 
+	 * @return the comment text or null if there is no comment.
+	 */
+	public String getComment() {
+		return precedingComment;
+	}
+
 	/**
 	 * Creates an experimental design node and defines the type, the parameter
 	 * names and values of the design node, and its initial children list size.
@@ -510,20 +549,61 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 
 	/** Get this design node's parameter array. */
 	public ExParValue[] getParValues() {
+		createParValues();
 		return (parValues);
 	}
 
 	/** Set the parameter array of this node. */
 	public void setParValues(ExParValue[] p) {
+		trialTemplate = null;
 		parValues = (p == null) ? null : dupArrayOfExParValues(p);
 	}
 
+	/**
+	 * Set the parameter array of this node without copying it. The array must
+	 * not be shared with any other node.
+	 */
+	void setParValuesArray(ExParValue[] p) {
+		trialTemplate = null;
+		parValues = p;
+	}
+
 	/* Get the parameter value at a given index position. */
 	public ExParValue getParValue(int idx) {
+		createParValues();
 		return (((parValues == null) || (idx >= parValues.length)) ? null
 				: parValues[idx]);
 	}
 
+	/**
+	 * Get a parameter value for reading only. Unlike getParValue() this does
+	 * not create the parameter value array of a trial which has been created
+	 * by expandTrials() or multiply() and the result must not be modified.
+	 * 
+	 * @param idx
+	 *            the parameter index.
+	 * @return the parameter value or null if there is none or the index is
+	 *         negative.
+	 */
+	ExParValue peekParValue(int idx) {
+		if (idx < 0)
+			return null;
+		if (trialTemplate != null)
+			return trialTemplate.valueAt(trialTemplateIndex, idx);
+		return getParValue(idx);
+	}
+
+	/**
+	 * Create the parameter value array of a trial which has been created by
+	 * expandTrials() or multiply().
+	 */
+	private void createParValues() {
+		if (trialTemplate != null) {
+			parValues = trialTemplate.valuesAt(trialTemplateIndex);
+			trialTemplate = null;
+		}
+	}
+
 	/*
 	 * Figure out the index of the given node parameter. Returns (-1) if the
 	 * parameter is not an experimental parameter.
@@ -544,6 +624,43 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 		return (getParValue(i));
 	}
 
+	/**
+	 * Get the key of the factor level combination of this trial for a
+	 * condition index. The key is kept if all factor level values are literal
+	 * constants and is built again only if a value object of one of the
+	 * factors has been replaced.
+	 * 
+	 * @param factorNames
+	 *            the names of the independent factors.
+	 * @return the key or null if this node does not have a value for one of
+	 *         the factors.
+	 */
+	String getConditionKey(String[] factorNames) {
+		int n = factorNames.length;
+		if (conditionKeyFactors == factorNames) {
+			boolean valid = true;
+			for (int i = 0; valid && (i < n); i++)
+				valid = (getParValue(factorNames[i]) == conditionKeyValues[i]);
+			if (valid)
+				return conditionKey;
+		}
+		ExParValue[] v = new ExParValue[n];
+		StringBuffer key = new StringBuffer();
+		boolean literal = true;
+		for (int i = 0; i < n; i++) {
+			v[i] = getParValue(factorNames[i]);
+			if (v[i] == null)
+				return null;
+			literal = literal && v[i].isLiteralConstant();
+			ExDesign.appendConditionKey(key, v[i]);
+		}
+		String k = key.toString();
+		conditionKey = literal ? k : null;
+		conditionKeyFactors = literal ? factorNames : null;
+		conditionKeyValues = literal ? v : null;
+		return k;
+	}
+
 	/**
 	 * Check whether this not does have children.
 	 * 
@@ -677,6 +794,7 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	 * @return a string representation of this node
 	 */
 	private String toStringLocal(boolean uc) {
+		createParValues();
 		String s = "";
 		switch (getType()) {
 		case FactorLevelNode:
@@ -1082,6 +1200,25 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 		// }
 	}
 
+	/**
+	 * Print a protocol of this node and its children as if this node were
+	 * contained in a tree at the given depth.
+	 * 
+	 * @param ps
+	 *            the PrintWriter where to print to.
+	 * @param indent
+	 *            the indentation of this node.
+	 */
+	public void print(PrintWriter ps, int indent) {
+		int d = depth;
+		depth = indent;
+		try {
+			print(ps);
+		} finally {
+			depth = d;
+		}
+	}
+
 	/**
 	 * Print a HTML description of this node and its children if there are some.
 	 * This creates a recursive HTML description of all nodes rooted in this
@@ -1358,6 +1495,7 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	 * Procedure/Session/Block/Trial unit.
 	 */
 	private String parValuesDeclaration() {
+		createParValues();
 		String nl = System.getProperty("line.separator");
 		if ((parValues == null) || (parValues.length == 0))
 			return ("\tparValues = null;" + nl);
@@ -1373,14 +1511,19 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 
 	/**
 	 * Expand those Trial children of a Block node which contain expansion
-	 * parameter values as arguments.
+	 * parameter values as arguments. The new trials share a template of the
+	 * expanded values and get their own parameter values only when they are
+	 * used. Thus large expansions need only a small node object for every
+	 * trial which has not yet been run.
 	 */
 	public void expandTrials() {
 		if (!isBlock())
 			return;
 		if (!hasChildren())
 			return;
-		for (int childIdx = 0; childIdx < childrenList.size(); childIdx++) {
+		ArrayList newChildrenList = null;
+		int n = childrenList.size();
+		for (int childIdx = 0; childIdx < n; childIdx++) {
 			boolean hasExpansion = false;
 			ExDesignNode trial = (ExDesignNode) childrenList.get(childIdx);
 			ExParValue[] pv = trial.getParValues();
@@ -1405,38 +1548,41 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 				}
 			}
 			if (hasExpansion) {
-				// Remove the node which will be expanded
-				childrenList.remove(childIdx);
-				for (ExpansionIterator ex = new ExpansionIterator(set); ex
-						.hasNext();) {
-					int[] idx = (int[]) ex.next();
-					// Create the new node's array of parameter values
-					ExParValue[] pVal = new ExParValue[pve.length];
-					for (int j = 0; j < pve.length; j++) {
-						if (set[j] == 1) {
-							// System.out.println("ExDesignNode.expandTrials() Original: "
-							// + pve[j]);
-							pVal[j] = (ExParValue) pve[j].clone();
-							// System.out.println("ExDesignNode.expandTrials() Clone:    "
-							// + pVal[j]);
-						} else {
-							pVal[j] = pve[j].getValueAt(idx[j]);
-						}
-					}
+				if (newChildrenList == null) {
+					newChildrenList = new ArrayList(n);
+					for (int i = 0; i < childIdx; i++)
+						newChildrenList.add(childrenList.get(i));
+				}
+				TrialTemplate tt = new TrialTemplate(pve, set);
+				int m = tt.size();
+				newChildrenList.ensureCapacity(newChildrenList.size() + m + n
+						- childIdx);
+				// Expanded trials used to be inserted one by one at the
+				// original trial's position. This order is preserved.
+				for (int k = m - 1; k >= 0; k--) {
 					ExDesignNode newTrial = new ExDesignNode(TrialNode, 0);
 					newTrial.setName(trial.getName());
 					newTrial.setParNames(trial.getParNames());
-					newTrial.setParValues(pVal);
 					newTrial.setParent((ExDesignNode) trial.getParent());
-					childrenList.add(childIdx, newTrial);
+					newTrial.trialTemplate = tt;
+					newTrial.trialTemplateIndex = k;
+					newChildrenList.add(newTrial);
 				}
+			} else if (newChildrenList != null) {
+				newChildrenList.add(trial);
 			}
 		}
+		if (newChildrenList != null) {
+			newChildrenList.trimToSize();
+			childrenList = newChildrenList;
+		}
 	}
 
 	/**
 	 * Multiply the children of a Session or Block node by the factor parameter
-	 * given as an argument.
+	 * given as an argument. Copies of trials share the parameter values of
+	 * their original and get their own parameter values only when they are
+	 * used.
 	 */
 	public void multiply(int factor) {
 		if (!isBlock() && !isSession())
@@ -1449,8 +1595,22 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 		for (int childIdx = 0; childIdx < childrenList.size(); childIdx++) {
 			ExDesignNode child = (ExDesignNode) childrenList.get(childIdx);
 			newChildrenList.add(child);
-			for (int i = 1; i < factor; i++) {
-				newChildrenList.add(child.dupTree());
+			if (child.isTrial() && !child.hasChildren()) {
+				if (child.trialTemplate == null && child.parValues != null) {
+					// The template gets its own copy since the original
+					// trial's values are modified when it is run.
+					child.trialTemplate = new TrialTemplate(
+							dupArrayOfExParValues(child.parValues), null);
+					child.trialTemplateIndex = 0;
+					child.parValues = null;
+				}
+				for (int i = 1; i < factor; i++) {
+					newChildrenList.add(child.dupNode());
+				}
+			} else {
+				for (int i = 1; i < factor; i++) {
+					newChildrenList.add(child.dupTree());
+				}
 			}
 		}
 		newChildrenList.trimToSize();
@@ -1462,6 +1622,30 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 		Collections.shuffle(childrenList);
 	}
 
+	/**
+	 * Randomize the order of children nodes.
+	 * 
+	 * @param rnd
+	 *            the random number generator to be used.
+	 */
+	public void randomizeChildrenList(Random rnd) {
+		Collections.shuffle(childrenList, rnd);
+	}
+
+	/**
+	 * Put the children nodes into the given order.
+	 * 
+	 * @param order
+	 *            the indices of the current children in their new order.
+	 */
+	public void reorderChildrenList(int[] order) {
+		int n = order.length;
+		ArrayList a = new ArrayList(n);
+		for (int i = 0; i < n; i++)
+			a.add(childrenList.get(order[i]));
+		childrenList = a;
+	}
+
 	/**
 	 * Return an Iterator for walking through the design tree starting at this
 	 * node.
@@ -1561,20 +1745,21 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	 * objects value is localized if this ExPar object is a node parameter.
 	 */
 	public void pushArgs() {
+		createParValues();
 		if ((parNames != null) && (parValues != null)) {
 			// System.out.println("ExDesignNode.pushArgs() Node pars before push(): "
 			// + toString());
 			if (parNames.length == parValues.length) {
+				ExPar[] slots = getParSlots();
 				for (int i = 0; i < parNames.length; i++) {
-					String n = parNames[i];
 					// System.out.println("ExDesignNode.pushArgs() pushing argument "
-					// + i + ": " + n);
-					// Shouldn't here be used get(n, false) ?
-					ExPar x = ExPar.get(n);
+					// + i + ": " + parNames[i]);
+					ExPar x = slots[i];
 					if (x == null) {
 						new ParameterNameError(
-								"ExDesignNode.pushArgs(): Parameter " + n
-										+ " does not exist: " + toString());
+								"ExDesignNode.pushArgs(): Parameter "
+										+ parNames[i] + " does not exist: "
+										+ toString());
 					} else {
 						ExParValue xn = parValues[i];
 						// System.out.println("ExDesignNode.pushArgs() new value: "
@@ -1594,7 +1779,8 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 			// System.out.println("ExDesignNode.pushArgs() Node does not have parameters: "
 			// + toString());
 		}
-		Debug.show(Debug.PUSH_POP, "Push " + toString());
+		if (Debug.isActive(Debug.PUSH_POP))
+			Debug.show(Debug.PUSH_POP, "Push " + toString());
 	}
 
 	/**
@@ -1603,18 +1789,20 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	 * to this node's parameter value array.
 	 */
 	public void popArgs() {
+		createParValues();
 		if ((parNames != null) && (parValues != null)) {
 			// System.out.println("Node before pop(): " + toString());
 			if (parNames.length == parValues.length) {
+				ExPar[] slots = getParSlots();
 				for (int i = 0; i < parNames.length; i++) {
-					String n = parNames[i];
 					// System.out.println("ExDesignNode.popArgs() popping argument "
-					// + i + ": " + n);
-					ExPar x = ExPar.get(n);
+					// + i + ": " + parNames[i]);
+					ExPar x = slots[i];
 					if (x == null) {
 						new ParameterNameError(
-								"ExDesignNode.popArgs(): Parameter " + n
-										+ " does not exist: " + toString());
+								"ExDesignNode.popArgs(): Parameter "
+										+ parNames[i] + " does not exist: "
+										+ toString());
 					} else {
 						parValues[i] = x.pop();
 					}
@@ -1626,7 +1814,29 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 								+ toString());
 			}
 		}
-		Debug.show(Debug.PUSH_POP, " Pop " + toString());
+		if (Debug.isActive(Debug.PUSH_POP))
+			Debug.show(Debug.PUSH_POP, " Pop " + toString());
+	}
+
+	/**
+	 * Get the ExPar objects of this node's parameters. Names are resolved only
+	 * once and are resolved again only if the parameter name array or the
+	 * runtime parameter table has been changed. This saves the table lookup
+	 * and the reflection of static parameters at every push and pop.
+	 */
+	private ExPar[] getParSlots() {
+		int v = ExPar.getRuntimeParsVersion();
+		if ((parSlots == null) || (parSlotNames != parNames)
+				|| (parSlotsVersion != v)) {
+			ExPar[] slots = new ExPar[parNames.length];
+			for (int i = 0; i < parNames.length; i++) {
+				slots[i] = ExPar.get(parNames[i], false);
+			}
+			parSlots = slots;
+			parSlotNames = parNames;
+			parSlotsVersion = v;
+		}
+		return parSlots;
 	}
 
 	/**
@@ -1635,6 +1845,7 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	 * destroyed.
 	 */
 	public void setParValuesToCurrentValues() {
+		trialTemplate = null;
 		// if this node does not have parameters we don't have to do
 		// anything
 		if (parNames != null) {
@@ -1682,6 +1893,7 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	 * as possible from its current parameter values.
 	 */
 	public void modifyParValues(String[] newParNames) {
+		createParValues();
 		int n = newParNames.length;
 		ExParValue[] newParValues = new ExParValue[n];
 		for (int i = 0; i < n; i++) {
@@ -1942,6 +2154,7 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 				System.out.print(", " + parNames[i]);
 			System.out.println("]");
 		}
+		createParValues();
 		if (parValues == null) {
 			System.out.println("  parValues = null");
 		} else if (parValues.length == 0) {
@@ -2125,4 +2338,59 @@ public class ExDesignNode extends ExDesignNodeSupport implements TreeNode, // Mu
 	// --------------------------------------------------
 	// End of MutableTreeNode implementation
 	// --------------------------------------------------
+
+	/**
+	 * The parameter values of a set of trials which have been created by
+	 * expanding or multiplying a single trial. The values of a trial are
+	 * identified by the index of their combination in the order of an
+	 * ExpansionIterator.
+	 */
+	private static class TrialTemplate {
+		/** The values with expansions already evaluated. */
+		private ExParValue[] values;
+		/**
+		 * The number of elements of every value. This is null if all trials
+		 * get copies of the same values.
+		 */
+		private int[] set;
+
+		TrialTemplate(ExParValue[] values, int[] set) {
+			this.values = values;
+			this.set = set;
+		}
+
+		/** Get the number of value combinations. */
+		int size() {
+			int n = 1;
+			if (set != null) {
+				for (int j = 0; j < set.length; j++)
+					n *= set[j];
+			}
+			return n;
+		}
+
+		/** Create the parameter value array for the given combination. */
+		ExParValue[] valuesAt(int index) {
+			ExParValue[] p = new ExParValue[values.length];
+			for (int j = 0; j < values.length; j++) {
+				p[j] = valueAt(index, j);
+				if (p[j] == values[j])
+					p[j] = (ExParValue) values[j].clone();
+			}
+			return p;
+		}
+
+		/**
+		 * Get a single value of the given combination. The highest parameter
+		 * index runs fastest. Values which are not expanded are returned
+		 * without copying them.
+		 */
+		ExParValue valueAt(int index, int j) {
+			if ((set == null) || (set[j] == 1))
+				return values[j];
+			for (int i = set.length - 1; i > j; i--)
+				index /= set[i];
+			return values[j].getValueAt(index % set[j]);
+		}
+	}
 }
@@ -0,0 +1,331 @@
+package de.pxlab.pxl;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A binary snapshot of a parsed experimental design tree. Parsing a large
+ * design file and resolving its class constants may take some seconds. A
+ * snapshot contains the design tree in a compact binary format together with
+ * a hash of the design file's content. When the design file is loaded again
+ * and its content hash matches the snapshot's hash then the tree is read from
+ * the snapshot and the parser is not needed.
+ *
+ * <p>
+ * A snapshot is valid only for the design file content, the file encoding,
+ * the snapshot format version and the PXLab version which created it. If any
+ * of these does not match then the snapshot is ignored and the design file is
+ * parsed. Design files which import other files are not saved as snapshots
+ * since the imported files are not covered by the content hash.
+ *
+ * @version 0.1.0
+ * @see ExDesign
+ */
+public class ExDesignSnapshot {
+	/** The file name extension of snapshot files. */
+	public static final String EXTENSION = ".pxs";
+	/** Identifies snapshot files. */
+	private static final int MAGIC = 0x50584453;
+	/**
+	 * The version of the snapshot format. Increment this whenever the format
+	 * or the structure of design nodes or parameter values changes.
+	 */
+	private static final int FORMAT_VERSION = 2;
+	/** The hash of the design file content and its encoding. */
+	private String hash;
+	/** True if the design file does not import other files. */
+	private boolean selfContained;
+	/** Parameter name arrays which have already been written or read. */
+	private IdentityHashMap namesWritten;
+	private ArrayList namesRead;
+
+	/**
+	 * Create a snapshot descriptor for the given design file content.
+	 *
+	 * @param source
+	 *            the content of the design file.
+	 * @param encoding
+	 *            the encoding which is used for parsing the design file.
+	 */
+	public ExDesignSnapshot(byte[] source, String encoding) {
+		hash = contentHash(source, encoding);
+		selfContained = !importsFiles(source);
+	}
+
+	/**
+	 * Get the snapshot file which belongs to a design file.
+	 *
+	 * @param designFile
+	 *            the design file.
+	 * @return the snapshot file in the same directory.
+	 */
+	public static File snapshotFile(File designFile) {
+		return new File(designFile.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Read the design tree from a snapshot file.
+	 *
+	 * @param f
+	 *            the snapshot file.
+	 * @return the design tree or null if the file does not exist, is not
+	 *         readable, or does not belong to the current design file content.
+	 */
+	public ExDesignNode read(File f) {
+		if ((hash == null) || !f.isFile())
+			return null;
+		ExDesignNode tree = null;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(f), 1 << 16));
+			if ((in.readInt() == MAGIC) && (in.readInt() == FORMAT_VERSION)
+					&& Base.getVersion().equals(in.readUTF())
+					&& hash.equals(in.readUTF())) {
+				namesRead = new ArrayList();
+				tree = readNode(in);
+				namesRead = null;
+			}
+		} catch (IOException iox) {
+			tree = null;
+		} catch (RuntimeException rx) {
+			tree = null;
+		} finally {
+			close(in);
+		}
+		Debug.show(Debug.FILES, "ExDesignSnapshot.read(): "
+				+ ((tree != null) ? "Read " : "No valid snapshot ") + f);
+		return tree;
+	}
+
+	/**
+	 * Write a design tree to a snapshot file. This should be called
+	 * immediately after parsing the design file such that the tree has not
+	 * yet been modified. Errors are ignored since the snapshot is not
+	 * necessary for running the design.
+	 *
+	 * @param f
+	 *            the snapshot file.
+	 * @param tree
+	 *            the design tree which has been parsed from the design file.
+	 * @return true if the snapshot has been written.
+	 */
+	public boolean write(File f, ExDesignNode tree) {
+		if ((hash == null) || !selfContained || (tree == null))
+			return false;
+		File tmp = new File(f.getPath() + ".tmp");
+		DataOutputStream out = null;
+		boolean r = false;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tmp), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(Base.getVersion());
+			out.writeUTF(hash);
+			namesWritten = new IdentityHashMap();
+			writeNode(out, tree);
+			namesWritten = null;
+			out.close();
+			out = null;
+			f.delete();
+			r = tmp.renameTo(f);
+		} catch (IOException iox) {
+			r = false;
+		} finally {
+			close(out);
+			if (!r)
+				tmp.delete();
+		}
+		Debug.show(Debug.FILES, "ExDesignSnapshot.write(): "
+				+ (r ? "Wrote " : "Could not write ") + f);
+		return r;
+	}
+
+	private void writeNode(DataOutputStream out, ExDesignNode node)
+			throws IOException {
+		out.writeByte(node.getType());
+		out.writeInt(node.getTypeModifier());
+		writeString(out, node.getName());
+		out.writeInt(node.getTokenLine());
+		out.writeInt(node.getTokenColumn());
+		writeString(out, node.getComment());
+		writeNames(out, node.getParNames());
+		ExParValue[] pv = node.getParValues();
+		out.writeInt((pv != null) ? pv.length : -1);
+		if (pv != null) {
+			for (int i = 0; i < pv.length; i++)
+				pv[i].writeSnapshot(out);
+		}
+		ArrayList c = node.getChildrenList();
+		out.writeInt((c != null) ? c.size() : -1);
+		if (c != null) {
+			for (int i = 0; i < c.size(); i++)
+				writeNode(out, (ExDesignNode) c.get(i));
+		}
+	}
+
+	private ExDesignNode readNode(DataInputStream in) throws IOException {
+		ExDesignNode node = new ExDesignNode(in.readByte(), 0);
+		node.setTypeModifier(in.readInt());
+		node.setName(readString(in));
+		int line = in.readInt();
+		node.setTokenPosition(line, in.readInt());
+		String comment = readString(in);
+		if (comment != null)
+			node.setComment(comment);
+		node.setParNames(readNames(in));
+		int n = in.readInt();
+		if (n >= 0) {
+			ExParValue[] pv = new ExParValue[n];
+			for (int i = 0; i < n; i++)
+				pv[i] = ExParValue.readSnapshot(in);
+			// Values are new objects already so we don't use
+			// setParValues() which would copy them once more.
+			node.setParValuesArray(pv);
+		}
+		int k = in.readInt();
+		if (k >= 0) {
+			node.setChildrenList(new ArrayList(Math.max(k, 1)));
+			for (int i = 0; i < k; i++)
+				node.add(readNode(in));
+		}
+		return node;
+	}
+
+	/**
+	 * Write a parameter name array. Nodes of the same display list share
+	 * their name array and this is preserved by writing every array only
+	 * once.
+	 */
+	private void writeNames(DataOutputStream out, String[] a)
+			throws IOException {
+		if (a == null) {
+			out.writeInt(-1);
+			return;
+		}
+		Integer idx = (Integer) namesWritten.get(a);
+		if (idx != null) {
+			out.writeInt(-2 - idx.intValue());
+		} else {
+			namesWritten.put(a, Integer.valueOf(namesWritten.size()));
+			out.writeInt(a.length);
+			for (int i = 0; i < a.length; i++)
+				writeString(out, a[i]);
+		}
+	}
+
+	private String[] readNames(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		if (n == -1)
+			return null;
+		if (n < -1)
+			return (String[]) namesRead.get(-2 - n);
+		String[] a = new String[n];
+		for (int i = 0; i < n; i++)
+			a[i] = readString(in);
+		namesRead.add(a);
+		return a;
+	}
+
+	/**
+	 * Write a string which may be null. The string is written as a length
+	 * prefixed array of UTF-8 bytes since DataOutput.writeUTF() is restricted
+	 * to 65535 bytes and long text parameters would prevent the snapshot.
+	 */
+	static void writeString(DataOutput out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] b = s.getBytes("UTF-8");
+			out.writeInt(b.length);
+			out.write(b);
+		}
+	}
+
+	/** Read a string which has been written by writeString(). */
+	static String readString(DataInput in) throws IOException {
+		int n = in.readInt();
+		if (n == -1)
+			return null;
+		if (n < 0)
+			throw new IOException("Invalid string length " + n);
+		byte[] b = new byte[n];
+		in.readFully(b);
+		return new String(b, "UTF-8");
+	}
+
+	/** Write a string array which may be null. */
+	static void writeStrings(DataOutput out, String[] a) throws IOException {
+		out.writeInt((a != null) ? a.length : -1);
+		if (a != null) {
+			for (int i = 0; i < a.length; i++)
+				writeString(out, a[i]);
+		}
+	}
+
+	/** Read a string array which has been written by writeStrings(). */
+	static String[] readStrings(DataInput in) throws IOException {
+		int n = in.readInt();
+		if (n < 0)
+			return null;
+		String[] a = new String[n];
+		for (int i = 0; i < n; i++)
+			a[i] = readString(in);
+		return a;
+	}
+
+	/**
+	 * Compute the hash of a design file's content and encoding.
+	 *
+	 * @return a hexadecimal string or null if no hash algorithm is available.
+	 */
+	private static String contentHash(byte[] source, String encoding) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			md.update(source);
+			if (encoding != null)
+				md.update(encoding.getBytes("UTF-8"));
+			byte[] h = md.digest();
+			StringBuffer b = new StringBuffer(2 * h.length);
+			for (int i = 0; i < h.length; i++) {
+				b.append(Character.forDigit((h[i] >> 4) & 0xF, 16));
+				b.append(Character.forDigit(h[i] & 0xF, 16));
+			}
+			return b.toString();
+		} catch (NoSuchAlgorithmException nsax) {
+			return null;
+		} catch (UnsupportedEncodingException uex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Check whether the design file contains an Import statement. This is
+	 * conservative: an Import keyword in a comment or string also prevents
+	 * the snapshot.
+	 */
+	private static boolean importsFiles(byte[] source) {
+		byte[] k = { 'I', 'm', 'p', 'o', 'r', 't' };
+		int n = source.length - k.length;
+		for (int i = 0; i <= n; i++) {
+			int j = 0;
+			while ((j < k.length) && (source[i + j] == k[j]))
+				j++;
+			if (j == k.length)
+				return true;
+		}
+		return false;
+	}
+
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException iox) {
+			}
+		}
+	}
+}
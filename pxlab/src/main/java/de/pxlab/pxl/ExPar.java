@@ -177,6 +177,12 @@ public class ExPar implements ExParTypeCodes {
 	 * </ol>
 	 */
 	private static HashMap runtimePars = new HashMap();
+	/**
+	 * Counts the modifications of the runtime parameter table. Objects which
+	 * cache the results of get() must resolve names again whenever this
+	 * counter changes.
+	 */
+	private static int runtimeParsVersion = 0;
 
 	// ---------------------------------------------------------
 	// Constructors
@@ -589,6 +595,7 @@ public class ExPar implements ExParTypeCodes {
 		// System.out.println("ExPar.reset()");
 		// new RuntimeException().printStackTrace();
 		runtimePars.clear();
+		runtimeParsVersion++;
 		resetValues();
 		GlobalAssignments.exec();
 	}
@@ -610,6 +617,7 @@ public class ExPar implements ExParTypeCodes {
 		if (get(n, false) == null) {
 			p = new ExPar(UNKNOWN, new ExParValueUndefined(), null);
 			runtimePars.put(n, p);
+			runtimeParsVersion++;
 		}
 		// System.out.println("ExPar.create(): Runtime Parameter " + n +
 		// " created. ");
@@ -627,6 +635,7 @@ public class ExPar implements ExParTypeCodes {
 	public static void enter(String n, ExPar p) {
 		// System.out.println("ExPar.enter(): Trying to enter parameter " + n +
 		// " into the runtime table. ");
+		runtimeParsVersion++;
 		if (runtimePars.put(n, p) != null)
 			new ParameterNameError("Parameter " + n + " already exists.");
 		// System.out.println("Parameter " + n +
@@ -640,6 +649,7 @@ public class ExPar implements ExParTypeCodes {
 	 *            the name of the parameter which should be removed.
 	 */
 	public static void remove(String n) {
+		runtimeParsVersion++;
 		if (runtimePars.remove(n) == null)
 			new ParameterNameError("Parameter " + n + " does not exist.");
 		// System.out.println("Parameter " + n +
@@ -714,6 +724,17 @@ public class ExPar implements ExParTypeCodes {
 		return get(n, true);
 	}
 
+	/**
+	 * Get the current modification count of the runtime parameter table. The
+	 * result of get() for a given name does not change as long as this count
+	 * does not change.
+	 * 
+	 * @return the number of modifications of the runtime parameter table.
+	 */
+	static int getRuntimeParsVersion() {
+		return runtimeParsVersion;
+	}
+
 	/**
 	 * This method returns a reference to the ExPar object whose name is given
 	 * as an argument. It handles static and dynamic runtime parameters
@@ -764,16 +785,18 @@ public class ExPar implements ExParTypeCodes {
 		Object obj = null;
 		String err = null;
 		try {
-			Class cls = Class.forName(packageName + "." + className);
-			try {
-				Field fld = cls.getField(fieldName);
+			Class cls = ("ExPar".equals(className) && "de.pxlab.pxl"
+					.equals(packageName)) ? ExPar.class : Class
+					.forName(packageName + "." + className);
+			Field fld = ExParFields.of(cls).getField(fieldName);
+			if (fld != null) {
 				try {
 					obj = fld.get(null);
 				} catch (IllegalAccessException iae) {
 					if (errcheck)
 						err = "Illegal access to " + fieldName;
 				}
-			} catch (NoSuchFieldException nsfe) {
+			} else {
 				if (errcheck)
 					err = "Class " + packageName + "." + className
 							+ " does not have a field named " + fieldName;
@@ -880,29 +903,7 @@ public class ExPar implements ExParTypeCodes {
 	}
 
 	public static String[] getSystemParNames() {
-		ArrayList aPars = new ArrayList();
-		String cn = "de.pxlab.pxl.ExPar";
-		try {
-			Class cls = Class.forName(cn);
-			Field[] fld = cls.getFields();
-			int n2 = fld.length;
-			for (int j = 0; j < n2; j++) {
-				Class fc = fld[j].getType();
-				String fcn = fc.getName();
-				if (fcn.equals("de.pxlab.pxl.ExPar"))
-					aPars.add(fld[j].getName());
-			}
-		} catch (ClassNotFoundException cnfe) {
-			new InternalError(
-					"ExPar.getSystemParNames() internal error: Class " + cn
-							+ " not found!");
-		}
-		int n = aPars.size();
-		String[] sa = new String[n];
-		for (int i = 0; i < n; i++) {
-			sa[i] = (String) (aPars.get(i));
-		}
-		return (StringExt.sort(sa));
+		return ExParFields.of(ExPar.class).getExParNames();
 	}
 
 	public static String[] getAllParNames() {
@@ -1030,6 +1031,14 @@ public class ExPar implements ExParTypeCodes {
 	 */
 	public static ExPar ResponseCode = new ExPar(RTDATA, new ExParValue(0),
 			"Multiple display response code");
+	/**
+	 * Stores the time in milliseconds which the response event of a timing
+	 * interval spanning more than a single timing group has been waiting in
+	 * the event queue before it has been delivered. This is 0 if the event
+	 * source does not provide its own time stamp.
+	 */
+	public static ExPar ResponseLatency = new ExPar(RTDATA, new ExParValue(0),
+			"Multiple display response queueing latency");
 	/**
 	 * Stores the position of the mouse for mouse responses in timing intervals
 	 * which span more than a single timing group.
@@ -1042,9 +1051,28 @@ public class ExPar implements ExParTypeCodes {
 	 */
 	public static ExPar ResponseErrorCount = new ExPar(RTDATA,
 			new ExParValue(0), "Response error counter");
-	/** Threshold for the timer of type TimerCodes.VOICE_KEY_TIMER. */
+	/**
+	 * Threshold for the timer of type TimerCodes.VOICE_KEY_TIMER. In onset
+	 * mode VoiceKeyOnsetCodes.PEAK this is the absolute sample value which
+	 * must be exceeded. In mode VoiceKeyOnsetCodes.RMS it is the root mean
+	 * square sample value within the voice key window.
+	 * 
+	 * @see #VoiceKeyOnsetMode
+	 */
 	public static ExPar VoiceKeyThreshold = new ExPar(DOUBLE, new ExParValue(
 			800.0), "Voice key timer threshold");
+	/**
+	 * Voice key onset detection mode. The default is the sample peak
+	 * detection. The parameters VoiceKeyWindow, VoiceKeyHysteresis,
+	 * VoiceKeyMinimumDuration, VoiceKeyNoiseWindow and VoiceKeyNoiseFactor are
+	 * used only in mode VoiceKeyOnsetCodes.RMS.
+	 * 
+	 * @see VoiceKeyOnsetCodes
+	 */
+	public static ExPar VoiceKeyOnsetMode = new ExPar(GEOMETRY_EDITOR,
+			VoiceKeyOnsetCodes.class, new ExParValueConstant(
+					"de.pxlab.pxl.VoiceKeyOnsetCodes.PEAK"),
+			"Voice key onset detection mode");
 	/**
 	 * Size of the recording and checking buffer for the
 	 * TimerCodes.VOICE_KEY_TIMER type of timer.
@@ -1058,6 +1086,33 @@ public class ExPar implements ExParTypeCodes {
 	public static ExPar VoiceKeyStopImmediately = new ExPar(FLAG,
 			new ExParValue(1),
 			"Flag to stop voice key recording after threshold has been passed");
+	/** Duration of the voice key's sliding level window in milliseconds. */
+	public static ExPar VoiceKeyWindow = new ExPar(DOUBLE, new ExParValue(
+			10.0), "Voice key level window duration");
+	/**
+	 * Release threshold of the voice key given as a fraction of the voice key
+	 * threshold.
+	 */
+	public static ExPar VoiceKeyHysteresis = new ExPar(PROPORT,
+			new ExParValue(0.5), "Voice key release threshold factor");
+	/**
+	 * Minimum duration in milliseconds the voice key level must stay above
+	 * the release threshold after passing the threshold.
+	 */
+	public static ExPar VoiceKeyMinimumDuration = new ExPar(DOUBLE,
+			new ExParValue(20.0), "Voice key minimum sound duration");
+	/**
+	 * Duration in milliseconds of the voice key noise estimation window at
+	 * the start of recording. No noise estimation is done if this is 0.
+	 */
+	public static ExPar VoiceKeyNoiseWindow = new ExPar(DOUBLE,
+			new ExParValue(0.0), "Voice key noise estimation window");
+	/**
+	 * The voice key threshold is raised to this multiple of the estimated
+	 * noise level if this is larger.
+	 */
+	public static ExPar VoiceKeyNoiseFactor = new ExPar(DOUBLE,
+			new ExParValue(3.0), "Voice key threshold to noise level factor");
 	/** Every trial is presented TrialFactor times. */
 	public static ExPar TrialFactor = new ExPar(0, 1000, new ExParValue(1),
 			"Trial replication factor");
@@ -1070,6 +1125,36 @@ public class ExPar implements ExParTypeCodes {
 	/** Flag to indicate that the trials in a block should be randomized. */
 	public static ExPar RandomizeTrials = new ExPar(FLAG, new ExParValue(1),
 			"Trial randomization flag");
+	/**
+	 * Seed of the random number generator which randomizes the order of
+	 * blocks and trials. If this is nonzero then the random orders of a
+	 * session depend only on this seed and on the session counter. If it is 0
+	 * then the orders are not reproducible.
+	 */
+	public static ExPar RandomizationSeed = new ExPar(INTEGER,
+			new ExParValue(0), "Random seed of block and trial orders");
+	/**
+	 * Maximum number of successive blocks or trials which have the same
+	 * condition in a randomized order. Trial conditions are defined by the
+	 * factor levels if a condition table exists and by the node parameter
+	 * values otherwise. A value of 0 means no limit.
+	 */
+	public static ExPar MaxConditionRunLength = new ExPar(INTEGER,
+			new ExParValue(0), "Maximum run of identical conditions");
+	/**
+	 * Minimum distance between two blocks or trials of the same condition in
+	 * a randomized order. A value of 2 means that identical conditions may
+	 * not follow each other immediately. Values less than 2 mean no limit.
+	 */
+	public static ExPar MinConditionRepeatDistance = new ExPar(INTEGER,
+			new ExParValue(0), "Minimum distance of identical conditions");
+	/**
+	 * Flag to indicate that randomized orders should have balanced
+	 * transitions: every condition should be followed by every other
+	 * condition about as often as expected from the conditions' frequencies.
+	 */
+	public static ExPar BalanceConditionTransitions = new ExPar(FLAG,
+			new ExParValue(0), "Balance transitions between conditions");
 	/** Active language (not yet implemented). */
 	public static ExPar Language = new ExPar(SMALL_INT, new ExParValue(0),
 			"Current language");
@@ -1261,6 +1346,14 @@ public class ExPar implements ExParTypeCodes {
 	 */
 	public static ExPar ProcessedDataDirectory = new ExPar(STRING,
 			new ExParValue("pdt"), "Data processing results subdirectory");
+	/**
+	 * Directory of pre-rendered stimulus images. If this parameter is
+	 * nonempty then display objects which compute expensive images look for a
+	 * pre-rendered image in this directory before they compute an image. The
+	 * directory is created by the StimulusExport tool.
+	 */
+	public static ExPar PrerenderedImageDirectory = new ExPar(STRING,
+			new ExParValue(""), "Directory of pre-rendered images");
 	/**
 	 * Final data file destination E-mail address for data file transfers via
 	 * HTTP. The receiver of a data file via HTTP should send the data file to
@@ -1271,7 +1364,10 @@ public class ExPar implements ExParTypeCodes {
 			new ExParValue(""), "Data File Destination E-mail Address");
 	/**
 	 * HTTP Request method for data transfer to the data file destination
-	 * directory via HTTP. Possible options are 'GET' or 'POST' (default).
+	 * directory via HTTP. Possible options are 'GET' or 'POST' (default). The
+	 * option 'STREAM' sends compressed batches of data while the session runs.
+	 * 
+	 * @see DataUploader
 	 */
 	public static ExPar HTTPRequestMethod = new ExPar(STRING, new ExParValue(
 			"POST"), "HTTP protocol request method for data file transfer");
@@ -1529,6 +1625,47 @@ public class ExPar implements ExParTypeCodes {
 	 */
 	public static ExPar AdaptiveLapsingRate = new ExPar(PROPORT,
 			new ExParValue(0.0), "Lapsing rate in adaptive procedure trials");
+	/**
+	 * Type of the psychometric function assumed by the Psi adaptive procedure.
+	 * 
+	 * @see AdaptiveProcedureCodes
+	 * @see AdaptiveControl
+	 */
+	public static ExPar AdaptivePsiFunction = new ExPar(GEOMETRY_EDITOR,
+			PsychometricFunctionCodes.class, new ExParValueConstant(
+					"de.pxlab.pxl.PsychometricFunctionCodes.LOGISTIC"),
+			"Psychometric function of the Psi procedure");
+	/**
+	 * Candidate stimulus values of the Psi adaptive procedure. If this
+	 * contains exactly three values then these are the smallest value, the
+	 * largest value, and the number of equally spaced values. Otherwise the
+	 * array contains the candidate values.
+	 * 
+	 * @see AdaptiveProcedureCodes
+	 * @see AdaptiveControl
+	 */
+	public static ExPar AdaptivePsiStimuli = new ExPar(DOUBLE, new ExParValue(
+			0.0, 1.0, 41.0), "Candidate stimuli of the Psi procedure");
+	/**
+	 * Grid of threshold values of the Psi adaptive procedure. The value is
+	 * interpreted as for AdaptivePsiStimuli.
+	 * 
+	 * @see AdaptiveProcedureCodes
+	 * @see AdaptiveControl
+	 */
+	public static ExPar AdaptivePsiThresholds = new ExPar(DOUBLE,
+			new ExParValue(0.0, 1.0, 41.0),
+			"Threshold grid of the Psi procedure");
+	/**
+	 * Grid of slope values of the Psi adaptive procedure. These are values of
+	 * the psychometric function's scale parameter. The value is interpreted
+	 * as for AdaptivePsiStimuli.
+	 * 
+	 * @see AdaptiveProcedureCodes
+	 * @see AdaptiveControl
+	 */
+	public static ExPar AdaptivePsiSlopes = new ExPar(DOUBLE, new ExParValue(
+			0.01, 0.5, 20.0), "Slope grid of the Psi procedure");
 	/**
 	 * The quantiles which should be returned after psychometric function
 	 * estimation. The quantiles are returned in AdaptiveResults.
@@ -1744,29 +1881,11 @@ public class ExPar implements ExParTypeCodes {
 	/** Reset all experimental parameters to their default values. */
 	public static void resetValues() {
 		// System.out.println("ExPar.resetValues()");
-		String cn = "de.pxlab.pxl.ExPar";
-		try {
-			Class cls = Class.forName(cn);
-			Field[] fld = cls.getFields();
-			int n2 = fld.length;
-			for (int j = 0; j < n2; j++) {
-				try {
-					Object p = fld[j].get(null);
-					if (p instanceof de.pxlab.pxl.ExPar) {
-						// System.out.println("ExPar.resetValue(): " +
-						// fld[j].getName() + " = " +
-						// ((ExPar)p).defaultValue.toString());
-						((ExPar) p)
-								.setValue((ExParValue) (((ExPar) p).defaultValue
-										.clone()));
-					}
-				} catch (NullPointerException npx) {
-				} catch (IllegalAccessException iax) {
-				}
-			}
-		} catch (ClassNotFoundException cnfe) {
-			System.out.println("ExPar.resetValues(): Oh! Class " + cn
-					+ " not found!");
+		ArrayList a = ExParFields.of(ExPar.class).getExPars(null);
+		for (int j = 0; j < a.size(); j++) {
+			ExPar p = (ExPar) a.get(j);
+			if (p.defaultValue != null)
+				p.setValue((ExParValue) (p.defaultValue.clone()));
 		}
 		setDate();
 		if (Base.hasDisplayDeviceFrameDuration()) {
@@ -0,0 +1,146 @@
+package de.pxlab.pxl;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import de.pxlab.util.StringExt;
+
+/**
+ * The public fields of a class which may contain ExPar objects. Reflecting
+ * the fields of a class is expensive compared to reading a field's value.
+ * Thus the field lists are created only once for every class and are kept for
+ * the lifetime of the class. This makes creating display objects and
+ * reloading designs faster since the display classes of a design are
+ * reflected only once.
+ *
+ * @version 0.1.0
+ * @see DisplaySupport
+ * @see ExParInspector
+ */
+public class ExParFields {
+	private static HashMap cache = new HashMap();
+	/** Public fields whose declared type is compatible with ExPar. */
+	private Field[] fields;
+	/** All public fields of the class by name. */
+	private HashMap fieldMap;
+	/** Names of fields whose declared type is ExPar, sorted. */
+	private String[] exParNames;
+
+	private ExParFields(Class cls) {
+		Field[] flds = cls.getFields();
+		ArrayList a = new ArrayList(flds.length);
+		ArrayList na = new ArrayList(flds.length);
+		fieldMap = new HashMap(2 * flds.length + 1);
+		for (int i = 0; i < flds.length; i++) {
+			Class t = flds[i].getType();
+			// A field may hold an ExPar if its type is ExPar, a subclass, or
+			// a super type like Object.
+			if (ExPar.class.isAssignableFrom(t)
+					|| t.isAssignableFrom(ExPar.class))
+				a.add(flds[i]);
+			if (t == ExPar.class)
+				na.add(flds[i].getName());
+			if (!fieldMap.containsKey(flds[i].getName()))
+				fieldMap.put(flds[i].getName(), flds[i]);
+		}
+		fields = (Field[]) a.toArray(new Field[a.size()]);
+		exParNames = StringExt.sort((String[]) na.toArray(new String[na
+				.size()]));
+	}
+
+	/**
+	 * Get the field list of the given class.
+	 *
+	 * @param cls
+	 *            the class whose public fields are needed.
+	 * @return the field list which is created when it is requested for the
+	 *         first time.
+	 */
+	public static synchronized ExParFields of(Class cls) {
+		ExParFields f = (ExParFields) cache.get(cls);
+		if (f == null) {
+			f = new ExParFields(cls);
+			cache.put(cls, f);
+		}
+		return f;
+	}
+
+	/**
+	 * Get a public field of the class.
+	 *
+	 * @param name
+	 *            the field name.
+	 * @return the field or null if the class does not have a public field of
+	 *         this name.
+	 */
+	public Field getField(String name) {
+		return (Field) fieldMap.get(name);
+	}
+
+	/**
+	 * Get the names of all public fields which are declared as ExPar.
+	 *
+	 * @return a new array of sorted field names.
+	 */
+	public String[] getExParNames() {
+		return (String[]) exParNames.clone();
+	}
+
+	/**
+	 * Get the ExPar objects of the public fields of an object.
+	 *
+	 * @param obj
+	 *            the object whose fields are read or null for static fields.
+	 * @return a list of ExPar objects in the order of the field list. Fields
+	 *         which do not contain an ExPar are skipped.
+	 */
+	public ArrayList getExPars(Object obj) {
+		ArrayList a = new ArrayList(fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			Object x = value(fields[i], obj);
+			if (x instanceof ExPar)
+				a.add(x);
+		}
+		return a;
+	}
+
+	/**
+	 * Create descriptors for the ExPar fields of an object.
+	 *
+	 * @param obj
+	 *            the object whose fields are described.
+	 * @param prefix
+	 *            an instance name which is prepended to the field names or
+	 *            null if field names should be used as they are.
+	 * @return an array of descriptors or null if the object does not have
+	 *         ExPar fields.
+	 */
+	public ExParDescriptor[] getDescriptors(Object obj, String prefix) {
+		ArrayList a = new ArrayList(fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			Object x = value(fields[i], obj);
+			if (x instanceof ExPar) {
+				int type = ((ExPar) x).getType();
+				String n = fields[i].getName();
+				String fn = (prefix == null) ? n : prefix + "." + n;
+				a.add(new ExParDescriptor(fn, (ExPar) x,
+						ExParTypeCodes.editor[type]));
+			}
+		}
+		int n = a.size();
+		return (n > 0) ? (ExParDescriptor[]) a.toArray(new ExParDescriptor[n])
+				: null;
+	}
+
+	private static Object value(Field f, Object obj) {
+		try {
+			return f.get(obj);
+		} catch (IllegalAccessException iae) {
+		} catch (IllegalArgumentException iae) {
+		} catch (NullPointerException npx) {
+			// an instance field was requested for a null object
+		}
+		return null;
+	}
+}
@@ -7,6 +7,9 @@ import java.util.HashSet;
 import java.util.Vector;
 import java.util.Enumeration;
 import java.io.StringReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.MutableTreeNode;
@@ -735,6 +738,84 @@ public class ExParValue implements TreeNode, // MutableTreeNode,
 		}
 	}
 
+	/**
+	 * Write this value and its expression operands to a design snapshot.
+	 * 
+	 * @param out
+	 *            the snapshot output.
+	 * @see ExDesignSnapshot
+	 */
+	void writeSnapshot(DataOutput out) throws IOException {
+		int flags = (undefined ? 1 : 0) | (expansion ? 2 : 0)
+				| (needsEvaluation ? 4 : 0) | (colorValueModified ? 8 : 0);
+		out.writeByte(flags);
+		out.writeByte(typeConjecture);
+		out.writeInt(length);
+		for (int k = 0; k < length; k++) {
+			out.writeInt(i[k]);
+			out.writeDouble(d[k]);
+			ExDesignSnapshot.writeString(out, s[k]);
+		}
+		ExDesignSnapshot.writeString(out, valueParam);
+		ExDesignSnapshot.writeStrings(out, classConstant);
+		out.writeInt((exParExpression != null) ? exParExpression.getOpCode()
+				: -1);
+		writeSnapshotOperand(out, subValue1);
+		writeSnapshotOperand(out, subValue2);
+		writeSnapshotOperand(out, subValue3);
+	}
+
+	private static void writeSnapshotOperand(DataOutput out, ExParValue v)
+			throws IOException {
+		out.writeBoolean(v != null);
+		if (v != null)
+			v.writeSnapshot(out);
+	}
+
+	/**
+	 * Read a value which has been written by writeSnapshot().
+	 * 
+	 * @param in
+	 *            the snapshot input.
+	 * @return the value read.
+	 * @see ExDesignSnapshot
+	 */
+	static ExParValue readSnapshot(DataInput in) throws IOException {
+		ExParValue v = new ExParValue();
+		int flags = in.readByte();
+		v.typeConjecture = in.readByte();
+		int n = in.readInt();
+		if (n > 0) {
+			v.i = new int[n];
+			v.d = new double[n];
+			v.s = new String[n];
+			for (int k = 0; k < n; k++) {
+				v.i[k] = in.readInt();
+				v.d[k] = in.readDouble();
+				v.s[k] = ExDesignSnapshot.readString(in);
+			}
+		}
+		v.length = n;
+		v.undefined = (flags & 1) != 0;
+		v.expansion = (flags & 2) != 0;
+		v.needsEvaluation = (flags & 4) != 0;
+		v.colorValueModified = (flags & 8) != 0;
+		v.valueParam = ExDesignSnapshot.readString(in);
+		v.classConstant = ExDesignSnapshot.readStrings(in);
+		int op = in.readInt();
+		if (op >= 0)
+			v.exParExpression = new ExParExpression(op);
+		v.subValue1 = readSnapshotOperand(in);
+		v.subValue2 = readSnapshotOperand(in);
+		v.subValue3 = readSnapshotOperand(in);
+		return v;
+	}
+
+	private static ExParValue readSnapshotOperand(DataInput in)
+			throws IOException {
+		return in.readBoolean() ? readSnapshot(in) : null;
+	}
+
 	/** Create storage for n elements */
 	private void createPrimitiveValues(int n) {
 		if (n > 0) {
@@ -41,20 +41,77 @@ public class ExParValueTable extends DataTable {
 	/**
 	 * Create an ExParValueTable from a data file which contains a fixed number
 	 * of rows and columns of data as it is the case for PXLab data files with
-	 * extension 'dat'.
+	 * extension 'dat'. The file is streamed into a typed ColumnDataTable
+	 * first.
 	 */
 	public ExParValueTable(String fn) {
-		super(2000);
-		StringDataTable sdt = new StringDataTable(fn);
-		int n = sdt.getRows();
+		this(new ColumnDataTable(fn));
+	}
+
+	/**
+	 * Create an ExParValueTable from the content of a column table. Every
+	 * table entry is converted to an ExParValue object which is set from the
+	 * entry's primitive value. Only entries of String columns are parsed.
+	 * 
+	 * @param t
+	 *            the column table whose entries are copied.
+	 */
+	public ExParValueTable(ColumnDataTable t) {
+		super(t.getRows());
+		int n = t.getRows();
+		int m = t.getColumns();
+		DataColumn[] c = new DataColumn[m];
+		for (int j = 0; j < m; j++) {
+			c[j] = t.column(j);
+		}
 		for (int i = 0; i < n; i++) {
-			ExParValue[] a = new ExParValue[sdt.getColumns()];
-			String[] s = (String[]) (sdt.row(i));
-			for (int j = 0; j < s.length; j++) {
-				a[j] = new ExParValue(s[j]);
+			ExParValue[] a = new ExParValue[m];
+			for (int j = 0; j < m; j++) {
+				a[j] = new ExParValue(0);
+				setEntry(a[j], c[j], i);
 			}
 			addRow(a);
 		}
+		if (t.getColumnNames() != null)
+			setColumnNames(t.getColumnNames());
+	}
+
+	/**
+	 * Set an ExParValue to an entry of a typed data column. Numeric entries
+	 * are set from their primitive values and get the same type conjecture
+	 * as if the entry's String value had been parsed. Only String entries
+	 * are parsed.
+	 * 
+	 * @param v
+	 *            the value object which is set.
+	 * @param c
+	 *            the data column.
+	 * @param r
+	 *            the row index of the entry.
+	 */
+	static void setEntry(ExParValue v, DataColumn c, int r) {
+		int type = c.getType();
+		if (type == DataColumn.LONG) {
+			long x = ((LongDataColumn) c).longValue(r);
+			if (x == (int) x) {
+				v.set((int) x);
+				return;
+			}
+		} else if (type == DataColumn.DOUBLE) {
+			double x = c.doubleValue(r);
+			if (((DoubleDataColumn) c).isIntegral(r)) {
+				if (x == (int) x) {
+					v.set((int) x);
+					return;
+				}
+			} else {
+				v.set(x);
+				if ((int) Math.round(x) == (int) x)
+					v.setTypeConjecture(ExParValue.TYPE_INT);
+				return;
+			}
+		}
+		v.set(c.stringValue(r));
 	}
 
 	/**
@@ -693,6 +693,26 @@ public class ExperimentalDisplayDevice implements DisplayDevice,
 		}
 	}
 
+	/**
+	 * Check whether the back buffer of the active screen still contains the
+	 * image which has been shown most recently. This is true if showing the
+	 * back buffer copies its content and no other image has been preloaded
+	 * into the back buffer since then. Only regions which have changed have
+	 * to be drawn into a retained back buffer.
+	 */
+	public boolean hasRetainedBackBuffer() {
+		BufferStrategy bs = (activeScreen == SECONDARY_SCREEN) ? rightBufferStrategy
+				: leftBufferStrategy;
+		TimingElement te = (activeScreen == SECONDARY_SCREEN) ? preloadedTimingGroupRight
+				: preloadedTimingGroupLeft;
+		if ((bs == null) || bs.contentsLost()
+				|| ((te != null) && te.isImagePreloaded()))
+			return false;
+		BufferCapabilities c = bs.getCapabilities();
+		return !c.isPageFlipping()
+				|| (c.getFlipContents() == BufferCapabilities.FlipContents.COPIED);
+	}
+
 	/**
 	 * Get a Graphics context for drawing onto the currently active screen.
 	 * Users have to dispose this Graphics object after use. The content of the
@@ -256,7 +256,8 @@ public class FileBase {
 	 * @see #createResourcePath
 	 */
 	public static BufferedImage loadImage(String dir, String fn, int w, int h) {
-		Debug.show(Debug.FILES, "FileBase.loadImage(" + dir + ", " + fn + ")");
+		if (Debug.isActive(Debug.FILES))
+			Debug.show(Debug.FILES, "FileBase.loadImage(" + dir + ", " + fn + ")");
 		BufferedImage slide = null;
 		boolean buffering = false;
 		if (fn.startsWith("@")) {
@@ -282,12 +283,14 @@ public class FileBase {
 			}
 			slide = (BufferedImage) (imgBuf.get(fp));
 			if (slide != null) {
-				Debug.show(Debug.FILES,
-						"FileBase.loadImage(): Get image from cache: " + fp);
+				if (Debug.isActive(Debug.FILES))
+					Debug.show(Debug.FILES,
+							"FileBase.loadImage(): Get image from cache: " + fp);
 				return slide;
 			} else {
-				Debug.show(Debug.FILES,
-						"FileBase.loadImage(): Image not in cache: " + fp);
+				if (Debug.isActive(Debug.FILES))
+					Debug.show(Debug.FILES,
+							"FileBase.loadImage(): Image not in cache: " + fp);
 			}
 		}
 		if (Debug.isActive(Debug.CACHE)) {
@@ -310,8 +313,9 @@ public class FileBase {
 		}
 		if (buffering && (slide != null)) {
 			imgBuf.put(fp, slide);
-			Debug.show(Debug.FILES | Debug.CACHE,
-					"FileBase.loadImage(): Moved image to cache: " + fp);
+			if (Debug.isActive(Debug.FILES | Debug.CACHE))
+				Debug.show(Debug.FILES | Debug.CACHE,
+						"FileBase.loadImage(): Moved image to cache: " + fp);
 			if (Debug.isActive(Debug.CACHE)) {
 				cacheLog();
 			}
@@ -379,7 +383,8 @@ public class FileBase {
 		} catch (MalformedURLException mfx) {
 		}
 		if (url != null) {
-			Debug.show(Debug.FILES, "FileBase.loadImage(): From URL = " + url);
+			if (Debug.isActive(Debug.FILES))
+				Debug.show(Debug.FILES, "FileBase.loadImage(): From URL = " + url);
 			try {
 				slide = javax.imageio.ImageIO.read(url);
 				Debug.show(Debug.FILES, "FileBase.loadImage(): Image loaded.");
@@ -411,8 +416,9 @@ public class FileBase {
 				fp = Base.getProperty("pxlab.home") + File.separator + fp;
 				f = new File(fp);
 			}
-			Debug.show(Debug.FILES,
-					"FileBase.loadImage(): Trying image file reader for " + fp);
+			if (Debug.isActive(Debug.FILES))
+				Debug.show(Debug.FILES,
+						"FileBase.loadImage(): Trying image file reader for " + fp);
 			try {
 				slide = javax.imageio.ImageIO.read(f);
 				Debug.show(Debug.FILES, "FileBase.loadImage(): Image loaded.");
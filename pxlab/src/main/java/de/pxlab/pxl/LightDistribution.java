@@ -21,6 +21,8 @@ import java.util.Random;
  * defocussed disk and a simulated point light source at a certain distance.
  * 
  * 07/27/04 allow for additive and convex mixtures.
+ * 
+ * 2026/10/19 use pre-rendered images.
  */
 public class LightDistribution extends BitMapElement implements
 		LightDistributionCodes, LightMixtureCodes {
@@ -34,6 +36,11 @@ public class LightDistribution extends BitMapElement implements
 	protected int distributionType = DISK;
 	/** Mixture type: ADDITIVE_MIXTURE or CONVEX_MIXTURE */
 	protected int mixtureType = ADDITIVE_MIXTURE;
+	/**
+	 * Indicates that the current pattern has been created from random numbers.
+	 * Images of random patterns are not pre-rendered.
+	 */
+	protected boolean randomPattern = false;
 
 	/**
 	 * Destroy all resources associated with this light distribution.
@@ -166,6 +173,7 @@ public class LightDistribution extends BitMapElement implements
 	public void setPointLight(int width, int height, double rel_x,
 			double rel_y, double amp, double inner, double outer) {
 		pattern = new float[1][][];
+		randomPattern = false;
 		float[][] p = null;
 		p = radialPattern(width, height, (int) (width * rel_x),
 				(int) (height * rel_y), amp, inner, outer, p);
@@ -198,6 +206,7 @@ public class LightDistribution extends BitMapElement implements
 			double rel_y_1, double rel_x_2, double rel_y_2, double amp,
 			double inner, double outer) {
 		pattern = new float[2][][];
+		randomPattern = false;
 		float[][] p1 = null;
 		p1 = radialPattern(width, height, (int) (width * rel_x_1),
 				(int) (height * rel_y_1), amp, inner, outer, p1);
@@ -239,6 +248,7 @@ public class LightDistribution extends BitMapElement implements
 			double rel_y_1, double rel_x_2, double rel_y_2, double rel_x_3,
 			double rel_y_3, double amp, double inner, double outer) {
 		pattern = new float[3][][];
+		randomPattern = false;
 		float[][] p1 = null;
 		p1 = radialPattern(width, height, (int) (width * rel_x_1),
 				(int) (height * rel_y_1), amp, inner, outer, p1);
@@ -290,6 +300,7 @@ public class LightDistribution extends BitMapElement implements
 			double rel_y_3, double rel_x_4, double rel_y_4, double amp,
 			double inner, double outer) {
 		pattern = new float[4][][];
+		randomPattern = false;
 		float[][] p1 = null;
 		p1 = radialPattern(width, height, (int) (width * rel_x_1),
 				(int) (height * rel_y_1), amp, inner, outer, p1);
@@ -317,6 +328,7 @@ public class LightDistribution extends BitMapElement implements
 	public void set1ColorRandomMondrian(int width, int height, int columns,
 			int rows, int gap) {
 		pattern = new float[1][][];
+		randomPattern = true;
 		float[][] p1 = null;
 		p1 = randomMondrian(width, height, columns, rows, gap, p1);
 		pattern[0] = p1;
@@ -328,6 +340,7 @@ public class LightDistribution extends BitMapElement implements
 	public void set2ColorRandomMondrian(int width, int height, int columns,
 			int rows, int gap) {
 		pattern = new float[2][][];
+		randomPattern = true;
 		float[][] p1 = null;
 		p1 = randomMondrian(width, height, columns, rows, gap, p1);
 		float[][] p2 = null;
@@ -343,6 +356,7 @@ public class LightDistribution extends BitMapElement implements
 	public void set3ColorRandomMondrian(int width, int height, int columns,
 			int rows, int gap) {
 		pattern = new float[3][][];
+		randomPattern = true;
 		float[][] p1 = null;
 		p1 = randomMondrian(width, height, columns, rows, gap, p1);
 		float[][] p2 = null;
@@ -634,11 +648,32 @@ public class LightDistribution extends BitMapElement implements
 	 * @return an image containing the given data.
 	 */
 	private void setImage(float[][][] pattern, PxlColor[] color) {
+		String key = null;
+		if (!randomPattern && PrerenderedImages.isActive()) {
+			PxlColor bgColor = (backgroundColorPar != null) ? backgroundColorPar
+					.getPxlColor()
+					: ExPar.ScreenBackgroundColor.getPxlColor();
+			PrerenderedImages.Key k = new PrerenderedImages.Key(
+					"LightDistribution").add(mixtureType).add(unmasked).add(
+					bgColor);
+			for (int i = 0; i < pattern.length; i++)
+				k.add(color[i]).add(pattern[i]);
+			key = k.toString();
+			if (setPrerenderedImage(key))
+				return;
+		}
+		if (prerendered) {
+			// never draw into a pre-rendered image
+			image = null;
+			prerendered = false;
+		}
 		if (mixtureType == ADDITIVE_MIXTURE) {
 			setAdditiveMixtureImage(pattern, color);
 		} else {
 			setConvexMixtureImage(pattern, color);
 		}
+		if (key != null)
+			PrerenderedImages.putImage(key, "LightDistribution", image);
 	}
 
 	/**
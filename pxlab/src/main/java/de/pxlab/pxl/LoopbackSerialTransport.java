@@ -0,0 +1,128 @@
+package de.pxlab.pxl;
+
+/**
+ * An in-memory serial transport. Loopback transports are created in pairs
+ * such that data written to one end of the pair can be read from the other
+ * end. They may be used to simulate serial devices for testing.
+ * 
+ * @version 0.1.0
+ */
+public class LoopbackSerialTransport implements SerialTransport {
+	/** The buffer which is read by this end. */
+	private Pipe input;
+	/** The buffer which is read by the other end. */
+	private Pipe output;
+	/** Data written but not yet flushed. */
+	private byte[] pending = new byte[256];
+	private int pendingCount;
+
+	private LoopbackSerialTransport(Pipe input, Pipe output) {
+		this.input = input;
+		this.output = output;
+	}
+
+	/**
+	 * Create a connected pair of loopback transports.
+	 * 
+	 * @param capacity
+	 *            the number of bytes which can be buffered in each direction.
+	 * @return an array containing both ends of the connection.
+	 */
+	public static LoopbackSerialTransport[] createPair(int capacity) {
+		Pipe a = new Pipe(capacity);
+		Pipe b = new Pipe(capacity);
+		return new LoopbackSerialTransport[] {
+				new LoopbackSerialTransport(a, b),
+				new LoopbackSerialTransport(b, a) };
+	}
+
+	public int read(byte[] b, int off, int len) {
+		return input.read(b, off, len);
+	}
+
+	public void write(byte[] b, int off, int len) {
+		if (pendingCount + len > pending.length) {
+			byte[] p = new byte[Math.max(pendingCount + len,
+					2 * pending.length)];
+			System.arraycopy(pending, 0, p, 0, pendingCount);
+			pending = p;
+		}
+		System.arraycopy(b, off, pending, pendingCount, len);
+		pendingCount += len;
+	}
+
+	public void flush() {
+		output.write(pending, 0, pendingCount);
+		pendingCount = 0;
+	}
+
+	/** Close both ends of the connection. */
+	public void close() {
+		input.close();
+		output.close();
+	}
+
+	public boolean isOpen() {
+		return input.isOpen();
+	}
+	/** A bounded byte buffer with blocking read and write. */
+	private static class Pipe {
+		private byte[] data;
+		private int head;
+		private int count;
+		private boolean open = true;
+
+		Pipe(int capacity) {
+			data = new byte[Math.max(1, capacity)];
+		}
+
+		synchronized int read(byte[] b, int off, int len) {
+			while (open && (count == 0)) {
+				try {
+					wait();
+				} catch (InterruptedException iex) {
+					return 0;
+				}
+			}
+			if (count == 0)
+				return -1;
+			int n = Math.min(len, count);
+			for (int i = 0; i < n; i++) {
+				b[off + i] = data[head];
+				head = (head + 1) % data.length;
+			}
+			count -= n;
+			notifyAll();
+			return n;
+		}
+
+		synchronized void write(byte[] b, int off, int len) {
+			int end = off + len;
+			while (open && (off < end)) {
+				while (open && (count == data.length)) {
+					try {
+						wait();
+					} catch (InterruptedException iex) {
+						return;
+					}
+				}
+				int tail = (head + count) % data.length;
+				while ((off < end) && (count < data.length)) {
+					data[tail] = b[off++];
+					tail = (tail + 1) % data.length;
+					count++;
+				}
+				notifyAll();
+			}
+		}
+
+		synchronized void close() {
+			open = false;
+			notifyAll();
+		}
+
+		synchronized boolean isOpen() {
+			return open;
+		}
+	}
+}
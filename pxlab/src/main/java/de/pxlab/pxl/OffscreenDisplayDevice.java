@@ -0,0 +1,319 @@
+package de.pxlab.pxl;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ * A display device which renders into memory images instead of a screen. It
+ * works in headless mode (java.awt.headless=true) and thus may be used to
+ * render stimuli on systems without a monitor, to compare rendered images
+ * pixel by pixel between releases, and to measure rendering cost.
+ *
+ * <p>
+ * The device has a virtual screen of a given resolution and a front and a
+ * back image. Drawing goes to the back image and show() copies it to the front
+ * image. The device's color transform converts device independent colors into
+ * device colors. By default it is created from the PrimaryScreen parameters
+ * when the device is opened.
+ *
+ * <p>
+ * A PresentationManager which uses this device does not wait for timing
+ * events. Every timing interval is finished immediately after its timing
+ * group has been shown as if its clock timer had run out. Response timers
+ * also time out immediately. After a timing group has been shown the
+ * PresentationManager calls captureTimingGroup() such that the front image
+ * is stored as a captured image. Captured images are kept in memory unless a
+ * capture directory has been set. In this case every image is written to the
+ * directory as a PNG file and is not kept, thus long designs may be captured
+ * with constant memory. Animated displays are not captured.
+ *
+ * @version 0.1.0
+ * @see PresentationManager
+ */
+/*
+ *
+ * 2026/10/19
+ */
+public class OffscreenDisplayDevice implements DisplayDevice {
+	private int width;
+	private int height;
+	private BufferedImage frontImage;
+	private BufferedImage backImage;
+	private Surface surface;
+	private ColorDeviceTransform colorDeviceTransform;
+	private boolean captureEnabled = true;
+	private File captureDirectory;
+	private ArrayList capturedImages = new ArrayList();
+	private int captureCount;
+	private long totalRenderTime;
+
+	/**
+	 * Create an offscreen display device with the given virtual screen
+	 * resolution.
+	 *
+	 * @param width
+	 *            virtual screen width in pixels.
+	 * @param height
+	 *            virtual screen height in pixels.
+	 */
+	public OffscreenDisplayDevice(int width, int height) {
+		this.width = width;
+		this.height = height;
+		frontImage = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		backImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		surface = new Surface();
+		surface.setSize(width, height);
+	}
+
+	/**
+	 * Create an offscreen display device with the virtual screen resolution
+	 * given by Base.getScreenWidth() and Base.getScreenHeight() if these are
+	 * defined or 800x600 pixels otherwise.
+	 */
+	public OffscreenDisplayDevice() {
+		this(Base.hasScreenWidth() ? Base.getScreenWidth() : 800, Base
+				.hasScreenHeight() ? Base.getScreenHeight() : 600);
+	}
+
+	/**
+	 * Set the color transform which is used by this device. If no transform
+	 * is set then a transform is created from the PrimaryScreen parameters
+	 * when the device is opened.
+	 *
+	 * @param t
+	 *            the color device transform or null.
+	 */
+	public void setColorDeviceTransform(ColorDeviceTransform t) {
+		colorDeviceTransform = t;
+	}
+
+	/** Get the color transform which is used by this device. */
+	public ColorDeviceTransform getColorDeviceTransform() {
+		return colorDeviceTransform;
+	}
+
+	/**
+	 * Open the device. This installs the device's color transform and sets
+	 * the screen size for the Base class.
+	 */
+	public void open() {
+		if (colorDeviceTransform == null)
+			colorDeviceTransform = new ScreenColorTransform(PRIMARY_SCREEN);
+		PxlColor.setDeviceTransform(colorDeviceTransform);
+		ExPar.DeviceWhitePoint.set(new PxlColor(colorDeviceTransform
+				.getWhitePoint()));
+		Base.setScreenWidth(width);
+		Base.setScreenHeight(height);
+	}
+
+	public void close() {
+	}
+
+	public void dispose() {
+		capturedImages.clear();
+	}
+
+	/** This device has a single screen only. */
+	public void setActiveScreen(int s) {
+	}
+
+	public void setHiddenCursor(boolean s) {
+	}
+
+	/**
+	 * Get a Graphics context for drawing into the back image. Users have to
+	 * dispose this Graphics object after use.
+	 */
+	public Graphics getGraphics() {
+		return backImage.createGraphics();
+	}
+
+	public Image createMemoryBuffer(TimingElement t) {
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+	}
+
+	/** Copy the back image to the front image. */
+	public void show() {
+		Graphics g = frontImage.createGraphics();
+		g.drawImage(backImage, 0, 0, null);
+		g.dispose();
+	}
+
+	/**
+	 * Get a component which has the size of the virtual screen. Its graphics
+	 * context draws directly into the front image.
+	 */
+	public Component getComponent() {
+		return surface;
+	}
+
+	/** Get the virtual screen width. */
+	public int getWidth() {
+		return width;
+	}
+
+	/** Get the virtual screen height. */
+	public int getHeight() {
+		return height;
+	}
+
+	/** Get the image which is currently shown. */
+	public BufferedImage getImage() {
+		return frontImage;
+	}
+
+	/**
+	 * Enable or disable storing captured images. Capturing is enabled by
+	 * default. Disabling it is useful for measuring rendering cost.
+	 */
+	public void setCaptureEnabled(boolean s) {
+		captureEnabled = s;
+	}
+
+	/**
+	 * Set the directory where captured images are written to as PNG files.
+	 * File names are made of a running number, the Display's instance name,
+	 * and the timing group index. Thus file names are the same for repeated
+	 * runs of the same display list.
+	 *
+	 * @param dir
+	 *            the directory or null if images should be kept in memory.
+	 */
+	public void setCaptureDirectory(File dir) {
+		captureDirectory = dir;
+		if ((dir != null) && !dir.isDirectory())
+			dir.mkdirs();
+	}
+
+	/**
+	 * Store a copy of the front image as the image of a timing group or write
+	 * the front image to the capture directory if one has been set. This
+	 * method is called by the PresentationManager after a timing group has
+	 * been shown.
+	 *
+	 * @param dsp
+	 *            the Display object whose timing group has been shown.
+	 * @param groupIndex
+	 *            the index of the timing group.
+	 * @param renderTime
+	 *            the time in nanoseconds which was needed to show the timing
+	 *            group.
+	 */
+	public void captureTimingGroup(Display dsp, int groupIndex, long renderTime) {
+		captureCount++;
+		totalRenderTime += renderTime;
+		if (!captureEnabled)
+			return;
+		String name = dsp.getInstanceName();
+		if (name == null) {
+			name = dsp.getClass().getName();
+			name = name.substring(name.lastIndexOf('.') + 1);
+		}
+		if (captureDirectory != null) {
+			String fn = captureCount + "_" + name + "_" + groupIndex + ".png";
+			File f = new File(captureDirectory, fn);
+			try {
+				javax.imageio.ImageIO.write(frontImage, "PNG", f);
+			} catch (IOException iox) {
+				new FileError("Can't write image file " + f.getPath());
+			}
+			return;
+		}
+		BufferedImage img = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics g = img.createGraphics();
+		g.drawImage(frontImage, 0, 0, null);
+		g.dispose();
+		capturedImages.add(new CapturedImage(name, groupIndex, renderTime, img));
+	}
+
+	/**
+	 * Get the number of images which have been captured and kept in memory.
+	 * This is 0 if a capture directory has been set.
+	 */
+	public int getCapturedImageCount() {
+		return capturedImages.size();
+	}
+
+	/** Get the captured image with the given index. */
+	public CapturedImage getCapturedImage(int i) {
+		return (CapturedImage) capturedImages.get(i);
+	}
+
+	/**
+	 * Remove all captured images, restart file numbering and reset the
+	 * rendering time counters.
+	 */
+	public void clearCapturedImages() {
+		capturedImages.clear();
+		captureCount = 0;
+		totalRenderTime = 0L;
+	}
+
+	/**
+	 * Get the number of timing groups which have been shown. This includes
+	 * timing groups whose images have not been stored because capturing was
+	 * disabled.
+	 */
+	public int getShownTimingGroupCount() {
+		return captureCount;
+	}
+
+	/**
+	 * Get the sum of the rendering times of all timing groups which have been
+	 * shown in nanoseconds. Rendering times are recorded whether capturing is
+	 * enabled or not.
+	 */
+	public long getTotalRenderTime() {
+		return totalRenderTime;
+	}
+	/** The image of a timing group which has been shown. */
+	public static class CapturedImage {
+		private String name;
+		private int timingGroup;
+		private long renderTime;
+		private BufferedImage image;
+
+		public CapturedImage(String name, int timingGroup, long renderTime,
+				BufferedImage image) {
+			this.name = name;
+			this.timingGroup = timingGroup;
+			this.renderTime = renderTime;
+			this.image = image;
+		}
+
+		/** Get the instance name of the Display object. */
+		public String getName() {
+			return name;
+		}
+
+		/** Get the index of the timing group. */
+		public int getTimingGroup() {
+			return timingGroup;
+		}
+
+		/** Get the time in nanoseconds needed to show the timing group. */
+		public long getRenderTime() {
+			return renderTime;
+		}
+
+		public BufferedImage getImage() {
+			return image;
+		}
+	}
+	/**
+	 * The drawing surface component. It is never made displayable. It reports
+	 * the virtual screen size and its graphics context draws into the front
+	 * image such that objects which paint directly onto the screen work.
+	 */
+	private class Surface extends Canvas {
+		private static final long serialVersionUID = 1L;
+
+		public Graphics getGraphics() {
+			return frontImage.createGraphics();
+		}
+	}
+}
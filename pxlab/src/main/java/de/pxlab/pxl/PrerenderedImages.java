@@ -0,0 +1,418 @@
+package de.pxlab.pxl;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import de.pxlab.util.StringExt;
+
+/**
+ * A store of images which have been rendered before an experiment is run.
+ * Some display objects need a lot of time to compute their images. These
+ * compute a key from all parameters which affect their image and ask this
+ * class for a pre-rendered image with the same key. The image is computed only
+ * if no such image exists.
+ *
+ * <p>
+ * Pre-rendered images are stored in a directory as PNG files whose names are
+ * the SHA-1 hash of the file content. Identical images thus are stored only
+ * once. The directory contains a manifest file which has a line for every
+ * key. The line contains the key, the image file name, the image size, and
+ * the kind of image separated by tab characters. Lines starting with '#' are
+ * comments. The experimental parameter PrerenderedImageDirectory tells where
+ * the directory is. No images are loaded if the parameter is empty.
+ *
+ * <p>
+ * The directory is created by an export run which runs a design without
+ * waiting on an OffscreenDisplayDevice. During an export run every image
+ * which has a key is sent to the export directory. PNG encoding and file
+ * writing are done by a pool of worker threads while the design continues.
+ * Pre-rendered images are not used during an export run.
+ *
+ * <p>
+ * Images computed from random numbers should not get a key since a
+ * pre-rendered image would show the same random sample in every trial.
+ *
+ * @version 0.1.0
+ * @see BitMapElement
+ * @see de.pxlab.pxl.run.StimulusExport
+ */
+/*
+ *
+ * 2026/10/19
+ */
+public class PrerenderedImages {
+	/** Name of the manifest file. */
+	public static final String MANIFEST_FILE = "manifest.txt";
+	/** The directory whose manifest has been loaded. */
+	private static String manifestDirectory = null;
+	/** Maps keys to image file names. */
+	private static HashMap manifest = new HashMap();
+	private static File exportDirectory = null;
+	private static ExecutorService exportPool = null;
+	/** Manifest lines of the current export run mapped by key. */
+	private static HashMap exportManifest;
+	private static int exportErrors;
+
+	/**
+	 * Get the pre-rendered image for the given key.
+	 *
+	 * @param key
+	 *            the image key.
+	 * @return the image or null if there is no pre-rendered image for this
+	 *         key.
+	 */
+	public static BufferedImage getImage(String key) {
+		String dir = ExPar.PrerenderedImageDirectory.getString();
+		if ((exportPool != null) || !StringExt.nonEmpty(dir))
+			return null;
+		String fn;
+		synchronized (PrerenderedImages.class) {
+			if (!dir.equals(manifestDirectory))
+				loadManifest(dir);
+			fn = (String) manifest.get(key);
+		}
+		if (fn == null)
+			return null;
+		String fp = FileBase.createResourcePath(dir, fn);
+		BufferedImage img = null;
+		try {
+			if (fp.startsWith("http://") || fp.startsWith("file:/"))
+				img = javax.imageio.ImageIO.read(new java.net.URL(fp));
+			else
+				img = javax.imageio.ImageIO.read(new File(fp));
+		} catch (IOException iox) {
+		}
+		if (img == null)
+			new FileError("Can't load pre-rendered image " + fp);
+		else
+			Debug.show(Debug.FILES, "PrerenderedImages.getImage(): " + fp);
+		return img;
+	}
+
+	/** Read the manifest file of the given directory. */
+	private static void loadManifest(String dir) {
+		manifest.clear();
+		manifestDirectory = dir;
+		String[] lines = FileBase.loadStrings(dir, MANIFEST_FILE);
+		if (lines == null) {
+			new FileError("Can't read pre-rendered image manifest "
+					+ MANIFEST_FILE + " in " + dir);
+			return;
+		}
+		for (int i = 0; i < lines.length; i++) {
+			String[] f = lines[i].split("\t");
+			if ((f.length >= 2) && !f[0].startsWith("#"))
+				manifest.put(f[0], f[1]);
+		}
+		Debug.show(Debug.FILES, "PrerenderedImages.loadManifest(): "
+				+ manifest.size() + " images in " + dir);
+	}
+
+	/**
+	 * Forget the manifest which has been loaded such that it is read again
+	 * when the next image is requested.
+	 */
+	public static synchronized void clear() {
+		manifest.clear();
+		manifestDirectory = null;
+	}
+
+	/**
+	 * Start an export run. Images sent to putImage() are written to the
+	 * given directory until finishExport() is called.
+	 *
+	 * @param dir
+	 *            the export directory. It is created if it does not exist.
+	 * @param threads
+	 *            the number of worker threads which encode and write images.
+	 */
+	public static synchronized void startExport(File dir, int threads) {
+		if (!dir.isDirectory())
+			dir.mkdirs();
+		exportDirectory = dir;
+		exportManifest = new HashMap();
+		exportErrors = 0;
+		exportPool = Executors.newFixedThreadPool(Math.max(1, threads));
+	}
+
+	/**
+	 * Check whether pre-rendered images are used or exported. Display objects
+	 * may use this to avoid computing image keys which are not needed.
+	 */
+	public static boolean isActive() {
+		return (exportPool != null)
+				|| StringExt.nonEmpty(ExPar.PrerenderedImageDirectory
+						.getString());
+	}
+
+	/** Check whether an export run is active. */
+	public static boolean isExporting() {
+		return exportPool != null;
+	}
+
+	/**
+	 * Send an image to the export directory if an export run is active. The
+	 * image is copied before this method returns such that the caller may
+	 * modify it later. An image is exported only once for every key.
+	 *
+	 * @param key
+	 *            the image key.
+	 * @param kind
+	 *            a short description of the image which is written to the
+	 *            manifest. This usually is the name of the display class.
+	 * @param image
+	 *            the image.
+	 */
+	public static void putImage(String key, String kind, BufferedImage image) {
+		ExecutorService pool;
+		synchronized (PrerenderedImages.class) {
+			pool = exportPool;
+			if ((pool == null) || exportManifest.containsKey(key))
+				return;
+			exportManifest.put(key, null);
+		}
+		BufferedImage copy = new BufferedImage(image.getWidth(), image
+				.getHeight(), image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+				: BufferedImage.TYPE_INT_RGB);
+		java.awt.Graphics g = copy.getGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		pool.execute(new ExportTask(key, kind, copy));
+	}
+
+	/**
+	 * Finish an export run. This waits until all images have been written and
+	 * then writes the manifest file. Entries of an existing manifest file are
+	 * kept unless they have the same key as an exported image.
+	 *
+	 * @return the number of images which have been exported or -1 if an
+	 *         error happened.
+	 */
+	public static int finishExport() {
+		ExecutorService pool;
+		synchronized (PrerenderedImages.class) {
+			pool = exportPool;
+			exportPool = null;
+		}
+		if (pool == null)
+			return 0;
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1L, TimeUnit.SECONDS))
+				;
+		} catch (InterruptedException iex) {
+			return -1;
+		}
+		File mf = new File(exportDirectory, MANIFEST_FILE);
+		TreeMap lines = new TreeMap();
+		if (mf.exists()) {
+			try {
+				BufferedReader r = new BufferedReader(new InputStreamReader(
+						new FileInputStream(mf), "UTF-8"));
+				String s;
+				while ((s = r.readLine()) != null) {
+					String[] f = s.split("\t");
+					if ((f.length >= 2) && !f[0].startsWith("#"))
+						lines.put(f[0], s);
+				}
+				r.close();
+			} catch (IOException iox) {
+				new FileError("Can't read manifest file " + mf.getPath());
+			}
+		}
+		int n = 0;
+		for (Iterator it = exportManifest.entrySet().iterator(); it.hasNext();) {
+			Map.Entry e = (Map.Entry) it.next();
+			if (e.getValue() != null) {
+				lines.put(e.getKey(), e.getValue());
+				n++;
+			}
+		}
+		try {
+			PrintWriter w = new PrintWriter(new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(mf), "UTF-8")));
+			w.println("# PXLab pre-rendered images: key, file, width, height, kind");
+			for (Iterator it = lines.values().iterator(); it.hasNext();)
+				w.println((String) it.next());
+			w.close();
+		} catch (IOException iox) {
+			new FileError("Can't write manifest file " + mf.getPath());
+			return -1;
+		}
+		return (exportErrors == 0) ? n : -1;
+	}
+
+	/** Encode an image as PNG and store it under its content hash. */
+	private static class ExportTask implements Runnable {
+		private String key;
+		private String kind;
+		private BufferedImage image;
+
+		public ExportTask(String key, String kind, BufferedImage image) {
+			this.key = key;
+			this.kind = kind;
+			this.image = image;
+		}
+
+		public void run() {
+			try {
+				ByteArrayOutputStream b = new ByteArrayOutputStream(image
+						.getWidth()
+						* image.getHeight());
+				javax.imageio.ImageIO.write(image, "PNG", b);
+				byte[] png = b.toByteArray();
+				String fn = Key.hex(MessageDigest.getInstance("SHA-1").digest(
+						png))
+						+ ".png";
+				File f = new File(exportDirectory, fn);
+				if (!f.exists()) {
+					File tmp = new File(exportDirectory, fn + ".tmp");
+					FileOutputStream out = new FileOutputStream(tmp);
+					out.write(png);
+					out.close();
+					if (!tmp.renameTo(f) && !f.exists())
+						throw new IOException("Can't rename " + tmp.getPath());
+				}
+				String line = key + "\t" + fn + "\t" + image.getWidth() + "\t"
+						+ image.getHeight() + "\t" + kind;
+				synchronized (PrerenderedImages.class) {
+					exportManifest.put(key, line);
+				}
+			} catch (Exception ex) {
+				synchronized (PrerenderedImages.class) {
+					exportErrors++;
+				}
+				System.out.println("PrerenderedImages: Can't export image "
+						+ key + ": " + ex);
+			}
+		}
+	}
+
+	/**
+	 * A key for a pre-rendered image. The key is the SHA-1 hash of the kind
+	 * of the image, the current color device transform, and all values which
+	 * have been added.
+	 */
+	public static class Key {
+		private MessageDigest digest;
+		private String hash = null;
+
+		/**
+		 * Create a key.
+		 *
+		 * @param kind
+		 *            the kind of image. This usually is the name of the class
+		 *            which computes the image.
+		 */
+		public Key(String kind) {
+			try {
+				digest = MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException nsa) {
+				throw new RuntimeException("SHA-1 is not available.");
+			}
+			add(kind);
+			ColorDeviceTransform t = PxlColor.getDeviceTransform();
+			if (t != null)
+				add(t.toString());
+		}
+
+		public Key add(String s) {
+			try {
+				digest.update(s.getBytes("UTF-8"));
+			} catch (UnsupportedEncodingException uex) {
+				digest.update(s.getBytes());
+			}
+			digest.update((byte) 0);
+			return this;
+		}
+
+		public Key add(long v) {
+			for (int i = 56; i >= 0; i -= 8)
+				digest.update((byte) (v >>> i));
+			return this;
+		}
+
+		public Key add(double v) {
+			return add(Double.doubleToLongBits(v));
+		}
+
+		public Key add(boolean v) {
+			digest.update((byte) (v ? 1 : 0));
+			return this;
+		}
+
+		/** Add the evaluated value of an experimental parameter. */
+		public Key add(ExPar p) {
+			return add(p.getValue().getValue().toString());
+		}
+
+		public Key add(PxlColor c) {
+			double[] a = c.getComponents();
+			for (int i = 0; i < a.length; i++)
+				add(a[i]);
+			return this;
+		}
+
+		public Key add(float[][] p) {
+			byte[] b = new byte[4 * ((p.length > 0) ? p[0].length : 0)];
+			add(p.length);
+			for (int j = 0; j < p.length; j++) {
+				float[] r = p[j];
+				if (b.length != 4 * r.length)
+					b = new byte[4 * r.length];
+				add(r.length);
+				for (int i = 0, k = 0; i < r.length; i++) {
+					int v = Float.floatToIntBits(r[i]);
+					b[k++] = (byte) (v >>> 24);
+					b[k++] = (byte) (v >>> 16);
+					b[k++] = (byte) (v >>> 8);
+					b[k++] = (byte) v;
+				}
+				digest.update(b, 0, 4 * r.length);
+			}
+			return this;
+		}
+
+		/** Add the size and all pixel values of an image. */
+		public Key add(BufferedImage img) {
+			int w = img.getWidth();
+			int h = img.getHeight();
+			add(w);
+			add(h);
+			int[] row = new int[w];
+			byte[] b = new byte[4 * w];
+			for (int y = 0; y < h; y++) {
+				img.getRGB(0, y, w, 1, row, 0, w);
+				for (int i = 0, k = 0; i < w; i++) {
+					int v = row[i];
+					b[k++] = (byte) (v >>> 24);
+					b[k++] = (byte) (v >>> 16);
+					b[k++] = (byte) (v >>> 8);
+					b[k++] = (byte) v;
+				}
+				digest.update(b);
+			}
+			return this;
+		}
+
+		/** Get the key string. No values may be added after this. */
+		public String toString() {
+			if (hash == null)
+				hash = hex(digest.digest());
+			return hash;
+		}
+
+		static String hex(byte[] h) {
+			StringBuffer s = new StringBuffer(2 * h.length);
+			for (int i = 0; i < h.length; i++) {
+				int v = h[i] & 0xFF;
+				s.append(Character.forDigit(v >> 4, 16));
+				s.append(Character.forDigit(v & 0xF, 16));
+			}
+			return s.toString();
+		}
+	}
+}
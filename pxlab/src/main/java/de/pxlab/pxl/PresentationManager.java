@@ -419,10 +419,11 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 	 * itself. If, however, an experimental run is stopped asynchronously then
 	 * the creator of any PresentationManager instance has to call this method
 	 * in order to make sure that the system's KeyboardFocusManager works
-	 * correctly.
+	 * correctly. The audio lines of all playback engines are closed also.
 	 */
 	public void close() {
 		displayDevice.close();
+		de.pxlab.pxl.sound.PlaybackEngine.closeAll();
 		KeyboardFocusManager kfm = KeyboardFocusManager
 				.getCurrentKeyboardFocusManager();
 		kfm.removeKeyEventDispatcher(keyboardResponseDispatcher);
@@ -704,6 +705,20 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 				Syslog.out
 						.println("PresentationManager.openSerialCommunicationDevice(): Java Communication API classes not found. No serial communication device available.");
 			}
+			// Terminal and pseudo-terminal devices may be used as files
+			if (((serialCommDevice == null) || !serialCommDevice.isOpen())
+					&& port.startsWith("/dev/")) {
+				try {
+					serialCommDevice = new SerialCommunicationDevice(
+							StreamSerialTransport.openDevice(port),
+							responseManager);
+					ret = true;
+				} catch (IOException iox) {
+					Syslog.out
+							.println("PresentationManager.openSerialCommunicationDevice(): Can't open "
+									+ port);
+				}
+			}
 		}
 		return ret;
 	}
@@ -793,8 +808,9 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 				// This is a workaround for a bug of the Java 1.5.0 full screen
 				// exclusive mode handling
 				if (dsp.isTransparentOverlay()) {
-					if (((ExperimentalDisplayDevice) displayDevice)
-							.isFullScreenExclusive())
+					if ((displayDevice instanceof ExperimentalDisplayDevice)
+							&& ((ExperimentalDisplayDevice) displayDevice)
+									.isFullScreenExclusive())
 						new ParameterValueError(
 								"Not preloadable TRANSPARENT overlay objects are not supported in full screen exclusive mode: "
 										+ dsp.getInstanceName());
@@ -1352,10 +1368,17 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 		if (useResponseTimer || useMediaTimer) {
 			responseManager.prepareEventTiming(dsp, timerType, responseSet);
 		}
+		boolean offscreen = displayDevice instanceof OffscreenDisplayDevice;
 		if (animated) {
 			startTime = startAnimationPlayer(dsp, timerType);
 		} else {
+			long t0 = HiresClock.getTimeNanos();
 			startTime = dsp.showCurrentTimingGroup();
+			if (offscreen && (dsp.next == null) && dsp.isGraphic()) {
+				((OffscreenDisplayDevice) displayDevice).captureTimingGroup(
+						dsp, timingGroupIndex(dsp, timingElement), startTime
+								- t0);
+			}
 		}
 		
 		timingElement.setTimeControl(startTime);
@@ -1364,7 +1387,7 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 			responseIntervalStart = startTime;
 			responseManager.setResponseIntervalStart(startTime);
 		}
-		if ((timerType & VOICE_KEY_TIMER_BIT) != 0) {
+		if (((timerType & VOICE_KEY_TIMER_BIT) != 0) && !offscreen) {
 			responseManager.startVoiceKey(duration);
 			responseManager.prepareEventTiming(dsp,
 					TimerCodes.END_OF_MEDIA_TIMER, responseSet);
@@ -1406,11 +1429,18 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 		System.out.println("Durata:"+duration);*/
 		Debug.timeMsg("Fixed duration:               " + duration);
 		// Debug.time("Effective wait: " + String.valueOf(duration) + " at ");
-		timingMonitor.waitForTimingEvent(timerType, duration, useResponseTimer,
-				responseManager);
+		if (offscreen) {
+			// Offscreen devices do not wait but behave as if the
+			// interval had been stopped by its clock timer
+			timingMonitor.setClockTimingEvent();
+		} else {
+			timingMonitor.waitForTimingEvent(timerType, duration,
+					useResponseTimer, responseManager);
+		}
 		// responseManager.disableResponseTiming();
 		// System.out.println("PresentationManager.showAndWait() timing disabled!");
 		stopTime = timingMonitor.getTimingEventTime();
+		long stopLatency = responseManager.pollResponseLatency(stopTime);
 		// System.out.println("PresentationManager.showAndWait() " +
 		// dsp.getInstanceName() + " startTime = " + startTime);
 		// System.out.println("PresentationManager.showAndWait() " +
@@ -1432,6 +1462,7 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 			ExPar.ResponseTime.set(HiresClock.ms(stopTime
 					- responseIntervalStart));
 			ExPar.ResponseCode.set(teCode);
+			ExPar.ResponseLatency.set(HiresClock.ms(stopLatency));
 			if (mouseResponse)
 				ExPar.ResponsePosition.set(tePosition);
 		}
@@ -1479,6 +1510,19 @@ public class PresentationManager implements ExDesignProcessor, TimerBitCodes {
 			}
 		}
 	}
+	/**
+	 * Find the index of the given timing element in the Display object's list
+	 * of timing groups.
+	 */
+	private int timingGroupIndex(Display dsp, TimingElement te) {
+		int n = dsp.getLastTimingGroupIndex();
+		for (int i = 0; i <= n; i++) {
+			if (dsp.getTiming(i) == te)
+				return i;
+		}
+		return 0;
+	}
+
 	// ----------------------------------------------------------
 	// The real time animation player for animated Display objects
 	// ----------------------------------------------------------
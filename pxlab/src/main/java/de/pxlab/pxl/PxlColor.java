@@ -479,8 +479,9 @@ public class PxlColor implements ColorSpaceCodes, Cloneable {
 		// System.out.println(this + ".dev() = " + r);
 		// System.out.println(" > " + this + ".devFloor() = " + devFloor());
 		// System.out.println(" > " + this + ".devCeiling() = " + devCeiling());
-		Debug.show(Debug.COLOR_GAMUT, "PxlColor " + toString() + " -> " + "[ "
-				+ r.getRed() + ", " + r.getGreen() + ", " + r.getBlue() + "]");
+		if (Debug.isActive(Debug.COLOR_GAMUT))
+			Debug.show(Debug.COLOR_GAMUT, "PxlColor " + toString() + " -> " + "[ "
+					+ r.getRed() + ", " + r.getGreen() + ", " + r.getBlue() + "]");
 		return r;
 	}
 
@@ -0,0 +1,141 @@
+package de.pxlab.pxl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A queue of response event records which is written by the device event
+ * threads and read by the experiment thread. The queue has a fixed capacity
+ * and all storage is allocated when the queue is created. Records may be
+ * added by several producer threads like the AWT event thread, the SpaceMouse
+ * thread, and the serial port event thread. Producers are serialized by a
+ * lock. There is exactly one consumer thread which never blocks. Events which
+ * arrive while the queue is full are counted and dropped.
+ *
+ * <p>
+ * Every record contains the event time in HiresClock nanoseconds, the time
+ * the event has been waiting in the event queue, the timer type bit which
+ * corresponds to the device, and the response code.
+ *
+ * @version 0.1.0
+ * @see ResponseManager
+ * @see EventTimeBase
+ */
+public class ResponseEventQueue {
+	private int mask;
+	private long[] time;
+	private long[] latency;
+	private int[] type;
+	private int[] code;
+	/** Index of the next record to be written. */
+	private AtomicLong head = new AtomicLong(0L);
+	/** Index of the next record to be read. */
+	private AtomicLong tail = new AtomicLong(0L);
+	/** Number of records which had to be dropped. */
+	private AtomicLong dropped = new AtomicLong(0L);
+	/** Index of the record which has been taken by the last poll(). */
+	private int current = -1;
+
+	/**
+	 * Create a queue.
+	 *
+	 * @param capacity
+	 *            the minimum number of records the queue can hold. This is
+	 *            rounded up to a power of 2.
+	 */
+	public ResponseEventQueue(int capacity) {
+		int n = 1;
+		while (n < capacity)
+			n <<= 1;
+		mask = n - 1;
+		time = new long[n];
+		latency = new long[n];
+		type = new int[n];
+		code = new int[n];
+	}
+
+	/**
+	 * Add a record to the queue. This may be called by any producer thread.
+	 *
+	 * @param t
+	 *            the event time in nanoseconds.
+	 * @param lat
+	 *            the queueing latency of the event in nanoseconds.
+	 * @param tp
+	 *            the timer type bit of the event's device.
+	 * @param cd
+	 *            the response code.
+	 * @return false if the queue is full and the record has been dropped.
+	 */
+	public synchronized boolean offer(long t, long lat, int tp, int cd) {
+		long h = head.get();
+		if ((h - tail.get()) > mask) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		int i = (int) h & mask;
+		time[i] = t;
+		latency[i] = lat;
+		type[i] = tp;
+		code[i] = cd;
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	/**
+	 * Take the next record from the queue. The record's fields are available
+	 * by the get methods until the next call to poll(). This may only be
+	 * called by the consumer thread.
+	 *
+	 * @return false if the queue is empty.
+	 */
+	public boolean poll() {
+		release();
+		long t = tail.get();
+		if (t == head.get())
+			return false;
+		current = (int) t & mask;
+		return true;
+	}
+
+	/**
+	 * Release the record taken by the last poll() such that the producer may
+	 * reuse its storage.
+	 */
+	private void release() {
+		if (current >= 0) {
+			tail.lazySet(tail.get() + 1);
+			current = -1;
+		}
+	}
+
+	/** Remove all records from the queue. Only the consumer may call this. */
+	public void clear() {
+		release();
+		tail.lazySet(head.get());
+	}
+
+	/** Get the time of the current record. */
+	public long getTime() {
+		return time[current];
+	}
+
+	/** Get the queueing latency of the current record. */
+	public long getLatency() {
+		return latency[current];
+	}
+
+	/** Get the timer type bit of the current record. */
+	public int getType() {
+		return type[current];
+	}
+
+	/** Get the response code of the current record. */
+	public int getCode() {
+		return code[current];
+	}
+
+	/** Get the number of records which have been dropped. */
+	public long getDropped() {
+		return dropped.get();
+	}
+}
@@ -47,6 +47,8 @@ import de.pxlab.pxl.sound.VoiceKeyRecorder;
  * 2007/02/11 added polled devices and SpaceMouse device support.
  * 
  * 2008/02/28 observe VoiceKeyStopImmediately flag when using a voice key.
+ * 
+ * 2026/10/19 use input event time stamps and record queueing latencies.
  */
 public class ResponseManager implements MouseListener, MouseMotionListener,
 		MouseWheelListener, KeyboardResponseListener, ExternalButtonListener,
@@ -149,6 +151,22 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	private Display activeDisplay;
 	private ArrayList polledDeviceList = null;
 	private SpaceMouse spaceMouse = null;
+	/**
+	 * Records every response event together with its queueing latency. It is
+	 * written by the device event threads and read by the experimental
+	 * thread.
+	 */
+	private ResponseEventQueue responseEventQueue = new ResponseEventQueue(256);
+	/** Queueing latency of the input event which is currently handled. */
+	private long eventLatency;
+	/** Queueing latency statistics of the experimental thread. */
+	private int latencyCount;
+	private long latencySum;
+	private long latencyMax;
+	/**
+	 * If not null then every pointer motion event is added to this recorder.
+	 */
+	private volatile TrajectoryRecorder trajectoryRecorder = null;
 
 	/**
 	 * Create a response manager which uses the given timing monitor to
@@ -252,8 +270,9 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	 */
 	public void setActiveResponseTiming(boolean s) {
 		activeResponseTiming = s;
-		Debug.show(Debug.EVENTS, "ResponseManager.setActiveResponseTiming() "
-				+ (activeResponseTiming ? "active" : "inactive"));
+		if (Debug.isActive(Debug.EVENTS))
+			Debug.show(Debug.EVENTS, "ResponseManager.setActiveResponseTiming() "
+					+ (activeResponseTiming ? "active" : "inactive"));
 	}
 
 	/**
@@ -268,6 +287,82 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 		watchSpuriousResponses = false;
 	}
 
+	/**
+	 * Get the time of an input event in HiresClock nanoseconds. The event's
+	 * own time stamp is used if it is precise and valid. This also computes
+	 * the event's queueing latency.
+	 * 
+	 * @param e
+	 *            the input event.
+	 * @param arrival
+	 *            the time when the event has been delivered. This should be
+	 *            taken immediately on entry of the event handler.
+	 * @return the event time.
+	 */
+	private long eventTime(InputEvent e, long arrival) {
+		eventLatency = EventTimeBase.latency(e.getWhen(), arrival);
+		return EventTimeBase.eventTime(e.getWhen(), arrival);
+	}
+
+	/**
+	 * Get the queue of response events. Every response event detected by this
+	 * response manager is added to this queue together with its event time
+	 * and queueing latency.
+	 */
+	public ResponseEventQueue getResponseEventQueue() {
+		return responseEventQueue;
+	}
+
+	/**
+	 * Read all pending records from the response event queue and add their
+	 * queueing latencies to the latency statistics. This may only be called
+	 * by the experimental thread.
+	 * 
+	 * @param t
+	 *            the time of a response event whose latency is needed.
+	 * @return the queueing latency in nanoseconds of the last response event
+	 *         whose time is t or 0 if there is no such event.
+	 */
+	public long pollResponseLatency(long t) {
+		long r = 0L;
+		while (responseEventQueue.poll()) {
+			long lat = responseEventQueue.getLatency();
+			latencyCount++;
+			latencySum += lat;
+			if (lat > latencyMax)
+				latencyMax = lat;
+			if (responseEventQueue.getTime() == t)
+				r = lat;
+		}
+		return r;
+	}
+
+	/**
+	 * Set a recorder which receives every pointer motion event. Pointer
+	 * motion is recorded independently of response timing.
+	 * 
+	 * @param r
+	 *            the trajectory recorder or null to stop recording.
+	 */
+	public void setTrajectoryRecorder(TrajectoryRecorder r) {
+		trajectoryRecorder = r;
+	}
+
+	/** Get the number of response events in the latency statistics. */
+	public int getResponseLatencyCount() {
+		return latencyCount;
+	}
+
+	/** Get the mean queueing latency of response events in nanoseconds. */
+	public long getResponseLatencyMean() {
+		return (latencyCount > 0) ? latencySum / latencyCount : 0L;
+	}
+
+	/** Get the maximum queueing latency of response events in nanoseconds. */
+	public long getResponseLatencyMax() {
+		return latencyMax;
+	}
+
 	// ----------------------------------------------------------
 	// Adjustment implementation
 	// ----------------------------------------------------------
@@ -302,6 +397,8 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	 */
 	public void startVoiceKey(long timeOut) {
 		AudioFormat format = new AudioFormat(44100, 16, 1, true, true);
+		VoiceKeyRecorder.setRecordingBufferSize(ExPar.VoiceKeyRecordingBufferSize
+				.getInt());
 		VoiceKeyRecorder vkr = new VoiceKeyRecorder(timeOut, 100.0,
 				ExPar.VoiceKeyThreshold.getDouble(), null, format);
 		vkr.setStopImmediately(ExPar.VoiceKeyStopImmediately.getFlag());
@@ -454,11 +551,12 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	 * presentation manager's keyboard response dispatcher.
 	 */
 	public void keyPressed(KeyEvent e) {
-		long tm = HiresClock.getTimeNanos();
+		long tm = eventTime(e, HiresClock.getTimeNanos());
 		ResponseEvent r = new ResponseEvent(e, DOWN_TIMER_BIT);
 		int rCode = r.getCode();
-		Debug.show(Debug.EVENTS, "ResponseManager.keyPressed(): Event code = "
-				+ rCode);
+		responseEventQueue.offer(tm, eventLatency, KEY_TIMER_BIT, rCode);
+		Debug.show(Debug.EVENTS,
+				"ResponseManager.keyPressed(): Event code = ", rCode);
 		if (activeResponseTiming) {
 			Debug.show(Debug.EVENTS,
 					"ResponseManager.keyPressed(): Timing is active.");
@@ -470,12 +568,13 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 			int responseCode = responseEventGroup.getCode(r);
 			if (responseCode >= 0) {
 				Debug.show(Debug.EVENTS,
-						"ResponseManager.keyPressed(): Response code = "
-								+ responseCode);
+						"ResponseManager.keyPressed(): Response code = ",
+						responseCode);
 				if (repeatUntilStopKey) {
-					Debug.show(Debug.EVENTS,
-							"ResponseManager.keyPressed(): Repeat until stop key ("
-									+ stopKey + ") found.");
+					if (Debug.isActive(Debug.EVENTS))
+						Debug.show(Debug.EVENTS,
+								"ResponseManager.keyPressed(): Repeat until stop key ("
+										+ stopKey + ") found.");
 					if (rCode == stopKey) {
 						Debug.show(Debug.EVENTS,
 								"ResponseManager.keyPressed(): Stop key found.");
@@ -493,7 +592,7 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 						Debug.show(Debug.EVENTS,
 								"ResponseManager.keyPressed(): Call display.setKeyResponse()");
 						if (activeDisplay.setKeyResponse(e)) {
-							activeDisplay.showCurrentTimingGroup();
+							activeDisplay.updateCurrentTimingGroup();
 							activeDisplay.clearNextTimingGroupImagePreload();
 						}
 					}
@@ -528,19 +627,20 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	 * presentation manager's keyboard response dispatcher.
 	 */
 	public void keyReleased(KeyEvent e) {
-		long tm = HiresClock.getTimeNanos();
+		long tm = eventTime(e, HiresClock.getTimeNanos());
 		ResponseEvent r = new ResponseEvent(e, UP_TIMER_BIT);
 		int rCode = r.getCode();
-		Debug.show(Debug.EVENTS, "ResponseManager.keyReleased(): Event code = "
-				+ rCode);
+		responseEventQueue.offer(tm, eventLatency, KEY_TIMER_BIT, rCode);
+		Debug.show(Debug.EVENTS,
+				"ResponseManager.keyReleased(): Event code = ", rCode);
 		if (activeResponseTiming) {
 			Debug.show(Debug.EVENTS,
 					"ResponseManager.keyReleased(): Timing is active.");
 			int responseCode = responseEventGroup.getCode(r);
 			if (responseCode >= 0) {
 				Debug.show(Debug.EVENTS,
-						"ResponseManager.keyReleased(): Response code = "
-								+ responseCode);
+						"ResponseManager.keyReleased(): Response code = ",
+						responseCode);
 				if (activeDisplay.getAllowTimerStop(responseCode)) {
 					Debug.show(Debug.EVENTS,
 							"ResponseManager.keyReleased(): Stop timing interval.");
@@ -584,21 +684,24 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 
 	/** Invoked when a mouse button has been pressed. */
 	public void mousePressed(MouseEvent e) {
-		long tm = HiresClock.getTimeNanos();
+		long tm = eventTime(e, HiresClock.getTimeNanos());
 		// System.out.println("ResponseManager.mousePressed() State=" +
 		// (activeResponseTiming? "active": "inactive"));
 		ResponseEvent r = new ResponseEvent(e, DOWN_TIMER_BIT);
+		responseEventQueue.offer(tm, eventLatency, MOUSE_BUTTON_TIMER_BIT,
+				r.getCode());
 		if (activeResponseTiming) {
 			Debug.show(Debug.EVENTS, "ResponseManager.mousePressed(): Active");
 			if (mouseTrackingResponse) {
-				Debug.show(Debug.EVENTS, "ResponseManager.mousePressed() at "
-						+ tm + " [ns] relative to " + responseIntervalStart
-						+ " [ns]");
+				if (Debug.isActive(Debug.EVENTS))
+					Debug.show(Debug.EVENTS, "ResponseManager.mousePressed() at "
+							+ tm + " [ns] relative to " + responseIntervalStart
+							+ " [ns]");
 				if (activeDisplay.setPointerActivationState(r, tm
 						- responseIntervalStart)) {
 					Debug.show(Debug.EVENTS,
 							"ResponseManager.mousePressed() re-show current timing group.");
-					activeDisplay.showCurrentTimingGroup();
+					activeDisplay.updateCurrentTimingGroup();
 					activeDisplay.clearNextTimingGroupImagePreload();
 				}
 			}
@@ -626,21 +729,24 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 
 	/** Invoked when a mouse button has been released. */
 	public void mouseReleased(MouseEvent e) {
-		long tm = HiresClock.getTimeNanos();
+		long tm = eventTime(e, HiresClock.getTimeNanos());
 		// System.out.println("ResponseManager.mouseReleased() State=" +
 		// (activeResponseTiming? "active": "inactive"));
 		ResponseEvent r = new ResponseEvent(e, UP_TIMER_BIT);
+		responseEventQueue.offer(tm, eventLatency, MOUSE_BUTTON_TIMER_BIT,
+				r.getCode());
 		if (activeResponseTiming) {
 			Debug.show(Debug.EVENTS, "ResponseManager.mouseReleased(): Active");
 			if (mouseTrackingResponse) {
-				Debug.show(Debug.EVENTS, "ResponseManager.mouseReleased() at "
-						+ tm + " [ns] relative to " + responseIntervalStart
-						+ " [ns]");
+				if (Debug.isActive(Debug.EVENTS))
+					Debug.show(Debug.EVENTS, "ResponseManager.mouseReleased() at "
+							+ tm + " [ns] relative to " + responseIntervalStart
+							+ " [ns]");
 				if (activeDisplay.setPointerReleaseState(r, tm
 						- responseIntervalStart)) {
 					Debug.show(Debug.EVENTS,
 							"ResponseManager.mouseReleased(): re-show current timing group");
-					activeDisplay.showCurrentTimingGroup();
+					activeDisplay.updateCurrentTimingGroup();
 					activeDisplay.clearNextTimingGroupImagePreload();
 				}
 			}
@@ -671,12 +777,15 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	// ----------------------------------------------------------
 	/** Invoked when the mouse has been moved with a button down. */
 	public void mouseDragged(MouseEvent e) {
+		TrajectoryRecorder tr = trajectoryRecorder;
+		if (tr != null)
+			tr.add(eventTime(e, HiresClock.getTimeNanos()), e.getX(), e.getY());
 		if (activeResponseTiming && mouseTrackingResponse) {
 			Debug.show(Debug.EVENTS,
 					"ResponseManager.mouseDragged(): Tracking active");
 			ResponseEvent r = new ResponseEvent(e, 0);
 			if (activeDisplay.setPointerDraggedState(r)) {
-				activeDisplay.showCurrentTimingGroup();
+				activeDisplay.updateCurrentTimingGroup();
 				activeDisplay.clearNextTimingGroupImagePreload();
 			}
 		}
@@ -684,12 +793,15 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 
 	/** Invoked when the mouse has been moved with no button down. */
 	public void mouseMoved(MouseEvent e) {
+		TrajectoryRecorder tr = trajectoryRecorder;
+		if (tr != null)
+			tr.add(eventTime(e, HiresClock.getTimeNanos()), e.getX(), e.getY());
 		if (activeResponseTiming && mouseTrackingResponse) {
 			Debug.show(Debug.EVENTS,
 					"ResponseManager.mouseMoved(): Tracking active");
 			ResponseEvent r = new ResponseEvent(e, 0);
 			if (activeDisplay.setPointerMovedState(r)) {
-				activeDisplay.showCurrentTimingGroup();
+				activeDisplay.updateCurrentTimingGroup();
 				activeDisplay.clearNextTimingGroupImagePreload();
 			}
 		}
@@ -700,14 +812,15 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	// ----------------------------------------------------------
 	public void mouseWheelMoved(MouseWheelEvent e) {
 		if (activeResponseTiming && wheelTrackingResponse) {
-			Debug.show(
-					Debug.EVENTS,
-					"ResponseManager.mouseWheelMoved(): "
-							+ e.getWheelRotation());
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(
+						Debug.EVENTS,
+						"ResponseManager.mouseWheelMoved(): "
+								+ e.getWheelRotation());
 			double[] d = new double[1];
 			d[0] = e.getWheelRotation();
 			if (activeDisplay.setAxisDeltas(d)) {
-				activeDisplay.showCurrentTimingGroup();
+				activeDisplay.updateCurrentTimingGroup();
 				activeDisplay.clearNextTimingGroupImagePreload();
 			}
 		}
@@ -722,10 +835,12 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 		ResponseEvent r = new ResponseEvent(e,
 				e.isButtonPressed() ? DOWN_TIMER_BIT : UP_TIMER_BIT);
 		int rCode = r.getCode();
+		responseEventQueue.offer(tm, 0L, XBUTTON_TIMER_BIT, rCode);
 		if (activeResponseTiming) {
-			Debug.show(Debug.EVENTS,
-					"ResponseManager.spaceMouseButton(): Active [button = "
-							+ rCode + "]");
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(Debug.EVENTS,
+						"ResponseManager.spaceMouseButton(): Active [button = "
+								+ rCode + "]");
 			int responseCode = responseEventGroup.getCode(r);
 			if (responseCode >= 0) {
 				if (activeDisplay.getAllowTimerStop(responseCode)) {
@@ -739,9 +854,10 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 						"ResponseManager.spaceMouseButton(): Response not valid");
 			}
 		} else {
-			Debug.show(Debug.EVENTS,
-					"ResponseManager.spaceMouseButton(): not active [key = "
-							+ rCode + "]");
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(Debug.EVENTS,
+						"ResponseManager.spaceMouseButton(): not active [key = "
+								+ rCode + "]");
 			timingMonitor.setSpuriousResponseEvent(tm, XBUTTON_TIMER_BIT,
 					r.getCode());
 			addSpuriousResponse(r);
@@ -751,12 +867,13 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	/** A SpaceMouse axis has changed its state. */
 	public void spaceMouseAxis(SpaceMouseEvent e) {
 		if (activeResponseTiming && axisTrackingResponse) {
-			Debug.show(
-					Debug.EVENTS,
-					"ResponseManager.spaceMouseAxisChanged(): "
-							+ StringExt.valueOf(e.getAxisDeltas()));
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(
+						Debug.EVENTS,
+						"ResponseManager.spaceMouseAxisChanged(): "
+								+ StringExt.valueOf(e.getAxisDeltas()));
 			if (activeDisplay.setAxisDeltas(e.getAxisDeltas())) {
-				activeDisplay.showCurrentTimingGroup();
+				activeDisplay.updateCurrentTimingGroup();
 				activeDisplay.clearNextTimingGroupImagePreload();
 			}
 		}
@@ -776,10 +893,12 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 		// (activeResponseTiming? "active": "inactive"));
 		ResponseEvent r = new ResponseEvent(e, DOWN_TIMER_BIT);
 		int rCode = r.getCode();
+		responseEventQueue.offer(tm, 0L, XBUTTON_TIMER_BIT, rCode);
 		if (activeResponseTiming) {
-			Debug.show(Debug.EVENTS,
-					"ResponseManager.externalButtonPressed(): Active [key = "
-							+ rCode + "]");
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(Debug.EVENTS,
+						"ResponseManager.externalButtonPressed(): Active [key = "
+								+ rCode + "]");
 			int responseCode = responseEventGroup.getCode(r);
 			if (responseCode >= 0) {
 				if (activeDisplay.getAllowTimerStop(responseCode)) {
@@ -793,9 +912,10 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 						"ResponseManager.externalButtonPressed(): Response not valid");
 			}
 		} else {
-			Debug.show(Debug.EVENTS,
-					"ResponseManager.externalButtonPressed(): not active [key = "
-							+ rCode + "]");
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(Debug.EVENTS,
+						"ResponseManager.externalButtonPressed(): not active [key = "
+								+ rCode + "]");
 			timingMonitor.setSpuriousResponseEvent(tm, XBUTTON_TIMER_BIT,
 					r.getCode());
 			addSpuriousResponse(r);
@@ -809,10 +929,12 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 		// + (activeResponseTiming? "active": "inactive"));
 		ResponseEvent r = new ResponseEvent(e, UP_TIMER_BIT);
 		int rCode = r.getCode();
+		responseEventQueue.offer(tm, 0L, XBUTTON_TIMER_BIT, rCode);
 		if (activeResponseTiming) {
-			Debug.show(Debug.EVENTS,
-					"ResponseManager.externalButtonReleased(): Active [key = "
-							+ rCode + "]");
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(Debug.EVENTS,
+						"ResponseManager.externalButtonReleased(): Active [key = "
+								+ rCode + "]");
 			int responseCode = responseEventGroup.getCode(r);
 			if (responseCode >= 0) {
 				if (activeDisplay.getAllowTimerStop(responseCode)) {
@@ -826,9 +948,10 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 						"ResponseManager.externalButtonReleased(): Response not valid");
 			}
 		} else {
-			Debug.show(Debug.EVENTS,
-					"ResponseManager.externalButtonReleased(): Not active [key = "
-							+ rCode + "]");
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(Debug.EVENTS,
+						"ResponseManager.externalButtonReleased(): Not active [key = "
+								+ rCode + "]");
 			timingMonitor.setSpuriousResponseEvent(tm, XBUTTON_TIMER_BIT,
 					r.getCode());
 			addSpuriousResponse(r);
@@ -840,7 +963,8 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	// ----------------------------------------------------------
 	/** Invoked when a serial line signals input of a single line of text. */
 	public void serialLineInput(SerialLineInputEvent e) {
-		long tm = HiresClock.getTimeNanos();
+		// The event is time stamped when its first byte has arrived
+		long tm = e.getWhen();
 		// System.out.println("ResponseManager.serialLineInput() State=" +
 		// (activeResponseTiming? "active": "inactive"));
 		if (activeResponseTiming) {
@@ -863,10 +987,11 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 	public void mediaActionPerformed(MediaEvent e) {
 		int id = e.getID();
 		Debug.show(Debug.EVENTS,
-				"ResponseManager.mediaActionPerformed(): ID = " + id);
+				"ResponseManager.mediaActionPerformed(): ID = ", id);
 		if (activeDisplay != null) {
 			ResponseEvent r = new ResponseEvent(e);
-			Debug.show(Debug.EVENTS, "Detected: " + r.toString());
+			if (Debug.isActive(Debug.EVENTS))
+				Debug.show(Debug.EVENTS, "Detected: " + r.toString());
 			int responseCode = responseEventGroup.getCode(r);
 			if (responseCode >= 0) {
 				if (activeDisplay.getAllowTimerStop(responseCode)) {
@@ -876,12 +1001,13 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 							responseCode);
 				}
 			} else {
-				Debug.show(
-						Debug.EVENTS,
-						"ResponseManager.mediaActionPerformed(): Invalid code. [id="
-								+ id
-								+ /* ", direction=" + direction + */", responseCode="
-								+ responseCode + "]");
+				if (Debug.isActive(Debug.EVENTS))
+					Debug.show(
+							Debug.EVENTS,
+							"ResponseManager.mediaActionPerformed(): Invalid code. [id="
+									+ id
+									+ /* ", direction=" + direction + */", responseCode="
+									+ responseCode + "]");
 			}
 		} else {
 			Debug.show(Debug.EVENTS,
@@ -907,9 +1033,10 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 				if (pdd.getChangedButtonIndex() >= 0) {
 					ResponseEvent r = new ResponseEvent(pdd);
 					int rCode = r.getCode();
-					Debug.show(Debug.EVENTS,
-							"ResponseManager.readPolledDevice(): [button = "
-									+ rCode + "]");
+					if (Debug.isActive(Debug.EVENTS))
+						Debug.show(Debug.EVENTS,
+								"ResponseManager.readPolledDevice(): [button = "
+										+ rCode + "]");
 					int responseCode = responseEventGroup.getCode(r);
 					if (responseCode >= 0) {
 						if (activeDisplay.getAllowTimerStop(responseCode)) {
@@ -925,9 +1052,10 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 				} else if (pdd.getChangedDirectionalIndex() >= 0) {
 					ResponseEvent r = new ResponseEvent(pdd);
 					int rCode = r.getCode();
-					Debug.show(Debug.EVENTS,
-							"ResponseManager.readPolledDevice(): [direction = "
-									+ rCode + "]");
+					if (Debug.isActive(Debug.EVENTS))
+						Debug.show(Debug.EVENTS,
+								"ResponseManager.readPolledDevice(): [direction = "
+										+ rCode + "]");
 					int responseCode = responseEventGroup.getCode(r);
 					if (responseCode >= 0) {
 						if (activeDisplay.getAllowTimerStop(responseCode)) {
@@ -943,7 +1071,7 @@ public class ResponseManager implements MouseListener, MouseMotionListener,
 				} else {
 					if (axisTrackingResponse) {
 						if (activeDisplay.setAxisDeltas(pdd.getAxisDeltas())) {
-							activeDisplay.showCurrentTimingGroup();
+							activeDisplay.updateCurrentTimingGroup();
 							activeDisplay.clearNextTimingGroupImagePreload();
 						}
 					}
@@ -3,10 +3,11 @@ package de.pxlab.pxl;
 import javax.comm.*;
 
 /**
- * A device for communicating across a serial line. This is a simple copy of the
- * software that comes with the Java cummunication API docs.
+ * A device for communicating across a serial line. Received data are split
+ * into lines and every line is sent to the listener together with the time
+ * when its first byte has arrived.
  * 
- * @version 0.1.1
+ * @version 0.2.0
  * @author H. Irtel
  */
 /*
@@ -14,56 +15,76 @@ import javax.comm.*;
  * 03/04/03
  * 
  * 2005/06/21 use nanosecond event time
+ * 
+ * 2026/10/19 use a SerialLink for buffered and time stamped transport
  */
-public class SerialCommunicationDevice implements SerialPortReceiver {
+public class SerialCommunicationDevice {
 	private SerialConnection connection;
-	private SerialCommunicationListener listener;
+	private SerialLink link;
 
+	/**
+	 * Open a serial port of the Java communication API.
+	 * 
+	 * @param dev
+	 *            the port name.
+	 * @param dest
+	 *            the listener for received lines.
+	 */
 	public SerialCommunicationDevice(String dev,
 			SerialCommunicationListener dest) {
 		connection = new SerialConnection(new SerialParameters(dev, 2400,
 				SerialPort.FLOWCONTROL_NONE, SerialPort.FLOWCONTROL_NONE,
 				SerialPort.DATABITS_8, SerialPort.STOPBITS_1,
-				SerialPort.PARITY_NONE), this);
+				SerialPort.PARITY_NONE), null);
 		try {
 			connection.openConnection();
+			startLink(connection.getTransport(), dest);
 		} catch (SerialConnectionException sx) {
 		}
-		listener = dest;
 		// System.out.println("SerialCommunicationDevice() ready.");
 	}
 
+	/**
+	 * Create a device which uses the given transport. This may be a terminal
+	 * device file or a loopback transport.
+	 * 
+	 * @param transport
+	 *            the transport of the device.
+	 * @param dest
+	 *            the listener for received lines.
+	 */
+	public SerialCommunicationDevice(SerialTransport transport,
+			SerialCommunicationListener dest) {
+		startLink(transport, dest);
+	}
+
+	/* Format = 'x = 0.418E0 y = 0.375E0 LUM = 18.32E0 cd/m^2' */
+	private void startLink(SerialTransport transport,
+			SerialCommunicationListener dest) {
+		SerialFramer framer = SerialFramer.lines();
+		framer.setListener(this, dest);
+		link = new SerialLink(transport, framer, 1024);
+		link.start();
+	}
+
 	public boolean isOpen() {
-		return connection.isOpen();
+		return (link != null) && link.isOpen();
 	}
 
 	public void close() {
 		// System.out.println("SerialCommunicationDevice.close().");
-		connection.closeConnection();
+		if (link != null)
+			link.close();
+		if (connection != null)
+			connection.closeConnection();
 	}
 
 	public void send(String s) {
-		connection.send(s);
+		if (link != null)
+			link.send(s);
 	}
 
 	public void send(char s) {
-		connection.send(s);
-	}
-	StringBuffer inBuf = new StringBuffer(100);
-
-	/* Format = 'x = 0.418E0 y = 0.375E0 LUM = 18.32E0 cd/m^2' */
-	/** Implements the SerialPortReceiver. */
-	public void receive(String s) {
-		// System.out.println("SerialCommunicationDevice.receive(): " + s);
-		inBuf.append(s);
-		if (s.charAt(s.length() - 1) == (char) 10) {
-			// System.out.print("Input line found: ");
-			// System.out.print("SerialCommunicationDevice.receive(): Sending to listener: "
-			// + inBuf );
-			listener.serialLineInput(new SerialLineInputEvent(this, HiresClock
-					.getTimeNanos(), inBuf.toString()));
-			inBuf = new StringBuffer(100);
-			// tekLuma.send("!NEW\n");
-		}
+		send(String.valueOf(s));
 	}
 }
@@ -2,6 +2,7 @@ package de.pxlab.pxl;
 
 import javax.comm.*;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.awt.TextArea;
 import java.awt.event.*;
 import java.util.TooManyListenersException;
@@ -11,6 +12,7 @@ import java.util.TooManyListenersException;
  * communication API docs.
  */
 public class SerialConnection implements SerialPortEventListener {
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
 	private SerialPortReceiver receiver;
 	private SerialParameters parameters;
 	private OutputStream os;
@@ -18,6 +20,8 @@ public class SerialConnection implements SerialPortEventListener {
 	private CommPortIdentifier portId;
 	private SerialPort sPort;
 	private boolean open;
+	/** Reusable buffer for received data. */
+	private byte[] readBuffer = new byte[1024];
 
 	/**
 	 * Creates a SerialConnection object and initilizes variables passed in as
@@ -26,7 +30,9 @@ public class SerialConnection implements SerialPortEventListener {
 	 * @param parameters
 	 *            A SerialParameters object.
 	 * @param receiver
-	 *            the destination of strings received by this port.
+	 *            the destination of strings received by this port. If this
+	 *            is null then received data must be read from the transport
+	 *            returned by getTransport().
 	 */
 	public SerialConnection(SerialParameters parameters,
 			SerialPortReceiver receiver) {
@@ -76,7 +82,7 @@ public class SerialConnection implements SerialPortEventListener {
 		// Open the input and output streams for the connection. If they won't
 		// open, close the port before throwing an exception.
 		try {
-			os = sPort.getOutputStream();
+			os = new BufferedOutputStream(sPort.getOutputStream(), 1024);
 			is = sPort.getInputStream();
 		} catch (IOException e) {
 			sPort.close();
@@ -90,9 +96,10 @@ public class SerialConnection implements SerialPortEventListener {
 			throw new SerialConnectionException("too many listeners added");
 		}
 		// Set notifyOnDataAvailable to true to allow event driven input.
-		sPort.notifyOnDataAvailable(true);
+		sPort.notifyOnDataAvailable(receiver != null);
 		// Set notifyOnBreakInterrup to allow event driven break handling.
-		sPort.notifyOnBreakInterrupt(true);
+		// Without a receiver there is nobody to tell.
+		sPort.notifyOnBreakInterrupt(receiver != null);
 		// Set receive timeout to allow breaking out of polling loop during
 		// input handling.
 		try {
@@ -176,56 +183,72 @@ public class SerialConnection implements SerialPortEventListener {
 		return open;
 	}
 
+	/**
+	 * Get a transport for reading from and writing to this connection. The
+	 * transport's read() blocks until data are available. This must only be
+	 * used if the connection has been created without a receiver.
+	 */
+	public SerialTransport getTransport() {
+		sPort.disableReceiveTimeout();
+		return new StreamSerialTransport(is, os);
+	}
+
 	/**
 	 * Handles SerialPortEvents. The two types of SerialPortEvents that this
 	 * program is registered to listen for are DATA_AVAILABLE and BI. During
-	 * DATA_AVAILABLE the port buffer is read until it is drained, when no more
-	 * data is availble and 30ms has passed the method returns. When a BI event
-	 * occurs the words BREAK RECEIVED are written to the messageAreaIn.
+	 * DATA_AVAILABLE the port buffer is read in blocks until it is drained.
+	 * When a BI event occurs the words BREAK RECEIVED are sent to the
+	 * receiver.
 	 */
 	public void serialEvent(SerialPortEvent e) {
-		// Create a StringBuffer and int to receive input data.
-		StringBuffer inputBuffer = new StringBuffer(100);
-		int newData = 0;
+		int n = 0;
 		// Determine type of event.
 		switch (e.getEventType()) {
-		// Read data until -1 is returned. If \r is received substitute
-		// \n for correct newline handling.
 		case SerialPortEvent.DATA_AVAILABLE:
-			while (newData != -1) {
-				try {
-					newData = is.read();
-					if (newData == -1) {
+			try {
+				do {
+					int k = is.read(readBuffer, n, readBuffer.length - n);
+					if (k <= 0)
 						break;
+					n += k;
+					if (n == readBuffer.length) {
+						receiver.receive(new String(readBuffer, 0, n,
+								ISO_8859_1));
+						n = 0;
 					}
-					inputBuffer.append((char) newData);
-				} catch (IOException ex) {
-					System.err.println(ex);
-					return;
-				}
+				} while (is.available() > 0);
+			} catch (IOException ex) {
+				System.err.println(ex);
+				return;
 			}
 			// Send received data to receiver.
-			receiver.receive(new String(inputBuffer));
+			if (n > 0)
+				receiver.receive(new String(readBuffer, 0, n, ISO_8859_1));
 			// System.out.println("SerialConnection.serialEvent() Received: " +
 			// inputBuffer);
 			break;
 		// If break event append BREAK RECEIVED message.
 		case SerialPortEvent.BI:
-			receiver.receive("\n--- BREAK RECEIVED ---\n");
+			if (receiver != null)
+				receiver.receive("\n--- BREAK RECEIVED ---\n");
 		}
 	}
 
+	/** Send a string as a single batch. */
 	public void send(String s) {
 		// System.out.println("SerialConnection.send(): " + s);
-		char[] buf = s.toCharArray();
-		for (int i = 0; i < buf.length; i++) {
-			send(buf[i]);
+		try {
+			os.write(s.getBytes(ISO_8859_1));
+			os.flush();
+		} catch (IOException e) {
+			System.err.println("OutputStream write error: " + e);
 		}
 	}
 
 	public void send(char s) {
 		try {
 			os.write((int) s);
+			os.flush();
 		} catch (IOException e) {
 			System.err.println("OutputStream write error: " + e);
 		}
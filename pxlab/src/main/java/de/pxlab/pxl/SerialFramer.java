@@ -0,0 +1,128 @@
+package de.pxlab.pxl;
+
+import java.nio.charset.Charset;
+
+/**
+ * Splits the byte stream received from a serial transport into frames. A
+ * frame may be terminated by a line feed character, by an arbitrary delimiter
+ * byte, or may have a fixed length. Every frame is time stamped by the
+ * HiresClock time when its first byte has arrived and is sent to a
+ * SerialCommunicationListener as a SerialLineInputEvent. Frames are collected
+ * in a reusable buffer and frames which get longer than the buffer are sent
+ * when the buffer is full.
+ * 
+ * @version 0.1.0
+ * @see SerialLink
+ */
+public class SerialFramer {
+	/** Frames are terminated by a line feed character. */
+	public static final int LINE = 0;
+	/** Frames are terminated by a delimiter byte. */
+	public static final int DELIMITER = 1;
+	/** Frames have a fixed number of bytes. */
+	public static final int FIXED_LENGTH = 2;
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private int mode;
+	private int delimiter;
+	private int frameLength;
+	private boolean stripDelimiter = false;
+	private byte[] frame;
+	private int count;
+	private long frameTime;
+	private Object source;
+	private SerialCommunicationListener listener;
+
+	/**
+	 * Create a framer.
+	 * 
+	 * @param mode
+	 *            one of LINE, DELIMITER, or FIXED_LENGTH.
+	 * @param p
+	 *            the delimiter byte for mode DELIMITER and the frame length
+	 *            for mode FIXED_LENGTH. Ignored for mode LINE.
+	 * @param maxLength
+	 *            the maximum frame length for modes LINE and DELIMITER.
+	 *            Ignored for mode FIXED_LENGTH.
+	 */
+	public SerialFramer(int mode, int p, int maxLength) {
+		this.mode = mode;
+		delimiter = (mode == LINE) ? '\n' : (p & 0xFF);
+		frameLength = (mode == FIXED_LENGTH) ? Math.max(1, p) : maxLength;
+		frame = new byte[Math.max(1, frameLength)];
+	}
+
+	/** Create a framer for text lines of at most 4096 bytes. */
+	public static SerialFramer lines() {
+		return new SerialFramer(LINE, 0, 4096);
+	}
+
+	/**
+	 * Set whether the terminating delimiter is removed from frames. Line
+	 * frames then also lose a trailing carriage return.
+	 */
+	public void setStripDelimiter(boolean s) {
+		stripDelimiter = s;
+	}
+
+	/**
+	 * Set the destination of frames.
+	 * 
+	 * @param source
+	 *            the source object of the generated events.
+	 * @param listener
+	 *            the listener which gets the frames.
+	 */
+	public void setListener(Object source, SerialCommunicationListener listener) {
+		this.source = source;
+		this.listener = listener;
+	}
+
+	/**
+	 * Process a block of received bytes.
+	 * 
+	 * @param b
+	 *            array containing the bytes.
+	 * @param off
+	 *            index of the first byte.
+	 * @param len
+	 *            number of bytes.
+	 * @param t
+	 *            HiresClock time in nanoseconds when the bytes have arrived.
+	 */
+	public void receive(byte[] b, int off, int len, long t) {
+		int end = off + len;
+		for (int i = off; i < end; i++) {
+			if (count == 0)
+				frameTime = t;
+			int c = b[i] & 0xFF;
+			frame[count++] = b[i];
+			if (mode == FIXED_LENGTH) {
+				if (count == frameLength)
+					send(count);
+			} else if (c == delimiter) {
+				int n = count;
+				if (stripDelimiter) {
+					n--;
+					if ((mode == LINE) && (n > 0) && (frame[n - 1] == '\r'))
+						n--;
+				}
+				send(n);
+			} else if (count == frame.length) {
+				send(count);
+			}
+		}
+	}
+
+	/** Remove a partial frame. */
+	public void clear() {
+		count = 0;
+	}
+
+	private void send(int n) {
+		String s = new String(frame, 0, n, ISO_8859_1);
+		count = 0;
+		if (listener != null)
+			listener.serialLineInput(new SerialLineInputEvent(source,
+					frameTime, s));
+	}
+}
@@ -0,0 +1,116 @@
+package de.pxlab.pxl;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+/**
+ * Connects a serial transport to a framer and a listener. A reader thread
+ * reads all available bytes from the transport into a reusable buffer, time
+ * stamps them, and hands them to the framer. Data to be sent are collected
+ * and then written to the transport as a single batch.
+ * 
+ * @version 0.1.0
+ * @see SerialTransport
+ * @see SerialFramer
+ */
+public class SerialLink implements Runnable {
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private SerialTransport transport;
+	private SerialFramer framer;
+	private byte[] readBuffer;
+	private Thread reader;
+
+	/**
+	 * Create a serial link. The method start() must be called to start
+	 * receiving data.
+	 * 
+	 * @param transport
+	 *            the transport of the link.
+	 * @param framer
+	 *            the framer for received data.
+	 * @param bufferSize
+	 *            size of the read buffer in bytes.
+	 */
+	public SerialLink(SerialTransport transport, SerialFramer framer,
+			int bufferSize) {
+		this.transport = transport;
+		this.framer = framer;
+		readBuffer = new byte[bufferSize];
+	}
+
+	/** Start the reader thread. */
+	public void start() {
+		reader = new Thread(this, "SerialLink");
+		reader.setDaemon(true);
+		reader.setPriority(Thread.MAX_PRIORITY);
+		reader.start();
+	}
+
+	public void run() {
+		while (transport.isOpen()) {
+			int n;
+			try {
+				n = transport.read(readBuffer, 0, readBuffer.length);
+			} catch (IOException iox) {
+				Syslog.out.println("SerialLink.run(): " + iox);
+				break;
+			}
+			long t = HiresClock.getTimeNanos();
+			if (n < 0)
+				break;
+			if (n > 0)
+				framer.receive(readBuffer, 0, n, t);
+		}
+	}
+
+	/**
+	 * Add data to the current batch. The batch is sent by flush().
+	 */
+	public synchronized void write(byte[] b, int off, int len) {
+		try {
+			transport.write(b, off, len);
+		} catch (IOException iox) {
+			Syslog.out.println("SerialLink.write(): " + iox);
+		}
+	}
+
+	/** Add a string's characters to the current batch. */
+	public void write(String s) {
+		byte[] b = s.getBytes(ISO_8859_1);
+		write(b, 0, b.length);
+	}
+
+	/** Send the current batch. */
+	public synchronized void flush() {
+		try {
+			transport.flush();
+		} catch (IOException iox) {
+			Syslog.out.println("SerialLink.flush(): " + iox);
+		}
+	}
+
+	/** Send a string immediately as a single batch. */
+	public synchronized void send(String s) {
+		write(s);
+		flush();
+	}
+
+	/** Close the transport and stop the reader thread. */
+	public void close() {
+		transport.close();
+		if ((reader != null) && (reader != Thread.currentThread())) {
+			try {
+				reader.join(100L);
+			} catch (InterruptedException iex) {
+			}
+		}
+	}
+
+	public boolean isOpen() {
+		return transport.isOpen();
+	}
+
+	public SerialTransport getTransport() {
+		return transport;
+	}
+}
@@ -0,0 +1,36 @@
+package de.pxlab.pxl;
+
+import java.io.*;
+
+/**
+ * A bidirectional byte channel to a serial device. Implementations may be
+ * backed by a serial port of the Java communication API, by a terminal or
+ * pseudo-terminal device file, or by an in-memory loopback for testing.
+ * 
+ * @version 0.1.0
+ * @see SerialLink
+ */
+public interface SerialTransport {
+	/**
+	 * Read as many bytes as are available. This blocks until at least one
+	 * byte is available or the transport is closed.
+	 * 
+	 * @return the number of bytes read or -1 if the transport has been
+	 *         closed.
+	 */
+	public int read(byte[] b, int off, int len) throws IOException;
+
+	/**
+	 * Write bytes to the transport. Data may be buffered until flush() is
+	 * called.
+	 */
+	public void write(byte[] b, int off, int len) throws IOException;
+
+	/** Send all buffered data. */
+	public void flush() throws IOException;
+
+	/** Close the transport. A blocked read() returns -1. */
+	public void close();
+
+	public boolean isOpen();
+}
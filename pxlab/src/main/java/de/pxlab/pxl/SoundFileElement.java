@@ -63,6 +63,17 @@ public class SoundFileElement extends DisplayElement {
 		return audioFormat;
 	}
 
+	/**
+	 * Get the time when the first sample of the last presentation has been
+	 * played.
+	 * 
+	 * @return the HiresClock time in nanoseconds or 0 if nothing has been
+	 *         played.
+	 */
+	public long getStartTime() {
+		return (player != null) ? player.getStartTime() : 0L;
+	}
+
 	public ShortBuffer getAudioDataAsShort() {
 		return (ShortBuffer) null;
 	}
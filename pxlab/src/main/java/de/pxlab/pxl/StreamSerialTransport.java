@@ -0,0 +1,87 @@
+package de.pxlab.pxl;
+
+import java.io.*;
+
+/**
+ * A serial transport which uses an input and an output stream. These may be
+ * the streams of a serial port or the streams of a device file. On Linux
+ * systems terminal and pseudo-terminal devices like /dev/ttyS0 or /dev/pts/3
+ * may be opened by openDevice(). The line parameters of a terminal device
+ * have to be set externally, for example by the stty command.
+ * 
+ * @version 0.1.0
+ */
+public class StreamSerialTransport implements SerialTransport {
+	private InputStream in;
+	private OutputStream out;
+	private volatile boolean open = true;
+
+	/**
+	 * Create a transport for the given streams.
+	 * 
+	 * @param in
+	 *            the input stream.
+	 * @param out
+	 *            the output stream. Writes are buffered until flush() is
+	 *            called.
+	 */
+	public StreamSerialTransport(InputStream in, OutputStream out) {
+		this.in = in;
+		this.out = new BufferedOutputStream(out, 1024);
+	}
+
+	/**
+	 * Open a terminal or pseudo-terminal device file for reading and writing.
+	 * 
+	 * @param path
+	 *            the device file's path name.
+	 */
+	public static StreamSerialTransport openDevice(String path)
+			throws IOException {
+		InputStream in = new FileInputStream(path);
+		try {
+			return new StreamSerialTransport(in, new FileOutputStream(path));
+		} catch (IOException iox) {
+			in.close();
+			throw iox;
+		}
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (!open)
+			return -1;
+		try {
+			return in.read(b, off, len);
+		} catch (IOException iox) {
+			if (!open)
+				return -1;
+			throw iox;
+		}
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() {
+		if (!open)
+			return;
+		open = false;
+		try {
+			out.close();
+		} catch (IOException iox) {
+		}
+		try {
+			in.close();
+		} catch (IOException iox) {
+		}
+	}
+
+	public boolean isOpen() {
+		return open;
+	}
+}
@@ -2,6 +2,7 @@ package de.pxlab.pxl;
 
 import java.io.*;
 import java.nio.*;
+import java.util.Arrays;
 import javax.sound.sampled.*;
 
 import de.pxlab.pxl.sound.*;
@@ -15,6 +16,8 @@ import de.pxlab.pxl.sound.*;
 /*
  * 
  * 2005/03/04
+ * 
+ * 2026/10/19 use the SoundFactory cache for deterministic sounds
  */
 public class SyntheticSoundElement extends DisplayElement implements
 		SoundEnvelopeCodes, SoundWaveCodes {
@@ -57,22 +60,46 @@ public class SyntheticSoundElement extends DisplayElement implements
 					(envelope.length == 2) ? envelope[1] : envelope[0], 2,
 					envelopePars));
 		}
-		switch (wave[0]) {
-		case WHITE_NOISE_SOUND:
-			audioData = soundFactory.getWhiteNoise(duration);
-			break;
-		case FOURIER_SERIES:
-			audioData = soundFactory.getFourierSeries(duration, wavePars);
-			break;
-		case PURE_TONE:
-		default:
-			audioData = soundFactory.getSineWave(duration, wavePars[0]);
-			break;
+		// Noise must be new for every presentation
+		String key = (wave[0] == WHITE_NOISE_SOUND) ? null : soundKey(quiet,
+				gain, envelope, envelopePars, wave, wavePars);
+		audioData = (key != null) ? SoundFactory.getCachedSound(key) : null;
+		if (audioData == null) {
+			switch (wave[0]) {
+			case WHITE_NOISE_SOUND:
+				audioData = soundFactory.getWhiteNoise(duration);
+				break;
+			case FOURIER_SERIES:
+				audioData = soundFactory.getFourierSeries(duration, wavePars);
+				break;
+			case PURE_TONE:
+			default:
+				audioData = soundFactory.getSineWave(duration, wavePars[0]);
+				break;
+			}
+			if (key != null)
+				SoundFactory.putCachedSound(key, audioData);
 		}
 		player = new Player(audioData, audioFormat);
 		player.setMediaEventListener(mediaEventListener);
 	}
 
+	/**
+	 * Create the sound cache key for a sound. The key contains every property
+	 * which contributes to the audio data.
+	 */
+	private String soundKey(double quiet, double[] gain, int[] envelope,
+			double[] envelopePars, int[] wave, double[] wavePars) {
+		StringBuffer b = new StringBuffer(128);
+		b.append(audioFormat).append('|').append(duration).append('|')
+				.append(quiet).append('|').append(Arrays.toString(gain))
+				.append('|').append(Arrays.toString(envelope)).append('|')
+				.append(Arrays.toString(envelopePars)).append('|')
+				.append(wave[0]).append('|')
+				.append(Arrays.toString(wavePars));
+		return b.toString();
+	}
+
 	private SoundEnvelope createEnvelope(double q, double gain, int type,
 			int n, double[] p) {
 		SoundEnvelope e = null;
@@ -137,6 +164,17 @@ public class SyntheticSoundElement extends DisplayElement implements
 		return audioFormat;
 	}
 
+	/**
+	 * Get the time when the first sample of the last presentation has been
+	 * played.
+	 * 
+	 * @return the HiresClock time in nanoseconds or 0 if nothing has been
+	 *         played.
+	 */
+	public long getStartTime() {
+		return (player != null) ? player.getStartTime() : 0L;
+	}
+
 	public ShortBuffer getAudioDataAsShort() {
 		ByteBuffer byteBuffer = ByteBuffer.wrap(audioData);
 		return byteBuffer.asShortBuffer();
@@ -178,6 +178,19 @@ public class TimingMonitor implements TimerBitCodes {
 		}
 	}
 
+	/**
+	 * Finish a timing interval without waiting as if it had been stopped by
+	 * its clock timer. This is used for display devices which do not show
+	 * their images in real time.
+	 */
+	public void setClockTimingEvent() {
+		spuriousResponseEvent = false;
+		clockTimingEvent = true;
+		timingEventTime = HiresClock.getTimeNanos();
+		timingEventType = CLOCK_TIMER_BIT;
+		timingEventCode = ResponseCodes.TIME_OUT;
+	}
+
 	/** Stop any waiting period immediately. */
 	public void stop() {
 		Debug.show(Debug.EVENTS, "TimingMonitor.stop()");
@@ -0,0 +1,441 @@
+package de.pxlab.pxl;
+
+import java.awt.*;
+import java.io.*;
+import javax.swing.SwingUtilities;
+
+/**
+ * Records a pointer trajectory as a sequence of time stamped positions. The
+ * samples are kept in ring buffers of primitive arrays which are allocated
+ * when the recorder is created. Thus recording does not create any objects.
+ * If more samples arrive than the recorder can hold then the oldest samples
+ * are overwritten. Samples may come from pointer motion events delivered by
+ * the ResponseManager or from a sampling thread which polls the pointer
+ * position at a fixed rate.
+ *
+ * <p>
+ * Times are HiresClock nanoseconds. Positions are display coordinates whose
+ * origin is set by setOrigin(). There is a single producer of samples. The
+ * analysis methods should be called only after recording has been stopped.
+ *
+ * @version 0.1.0
+ * @see ResponseManager
+ * @see de.pxlab.pxl.display.TrackingTarget
+ */
+public class TrajectoryRecorder implements Runnable {
+	/** Identifies trajectory records in binary files. */
+	private static final int MAGIC = 0x5058544A;
+	private int mask;
+	private long[] time;
+	private int[] x;
+	private int[] y;
+	/** Number of samples which have been added since the last clear(). */
+	private volatile long head = 0L;
+	private int originX = 0;
+	private int originY = 0;
+	private Thread samplingThread = null;
+	private volatile boolean sampling = false;
+	private Component samplingComponent;
+	private long samplingInterval;
+
+	/**
+	 * Create a trajectory recorder.
+	 *
+	 * @param capacity
+	 *            the minimum number of samples the recorder can hold. This is
+	 *            rounded up to a power of 2.
+	 */
+	public TrajectoryRecorder(int capacity) {
+		int n = 1;
+		while (n < capacity)
+			n <<= 1;
+		mask = n - 1;
+		time = new long[n];
+		x = new int[n];
+		y = new int[n];
+	}
+
+	/** Get the number of samples the recorder can hold. */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Set the position which is subtracted from all sample positions.
+	 *
+	 * @param x0
+	 *            horizontal origin in component coordinates.
+	 * @param y0
+	 *            vertical origin in component coordinates.
+	 */
+	public void setOrigin(int x0, int y0) {
+		originX = x0;
+		originY = y0;
+	}
+
+	/** Remove all samples. */
+	public void clear() {
+		head = 0L;
+	}
+
+	/**
+	 * Add a sample. This may only be called by the single producer thread.
+	 *
+	 * @param t
+	 *            the sample time in nanoseconds.
+	 * @param px
+	 *            horizontal position in component coordinates.
+	 * @param py
+	 *            vertical position in component coordinates.
+	 */
+	public void add(long t, int px, int py) {
+		long h = head;
+		int i = (int) h & mask;
+		time[i] = t;
+		x[i] = px - originX;
+		y[i] = py - originY;
+		head = h + 1;
+	}
+
+	/** Get the number of samples available. */
+	public int size() {
+		long h = head;
+		return (h > mask) ? (mask + 1) : (int) h;
+	}
+
+	/** Get the number of samples which have been overwritten. */
+	public long getLost() {
+		long h = head;
+		return (h > mask) ? (h - mask - 1) : 0L;
+	}
+
+	private int index(int i) {
+		long h = head;
+		long n = (h > mask) ? (mask + 1) : h;
+		return (int) (h - n + i) & mask;
+	}
+
+	/** Get the time of sample i where sample 0 is the oldest one. */
+	public long getTime(int i) {
+		return time[index(i)];
+	}
+
+	/** Get the horizontal position of sample i. */
+	public int getX(int i) {
+		return x[index(i)];
+	}
+
+	/** Get the vertical position of sample i. */
+	public int getY(int i) {
+		return y[index(i)];
+	}
+
+	// ----------------------------------------------------------
+	// Sampling thread
+	// ----------------------------------------------------------
+	/**
+	 * Start a thread which samples the pointer position at a fixed rate. The
+	 * positions are converted to the coordinate system of the given component.
+	 * Pointer motion events should not be sent to the recorder while the
+	 * sampling thread is running.
+	 *
+	 * @param c
+	 *            the component whose coordinates are used.
+	 * @param interval
+	 *            the sampling interval in nanoseconds.
+	 */
+	public synchronized void startSampling(Component c, long interval) {
+		stopSampling();
+		samplingComponent = c;
+		samplingInterval = Math.max(interval, 100000L);
+		sampling = true;
+		samplingThread = new Thread(this, "TrajectoryRecorder");
+		samplingThread.setPriority(Thread.MAX_PRIORITY);
+		samplingThread.setDaemon(true);
+		samplingThread.start();
+	}
+
+	/** Stop the sampling thread and wait until it has finished. */
+	public synchronized void stopSampling() {
+		if (samplingThread == null)
+			return;
+		sampling = false;
+		try {
+			samplingThread.join(1000L);
+		} catch (InterruptedException iex) {
+		}
+		samplingThread = null;
+	}
+
+	/** This is the sampling thread's loop. */
+	public void run() {
+		Point p = new Point();
+		long next = HiresClock.getTimeNanos();
+		while (sampling) {
+			PointerInfo pi = MouseInfo.getPointerInfo();
+			long t = HiresClock.getTimeNanos();
+			if (pi != null) {
+				Point s = pi.getLocation();
+				p.setLocation(s.x, s.y);
+				if (samplingComponent.isShowing())
+					SwingUtilities.convertPointFromScreen(p, samplingComponent);
+				add(t, p.x, p.y);
+			}
+			next += samplingInterval;
+			long d = next - HiresClock.getTimeNanos();
+			if (d > 0L) {
+				try {
+					Thread.sleep(d / 1000000L, (int) (d % 1000000L));
+				} catch (InterruptedException iex) {
+					break;
+				}
+			} else {
+				next = HiresClock.getTimeNanos();
+			}
+		}
+	}
+
+	// ----------------------------------------------------------
+	// Analysis
+	// ----------------------------------------------------------
+	/**
+	 * Resample the trajectory at equidistant points in time using linear
+	 * interpolation.
+	 *
+	 * @param interval
+	 *            the sampling interval in nanoseconds.
+	 * @return an array of two arrays containing the horizontal and the
+	 *         vertical positions. The first position is the first sample.
+	 *         Both arrays are empty if there are no samples.
+	 */
+	public double[][] resample(long interval) {
+		int n = size();
+		if ((n == 0) || (interval <= 0L))
+			return new double[][] { new double[0], new double[0] };
+		long t0 = getTime(0);
+		int m = (int) ((getTime(n - 1) - t0) / interval) + 1;
+		double[] rx = new double[m];
+		double[] ry = new double[m];
+		int j = 0;
+		for (int k = 0; k < m; k++) {
+			long t = t0 + k * interval;
+			while ((j < n - 2) && (getTime(j + 1) <= t))
+				j++;
+			int a = index(j);
+			int b = index(Math.min(j + 1, n - 1));
+			long dt = time[b] - time[a];
+			double f = (dt > 0L) ? Math.min(1.0, (double) (t - time[a]) / dt)
+					: 0.0;
+			rx[k] = x[a] + f * (x[b] - x[a]);
+			ry[k] = y[a] + f * (y[b] - y[a]);
+		}
+		return new double[][] { rx, ry };
+	}
+
+	/** Get the time from the first to the last sample in nanoseconds. */
+	public long getDuration() {
+		int n = size();
+		return (n > 1) ? (getTime(n - 1) - getTime(0)) : 0L;
+	}
+
+	/** Get the length of the path through all samples. */
+	public double getPathLength() {
+		int n = size();
+		double s = 0.0;
+		for (int i = 1; i < n; i++) {
+			int a = index(i - 1);
+			int b = index(i);
+			s += Math.sqrt((double) (x[b] - x[a]) * (x[b] - x[a])
+					+ (double) (y[b] - y[a]) * (y[b] - y[a]));
+		}
+		return s;
+	}
+
+	/** Get the mean velocity in units per second. */
+	public double getMeanVelocity() {
+		long d = getDuration();
+		return (d > 0L) ? (getPathLength() * 1.0e9 / d) : 0.0;
+	}
+
+	/**
+	 * Get the velocity profile of the resampled trajectory.
+	 *
+	 * @param interval
+	 *            the resampling interval in nanoseconds.
+	 * @return the velocities in units per second between successive resampled
+	 *         points.
+	 */
+	public double[] getVelocityProfile(long interval) {
+		double[][] r = resample(interval);
+		int m = r[0].length;
+		double[] v = new double[Math.max(0, m - 1)];
+		double f = 1.0e9 / interval;
+		for (int k = 1; k < m; k++) {
+			double dx = r[0][k] - r[0][k - 1];
+			double dy = r[1][k] - r[1][k - 1];
+			v[k - 1] = Math.sqrt(dx * dx + dy * dy) * f;
+		}
+		return v;
+	}
+
+	/**
+	 * Get the peak velocity of the resampled trajectory.
+	 *
+	 * @param interval
+	 *            the resampling interval in nanoseconds.
+	 * @return the peak velocity in units per second.
+	 */
+	public double getPeakVelocity(long interval) {
+		double[] v = getVelocityProfile(interval);
+		double p = 0.0;
+		for (int i = 0; i < v.length; i++)
+			if (v[i] > p)
+				p = v[i];
+		return p;
+	}
+
+	/**
+	 * Get the mean absolute curvature of the resampled trajectory. This is
+	 * the total absolute change of direction divided by the length of the
+	 * path. Resampled points which do not move are skipped.
+	 *
+	 * @param interval
+	 *            the resampling interval in nanoseconds.
+	 * @return the mean absolute curvature in radians per unit of length.
+	 */
+	public double getMeanCurvature(long interval) {
+		double[][] r = resample(interval);
+		int m = r[0].length;
+		double turn = 0.0, length = 0.0;
+		double pdx = 0.0, pdy = 0.0;
+		boolean hasPrevious = false;
+		for (int k = 1; k < m; k++) {
+			double dx = r[0][k] - r[0][k - 1];
+			double dy = r[1][k] - r[1][k - 1];
+			double d = Math.sqrt(dx * dx + dy * dy);
+			if (d == 0.0)
+				continue;
+			if (hasPrevious)
+				turn += Math.abs(Math.atan2(pdx * dy - pdy * dx, pdx * dx + pdy
+						* dy));
+			length += d;
+			pdx = dx;
+			pdy = dy;
+			hasPrevious = true;
+		}
+		return (length > 0.0) ? (turn / length) : 0.0;
+	}
+
+	/**
+	 * Get the maximum distance of a sample from the straight line which
+	 * connects the first and the last sample.
+	 */
+	public double getMaxDeviation() {
+		int n = size();
+		if (n < 3)
+			return 0.0;
+		int a = index(0);
+		int b = index(n - 1);
+		double lx = x[b] - x[a];
+		double ly = y[b] - y[a];
+		double len = Math.sqrt(lx * lx + ly * ly);
+		double p = 0.0;
+		for (int i = 1; i < n - 1; i++) {
+			int k = index(i);
+			double dx = x[k] - x[a];
+			double dy = y[k] - y[a];
+			double d = (len > 0.0) ? Math.abs(lx * dy - ly * dx) / len : Math
+					.sqrt(dx * dx + dy * dy);
+			if (d > p)
+				p = d;
+		}
+		return p;
+	}
+
+	// ----------------------------------------------------------
+	// Binary storage
+	// ----------------------------------------------------------
+	/**
+	 * Write the samples as a single record. The record contains the trial
+	 * number, the number of samples and the time of the first sample in
+	 * nanoseconds. Every sample is stored as the time difference to its
+	 * predecessor in microseconds and its position as two 16 bit values.
+	 *
+	 * @param out
+	 *            the output stream.
+	 * @param trial
+	 *            a number which identifies the trial.
+	 */
+	public void write(DataOutputStream out, int trial) throws IOException {
+		int n = size();
+		out.writeInt(MAGIC);
+		out.writeInt(trial);
+		out.writeInt(n);
+		long t0 = (n > 0) ? getTime(0) : 0L;
+		out.writeLong(t0);
+		long tp = t0;
+		for (int i = 0; i < n; i++) {
+			int k = index(i);
+			long dt = (time[k] - tp) / 1000L;
+			out.writeInt((int) Math.min(dt, Integer.MAX_VALUE));
+			tp += dt * 1000L;
+			out.writeShort(x[k]);
+			out.writeShort(y[k]);
+		}
+	}
+
+	/**
+	 * Append the samples as a single record to a file.
+	 *
+	 * @param f
+	 *            the file.
+	 * @param trial
+	 *            a number which identifies the trial.
+	 */
+	public void append(File f, int trial) {
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(f.getPath(), true)));
+			write(out, trial);
+		} catch (IOException iox) {
+			new FileError("Can't write trajectory to file " + f.getPath());
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException iox) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a record which has been written by write() and replace the current
+	 * samples by its samples. Samples which do not fit are dropped from the
+	 * start of the record.
+	 *
+	 * @param in
+	 *            the input stream.
+	 * @return the trial number of the record.
+	 */
+	public int read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a trajectory record");
+		int trial = in.readInt();
+		int n = in.readInt();
+		long t = in.readLong();
+		int ox = originX, oy = originY;
+		originX = 0;
+		originY = 0;
+		clear();
+		for (int i = 0; i < n; i++) {
+			t += in.readInt() * 1000L;
+			int px = in.readShort();
+			add(t, px, in.readShort());
+		}
+		originX = ox;
+		originY = oy;
+		return trial;
+	}
+}
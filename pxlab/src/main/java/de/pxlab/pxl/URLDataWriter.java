@@ -25,10 +25,16 @@ import de.pxlab.util.StringExt;
  * the data file.
  * 
  * 2005/10/19 write data only if the data file is non-empty
+ * 
+ * 2026/10/19 HTTPRequestMethod 'STREAM' uploads data while the session runs
  */
 public class URLDataWriter extends CollectingDataWriter {
+	/** Maximum time to wait for the final upload in milliseconds. */
+	private static final long UPLOAD_TIMEOUT = 60000L;
 	protected URL dataURL;
 	protected String fileName;
+	/** The uploader if data are streamed to the URL. */
+	protected DataUploader uploader;
 
 	/**
 	 * Create an URL data writer. Note that the URL connection is not opened
@@ -47,6 +53,32 @@ public class URLDataWriter extends CollectingDataWriter {
 		fileName = fn;
 	}
 
+	/**
+	 * Deliver a data node to this DataWriter. If the HTTP request method is
+	 * 'STREAM' then the data are sent to the destination URL by a DataUploader
+	 * while the session runs. Otherwise they are collected and sent when data
+	 * collection is complete.
+	 * 
+	 * @param d
+	 *            the experimental design node which should be stored.
+	 */
+	public void store(ExDesignNode d) {
+		if ((uploader == null)
+				&& ExPar.HTTPRequestMethod.getString().equals("STREAM")) {
+			uploader = new DataUploader(dataURL, fileName,
+					ExPar.DataFileDestinationAddress.getString());
+		}
+		if (uploader != null) {
+			String dt = dataStringOf(d);
+			if (dt != null) {
+				uploader.append(dt + lineBreak);
+				hasData = true;
+			}
+		} else {
+			super.store(d);
+		}
+	}
+
 	/**
 	 * Signal this DataWriter object that data collection is complete.
 	 * 
@@ -54,7 +86,9 @@ public class URLDataWriter extends CollectingDataWriter {
 	 *            the final status of the data source.
 	 */
 	public void dataComplete(int status) {
-		if (hasData) {
+		if (uploader != null) {
+			uploader.finish(UPLOAD_TIMEOUT);
+		} else if (hasData) {
 			String email = ExPar.DataFileDestinationAddress.getString();
 			String ds = "DataFileName=" + fileName;
 			if (StringExt.nonEmpty(email)) {
@@ -39,6 +39,8 @@ public class VoiceKeyElement extends DisplayElement {
 							+ srt + " Hz, changed to 11025 Hz.");
 			audioFormat = new AudioFormat(11025, 16, 1, true, true);
 		}
+		VoiceKeyRecorder.setRecordingBufferSize(ExPar.VoiceKeyRecordingBufferSize
+				.getInt());
 		recorder = new VoiceKeyRecorder(ms * 1000000L, volume, threshold, fn,
 				audioFormat);
 		recorder.setStopImmediately(stopImmediately);
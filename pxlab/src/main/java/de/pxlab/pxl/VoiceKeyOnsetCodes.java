@@ -0,0 +1,25 @@
+package de.pxlab.pxl;
+
+/**
+ * Codes for selecting the voice key onset detection method.
+ * 
+ * @version 0.1.0
+ * @see ExPar#VoiceKeyOnsetMode
+ * @see de.pxlab.pxl.sound.VoiceKeyRecorder
+ */
+/*
+ * 
+ * 2026/10/19
+ */
+public interface VoiceKeyOnsetCodes {
+	/**
+	 * The onset is the first sample whose absolute value exceeds the voice
+	 * key threshold.
+	 */
+	public static final int PEAK = 0;
+	/**
+	 * The onset is detected from the root mean square level within a sliding
+	 * window with hysteresis and an optional noise floor estimation.
+	 */
+	public static final int RMS = 1;
+}
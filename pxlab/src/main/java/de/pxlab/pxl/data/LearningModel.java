@@ -45,6 +45,33 @@ public class LearningModel extends DataDisplay implements StatCodes {
 	 */
 	public ExPar FixedParameters = new ExPar(PROPORT, new ExParValue(0.0),
 			"Fixed parameter values");
+	/**
+	 * Number of parametric bootstrap replications for confidence intervals. No
+	 * bootstrap is run if this is 0.
+	 */
+	public ExPar BootstrapReplications = new ExPar(INTEGER, new ExParValue(0),
+			"Number of bootstrap replications");
+	/**
+	 * Random number seed of the bootstrap. Identical seeds result in identical
+	 * confidence intervals.
+	 */
+	public ExPar BootstrapSeed = new ExPar(INTEGER, new ExParValue(0),
+			"Bootstrap random number seed");
+	/** Confidence level of the bootstrap confidence intervals. */
+	public ExPar ConfidenceLevel = new ExPar(PROPORT, new ExParValue(0.95),
+			"Confidence level");
+	/**
+	 * Contains the lower and upper limits of the bootstrap percentile confidence
+	 * interval of the learning rate.
+	 */
+	public ExPar PercentileIntervals = new ExPar(RTDATA, new ExParValue(0),
+			"Bootstrap percentile confidence intervals");
+	/**
+	 * Contains the lower and upper limits of the bootstrap BCa confidence
+	 * interval of the learning rate.
+	 */
+	public ExPar BCaIntervals = new ExPar(RTDATA, new ExParValue(0),
+			"Bootstrap BCa confidence intervals");
 	/**
 	 * Code for 'yes' responses.
 	 * 
@@ -75,7 +102,11 @@ public class LearningModel extends DataDisplay implements StatCodes {
 		LearningModelEngine engine = new LearningModelEngine(fdt,
 				ModelType.getInt(), MinimizationFunction.getInt(),
 				Header.getString(), PrintLevel.getInt());
+		engine.setBootstrap(BootstrapReplications.getInt(), BootstrapSeed
+				.getInt(), ConfidenceLevel.getDouble());
 		engine.computeStatistics();
+		PercentileIntervals.set(engine.getPercentileInterval());
+		BCaIntervals.set(engine.getBCaInterval());
 		storePlotData(engine);
 		showResults(engine.getResult());
 		return 0;
@@ -15,12 +15,22 @@ import de.pxlab.stat.*;
  * Only trials which satisfy the Include condition and do not satisfy the
  * Exclude condition are entered into the data table.
  * 
+ * <p>
+ * If the parameter Accumulate is set then the data of every call are added
+ * to an online accumulator which is kept by this object. The results then
+ * describe all data processed so far without keeping them. This may be used
+ * for running statistics in block or session data processing lists.
+ * Quantiles and the average deviation are estimates in this case.
+ * 
  * @author H. Irtel
- * @version 0.1.0
+ * @version 0.1.1
+ * @see de.pxlab.stat.OnlineStatistics
  */
 /*
  * 
  * 2005/12/08
+ * 
+ * 2026/10/19 accumulate statistics across calls, read typed column tables
  */
 public class Statistics extends DataDisplay implements StatCodes {
 	/** Defines the statistics which should be computed. */
@@ -35,6 +45,12 @@ public class Statistics extends DataDisplay implements StatCodes {
 	 */
 	public ExPar ResultFormat = new ExPar(STRING, new ExParValue(""),
 			"Result format");
+	/**
+	 * Flag to accumulate the data of all calls of this object in an online
+	 * accumulator. The results then describe all data processed so far.
+	 */
+	public ExPar Accumulate = new ExPar(FLAG, new ExParValue(0),
+			"Flag to accumulate statistics across calls");
 	public ExPar TotalN = new ExPar(RTDATA, new ExParValue(0),
 			"Total number of entries in the input data node");
 	public ExPar IncludedN = new ExPar(RTDATA, new ExParValue(0),
@@ -71,11 +87,18 @@ public class Statistics extends DataDisplay implements StatCodes {
 	public ExPar AverageDeviation = new ExPar(RTDATA, new ExParValue(0),
 			"Average Deviation");
 
+	private OnlineStatistics accumulator;
+
 	public Statistics() {
 		setTitleAndTopic("Descriptive statistics", Topics.DATA);
 		Header.set("Descriptive Statistics");
 	}
 
+	public void createInstance() {
+		super.createInstance();
+		accumulator = null;
+	}
+
 	protected int processDataTable(ExDesign exDesign, String[] p,
 			ExParValueTable grandTable) {
 		ExParValueTable table = null;
@@ -84,9 +107,46 @@ public class Statistics extends DataDisplay implements StatCodes {
 		} else {
 			table = grandTable;
 		}
-		String clm = table.getColumnNames()[table.getColumns() - 1];
-		StatisticsEngine s = new StatisticsEngine(table, Stats.getInt(),
-				Header.getString(), PrintLevel.getInt());
+		int k = table.getColumns() - 1;
+		return describe(table.getColumnNames()[k],
+				(table.getRows() > 0) ? table.doubleColumn(k) : new double[0]);
+	}
+
+	/**
+	 * Only the last column of the data table is needed. It is read directly
+	 * from the typed column table.
+	 */
+	protected int processColumnTable(ExDesign exDesign, String[] p,
+			ColumnDataTable table) {
+		int k = (p != null && p.length != 0) ? table
+				.columnIndex(p[p.length - 1]) : table.getColumns() - 1;
+		return describe(table.getColumnNames()[k], table.doubleColumn(k));
+	}
+
+	/**
+	 * Compute and show the descriptive statistics of a data array.
+	 * 
+	 * @param clm
+	 *            the name of the variable.
+	 * @param data
+	 *            the data array.
+	 */
+	private int describe(String clm, double[] data) {
+		StatisticsEngine s;
+		if (Accumulate.getFlag()) {
+			OnlineStatistics a = new OnlineStatistics();
+			a.add(data);
+			if (accumulator == null) {
+				accumulator = a;
+			} else {
+				accumulator.merge(a);
+			}
+			s = new StatisticsEngine(accumulator, clm, Stats.getInt(), Header
+					.getString(), PrintLevel.getInt());
+		} else {
+			s = new StatisticsEngine(data, clm, Stats.getInt(), Header
+					.getString(), PrintLevel.getInt());
+		}
 		s.computeStatistics();
 		TotalN.set(total_N);
 		IncludedN.set(included_N);
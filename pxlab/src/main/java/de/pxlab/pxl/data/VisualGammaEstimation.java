@@ -104,6 +104,8 @@ import de.pxlab.util.*;
 /*
  * 
  * 2005/12/08
+ * 
+ * 2026/10/19 read typed column tables
  */
 public class VisualGammaEstimation extends DataDisplay {
 	/** Holds the result for the gamma value. */
@@ -127,8 +129,38 @@ public class VisualGammaEstimation extends DataDisplay {
 	protected int processDataTable(ExDesign exDesign, String[] p,
 			ExParValueTable table) {
 		if (p.length >= 2) {
-			double[] x = table.doubleColumn(p[0]);
-			double[] y = table.doubleColumn(p[1]);
+			String channel = (p.length >= 3) ? table.entry(0, p[2])
+					.getString() : null;
+			return estimate(table.doubleColumn(p[0]), table.doubleColumn(p[1]),
+					channel);
+		}
+		return estimate(null, null, null);
+	}
+
+	protected int processColumnTable(ExDesign exDesign, String[] p,
+			ColumnDataTable table) {
+		if (p.length >= 2) {
+			String channel = (p.length >= 3) ? table.stringEntry(0, table
+					.columnIndex(p[2])) : null;
+			return estimate(table.doubleColumn(p[0]), table.doubleColumn(p[1]),
+					channel);
+		}
+		return estimate(null, null, null);
+	}
+
+	/**
+	 * Estimate the gamma parameters and show the results.
+	 * 
+	 * @param x
+	 *            the reference values or null if the parameter list is too
+	 *            short.
+	 * @param y
+	 *            the adjusted values.
+	 * @param channel
+	 *            the name of the color channel or null if it is not known.
+	 */
+	private int estimate(double[] x, double[] y, String channel) {
+		if (x != null) {
 			if (x.length == y.length) {
 				VisualGammaEstimator est = new VisualGammaEstimator();
 				double[] par = { 2.2, 1.0 };
@@ -153,9 +185,9 @@ public class VisualGammaEstimation extends DataDisplay {
 			StringBuffer b = new StringBuffer(200);
 			String nl = System.getProperty("line.separator");
 			b.append(nl + "<font face=\"Arial,Helvetica\">");
-			if (p.length >= 3) {
-				b.append(nl + "<h3>Gamma Estimates for Channel "
-						+ table.entry(0, p[2]).getString() + "</h3>");
+			if (channel != null) {
+				b.append(nl + "<h3>Gamma Estimates for Channel " + channel
+						+ "</h3>");
 			} else {
 				b.append(nl + "<h3>Gamma Estimates</h3>");
 			}
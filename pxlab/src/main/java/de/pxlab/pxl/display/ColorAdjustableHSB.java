@@ -91,6 +91,11 @@ abstract public class ColorAdjustableHSB extends Display implements
 	private Random rnd = new Random();
 	private int[] ax;
 
+	public ColorAdjustableHSB() {
+		// Pointer motion only changes the colors of some elements
+		setIncrementalRepaint(true);
+	}
+
 	protected void computeColors() {
 		// System.out.println("ColorAdjustableHSB.computeColors()");
 		// Create parameters for this display
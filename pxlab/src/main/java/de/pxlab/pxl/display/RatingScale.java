@@ -186,6 +186,7 @@ public class RatingScale extends TextParagraph {
 		Text.set("Do you feel more positive or \nmore negative about this?");
 		Timer.set(new ExParValueConstant(
 				"de.pxlab.pxl.TimerCodes.MOUSE_TRACKING_KEY_TIMER"));
+		setIncrementalRepaint(true);
 	}
 	protected RatingScaleElement ratingScale;
 	protected ScreenButtonElement screenButton;
@@ -233,6 +234,7 @@ public class RatingScale extends TextParagraph {
 
 	private boolean updatePointer(int x, int y) {
 		ratingScale.setPointer(x, y);
+		ratingScale.setDirty();
 		if (ratingScale.hasValidPointer()) {
 			double v = ratingScale.getPointerValue();
 			// System.out.println("Pointer position = " + v);
@@ -39,9 +39,18 @@ import de.pxlab.pxl.*;
  * which is shown when the response event happens. The names of the capture
  * files are generated automatically. The default file format is PNG.
  * 
+ * <p>
+ * If the display device is an OffscreenDisplayDevice then the device's current
+ * image is written. This allows screen captures in batch runs without a
+ * screen.
+ * 
  * @author H. Irtel
  * @version 0.1.0
  */
+/*
+ * 
+ * 2026/10/19 capture OffscreenDisplayDevice images
+ */
 public class ScreenCapture extends Display {
 	/** Image file name root. */
 	public ExPar FileNameRoot = new ExPar(STRING, new ExParValue("PXLab"),
@@ -105,6 +114,13 @@ public class ScreenCapture extends Display {
 				}
 			} catch (AWTException ax) {
 			}
+		} else if (displayDevice instanceof OffscreenDisplayDevice) {
+			try {
+				javax.imageio.ImageIO.write(
+						((OffscreenDisplayDevice) displayDevice).getImage(),
+						fileType, f);
+			} catch (IOException iox) {
+			}
 		}
 		return (true);
 	}
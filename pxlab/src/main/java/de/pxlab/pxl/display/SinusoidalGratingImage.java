@@ -29,6 +29,8 @@ import de.pxlab.pxl.*;
  * 06/27/02 Fixed bug with reference point.
  * 
  * 2005/02/23 use BufferedImage now
+ * 
+ * 2026/10/19 use pre-rendered images
  */
 public class SinusoidalGratingImage extends FrameAnimation {
 	public ExPar AColor = new ExPar(COLOR, new ExParValue(new PxlColor(
@@ -78,6 +80,17 @@ public class SinusoidalGratingImage extends FrameAnimation {
 		// System.out.println("width = " + pictWidth);
 		// System.out.println("    x = " + xLoc);
 		// System.out.println("    y = " + yLoc);
+		BitMapElement p = (BitMapElement) getDisplayElement(pictElement);
+		p.setLocation(xLoc, yLoc);
+		p.setClipRect(xLoc, yLoc, pictWidth, pictHeight);
+		String key = null;
+		if (PrerenderedImages.isActive()) {
+			key = new PrerenderedImages.Key("SinusoidalGratingImage").add(
+					AColor.getPxlColor()).add(BColor.getPxlColor()).add(
+					pictHalfWidth).add(pictHeight).toString();
+			if (p.setPrerenderedImage(key))
+				return;
+		}
 		PxlColor[] ramp = AColor.getPxlColor().sinusoidalRampTo(
 				BColor.getPxlColor(), pictHalfWidth);
 		// System.out.println("w=" + (4*pictHalfWidth-1) + ", h=" + pictHeight);
@@ -102,10 +115,7 @@ public class SinusoidalGratingImage extends FrameAnimation {
 						- x, pictHeight - 1);
 		}
 		g.dispose();
-		BitMapElement p = (BitMapElement) getDisplayElement(pictElement);
-		p.setImage(imageBuffer);
-		p.setLocation(xLoc, yLoc);
-		p.setClipRect(xLoc, yLoc, pictWidth, pictHeight);
+		p.setImage(imageBuffer, key, "SinusoidalGratingImage");
 	}
 
 	/**
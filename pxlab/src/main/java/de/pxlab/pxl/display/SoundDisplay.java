@@ -20,6 +20,8 @@ import de.pxlab.util.*;
 /*
  * 
  * 2005/03/04
+ * 
+ * 2026/10/19 added SoundOnsetTime
  */
 abstract public class SoundDisplay extends Display {
 	/**
@@ -43,6 +45,15 @@ abstract public class SoundDisplay extends Display {
 			"Sound file name");
 	/** The volume level of the sound device. */
 	public ExPar Volume = new ExPar(PROPORT, new ExParValue(1.0), "Volume");
+	/**
+	 * Contains the time when the first sample of the sound has been played.
+	 * The time is given in the same units as TimeControl such that the
+	 * difference of both is the audio output latency. This parameter is set
+	 * when the sound's timing group has been finished and is 0 if the sound
+	 * has not been played.
+	 */
+	public ExPar SoundOnsetTime = new ExPar(RTDATA, new ExParValue(0),
+			"Time of the first sound sample");
 
 	/**
 	 * Always return false to indicate that this object does not use PXLab's
@@ -101,6 +112,22 @@ abstract public class SoundDisplay extends Display {
 		return p;
 	}
 
+	/**
+	 * Get the time when the first sample of the sound has been played.
+	 * 
+	 * @return the HiresClock time in nanoseconds or 0 if the sound has not
+	 *         been played.
+	 */
+	protected long getSoundStartTime() {
+		return 0L;
+	}
+
+	protected void timingGroupFinished(int group) {
+		super.timingGroupFinished(group);
+		long t = getSoundStartTime();
+		SoundOnsetTime.set((t != 0L) ? HiresClock.ms(t) : 0.0);
+	}
+
 	abstract public AudioFormat getAudioFormat();
 
 	abstract public ShortBuffer getAudioDataAsShort();
@@ -52,6 +52,10 @@ public class SoundFile extends SoundDisplay {
 								.getResponseManager()));
 	}
 
+	protected long getSoundStartTime() {
+		return soundElement.getStartTime();
+	}
+
 	public AudioFormat getAudioFormat() {
 		return soundElement.getAudioFormat();
 	}
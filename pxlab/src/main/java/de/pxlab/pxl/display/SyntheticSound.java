@@ -196,6 +196,10 @@ public class SyntheticSound extends SoundDisplay {
 								.getResponseManager()));
 	}
 
+	protected long getSoundStartTime() {
+		return soundElement.getStartTime();
+	}
+
 	public AudioFormat getAudioFormat() {
 		return soundElement.getAudioFormat();
 	}
@@ -1,8 +1,10 @@
 package de.pxlab.pxl.display;
 
 import java.awt.*;
+import java.io.File;
 import java.util.concurrent.DelayQueue;
 import de.pxlab.pxl.*;
+import de.pxlab.util.StringExt;
 
 /**
  * A target for tracking tasks. Target motion is a sum of sinusoidal components
@@ -16,6 +18,8 @@ import de.pxlab.pxl.*;
 /*
  * 
  * 2007/04/12 added delayed feedback
+ * 
+ * 2026/10/19 record track data in arrays and the full pointer trajectory
  */
 public class TrackingTarget extends FrameAnimation {
 	/** Tracking target dot color. */
@@ -83,6 +87,35 @@ public class TrackingTarget extends FrameAnimation {
 	 */
 	public ExPar TrackData = new ExPar(RTDATA, new ExParValue(0),
 			"Track Data Points");
+	/**
+	 * Pointer trajectory sampling interval in milliseconds. If this is 0 then
+	 * every pointer motion event is recorded. If it is positive then the
+	 * pointer position is sampled by a separate thread at this interval.
+	 */
+	public ExPar TrajectorySamplingInterval = new ExPar(DURATION,
+			new ExParValue(0), "Pointer trajectory sampling interval");
+	/**
+	 * Name of a binary file where the pointer trajectory of every trial is
+	 * appended. The file is put into the trial data directory. No file is
+	 * written if this is empty.
+	 */
+	public ExPar TrajectoryFile = new ExPar(STRING, new ExParValue(""),
+			"Pointer trajectory file name");
+	/** Length of the pointer trajectory path. */
+	public ExPar PathLength = new ExPar(RTDATA, new ExParValue(0),
+			"Pointer Path Length");
+	/**
+	 * Peak velocity of the pointer in pixels per second. The trajectory is
+	 * resampled at the frame rate for computing velocities.
+	 */
+	public ExPar PeakVelocity = new ExPar(RTDATA, new ExParValue(0),
+			"Pointer Peak Velocity");
+	/**
+	 * Mean absolute curvature of the pointer trajectory in radians per pixel.
+	 * The trajectory is resampled at the frame rate.
+	 */
+	public ExPar MeanCurvature = new ExPar(RTDATA, new ExParValue(0),
+			"Pointer Mean Curvature");
 
 	public TrackingTarget() {
 		setTitleAndTopic("Tracking Target", APPARENT_MOTION_DSP);
@@ -120,7 +153,13 @@ public class TrackingTarget extends FrameAnimation {
 	protected double sumOfSquaredError;
 	protected int nPoints;
 	protected boolean persuit;
-	protected StringBuffer trackData;
+	/**
+	 * Track data of every frame: target position and pointer position for
+	 * persuit tracking and target deviation for compensatory tracking.
+	 */
+	protected int[] trackData = new int[1024];
+	protected TrajectoryRecorder trajectory = new TrajectoryRecorder(1 << 15);
+	protected ResponseManager trajectorySource;
 	protected String nl = System.getProperty("line.separator");
 	protected int shiftX, shiftY;
 	protected long feedbackDelay;
@@ -156,7 +195,9 @@ public class TrackingTarget extends FrameAnimation {
 		}
 		sumOfSquaredError = 0.0;
 		nPoints = 0;
-		trackData = new StringBuffer(10000);
+		int n = 4 * (Duration.getInt() / Math.max(1, FrameDuration.getInt()) + 2);
+		if (trackData.length < n)
+			trackData = new int[n];
 		feedbackDelay = FeedbackDelay.getInt() * 1000000L;
 		if (feedbackDelay > 0L) {
 			if (delayQueue == null)
@@ -167,6 +208,8 @@ public class TrackingTarget extends FrameAnimation {
 
 	public void computeAnimationFrame(int frame) {
 		// long t1 = System.currentTimeMillis();
+		if (frame == 0)
+			startTrajectory();
 		double t = frame * timeScale;
 		int pn;
 		pn = (horP != null) ? horP.length : 0;
@@ -220,18 +263,20 @@ public class TrackingTarget extends FrameAnimation {
 			trackingMark.setLocation(trackingMarkX, trackingMarkY);
 			dx = trackingMarkX - px;
 			dy = trackingMarkY - py;
-			trackData.append(nl + "\t" + String.valueOf(px) + "\t"
-					+ String.valueOf(py) + "\t"
-					+ String.valueOf(pointerCurrentX) + "\t"
-					+ String.valueOf(pointerCurrentY));
+			int k = ensureTrackData(4);
+			trackData[k] = px;
+			trackData[k + 1] = py;
+			trackData[k + 2] = pointerCurrentX;
+			trackData[k + 3] = pointerCurrentY;
 		} else {
 			// compensatory tracking display
 			dx = px - pointerCurrentX;
 			dy = py - pointerCurrentY;
 			preTarget.setLocation(target.getLocation());
 			target.setLocation(dx + shiftX, dy + shiftY);
-			trackData.append(nl + "\t" + String.valueOf(dx) + "\t"
-					+ String.valueOf(dy));
+			int k = ensureTrackData(2);
+			trackData[k] = dx;
+			trackData[k + 1] = dy;
 		}
 		sumOfSquaredError += dx * dx + dy * dy;
 		nPoints++;
@@ -240,9 +285,67 @@ public class TrackingTarget extends FrameAnimation {
 		// + (t2-t1));
 	}
 
+	/**
+	 * Get the index of the next free track data entry for the current frame.
+	 * The array is enlarged if the animation runs longer than expected.
+	 */
+	private int ensureTrackData(int m) {
+		int k = nPoints * m;
+		if (k + m > trackData.length) {
+			int[] a = new int[2 * trackData.length + m];
+			System.arraycopy(trackData, 0, a, 0, trackData.length);
+			trackData = a;
+		}
+		return k;
+	}
+
+	/** Start recording the pointer trajectory. */
+	protected void startTrajectory() {
+		stopTrajectory();
+		trajectory.clear();
+		trajectory.setOrigin(width / 2, height / 2);
+		if (presentationManager == null)
+			return;
+		int si = TrajectorySamplingInterval.getInt();
+		if (si > 0) {
+			trajectory.startSampling(presentationManager.getDisplayDevice()
+					.getComponent(), si * 1000000L);
+		} else {
+			trajectorySource = presentationManager.getResponseManager();
+			trajectorySource.setTrajectoryRecorder(trajectory);
+		}
+	}
+
+	/** Stop recording the pointer trajectory. */
+	protected void stopTrajectory() {
+		if (trajectorySource != null) {
+			trajectorySource.setTrajectoryRecorder(null);
+			trajectorySource = null;
+		}
+		trajectory.stopSampling();
+	}
+
 	protected void timingGroupFinished(int g) {
+		stopTrajectory();
 		RMSError.set(Math.sqrt(sumOfSquaredError / nPoints));
-		TrackData.set(trackData.toString());
+		int m = persuit ? 4 : 2;
+		StringBuffer b = new StringBuffer(nPoints * m * 5);
+		for (int i = 0; i < nPoints * m; i++) {
+			if ((i % m) == 0)
+				b.append(nl);
+			b.append('\t').append(trackData[i]);
+		}
+		TrackData.set(b.toString());
+		long ri = FrameDuration.getInt() * 1000000L;
+		PathLength.set(trajectory.getPathLength());
+		PeakVelocity.set(trajectory.getPeakVelocity(ri));
+		MeanCurvature.set(trajectory.getMeanCurvature(ri));
+		String fn = TrajectoryFile.getString();
+		if (StringExt.nonEmpty(fn)) {
+			trajectory.append(new File(DataDestination
+					.destinationDirectory(ExPar.TrialDataDirectory), fn),
+					ExPar.TrialCounter.getInt());
+		}
 		// TrackData.set("tracking data");
 		// System.out.println("TrackingTarget.timingGroupFinished(): " +
 		// TrackData.getString());
@@ -20,6 +20,12 @@ import de.pxlab.util.StringExt;
  * signal passing threshold.
  * 
  * <li>The Threshold parameter defines the threshold for the response switch.
+ * By default it is compared to the absolute value of every sample. If the
+ * global parameter VoiceKeyOnsetMode is VoiceKeyOnsetCodes.RMS then it is
+ * compared to the root mean square level within a sliding window. The window
+ * and the hysteresis of the switch are defined by the global parameters
+ * VoiceKeyWindow, VoiceKeyHysteresis, VoiceKeyMinimumDuration,
+ * VoiceKeyNoiseWindow and VoiceKeyNoiseFactor.
  * 
  * <li>This object always requires a TimerCodes.END_OF_MEDIA_TIMER.
  * 
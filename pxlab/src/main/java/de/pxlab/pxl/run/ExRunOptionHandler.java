@@ -56,10 +56,12 @@ import de.pxlab.pxl.*;
  * 2005/12/16 option -t, -Z
  * 
  * 2008/03/14 options -K -k
+ * 
+ * 2026/10/19 option -C for design snapshots
  */
 public class ExRunOptionHandler extends RuntimeOptionHandler implements
 		CommandLineOptionHandler {
-	private String options = "Hh:i:jJk:Ks:g:rxzw:d:f:p:t:D:E:PVR:S:TML:Z?";
+	private String options = "CHh:i:jJk:Ks:g:rxzw:d:f:p:t:D:E:PVR:S:TML:Z?";
 	private String[] args = null;
 	private String ctrlName = null;
 	private String commandLineAssignments = null;
@@ -215,6 +217,9 @@ public class ExRunOptionHandler extends RuntimeOptionHandler implements
 		case 'T':
 			Base.setPrintDesignFile(true);
 			break;
+		case 'C':
+			Base.setDesignSnapshots(true);
+			break;
 		case 'E':
 			Base.setEncoding(arg);
 			break;
@@ -335,6 +340,9 @@ public class ExRunOptionHandler extends RuntimeOptionHandler implements
 			System.out
 					.println("   -E enc   use input file encoding 'enc' (default="
 							+ System.getProperty("file.encoding") + ")");
+		if (options.indexOf('C') >= 0)
+			System.out
+					.println("   -C       load and save precompiled design snapshots");
 		if (options.indexOf('k') >= 0)
 			System.out
 					.println("   -k file  pretty print design file to a file");
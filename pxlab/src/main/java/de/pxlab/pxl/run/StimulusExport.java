@@ -0,0 +1,238 @@
+package de.pxlab.pxl.run;
+
+import java.io.File;
+
+import de.pxlab.util.*;
+import de.pxlab.pxl.*;
+
+/**
+ * Pre-render the stimulus images of a design. This program runs all trials of
+ * a design on an OffscreenDisplayDevice without waiting for timers or
+ * responses. Parameters are pushed exactly as in an experimental run. Every
+ * display object which computes an expensive image sends its image to the
+ * export directory. The images are written as PNG files together with a
+ * manifest file. Setting the experimental parameter PrerenderedImageDirectory
+ * to the export directory makes an experimental run load these images instead
+ * of computing them.
+ *
+ * <p>
+ * Trials are run one after the other since experimental parameters are
+ * global. PNG encoding and file writing are done by a pool of worker threads
+ * while the design continues.
+ *
+ * <p>
+ * Command line options are:
+ *
+ * <dl>
+ *
+ * <dt>-f file
+ * <dd>the design file.
+ *
+ * <dt>-o directory
+ * <dd>the export directory. If this option is missing then the directory
+ * 'prerendered' in the current working directory is used. Existing manifest
+ * entries are kept.
+ *
+ * <dt>-n threads
+ * <dd>the number of worker threads which encode and write images. The default
+ * is the number of available processors.
+ *
+ * <dt>-c directory
+ * <dd>also write the image of every timing group which has been shown to the
+ * given directory.
+ *
+ * <dt>-s code
+ * <dd>the subject code. The default is 'pxlab'.
+ *
+ * <dt>-g group
+ * <dd>the subject group.
+ *
+ * <dt>-W width
+ * <dd>the virtual screen width in pixels.
+ *
+ * <dt>-H height
+ * <dd>the virtual screen height in pixels.
+ *
+ * <dt>-D name
+ * <dd>activate debugging option 'name'.
+ *
+ * </dl>
+ *
+ * @version 0.1.0
+ * @see de.pxlab.pxl.PrerenderedImages
+ * @see de.pxlab.pxl.OffscreenDisplayDevice
+ */
+/*
+ *
+ * 2026/10/19
+ */
+public class StimulusExport implements CommandLineOptionHandler {
+	private String options = "f:o:n:c:s:g:W:H:i:D:V?";
+	private String designFileName = null;
+	private String exportDirectory = "prerendered";
+	private String captureDirectory = null;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int width = 0;
+	private int height = 0;
+	private StringBuffer assignments = new StringBuffer();
+
+	/**
+	 * Export the pre-rendered images of the design given by the command line.
+	 *
+	 * @param args
+	 *            the command line arguments.
+	 */
+	public StimulusExport(String[] args) {
+		Base.setApplication();
+		if ((args != null) && (args.length > 0)) {
+			CommandLineParser clp = new CommandLineParser(args, options, this);
+			if (clp.hasMoreArgs())
+				designFileName = clp.getArg();
+		}
+		if (designFileName == null) {
+			System.out.println("StimulusExport: No design file.");
+			showOptions();
+			System.exit(1);
+		}
+		if (assignments.toString().indexOf("SubjectCode=") < 0)
+			assignments.append("SubjectCode=\"" + Base.demoSubjectCode
+					+ "\";\n");
+		ExDesign exDesign = null;
+		try {
+			exDesign = new ExDesign(designFileName, assignments.toString());
+		} catch (Exception ex) {
+			System.out.println("Error when parsing file " + designFileName);
+			System.out.println(ex.getMessage());
+			System.exit(3);
+		}
+		OffscreenDisplayDevice device = ((width > 0) && (height > 0)) ? new OffscreenDisplayDevice(
+				width, height)
+				: new OffscreenDisplayDevice();
+		if (captureDirectory != null) {
+			device.setCaptureDirectory(new File(captureDirectory));
+		} else {
+			device.setCaptureEnabled(false);
+		}
+		PresentationManager presentationManager = new PresentationManager(
+				null, device);
+		File dir = new File(exportDirectory);
+		PrerenderedImages.startExport(dir, threads);
+		long t = System.currentTimeMillis();
+		boolean stopped = exDesign.runBatchSession(presentationManager,
+				new NoDataProcessor());
+		int n = PrerenderedImages.finishExport();
+		t = System.currentTimeMillis() - t;
+		presentationManager.dispose();
+		if (stopped)
+			System.out.println("StimulusExport: Design has been stopped.");
+		if (n < 0) {
+			System.out.println("StimulusExport: Export to " + dir.getPath()
+					+ " failed.");
+			System.exit(3);
+		}
+		System.out.println("StimulusExport: " + n + " images exported to "
+				+ dir.getPath() + " in " + t + " ms.");
+		System.exit(0);
+	}
+
+	/** A data processor which ignores all data. */
+	private static class NoDataProcessor implements ExDesignDataProcessor {
+		public void setDataDestination(DataDestination ds) {
+		}
+
+		public void processData(DisplayList displayList, ExDesignNode data) {
+		}
+	}
+
+	// --------------------------------------------------------------------
+	// Implementation of CommandLineOptionHandler
+	// --------------------------------------------------------------------
+	/** This method is called for every command line option found. */
+	public void commandLineOption(char c, String arg) {
+		switch (c) {
+		case 'f':
+			designFileName = arg;
+			break;
+		case 'o':
+			exportDirectory = arg;
+			break;
+		case 'n':
+			threads = Integer.parseInt(arg);
+			break;
+		case 'c':
+			captureDirectory = arg;
+			break;
+		case 's':
+			assignments.append("SubjectCode=\"" + arg + "\";\n");
+			break;
+		case 'g':
+			assignments.append("SubjectGroup=\"" + arg + "\";\n");
+			break;
+		case 'W':
+			width = Integer.parseInt(arg);
+			break;
+		case 'H':
+			height = Integer.parseInt(arg);
+			break;
+		case 'i':
+			GlobalAssignments.add(arg);
+			break;
+		case 'D':
+			Debug.add(arg);
+			break;
+		case 'V':
+			showVersion();
+			System.exit(1);
+			break;
+		case '?':
+			showOptions();
+			System.exit(1);
+			break;
+		}
+	}
+
+	/**
+	 * This method is called whenever an error is found in the command line
+	 * options.
+	 */
+	public void commandLineError(int e, String s) {
+		System.out.println("Command line error: " + s);
+		showOptions();
+	}
+
+	/** This shows the PXLab version and build number. */
+	private void showVersion() {
+		System.out.println("PXLab Version " + Version.instance());
+	}
+
+	/** This shows the available command line options. */
+	private void showOptions() {
+		System.out.println("Usage: java " + this.getClass().getName()
+				+ " [options] [file]");
+		System.out.println("Options are:");
+		System.out.println("   -f file  use design file \'file\'");
+		System.out
+				.println("   -o dir   write images to directory \'dir\'");
+		System.out
+				.println("   -n num   use \'num\' threads for writing images");
+		System.out
+				.println("   -c dir   write images of all timing groups to \'dir\'");
+		System.out.println("   -s code  use subject code \'code\'");
+		System.out.println("   -g group use subject group \'group\'");
+		System.out.println("   -W num   virtual screen width");
+		System.out.println("   -H num   virtual screen height");
+		System.out
+				.println("   -i file  add file \'file\' to list of initialization files");
+		System.out
+				.println("   -D code  set debugging option \'code\' (use \'?\' to get list)");
+		System.out.println("   -V       show version number only");
+		System.out.println("   -?       show this help text");
+	}
+
+	// --------------------------------------------------------------------
+	// End of CommandLineOptionHandler implementation
+	// --------------------------------------------------------------------
+	public static void main(String[] args) {
+		new StimulusExport(args);
+	}
+}
@@ -0,0 +1,89 @@
+package de.pxlab.pxl.sound;
+
+/**
+ * A bounded buffer for recorded audio data. The buffer keeps the most recent
+ * bytes written to it. All storage is allocated when the buffer is created
+ * such that the recording thread never allocates memory.
+ *
+ * @version 0.1.0
+ * @see VoiceKeyRecorder
+ */
+public class AudioRingBuffer {
+	private byte[] data;
+	private int frameSize;
+	/** Total number of bytes written. */
+	private long written;
+
+	/**
+	 * Create a ring buffer.
+	 *
+	 * @param capacity
+	 *            the maximum number of bytes stored. This is rounded down to a
+	 *            multiple of the frame size.
+	 * @param frameSize
+	 *            number of bytes per sample frame.
+	 */
+	public AudioRingBuffer(int capacity, int frameSize) {
+		this.frameSize = Math.max(1, frameSize);
+		data = new byte[Math.max(this.frameSize, capacity - capacity
+				% this.frameSize)];
+	}
+
+	/** Write a block of bytes into the buffer. */
+	public void write(byte[] b, int off, int len) {
+		int n = data.length;
+		if (len > n) {
+			off += len - n;
+			written += len - n;
+			len = n;
+		}
+		int p = (int) (written % n);
+		int k = Math.min(len, n - p);
+		System.arraycopy(b, off, data, p, k);
+		if (k < len)
+			System.arraycopy(b, off + k, data, 0, len - k);
+		written += len;
+	}
+
+	/** Remove all data from the buffer. */
+	public void clear() {
+		written = 0L;
+	}
+
+	/** Get the capacity of the buffer in bytes. */
+	public int getCapacity() {
+		return data.length;
+	}
+
+	/** Get the number of bytes currently stored. */
+	public int size() {
+		return (int) Math.min(written, (long) data.length);
+	}
+
+	/** Get the number of bytes which have been overwritten. */
+	public long getLost() {
+		return written - size();
+	}
+
+	/** Get the total number of bytes written since the last clear(). */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Get a copy of the stored data.
+	 *
+	 * @return an array containing the stored bytes with the oldest byte
+	 *         first.
+	 */
+	public byte[] toByteArray() {
+		int n = size();
+		byte[] b = new byte[n];
+		int p = (int) (getLost() % data.length);
+		int k = Math.min(n, data.length - p);
+		System.arraycopy(data, p, b, 0, k);
+		if (k < n)
+			System.arraycopy(data, 0, b, k, n - k);
+		return b;
+	}
+}
@@ -0,0 +1,55 @@
+package de.pxlab.pxl.sound;
+
+/**
+ * A streaming detector for the onset of a sound signal. The detector gets the
+ * recorded sound in blocks of samples of arbitrary size as they arrive from a
+ * recording line or a sound file. Onset times are given as fractional frame
+ * indices counted from the first frame after the last call to reset(). Thus
+ * onset precision does not depend on the size of the capture buffers.
+ *
+ * @version 0.1.0
+ * @see RMSOnsetDetector
+ * @see VoiceKeyRecorder
+ */
+public interface OnsetDetector {
+	/**
+	 * Prepare the detector for a new recording.
+	 *
+	 * @param frameRate
+	 *            the number of sample frames per second.
+	 */
+	public void reset(float frameRate);
+
+	/**
+	 * Process the next block of samples of a single channel.
+	 *
+	 * @param samples
+	 *            array containing the sample values.
+	 * @param offset
+	 *            index of the first sample of the block.
+	 * @param length
+	 *            number of samples in the block.
+	 * @return true if the onset has been found within this block.
+	 */
+	public boolean process(short[] samples, int offset, int length);
+
+	/** Check whether an onset has been found since the last reset(). */
+	public boolean isTriggered();
+
+	/**
+	 * Get the onset position.
+	 *
+	 * @return the fractional frame index of the onset or a negative value if
+	 *         no onset has been found.
+	 */
+	public double getOnsetFrame();
+
+	/**
+	 * Get the signal level which has been observed when the onset has been
+	 * detected.
+	 */
+	public double getOnsetLevel();
+
+	/** Get the maximum signal level observed since the last reset(). */
+	public double getMaximumLevel();
+}
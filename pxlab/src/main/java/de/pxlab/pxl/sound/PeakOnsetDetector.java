@@ -0,0 +1,68 @@
+package de.pxlab.pxl.sound;
+
+/**
+ * An onset detector which accepts the first sample whose absolute value
+ * exceeds the threshold. This is the classic voice key behavior. It reacts
+ * to single clicks and noise bursts which pass threshold.
+ *
+ * @version 0.1.0
+ * @see RMSOnsetDetector
+ */
+public class PeakOnsetDetector implements OnsetDetector {
+	private int threshold;
+	private long frame;
+	private double onsetFrame;
+	private int onsetLevel;
+	private int maximumLevel;
+
+	/**
+	 * Create an onset detector.
+	 *
+	 * @param threshold
+	 *            the onset threshold given as an absolute sample value.
+	 */
+	public PeakOnsetDetector(double threshold) {
+		this.threshold = (int) Math.round(threshold);
+		reset(44100.0F);
+	}
+
+	public void reset(float frameRate) {
+		frame = 0L;
+		onsetFrame = -1.0;
+		onsetLevel = 0;
+		maximumLevel = 0;
+	}
+
+	public boolean process(short[] samples, int offset, int length) {
+		int end = offset + length;
+		boolean found = false;
+		for (int i = offset; i < end; i++) {
+			int m = Math.abs(samples[i]);
+			if (m > maximumLevel)
+				maximumLevel = m;
+			if ((onsetFrame < 0.0) && (m > threshold)) {
+				onsetFrame = frame + (i - offset);
+				onsetLevel = m;
+				found = true;
+			}
+		}
+		frame += length;
+		return found;
+	}
+
+	public boolean isTriggered() {
+		return onsetFrame >= 0.0;
+	}
+
+	public double getOnsetFrame() {
+		return onsetFrame;
+	}
+
+	public double getOnsetLevel() {
+		return onsetLevel;
+	}
+
+	public double getMaximumLevel() {
+		return maximumLevel;
+	}
+}
@@ -0,0 +1,384 @@
+package de.pxlab.pxl.sound;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.sound.sampled.*;
+
+import de.pxlab.pxl.*;
+
+/**
+ * A long lived audio output engine which keeps a SourceDataLine open and
+ * running. There is one engine for every AudioFormat. Opening and starting a
+ * line takes a long and variable amount of time. The engine does this only
+ * once when it is created such that playing a sound only needs to queue its
+ * audio stream.
+ *
+ * <p>
+ * Every engine has a high priority thread which writes small chunks of data to
+ * its line. The thread gets play commands from a lock free queue. Silence is
+ * written while no sound is playing. Thus the number of frames written always
+ * corresponds to the line's frame position and the time when the first and
+ * the last sample of a sound have been played can be computed from the frame
+ * position. These times are given in HiresClock nanoseconds.
+ *
+ * <p>
+ * The sounds of a single Player are played one after the other. Sounds of
+ * different players are played at the same time and are mixed by adding their
+ * samples. Mixing is done for linear PCM formats with 8, 16, 24, or 32 bit
+ * samples. Sums which exceed the sample range are clipped. For other formats
+ * all sounds are played one after the other.
+ *
+ * @version 0.1.0
+ * @see Player
+ */
+public class PlaybackEngine implements Runnable {
+	/** Engines for every AudioFormat in use, keyed by the format's string. */
+	private static HashMap engines = new HashMap();
+	/** Duration of the line buffer in milliseconds. */
+	private static double bufferDuration = 40.0;
+	/**
+	 * Time to wait for the last frame of a sound to be played in addition to
+	 * its expected playing time.
+	 */
+	private static final long END_TIMEOUT = 250000000L;
+	private AudioFormat audioFormat;
+	private SourceDataLine sourceDataLine;
+	private int frameSize;
+	private double nanosPerFrame;
+	/** Chunk buffer for sound data. */
+	private byte[] buffer;
+	/** A chunk of silence. */
+	private byte[] silence;
+	/** True if sounds of this format may be mixed. */
+	private boolean mixable;
+	private int sampleBytes;
+	private boolean bigEndian;
+	private boolean signed;
+	/** Sample sums of a chunk while mixing. */
+	private long[] mix;
+	private ConcurrentLinkedQueue commands = new ConcurrentLinkedQueue();
+	/** Voices which are playing. Every voice belongs to a single Player. */
+	private ArrayList voices = new ArrayList();
+	/** Sounds whose start or end has not yet been reported. */
+	private ArrayList pending = new ArrayList();
+	private Thread thread;
+	private volatile boolean running;
+	/** Number of frames written to the line. */
+	private long framesWritten;
+
+	/**
+	 * Set the duration of the line buffer for engines which are created
+	 * later. Short buffers reduce playing latency but may lead to dropouts on
+	 * slow systems. Data are written in chunks of a quarter of the buffer
+	 * size.
+	 *
+	 * @param ms
+	 *            buffer duration in milliseconds.
+	 */
+	public static void setBufferDuration(double ms) {
+		bufferDuration = ms;
+	}
+
+	/**
+	 * Get the engine for the given AudioFormat. The engine is created and its
+	 * line is opened if this is the first request for this format.
+	 */
+	public static synchronized PlaybackEngine getEngine(AudioFormat format)
+			throws LineUnavailableException {
+		String key = format.toString();
+		PlaybackEngine e = (PlaybackEngine) engines.get(key);
+		if (e == null) {
+			e = new PlaybackEngine(format);
+			engines.put(key, e);
+		}
+		return e;
+	}
+
+	/** Stop all engines and close their lines. */
+	public static synchronized void closeAll() {
+		for (Iterator it = engines.values().iterator(); it.hasNext();) {
+			((PlaybackEngine) it.next()).close();
+		}
+		engines.clear();
+	}
+
+	private PlaybackEngine(AudioFormat format) throws LineUnavailableException {
+		this(format, (SourceDataLine) AudioSystem.getLine(new DataLine.Info(
+				SourceDataLine.class, format)));
+	}
+
+	/**
+	 * Create an engine which plays to the given line.
+	 * 
+	 * @param format
+	 *            the AudioFormat of the engine.
+	 * @param line
+	 *            a line which supports the given format and is not yet open.
+	 */
+	public PlaybackEngine(AudioFormat format, SourceDataLine line)
+			throws LineUnavailableException {
+		audioFormat = format;
+		frameSize = format.getFrameSize();
+		nanosPerFrame = 1000000000.0 / format.getFrameRate();
+		int frames = Math.max(64, (int) (bufferDuration / 1000.0 * format
+				.getFrameRate()));
+		sourceDataLine = line;
+		sourceDataLine.open(format, frames * frameSize);
+		frames = sourceDataLine.getBufferSize() / frameSize;
+		buffer = new byte[Math.max(1, frames / 4) * frameSize];
+		silence = new byte[buffer.length];
+		AudioFormat.Encoding enc = format.getEncoding();
+		signed = enc.equals(AudioFormat.Encoding.PCM_SIGNED);
+		sampleBytes = format.getSampleSizeInBits() / 8;
+		bigEndian = format.isBigEndian();
+		mixable = (signed || enc.equals(AudioFormat.Encoding.PCM_UNSIGNED))
+				&& ((format.getSampleSizeInBits() % 8) == 0)
+				&& (sampleBytes >= 1) && (sampleBytes <= 4)
+				&& (frameSize == sampleBytes * format.getChannels());
+		if (mixable) {
+			mix = new long[buffer.length / sampleBytes];
+			encode(silence);
+		}
+		sourceDataLine.start();
+		Debug.time("Audio Data Line opened:       ");
+		running = true;
+		thread = new Thread(this, "PlaybackEngine " + format);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Queue an audio stream for playing. Streams of the same player are
+	 * played in the order they have been queued. Streams of different players
+	 * are mixed.
+	 *
+	 * @param input
+	 *            the audio stream. Must have this engine's AudioFormat.
+	 * @param player
+	 *            the Player which gets notified when the stream's first and
+	 *            last frame have been played.
+	 */
+	public void play(AudioInputStream input, Player player) {
+		commands.offer(new Sound(input, player));
+	}
+
+	/** Get the AudioFormat of this engine. */
+	public AudioFormat getAudioFormat() {
+		return audioFormat;
+	}
+
+	/** Get the size of the line buffer in bytes. */
+	public int getBufferSize() {
+		return sourceDataLine.getBufferSize();
+	}
+
+	/** Check whether this engine's line is open and its thread running. */
+	public boolean isOpen() {
+		return running;
+	}
+
+	/** Stop the engine thread and close the line. */
+	public void close() {
+		running = false;
+		try {
+			thread.join(1000L);
+		} catch (InterruptedException iex) {
+		}
+		sourceDataLine.stop();
+		sourceDataLine.close();
+	}
+
+	public void run() {
+		while (running) {
+			Sound s;
+			while ((s = (Sound) commands.poll()) != null)
+				addSound(s);
+			int nv = voices.size();
+			if (nv == 0) {
+				sourceDataLine.write(silence, 0, silence.length);
+			} else if (nv == 1) {
+				fill((Voice) voices.get(0), buffer);
+				sourceDataLine.write(buffer, 0, buffer.length);
+			} else {
+				for (int i = 0; i < nv; i++) {
+					Voice v = (Voice) voices.get(i);
+					if (v.data == null)
+						v.data = new byte[buffer.length];
+					fill(v, v.data);
+					decode(v.data, i == 0);
+				}
+				encode(buffer);
+				sourceDataLine.write(buffer, 0, buffer.length);
+			}
+			for (int i = nv - 1; i >= 0; i--) {
+				if (((Voice) voices.get(i)).sounds.isEmpty())
+					voices.remove(i);
+			}
+			framesWritten += buffer.length / frameSize;
+			if (!pending.isEmpty())
+				reportPending();
+		}
+	}
+
+	/**
+	 * Add a sound to the voice of its player. A new voice is created if the
+	 * player has no voice. If sounds can not be mixed then all sounds are
+	 * added to a single voice.
+	 */
+	private void addSound(Sound s) {
+		for (int i = 0; i < voices.size(); i++) {
+			Voice v = (Voice) voices.get(i);
+			if (!mixable || (v.player == s.player)) {
+				v.sounds.add(s);
+				return;
+			}
+		}
+		Voice v = new Voice(s.player);
+		v.sounds.add(s);
+		voices.add(v);
+	}
+
+	/**
+	 * Fill a chunk with the next data of a voice. Streams of the voice follow
+	 * each other without a gap. The rest of the chunk is filled with silence
+	 * if the voice has no more data.
+	 */
+	private void fill(Voice v, byte[] b) {
+		int off = 0;
+		while ((off < b.length) && !v.sounds.isEmpty()) {
+			Sound s = (Sound) v.sounds.getFirst();
+			if (s.startFrame < 0L) {
+				s.startFrame = framesWritten + off / frameSize;
+				pending.add(s);
+			}
+			int n = -1;
+			try {
+				n = s.input.read(b, off, b.length - off);
+			} catch (IOException iox) {
+				iox.printStackTrace();
+			}
+			if (n < 0) {
+				s.endFrame = framesWritten + off / frameSize;
+				v.sounds.removeFirst();
+			} else if (n == 0) {
+				// Data are late, continue with silence
+				break;
+			} else {
+				off += n;
+			}
+		}
+		off -= off % frameSize;
+		System.arraycopy(silence, 0, b, off, b.length - off);
+	}
+
+	/**
+	 * Add the samples of a chunk to the sample sums.
+	 * 
+	 * @param b
+	 *            the chunk.
+	 * @param first
+	 *            true if this is the first chunk of the sums.
+	 */
+	private void decode(byte[] b, boolean first) {
+		int shift = 64 - 8 * sampleBytes;
+		long offset = signed ? 0L : (1L << (8 * sampleBytes - 1));
+		for (int i = 0, k = 0; k < b.length; i++) {
+			long v = 0L;
+			if (bigEndian) {
+				for (int j = 0; j < sampleBytes; j++)
+					v = (v << 8) | (b[k + j] & 0xFF);
+			} else {
+				for (int j = sampleBytes - 1; j >= 0; j--)
+					v = (v << 8) | (b[k + j] & 0xFF);
+			}
+			k += sampleBytes;
+			v = signed ? ((v << shift) >> shift) : (v - offset);
+			mix[i] = first ? v : (mix[i] + v);
+		}
+	}
+
+	/** Clip the sample sums and write them into a chunk. */
+	private void encode(byte[] b) {
+		long max = (1L << (8 * sampleBytes - 1)) - 1L;
+		long min = -max - 1L;
+		long offset = signed ? 0L : (max + 1L);
+		for (int i = 0, k = 0; k < b.length; i++) {
+			long v = mix[i];
+			if (v > max)
+				v = max;
+			else if (v < min)
+				v = min;
+			v += offset;
+			if (bigEndian) {
+				for (int j = sampleBytes - 1; j >= 0; j--) {
+					b[k + j] = (byte) v;
+					v >>= 8;
+				}
+			} else {
+				for (int j = 0; j < sampleBytes; j++) {
+					b[k + j] = (byte) v;
+					v >>= 8;
+				}
+			}
+			k += sampleBytes;
+		}
+	}
+
+	/** Notify players of sounds whose first or last frame has been played. */
+	private void reportPending() {
+		long position = sourceDataLine.getLongFramePosition();
+		long now = HiresClock.getTimeNanos();
+		for (int i = 0; i < pending.size(); i++) {
+			Sound s = (Sound) pending.get(i);
+			if (!s.started && (position > s.startFrame)) {
+				s.started = true;
+				s.player.soundStarted(now
+						- Math.round((position - s.startFrame) * nanosPerFrame));
+			}
+			if (s.endFrame >= 0L) {
+				if (s.deadline == 0L) {
+					s.deadline = now + END_TIMEOUT
+							+ Math.round(Math.max(0L, s.endFrame - position)
+									* nanosPerFrame);
+				}
+				if ((position >= s.endFrame) || (now > s.deadline)) {
+					long t = now
+							- Math.round(Math.max(0L, position - s.endFrame)
+									* nanosPerFrame);
+					if (!s.started)
+						s.player.soundStarted(t);
+					s.player.soundFinished(Math.round((s.endFrame - s.startFrame)
+							* nanosPerFrame), t);
+					pending.remove(i--);
+				}
+			}
+		}
+	}
+	/** The sounds of a single player which are played one after the other. */
+	private static class Voice {
+		Player player;
+		LinkedList sounds = new LinkedList();
+		/** Chunk buffer used while mixing. */
+		byte[] data;
+
+		Voice(Player player) {
+			this.player = player;
+		}
+	}
+	/** A sound which has been queued for playing. */
+	private static class Sound {
+		AudioInputStream input;
+		Player player;
+		long startFrame = -1L;
+		long endFrame = -1L;
+		long deadline = 0L;
+		boolean started = false;
+
+		Sound(AudioInputStream input, Player player) {
+			this.input = input;
+			this.player = player;
+		}
+	}
+}
@@ -1,8 +1,8 @@
 package de.pxlab.pxl.sound;
 
 import java.io.*;
-import java.nio.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.sound.sampled.*;
 
 import de.pxlab.pxl.*;
@@ -10,22 +10,29 @@ import de.pxlab.pxl.*;
 /**
  * A player for audio data. The player holds an internal play list and when
  * started, runs the play list until it is finished. All audio streams in the
- * play list must have the same AudioFormat.
+ * play list must have the same AudioFormat. Playing is done by the
+ * PlaybackEngine of this AudioFormat whose line is kept open between sounds.
  * 
  * @author H. Irtel
- * @version 0.1.2
+ * @version 0.2.0
  */
 /*
  * 
  * 2006/06/19 removed all MediaEvents but CLOSE_MEDIA
+ * 
+ * 2026/10/19 play through the shared PlaybackEngine of the AudioFormat
  */
-public class Player implements LineListener {
+public class Player {
 	private List playList;
-	private AudioInputStream audioInputStream;
-	private SourceDataLine sourceDataLine;
 	private AudioFormat audioFormat;
-	private byte[] playBuffer;
-	private boolean playing = false;
+	private PlaybackEngine engine;
+	private volatile boolean playing = false;
+	/** Number of queued streams which have not yet been finished. */
+	private AtomicInteger queued = new AtomicInteger(0);
+	/** Playing time of the streams finished since the last play() command. */
+	private volatile long mediaTime;
+	private volatile long startTime;
+	private volatile boolean startPending;
 	private MediaEventListener mediaEventListener;
 
 	/**
@@ -52,7 +59,21 @@ public class Player implements LineListener {
 		addInputStream(input, false);
 		createLine(format);
 		audioFormat = format;
-		playBuffer = new byte[16384];
+	}
+
+	/**
+	 * Create a Player which plays through the given engine instead of the
+	 * shared engine of its AudioFormat.
+	 * 
+	 * @param format
+	 *            the AudioFormat descriptor.
+	 * @param engine
+	 *            the engine which mixes and plays the data of this Player.
+	 */
+	public Player(AudioFormat format, PlaybackEngine engine) {
+		playList = Collections.synchronizedList(new LinkedList());
+		audioFormat = format;
+		this.engine = engine;
 	}
 
 	/**
@@ -65,74 +86,24 @@ public class Player implements LineListener {
 	 *            the AudioFormat descriptor.
 	 */
 	public Player(byte[] audioData, AudioFormat format) {
-		InputStream byteArrayInputStream = new ByteArrayInputStream(audioData);
-		AudioInputStream input = new AudioInputStream(byteArrayInputStream,
-				format, audioData.length / format.getFrameSize());
-		playList = Collections.synchronizedList(new LinkedList());
-		addInputStream(input, false);
-		DataLine.Info dataLineInfo = new DataLine.Info(SourceDataLine.class,
-				format);
-		createLine(format);
-		audioFormat = format;
-		playBuffer = new byte[16384];
+		this(new AudioInputStream(new ByteArrayInputStream(audioData), format,
+				audioData.length / format.getFrameSize()), format);
 	}
 
-	/** Create the SourceDataLine object. */
+	/**
+	 * Get the playback engine for this player's AudioFormat. The engine's line
+	 * is opened when the first player for a format is created or when the
+	 * engines have been closed after an experiment.
+	 */
 	private void createLine(AudioFormat format) {
-		DataLine.Info dataLineInfo = new DataLine.Info(SourceDataLine.class,
-				format);
 		try {
-			sourceDataLine = (SourceDataLine) AudioSystem.getLine(dataLineInfo);
-			sourceDataLine.addLineListener(this);
+			engine = PlaybackEngine.getEngine(format);
 		} catch (LineUnavailableException lux) {
 			System.out.println("Player(): Source line unavailable!");
 			System.exit(3);
 		}
 	}
 
-	/** Implementation of the LineListener interface. */
-	public void update(LineEvent e) {
-		LineEvent.Type t = e.getType();
-		if (t == LineEvent.Type.STOP) {
-			Debug.time("Audio Data Line stopped:      ");
-			/*
-			 * if (mediaEventListener != null) {
-			 * mediaEventListener.mediaActionPerformed(new
-			 * MediaEvent(Player.this, ResponseCodes.STOP_MEDIA, 1000L *
-			 * sourceDataLine.getMicrosecondPosition(),
-			 * de.pxlab.pxl.HiresClock.getTimeNanos())); }
-			 */
-		} else if (t == LineEvent.Type.START) {
-			Debug.time("Audio Data Line started:      ");
-			/*
-			 * if (mediaEventListener != null) {
-			 * mediaEventListener.mediaActionPerformed(new
-			 * MediaEvent(Player.this, ResponseCodes.START_MEDIA, 1000L *
-			 * sourceDataLine.getMicrosecondPosition(),
-			 * de.pxlab.pxl.HiresClock.getTimeNanos())); }
-			 */
-		} else if (t == LineEvent.Type.OPEN) {
-			Debug.time("Audio Data Line opened:       ");
-			/*
-			 * if (mediaEventListener != null) {
-			 * mediaEventListener.mediaActionPerformed(new
-			 * MediaEvent(Player.this, ResponseCodes.OPEN_MEDIA, 1000L *
-			 * sourceDataLine.getMicrosecondPosition(),
-			 * de.pxlab.pxl.HiresClock.getTimeNanos())); }
-			 */
-		} else if (t == LineEvent.Type.CLOSE) {
-			Debug.time("Audio Data Line closed:       ");
-			/*
-			 * Moved the MediaEvent.CLOSE event generatioon to the end of the
-			 * Player thread's run() method. if (mediaEventListener != null) {
-			 * mediaEventListener.mediaActionPerformed(new
-			 * MediaEvent(Player.this, MediaEvent.CLOSE, 1000L *
-			 * sourceDataLine.getMicrosecondPosition(),
-			 * de.pxlab.pxl.HiresClock.getTimeNanos())); }
-			 */
-		}
-	}
-
 	/**
 	 * Add an audio input stream to this player's play list.
 	 * 
@@ -148,8 +119,9 @@ public class Player implements LineListener {
 		if (input != null) {
 			r = playList.add(input);
 			if (start) {
-				if (!playing) {
-					play();
+				boolean p = playing;
+				play();
+				if (!p) {
 					Debug.time("Audio Data added and started: ");
 				} else {
 					Debug.time("Audio Data added to list:     ");
@@ -164,67 +136,81 @@ public class Player implements LineListener {
 		mediaEventListener = p;
 	}
 
-	/** Start the player if the play list is nonempty. */
+	/**
+	 * Start the player if the play list is nonempty. The streams of the play
+	 * list are queued at the playback engine and this method returns
+	 * immediately.
+	 */
 	public void play() {
-		if (!playList.isEmpty()) {
-			new PlayThread().start();
-		}
-	}
-	/** The Thread which actually plays the sound data. */
-	class PlayThread extends Thread {
-		public void run() {
-			Debug.time("Audio Player Thread started:  ");
-			playing = true;
-			if (!playList.isEmpty()) {
-				try {
-					sourceDataLine.open(audioFormat);
-					// System.out.println("Player.PlayThread.run(): SourceDataLine opened");
-					sourceDataLine.start();
-					// System.out.println("Player.PlayThread.run(): SourceDataLine started");
-					while (!playList.isEmpty()) {
-						audioInputStream = (AudioInputStream) (playList
-								.remove(0));
-						Debug.time("Audio Player fetching stream: ");
-						// System.out.println("Starting audio input stream " +
-						// audioInputStream);
-						try {
-							int cnt;
-							while ((cnt = audioInputStream.read(playBuffer, 0,
-									playBuffer.length)) != -1) {
-								if (cnt > 0) {
-									sourceDataLine.write(playBuffer, 0, cnt);
-								}
-							}
-						} catch (Exception ex) {
-							ex.printStackTrace();
-							System.exit(0);
-						}
-					}
-					// System.out.println("Player.PlayThread.run(): SourceDataLine draining");
-					sourceDataLine.drain();
-					// System.out.println("Player.PlayThread.run(): SourceDataLine drained");
-					// sourceDataLine.stop();
-					// System.out.println("Player.PlayThread.run(): SourceDataLine stopped");
-					sourceDataLine.close();
-					// System.out.println("Player.PlayThread.run(): SourceDataLine closed");
-				} catch (LineUnavailableException lux) {
-					System.out
-							.println("Player.PlayThread.run(): Source line unavailable!");
-				}
+		synchronized (playList) {
+			if (playList.isEmpty())
+				return;
+			if (!engine.isOpen())
+				createLine(audioFormat);
+			if (!playing) {
+				playing = true;
+				startTime = 0L;
+				startPending = true;
+				mediaTime = 0L;
+				Debug.time("Audio Player started:         ");
 			}
-			playing = false;
-			Debug.time("Audio Player Thread finished: ");
-			/*
-			 * Moved MediaEvent.CLOSE event generation here in order to make
-			 * sure that the Player thread is stopped when the CLOSE event is
-			 * detected.
-			 */
-			if (mediaEventListener != null) {
-				mediaEventListener.mediaActionPerformed(new MediaEvent(
-						Player.this, ResponseCodes.CLOSE_MEDIA,
-						1000L * sourceDataLine.getMicrosecondPosition(),
-						de.pxlab.pxl.HiresClock.getTimeNanos()));
+			while (!playList.isEmpty()) {
+				queued.incrementAndGet();
+				engine.play((AudioInputStream) playList.remove(0), this);
 			}
 		}
 	}
+
+	/** Check whether the player has queued streams which are not finished. */
+	public boolean isPlaying() {
+		return playing;
+	}
+
+	/**
+	 * Get the time when the first sample of the last play() command has been
+	 * played.
+	 * 
+	 * @return the HiresClock time in nanoseconds or 0 if the first sample has
+	 *         not yet been played.
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Called by the playback engine when the first frame of a stream has been
+	 * played.
+	 * 
+	 * @param t
+	 *            the HiresClock time in nanoseconds.
+	 */
+	void soundStarted(long t) {
+		if (startPending) {
+			startPending = false;
+			startTime = t;
+			Debug.time("Audio Player first sample:    ");
+		}
+	}
+
+	/**
+	 * Called by the playback engine when the last frame of a stream has been
+	 * played. The player sends a CLOSE_MEDIA event when all of its queued
+	 * streams are finished.
+	 * 
+	 * @param d
+	 *            the playing time of the stream in nanoseconds.
+	 * @param t
+	 *            the HiresClock time in nanoseconds.
+	 */
+	void soundFinished(long d, long t) {
+		mediaTime += d;
+		if (queued.decrementAndGet() > 0)
+			return;
+		playing = false;
+		Debug.time("Audio Player finished:        ");
+		if (mediaEventListener != null) {
+			mediaEventListener.mediaActionPerformed(new MediaEvent(Player.this,
+					ResponseCodes.CLOSE_MEDIA, mediaTime, t));
+		}
+	}
 }
@@ -0,0 +1,208 @@
+package de.pxlab.pxl.sound;
+
+/**
+ * An onset detector which looks at the root mean square level of the signal
+ * within a sliding window. Single clicks or short noise bursts do not pass
+ * the threshold because their energy is spread over the full window. An onset
+ * is accepted only if the level passes the onset threshold and then stays
+ * above a lower release threshold for a minimum duration. This hysteresis
+ * prevents breath noise and fluctuations around threshold level from
+ * triggering the detector.
+ *
+ * <p>
+ * The detector optionally estimates the noise floor from a window at the
+ * start of the recording. Onsets are not detected within this window and the
+ * onset threshold is raised to a multiple of the noise level if this is
+ * larger than the fixed threshold.
+ *
+ * <p>
+ * The onset time is the frame where the sliding level crossed the onset
+ * threshold, linearly interpolated between frames. It is corrected for the
+ * part of the window which had to be filled by a step onset of the level
+ * observed when the onset has been accepted.
+ *
+ * @version 0.1.0
+ */
+public class RMSOnsetDetector implements OnsetDetector {
+	private double threshold;
+	private double windowDuration = 10.0;
+	private double hysteresis = 0.5;
+	private double minimumDuration = 20.0;
+	private double noiseWindowDuration = 0.0;
+	private double noiseFactor = 3.0;
+	/** Squared sample values of the current window. */
+	private long[] window = new long[1];
+	private int windowIndex;
+	private long windowSum;
+	private int minimumFrames;
+	private int noiseFrames;
+	private double noiseSum;
+	private double onLevel;
+	private double offLevel;
+	private long frame;
+	private double previousLevel;
+	private double candidateFrame;
+	private long candidateStart;
+	private double onsetFrame;
+	private double onsetLevel;
+	private double maximumLevel;
+
+	/**
+	 * Create an onset detector.
+	 *
+	 * @param threshold
+	 *            the onset threshold given as a root mean square sample value.
+	 *            A sine wave of amplitude a has root mean square value
+	 *            a/sqrt(2).
+	 */
+	public RMSOnsetDetector(double threshold) {
+		this.threshold = threshold;
+		reset(44100.0F);
+	}
+
+	/**
+	 * Set the duration of the sliding level window.
+	 *
+	 * @param ms
+	 *            window duration in milliseconds.
+	 */
+	public void setWindowDuration(double ms) {
+		windowDuration = ms;
+	}
+
+	/**
+	 * Set the release threshold relative to the onset threshold.
+	 *
+	 * @param h
+	 *            the release threshold as a fraction of the onset threshold.
+	 *            Should be between 0 and 1.
+	 */
+	public void setHysteresis(double h) {
+		hysteresis = h;
+	}
+
+	/**
+	 * Set the minimum duration the level must stay above the release
+	 * threshold after it has passed the onset threshold.
+	 *
+	 * @param ms
+	 *            minimum duration in milliseconds.
+	 */
+	public void setMinimumDuration(double ms) {
+		minimumDuration = ms;
+	}
+
+	/**
+	 * Set the noise floor estimation window.
+	 *
+	 * @param ms
+	 *            the duration of the window at the start of recording which
+	 *            is used for noise estimation. A value of 0 disables noise
+	 *            estimation.
+	 * @param factor
+	 *            the onset threshold is at least this factor times the noise
+	 *            level.
+	 */
+	public void setNoiseWindow(double ms, double factor) {
+		noiseWindowDuration = ms;
+		noiseFactor = factor;
+	}
+
+	public void reset(float frameRate) {
+		double fpms = frameRate / 1000.0;
+		int n = Math.max(1, (int) Math.round(windowDuration * fpms));
+		if (window.length != n) {
+			window = new long[n];
+		} else {
+			for (int i = 0; i < n; i++)
+				window[i] = 0L;
+		}
+		windowIndex = 0;
+		windowSum = 0L;
+		minimumFrames = (int) Math.round(minimumDuration * fpms);
+		noiseFrames = (int) Math.round(noiseWindowDuration * fpms);
+		noiseSum = 0.0;
+		setLevels(threshold);
+		frame = 0L;
+		previousLevel = 0.0;
+		candidateFrame = -1.0;
+		candidateStart = 0L;
+		onsetFrame = -1.0;
+		onsetLevel = 0.0;
+		maximumLevel = 0.0;
+	}
+
+	/** Set the squared onset and release levels. */
+	private void setLevels(double t) {
+		onLevel = t * t;
+		offLevel = hysteresis * hysteresis * onLevel;
+	}
+
+	public boolean process(short[] samples, int offset, int length) {
+		int n = window.length;
+		int end = offset + length;
+		boolean found = false;
+		for (int i = offset; i < end; i++) {
+			long s = samples[i];
+			long sq = s * s;
+			windowSum += sq - window[windowIndex];
+			window[windowIndex] = sq;
+			if (++windowIndex == n)
+				windowIndex = 0;
+			long f = frame++;
+			double level = (double) windowSum / n;
+			if (level > maximumLevel)
+				maximumLevel = level;
+			if (f < noiseFrames) {
+				noiseSum += sq;
+				if (f == noiseFrames - 1)
+					setLevels(Math.max(threshold,
+							noiseFactor * Math.sqrt(noiseSum / noiseFrames)));
+			} else if (onsetFrame < 0.0) {
+				if (candidateFrame < 0.0) {
+					if (level >= onLevel) {
+						double c = f;
+						if (level > previousLevel)
+							c -= (level - onLevel) / (level - previousLevel);
+						candidateFrame = c;
+						candidateStart = f;
+					}
+				} else if (level < offLevel) {
+					candidateFrame = -1.0;
+				}
+				if ((candidateFrame >= 0.0)
+						&& ((f - candidateStart) >= minimumFrames)) {
+					// A step onset passes threshold when the window is
+					// filled by the fraction onLevel/level
+					onsetFrame = Math.max(0.0, candidateFrame - n
+							* Math.min(1.0, onLevel / level));
+					onsetLevel = Math.sqrt(level);
+					found = true;
+				}
+			}
+			previousLevel = level;
+		}
+		return found;
+	}
+
+	public boolean isTriggered() {
+		return onsetFrame >= 0.0;
+	}
+
+	public double getOnsetFrame() {
+		return onsetFrame;
+	}
+
+	public double getOnsetLevel() {
+		return onsetLevel;
+	}
+
+	public double getMaximumLevel() {
+		return Math.sqrt(maximumLevel);
+	}
+
+	/** Get the onset threshold which is currently in effect. */
+	public double getEffectiveThreshold() {
+		return Math.sqrt(onLevel);
+	}
+}
@@ -1,6 +1,6 @@
 package de.pxlab.pxl.sound;
 
-import java.nio.*;
+import java.util.*;
 import javax.sound.sampled.*;
 
 /**
@@ -8,11 +8,20 @@ import javax.sound.sampled.*;
  * AudioFormat object which determines the sample rate and the number of
  * channels and they have an envelope function and a wave function.
  * 
+ * <p>
+ * Oscillators are computed by rotating phasors instead of calling trigonometric
+ * functions for every sample and envelope functions are evaluated once per
+ * sample into tables which are reused. Deterministic sounds may be kept in a
+ * static cache of rendered audio data such that identical sounds need not be
+ * computed again.
+ * 
  * @author H. Irtel
  * @version 0.1.0
  */
 /*
  * 2005/03/03
+ * 
+ * 2026/10/19 phasor oscillators, envelope tables and sound cache
  */
 public class SoundFactory {
 	private AudioFormat audioFormat;
@@ -22,10 +31,25 @@ public class SoundFactory {
 	private int nChannels;
 	private int nBytes;
 	private byte[] audioDataBuffer;
-	private ByteBuffer byteBuffer;
-	private ShortBuffer shortBuffer;
+	/** Envelope function values of the left channel samples. */
+	private double[] leftTable;
+	/** Envelope function values of the right channel samples. */
+	private double[] rightTable;
+	private Random random = new Random();
 	/** Time step for sound computation. Size given in seconds. */
 	private double timeStep;
+	/**
+	 * Oscillator phasors are renormalized whenever the sample index masked by
+	 * this value is equal to it.
+	 */
+	private static final int RENORMALIZATION_MASK = 1023;
+	/** Cached audio data in the order of their last access. */
+	private static LinkedHashMap soundCache = new LinkedHashMap(16, 0.75F,
+			true);
+	/** Number of audio data bytes in the sound cache. */
+	private static long soundCacheSize = 0L;
+	/** Maximum number of audio data bytes in the sound cache. */
+	private static long soundCacheLimit = 32L * 1024L * 1024L;
 
 	/** Create a sound factory for the given AudioFormat. */
 	public SoundFactory(AudioFormat format) {
@@ -99,28 +123,25 @@ public class SoundFactory {
 	 */
 	public byte[] getSineWave(double s, double f) {
 		computeSoundParams(s);
-		double x = 0.0;
-		double y;
-		if (nChannels == 1) {
-			double e1;
-			for (int i = 0; i < nSamples; i++) {
-				e1 = leftEnvelope.valueOf(x);
-				y = Math.sin(2 * Math.PI * f * x);
-				shortBuffer.put((short) (Math
-						.round(e1 * y * SHORT_SCALE_FACTOR)));
-				// if ((i%4410) == 0) System.out.println(i + ": " + e1 + " x " +
-				// y);
-				x += timeStep;
-			}
-		} else if (nChannels == 2) {
-			double e1, e2;
-			for (int i = 0; i < nSamples; i++) {
-				e1 = leftEnvelope.valueOf(x);
-				e2 = rightEnvelope.valueOf(x);
-				y = Math.sin(2 * Math.PI * f * x) * SHORT_SCALE_FACTOR;
-				shortBuffer.put((short) (Math.round(e1 * y)));
-				shortBuffer.put((short) (Math.round(e2 * y)));
-				x += timeStep;
+		computeEnvelopeTables();
+		double w = 2 * Math.PI * f * timeStep;
+		double cw = Math.cos(w);
+		double sw = Math.sin(w);
+		// The phasor (re, im) is rotated by w at every sample
+		double re = 1.0, im = 0.0, t;
+		int k = 0;
+		for (int i = 0; i < nSamples; i++) {
+			double y = im * SHORT_SCALE_FACTOR;
+			putSample(k++, leftTable[i] * y);
+			if (nChannels == 2)
+				putSample(k++, rightTable[i] * y);
+			t = re * cw - im * sw;
+			im = re * sw + im * cw;
+			re = t;
+			if ((i & RENORMALIZATION_MASK) == RENORMALIZATION_MASK) {
+				t = 1.0 / Math.sqrt(re * re + im * im);
+				re *= t;
+				im *= t;
 			}
 		}
 		return audioDataBuffer;
@@ -147,55 +168,52 @@ public class SoundFactory {
 					.println("SoundFactory.getFourierSeries(): not enough parameters for Fourier series of "
 							+ m + " components.");
 			new RuntimeException().printStackTrace();
+			m = p.length / 2 - 1;
 		}
-		double Pi2f0 = 2 * Math.PI * p[1];
-		double jPi2f0x;
-		double x = 0.0;
-		double a, b, y;
-		if (nChannels == 1) {
-			double e1;
-			for (int i = 0; i < nSamples; i++) {
-				e1 = leftEnvelope.valueOf(x);
-				y = 0.0;
-				for (int j = 1; j <= m; j++) {
-					a = p[j + j];
-					b = p[j + j + 1];
-					if (a != 0.0 || b != 0.0) {
-						jPi2f0x = j * Pi2f0 * x;
-						if (a != 0.0)
-							y += a * Math.cos(jPi2f0x);
-						if (b != 0.0)
-							y += b * Math.sin(jPi2f0x);
-					}
-				}
-				shortBuffer.put((short) (Math.round(e1 * y
-						* SHORT_SCALE_FACTOR_2)));
-				// if ((i%4410) == 0) System.out.println(i + ": " + e1 + " x " +
-				// y);
-				x += timeStep;
+		computeEnvelopeTables();
+		double Pi2f0 = 2 * Math.PI * p[1] * timeStep;
+		// Only components with nonzero coefficients get a phasor
+		int nc = 0;
+		for (int j = 1; j <= m; j++) {
+			if (p[j + j] != 0.0 || p[j + j + 1] != 0.0)
+				nc++;
+		}
+		double[] a = new double[nc];
+		double[] b = new double[nc];
+		double[] cw = new double[nc];
+		double[] sw = new double[nc];
+		double[] re = new double[nc];
+		double[] im = new double[nc];
+		for (int j = 1, c = 0; j <= m; j++) {
+			if (p[j + j] != 0.0 || p[j + j + 1] != 0.0) {
+				a[c] = p[j + j];
+				b[c] = p[j + j + 1];
+				cw[c] = Math.cos(j * Pi2f0);
+				sw[c] = Math.sin(j * Pi2f0);
+				re[c] = 1.0;
+				c++;
 			}
-		} else if (nChannels == 2) {
-			double e1, e2;
-			for (int i = 0; i < nSamples; i++) {
-				e1 = leftEnvelope.valueOf(x);
-				e2 = rightEnvelope.valueOf(x);
-				y = 0.0;
-				for (int j = 1; j <= m; j++) {
-					a = p[j + j];
-					b = p[j + j + 1];
-					if (a != 0.0 || b != 0.0) {
-						jPi2f0x = j * Pi2f0 * x;
-						if (a != 0.0)
-							y += a * Math.cos(jPi2f0x);
-						if (b != 0.0)
-							y += b * Math.sin(jPi2f0x);
-					}
+		}
+		double y, t;
+		int k = 0;
+		for (int i = 0; i < nSamples; i++) {
+			y = 0.0;
+			boolean renormalize = (i & RENORMALIZATION_MASK) == RENORMALIZATION_MASK;
+			for (int c = 0; c < nc; c++) {
+				y += a[c] * re[c] + b[c] * im[c];
+				t = re[c] * cw[c] - im[c] * sw[c];
+				im[c] = re[c] * sw[c] + im[c] * cw[c];
+				re[c] = t;
+				if (renormalize) {
+					t = 1.0 / Math.sqrt(re[c] * re[c] + im[c] * im[c]);
+					re[c] *= t;
+					im[c] *= t;
 				}
-				y *= SHORT_SCALE_FACTOR_2;
-				shortBuffer.put((short) (Math.round(e1 * y)));
-				shortBuffer.put((short) (Math.round(e2 * y)));
-				x += timeStep;
 			}
+			y *= SHORT_SCALE_FACTOR_2;
+			putSample(k++, leftTable[i] * y);
+			if (nChannels == 2)
+				putSample(k++, rightTable[i] * y);
 		}
 		return audioDataBuffer;
 	}
@@ -205,38 +223,65 @@ public class SoundFactory {
 	 * AudioFormat and SoundEnvelope.
 	 * 
 	 * @param s
-	 *            duration in seconds,
+	 *            duration in milliseconds,
 	 * @return a byte buffer containing the audio samples in the current
 	 *         AudioFormat.
 	 */
 	public byte[] getWhiteNoise(double s) {
 		computeSoundParams(s);
-		double x = 0.0;
-		if (nChannels == 1) {
-			double y1, e1;
-			for (int i = 0; i < nSamples; i++) {
-				e1 = leftEnvelope.valueOf(x);
-				y1 = noise(x) * SHORT_SCALE_FACTOR;
-				shortBuffer.put((short) (Math.round(e1 * y1)));
-				x += timeStep;
-			}
-		} else if (nChannels == 2) {
-			double e1, e2, y1, y2;
-			for (int i = 0; i < nSamples; i++) {
-				e1 = leftEnvelope.valueOf(x);
-				e2 = rightEnvelope.valueOf(x);
-				y1 = noise(x) * SHORT_SCALE_FACTOR;
-				y2 = noise(x) * SHORT_SCALE_FACTOR;
-				shortBuffer.put((short) (Math.round(e1 * y1)));
-				shortBuffer.put((short) (Math.round(e2 * y2)));
-				x += timeStep;
-			}
+		computeEnvelopeTables();
+		int k = 0;
+		for (int i = 0; i < nSamples; i++) {
+			putSample(k++, leftTable[i] * noise() * SHORT_SCALE_FACTOR);
+			if (nChannels == 2)
+				putSample(k++, rightTable[i] * noise() * SHORT_SCALE_FACTOR);
 		}
 		return audioDataBuffer;
 	}
 
-	private double noise(double x) {
-		return 2.0 * Math.random() - 1.0;
+	private double noise() {
+		return 2.0 * random.nextDouble() - 1.0;
+	}
+
+	/**
+	 * Store a sample value into the audio data buffer.
+	 * 
+	 * @param k
+	 *            the index of the sample in the buffer.
+	 * @param v
+	 *            the sample value.
+	 */
+	private void putSample(int k, double v) {
+		int y = (int) Math.round(v);
+		audioDataBuffer[k + k] = (byte) (y >> 8);
+		audioDataBuffer[k + k + 1] = (byte) y;
+	}
+
+	/**
+	 * Compute the envelope function values of every sample of the current
+	 * sound. The tables are reused as long as they are large enough.
+	 */
+	private void computeEnvelopeTables() {
+		leftTable = envelopeTable(leftEnvelope, leftTable);
+		if (nChannels == 2) {
+			if (rightEnvelope == leftEnvelope) {
+				rightTable = leftTable;
+			} else {
+				rightTable = envelopeTable(rightEnvelope,
+						(rightTable == leftTable) ? null : rightTable);
+			}
+		}
+	}
+
+	private double[] envelopeTable(SoundEnvelope e, double[] table) {
+		if ((table == null) || (table.length < nSamples))
+			table = new double[nSamples];
+		double x = 0.0;
+		for (int i = 0; i < nSamples; i++) {
+			table[i] = e.valueOf(x);
+			x += timeStep;
+		}
+		return table;
 	}
 
 	/**
@@ -251,19 +296,67 @@ public class SoundFactory {
 		nChannels = audioFormat.getChannels();
 		nBytes = nSamples * 2 * nChannels;
 		audioDataBuffer = new byte[nBytes];
-		byteBuffer = ByteBuffer.wrap(audioDataBuffer);
-		shortBuffer = byteBuffer.asShortBuffer();
 		timeStep = s / (1000.0 * nSamples);
-		/*
-		 * System.out.println("SoundFactory.computeSoundParams(): samples = " +
-		 * nSamples);
-		 * System.out.println("SoundFactory.computeSoundParams(): channels = " +
-		 * nChannels);
-		 * System.out.println("SoundFactory.computeSoundParams(): bytes = " +
-		 * nBytes);
-		 * System.out.println("SoundFactory.computeSoundParams(): timeStep = " +
-		 * timeStep); /*
-		 */
+	}
+
+	/**
+	 * Get a sound from the sound cache.
+	 * 
+	 * @param key
+	 *            a key which identifies the waveform, its parameters, the
+	 *            envelopes and the AudioFormat of the sound.
+	 * @return the cached audio data or null if the sound is not in the cache.
+	 *         The audio data must not be modified.
+	 */
+	public static synchronized byte[] getCachedSound(Object key) {
+		return (byte[]) soundCache.get(key);
+	}
+
+	/**
+	 * Store a sound in the sound cache. If the cache size limit is exceeded
+	 * then the least recently used sounds are removed.
+	 * 
+	 * @param key
+	 *            a key which identifies the waveform, its parameters, the
+	 *            envelopes and the AudioFormat of the sound.
+	 * @param data
+	 *            the audio data.
+	 */
+	public static synchronized void putCachedSound(Object key, byte[] data) {
+		if (data.length > soundCacheLimit)
+			return;
+		byte[] old = (byte[]) soundCache.put(key, data);
+		if (old != null)
+			soundCacheSize -= old.length;
+		soundCacheSize += data.length;
+		trimSoundCache();
+	}
+
+	/** Remove least recently used sounds until the size limit is met. */
+	private static void trimSoundCache() {
+		Iterator it = soundCache.values().iterator();
+		while ((soundCacheSize > soundCacheLimit) && it.hasNext()) {
+			soundCacheSize -= ((byte[]) it.next()).length;
+			it.remove();
+		}
+	}
+
+	/** Remove all sounds from the sound cache. */
+	public static synchronized void clearSoundCache() {
+		soundCache.clear();
+		soundCacheSize = 0L;
+	}
+
+	/**
+	 * Set the maximum size of the sound cache.
+	 * 
+	 * @param n
+	 *            the maximum number of audio data bytes kept in the cache. A
+	 *            value of 0 disables caching.
+	 */
+	public static synchronized void setSoundCacheLimit(long n) {
+		soundCacheLimit = n;
+		trimSoundCache();
 	}
 
 	/**
@@ -2,32 +2,51 @@ package de.pxlab.pxl.sound;
 
 import java.io.*;
 import java.nio.*;
-import java.util.*;
 import javax.sound.sampled.*;
 
 import de.pxlab.pxl.*;
 
 /**
- * A sound recorder which looks at the recorded sound and checks whether it
- * passes a given threshold. If this is the case then a response event is
- * generated. The recorder also can store the sound data into a WAV-file.
+ * A sound recorder which looks at the recorded sound and checks whether a
+ * sound onset can be detected. If this is the case then a response event is
+ * generated. Onset detection is done by an OnsetDetector which gets the
+ * recorded data as a stream of small capture buffers. The onset time is
+ * computed from the onset's frame position such that it does not depend on
+ * the capture buffer size.
+ * 
+ * <p>
+ * Recorded data are kept in a bounded ring buffer. If a file name is given
+ * then the recorded data are also streamed into a WAV-file while recording
+ * proceeds.
+ * 
+ * <p>
+ * The static method detectOnset() runs an onset detector on the content of a
+ * sound file. This may be used to test detector settings without a
+ * microphone.
  * 
  * @author H. Irtel
- * @version 0.1.1
+ * @version 0.2.0
+ * @see OnsetDetector
+ * @see PeakOnsetDetector
+ * @see RMSOnsetDetector
+ */
+/*
+ * 
+ * 2026/10/19 streaming RMS onset detection, ring buffer, WAV streaming
+ * 
+ * 2026/10/19 peak onset detection is the default onset mode
  */
 public class VoiceKeyRecorder extends FileRecorder {
 	private static int recordingBufferSize = 44;
+	/** Maximum duration of the ring buffer in seconds. */
+	private static double maximumBufferDuration = 60.0;
 	private boolean stopImmediately = false;
-	private int voiceKeyThreshold;
-	private boolean voiceKey;
+	private OnsetDetector onsetDetector;
 	private MediaEventListener mediaEventListener;
 	private boolean recordFile;
-	private int audioDataArraySize;
-	private int numberOfChunks;
+	private long durationBytes;
 	private double volume;
-	private ByteBuffer byteBuffer;
-	private ShortBuffer shortBuffer;
-	private byte[] audioData;
+	private AudioRingBuffer ringBuffer;
 
 	/**
 	 * Set the size of the recording buffer. This affects the delay when
@@ -39,7 +58,19 @@ public class VoiceKeyRecorder extends FileRecorder {
 	 *            Proper values may be 32, ..., 88.
 	 */
 	public static void setRecordingBufferSize(int b) {
-		recordingBufferSize = 4 * (b / 4);
+		recordingBufferSize = Math.max(4, 4 * (b / 4));
+	}
+
+	/**
+	 * Set the maximum duration of recorded sound which is kept in memory.
+	 * Longer recordings keep only their final part in memory. This does not
+	 * restrict the data written to a sound file.
+	 * 
+	 * @param s
+	 *            maximum duration in seconds.
+	 */
+	public static void setMaximumBufferDuration(double s) {
+		maximumBufferDuration = s;
 	}
 
 	/**
@@ -59,7 +90,8 @@ public class VoiceKeyRecorder extends FileRecorder {
 
 	/**
 	 * Create a Recorder which uses the given AudioFormat. The method start()
-	 * must be used to start recording.
+	 * must be used to start recording. The onset detector is selected and
+	 * defined by the global voice key parameters.
 	 * 
 	 * @param duration
 	 *            the maximum recording duration in nanoseconds.
@@ -78,14 +110,44 @@ public class VoiceKeyRecorder extends FileRecorder {
 		super(fileName, format);
 		this.volume = volume;
 		recordFile = (audioFile != null);
-		// System.out.println("VoiceKeyRecorder():" + (recordFile? " ": " not ")
-		// + "recording.");
-		voiceKeyThreshold = (int) Math.round(threshold);
-		audioDataArraySize = recordingBufferSize
-				* (int) ((double) duration / 1000000000.0
-						* audioFormat.getFrameRate()
-						* audioFormat.getFrameSize() / recordingBufferSize);
-		numberOfChunks = audioDataArraySize / recordingBufferSize;
+		int frameSize = audioFormat.getFrameSize();
+		durationBytes = frameSize
+				* (long) ((double) duration / 1000000000.0 * audioFormat
+						.getFrameRate());
+		long maxBytes = frameSize
+				* (long) (maximumBufferDuration * audioFormat.getFrameRate());
+		ringBuffer = new AudioRingBuffer((int) Math.min(durationBytes,
+				maxBytes), frameSize);
+		onsetDetector = createOnsetDetector(threshold);
+	}
+
+	/**
+	 * Create an onset detector for the onset mode given by
+	 * ExPar.VoiceKeyOnsetMode. An RMSOnsetDetector gets its properties from
+	 * the global voice key parameters.
+	 * 
+	 * @param threshold
+	 *            the onset threshold level.
+	 */
+	public static OnsetDetector createOnsetDetector(double threshold) {
+		if (ExPar.VoiceKeyOnsetMode.getInt() != VoiceKeyOnsetCodes.RMS)
+			return new PeakOnsetDetector(threshold);
+		RMSOnsetDetector d = new RMSOnsetDetector(threshold);
+		d.setWindowDuration(ExPar.VoiceKeyWindow.getDouble());
+		d.setHysteresis(ExPar.VoiceKeyHysteresis.getDouble());
+		d.setMinimumDuration(ExPar.VoiceKeyMinimumDuration.getDouble());
+		d.setNoiseWindow(ExPar.VoiceKeyNoiseWindow.getDouble(),
+				ExPar.VoiceKeyNoiseFactor.getDouble());
+		return d;
+	}
+
+	/** Replace the onset detector. This must be done before start(). */
+	public void setOnsetDetector(OnsetDetector d) {
+		onsetDetector = d;
+	}
+
+	public OnsetDetector getOnsetDetector() {
+		return onsetDetector;
 	}
 
 	public void setMediaEventListener(MediaEventListener p) {
@@ -103,86 +165,169 @@ public class VoiceKeyRecorder extends FileRecorder {
 	}
 
 	public ShortBuffer getAudioDataAsShort() {
-		return shortBuffer;
+		ByteBuffer b = ByteBuffer.wrap(getAudioData());
+		b.order(audioFormat.isBigEndian() ? ByteOrder.BIG_ENDIAN
+				: ByteOrder.LITTLE_ENDIAN);
+		return b.asShortBuffer();
 	}
 
+	/**
+	 * Get the recorded data. If the recording has been longer than the ring
+	 * buffer then only the final part of the recording is returned.
+	 */
 	public byte[] getAudioData() {
-		return audioData;
+		return ringBuffer.toByteArray();
+	}
+
+	/**
+	 * Convert a block of recorded bytes into sample values of the first
+	 * channel. Only linear PCM data with 8 or 16 bits per sample are
+	 * supported.
+	 * 
+	 * @return the number of samples stored in s.
+	 */
+	private static int toSamples(byte[] b, int len, AudioFormat format,
+			short[] s) {
+		int fs = format.getFrameSize();
+		int n = len / fs;
+		if (format.getSampleSizeInBits() == 16) {
+			int hi = format.isBigEndian() ? 0 : 1;
+			int lo = 1 - hi;
+			for (int i = 0, p = 0; i < n; i++, p += fs)
+				s[i] = (short) ((b[p + hi] << 8) | (b[p + lo] & 0xFF));
+		} else {
+			boolean signed = format.getEncoding().equals(
+					AudioFormat.Encoding.PCM_SIGNED);
+			for (int i = 0, p = 0; i < n; i++, p += fs)
+				s[i] = (short) ((signed ? b[p] : ((b[p] & 0xFF) - 128)) << 8);
+		}
+		return n;
+	}
+
+	/**
+	 * Run an onset detector on the content of a sound file.
+	 * 
+	 * @param f
+	 *            a linear PCM sound file with 8 or 16 bits per sample.
+	 * @param d
+	 *            the onset detector.
+	 * @return the onset time in nanoseconds from the start of the file or -1
+	 *         if no onset has been found.
+	 */
+	public static long detectOnset(File f, OnsetDetector d)
+			throws IOException, UnsupportedAudioFileException {
+		AudioInputStream in = AudioSystem.getAudioInputStream(f);
+		try {
+			AudioFormat format = in.getFormat();
+			byte[] b = new byte[1024 * format.getFrameSize()];
+			short[] s = new short[1024];
+			d.reset(format.getFrameRate());
+			int k;
+			while (!d.isTriggered() && ((k = in.read(b, 0, b.length)) > 0)) {
+				d.process(s, 0, toSamples(b, k, format, s));
+			}
+			return d.isTriggered() ? Math.round(d.getOnsetFrame()
+					* 1000000000.0 / format.getFrameRate()) : -1L;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Print the voice key onset time of the sound files given as command line
+	 * arguments.
+	 * 
+	 * @param args
+	 *            the first argument is the threshold level and the remaining
+	 *            arguments are file names.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out
+					.println("Usage: VoiceKeyRecorder threshold file.wav ...");
+			return;
+		}
+		double threshold = Double.parseDouble(args[0]);
+		for (int i = 1; i < args.length; i++) {
+			OnsetDetector d = createOnsetDetector(threshold);
+			try {
+				long t = detectOnset(new File(args[i]), d);
+				System.out.println(args[i] + "\t" + HiresClock.ms(t) + "\t"
+						+ d.getOnsetLevel() + "\t" + d.getMaximumLevel());
+			} catch (Exception ex) {
+				System.out.println(args[i] + "\t" + ex);
+			}
+		}
 	}
 	private class CaptureThread extends Thread {
 		private byte[] recordingBuffer;
+		private short[] samples;
 		private int bytesRead;
 
 		public CaptureThread() {
-			recordingBuffer = new byte[recordingBufferSize];
-			byteBuffer = ByteBuffer.wrap(recordingBuffer);
-			shortBuffer = byteBuffer.asShortBuffer();
-			audioData = new byte[audioDataArraySize];
+			recordingBuffer = new byte[recordingBufferSize
+					- (recordingBufferSize % audioFormat.getFrameSize())];
+			samples = new short[recordingBuffer.length
+					/ audioFormat.getFrameSize()];
+			ringBuffer.clear();
 		}
 
 		public void run() {
-			int maxValue = 0, m = 0, thresholdIndex = 0;
-			int stoppingValue = 0;
 			long startTime = 0L;
 			long stopTime = 0L;
-			double byteDelayFactor = 1000000000.0 / audioFormat.getFrameSize()
-					/ audioFormat.getFrameRate();
+			float frameRate = audioFormat.getFrameRate();
+			WaveFileWriter waveFile = null;
 			Debug.time("Voice key recorder startet:   ");
 			Debug.show(Debug.VOICE_KEY, "Starting voice key recorder.");
+			if (recordFile) {
+				try {
+					waveFile = new WaveFileWriter(audioFile, audioFormat);
+				} catch (IOException iox) {
+					new FileError("Can't open audio data file "
+							+ audioFile.getPath());
+				}
+			}
+			onsetDetector.reset(frameRate);
 			try {
 				targetDataLine.open(audioFormat);
 				targetDataLine.start();
 				// Does not work! Controls.setVolume(targetDataLine, volume);
-				/*
-				 * if (mediaEventListener != null) {
-				 * mediaEventListener.mediaActionPerformed(new
-				 * MediaEvent(VoiceKeyRecorder.this, ResponseCodes.START_MEDIA,
-				 * 1000L * targetDataLine.getMicrosecondPosition(),
-				 * de.pxlab.pxl.HiresClock.getTimeNanos())); }
-				 */
-				int audioDataIndex = 0;
+				long bytesRecorded = 0L;
 				boolean passedThreshold = false;
 				boolean stoppedRecording = false;
 				try {
 					startTime = de.pxlab.pxl.HiresClock.getTimeNanos();
-					while (!stoppedRecording
-							&& (audioDataIndex < audioDataArraySize)) {
+					while (!stoppedRecording && (bytesRecorded < durationBytes)) {
 						bytesRead = targetDataLine.read(recordingBuffer, 0,
 								recordingBuffer.length);
 						if (bytesRead > 0) {
-							shortBuffer.rewind();
-							int n = 0;
-							while (shortBuffer.remaining() > 0) {
-								m = Math.abs(shortBuffer.get());
-								if (!passedThreshold && (m > voiceKeyThreshold)) {
-									Debug.time("Voice key threshold found:    ");
-									Debug.show(Debug.VOICE_KEY,
-											"Voice key threshold found.");
-									stoppingValue = m;
-									passedThreshold = true;
-									thresholdIndex = audioDataIndex + n + n;
-									stopTime = startTime
-											+ Math.round(thresholdIndex
-													* byteDelayFactor);
-									if (mediaEventListener != null) {
-										mediaEventListener
-												.mediaActionPerformed(new MediaEvent(
-														VoiceKeyRecorder.this,
-														ResponseCodes.CLOSE_MEDIA,
-														1000L * targetDataLine
-																.getMicrosecondPosition(),
-														stopTime));
-									}
-									stoppedRecording = stopImmediately;
+							bytesRecorded += bytesRead;
+							ringBuffer.write(recordingBuffer, 0, bytesRead);
+							int n = toSamples(recordingBuffer, bytesRead,
+									audioFormat, samples);
+							if (onsetDetector.process(samples, 0, n)
+									&& !passedThreshold) {
+								Debug.time("Voice key threshold found:    ");
+								Debug.show(Debug.VOICE_KEY,
+										"Voice key threshold found.");
+								passedThreshold = true;
+								stopTime = startTime
+										+ Math.round(onsetDetector
+												.getOnsetFrame()
+												* 1000000000.0 / frameRate);
+								if (mediaEventListener != null) {
+									mediaEventListener
+											.mediaActionPerformed(new MediaEvent(
+													VoiceKeyRecorder.this,
+													ResponseCodes.CLOSE_MEDIA,
+													1000L * targetDataLine
+															.getMicrosecondPosition(),
+													stopTime));
 								}
-								if (m > maxValue)
-									maxValue = m;
-								n++;
+								stoppedRecording = stopImmediately;
 							}
-							byteBuffer.rewind();
-							byteBuffer
-									.get(audioData, audioDataIndex, bytesRead);
-							audioDataIndex += bytesRead;
+							if (waveFile != null)
+								waveFile.write(recordingBuffer, 0, bytesRead);
 						}
 					}
 				} catch (Exception ex) {
@@ -203,30 +348,25 @@ public class VoiceKeyRecorder extends FileRecorder {
 										stopTime));
 					}
 				}
-				if (recordFile) {
-					ByteArrayInputStream inputStream = new ByteArrayInputStream(
-							audioData);
-					AudioInputStream audioStream = new AudioInputStream(
-							inputStream, audioFormat, audioData.length
-									/ audioFormat.getFrameSize());
-					try {
-						AudioSystem.write(audioStream, fileType, audioFile);
-					} catch (IOException iox) {
-						System.out
-								.println("VoiceKeyRecorder.CaptureThread.run(): Error writing audio data file "
-										+ audioFile.getPath());
-					}
-				}
 			} catch (LineUnavailableException lux) {
 				System.out
 						.println("Recorder.CaptureThread.run(): Target line unavailable!");
 			}
+			if (waveFile != null) {
+				try {
+					waveFile.close();
+				} catch (IOException iox) {
+					System.out
+							.println("VoiceKeyRecorder.CaptureThread.run(): Error writing audio data file "
+									+ audioFile.getPath());
+				}
+			}
 			Debug.time("Voice key recorder finished   ");
 			if (Debug.isActive(Debug.VOICE_KEY)) {
 				System.out.println("VoiceKeyRecorder: Maximum level was "
-						+ maxValue);
+						+ onsetDetector.getMaximumLevel());
 				System.out.println("                  Stopping value was "
-						+ stoppingValue);
+						+ onsetDetector.getOnsetLevel());
 			}
 		}
 	}
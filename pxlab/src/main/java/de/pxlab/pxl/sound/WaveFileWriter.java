@@ -0,0 +1,116 @@
+package de.pxlab.pxl.sound;
+
+import java.io.*;
+import javax.sound.sampled.*;
+
+/**
+ * Streams linear PCM sound data into a WAV-file while it is being recorded.
+ * The file header is written with preliminary size fields when the file is
+ * opened and is completed by close(). Big endian 16 bit data are converted
+ * to the little endian byte order of the WAV-file format and signed 8 bit
+ * data are converted to the unsigned 8 bit samples of the WAV-file format.
+ *
+ * @version 0.1.0
+ * @see VoiceKeyRecorder
+ */
+public class WaveFileWriter {
+	private static final int HEADER_SIZE = 44;
+	private RandomAccessFile file;
+	private boolean swap;
+	private boolean flipSign;
+	private byte[] swapBuffer = new byte[0];
+	private long dataSize;
+
+	/**
+	 * Open a WAV-file for writing.
+	 *
+	 * @param f
+	 *            the file to be written.
+	 * @param format
+	 *            the format of the data which will be written. Must be a
+	 *            linear PCM format with 8 or 16 bit samples.
+	 */
+	public WaveFileWriter(File f, AudioFormat format) throws IOException {
+		int bits = format.getSampleSizeInBits();
+		swap = format.isBigEndian() && (bits == 16);
+		flipSign = (bits == 8)
+				&& format.getEncoding().equals(AudioFormat.Encoding.PCM_SIGNED);
+		int channels = format.getChannels();
+		int rate = Math.round(format.getSampleRate());
+		int blockAlign = format.getFrameSize();
+		file = new RandomAccessFile(f, "rw");
+		file.setLength(0L);
+		byte[] h = new byte[HEADER_SIZE];
+		putString(h, 0, "RIFF");
+		putInt(h, 4, HEADER_SIZE - 8);
+		putString(h, 8, "WAVE");
+		putString(h, 12, "fmt ");
+		putInt(h, 16, 16);
+		putShort(h, 20, 1);
+		putShort(h, 22, channels);
+		putInt(h, 24, rate);
+		putInt(h, 28, rate * blockAlign);
+		putShort(h, 32, blockAlign);
+		putShort(h, 34, bits);
+		putString(h, 36, "data");
+		putInt(h, 40, 0);
+		file.write(h);
+	}
+
+	/** Append a block of sound data to the file. */
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (swap) {
+			if (swapBuffer.length < len)
+				swapBuffer = new byte[len];
+			int n = len & ~1;
+			for (int i = 0; i < n; i += 2) {
+				swapBuffer[i] = b[off + i + 1];
+				swapBuffer[i + 1] = b[off + i];
+			}
+			file.write(swapBuffer, 0, n);
+			dataSize += n;
+		} else if (flipSign) {
+			if (swapBuffer.length < len)
+				swapBuffer = new byte[len];
+			for (int i = 0; i < len; i++)
+				swapBuffer[i] = (byte) (b[off + i] + 0x80);
+			file.write(swapBuffer, 0, len);
+			dataSize += len;
+		} else {
+			file.write(b, off, len);
+			dataSize += len;
+		}
+	}
+
+	/** Get the number of data bytes written so far. */
+	public long getDataSize() {
+		return dataSize;
+	}
+
+	/** Complete the file header and close the file. */
+	public void close() throws IOException {
+		byte[] b = new byte[4];
+		putInt(b, 0, (int) (HEADER_SIZE - 8 + dataSize));
+		file.seek(4L);
+		file.write(b);
+		putInt(b, 0, (int) dataSize);
+		file.seek(40L);
+		file.write(b);
+		file.close();
+	}
+
+	private static void putString(byte[] b, int p, String s) {
+		for (int i = 0; i < 4; i++)
+			b[p + i] = (byte) s.charAt(i);
+	}
+
+	private static void putShort(byte[] b, int p, int v) {
+		b[p] = (byte) v;
+		b[p + 1] = (byte) (v >> 8);
+	}
+
+	private static void putInt(byte[] b, int p, int v) {
+		putShort(b, p, v);
+		putShort(b, p + 2, v >> 16);
+	}
+}
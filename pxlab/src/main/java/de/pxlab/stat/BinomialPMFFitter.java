@@ -0,0 +1,388 @@
+package de.pxlab.stat;
+
+import java.util.concurrent.*;
+
+import de.pxlab.pxl.PsychometricFunctionCodes;
+
+/**
+ * Maximum likelihood estimation of the location and scale parameters of a
+ * psychometric function from binomial response frequencies. The negative log
+ * likelihood is minimized by a Levenberg-Marquardt procedure which uses the
+ * analytic gradient and the Fisher information matrix of the binomial log
+ * likelihood. This converges in a few iterations where the derivative free
+ * Praxis method needs hundreds of function evaluations. Since the likelihood
+ * may have local minima the fit may be started from several initial estimates
+ * and the best result is kept.
+ *
+ * <p>
+ * The supported function families are the logistic, the Weibull and the
+ * Gumbel function as defined by PsychometricFunctionEngine:
+ * <p>
+ * p(yes|x) = g + (1-g-l) * G(x)
+ * <p>
+ * where g and l are the fixed guessing and lapsing rates and G is one of
+ * <p>
+ * 1/(1+exp((c-x)/a)), 1-exp(-(x/c)**a), 1-exp(-exp((x-c)/a)).
+ *
+ * @version 0.1.0
+ * @see PsychometricFunctionEngine
+ */
+public class BinomialPMFFitter implements PsychometricFunctionCodes {
+	private static final int MAX_ITERATIONS = 200;
+	private static final double TOLERANCE = 1.0e-10;
+	private static final double MAX_LAMBDA = 1.0e12;
+	/** Probabilities are kept this far away from 0 and 1. */
+	private static final double P_LIMIT = 1.0e-12;
+	private int type;
+	private double[] x;
+	private int[] n;
+	private int[] y;
+	private double guessing;
+	private double lapsing;
+	private double minimum = Double.NaN;
+
+	/**
+	 * Create a fitter for the given response frequencies.
+	 *
+	 * @param type
+	 *            the function type code: LOGISTIC, WEIBULL or GUMBEL.
+	 * @param x
+	 *            the stimulus values.
+	 * @param n
+	 *            the number of presentations of each stimulus.
+	 * @param y
+	 *            the number of 'yes' responses for each stimulus.
+	 * @param guessing
+	 *            the fixed guessing rate.
+	 * @param lapsing
+	 *            the fixed lapsing rate.
+	 */
+	public BinomialPMFFitter(int type, double[] x, int[] n, int[] y,
+			double guessing, double lapsing) {
+		this.type = type;
+		this.x = x;
+		this.n = n;
+		this.y = y;
+		this.guessing = guessing;
+		this.lapsing = lapsing;
+	}
+
+	/**
+	 * Create a fitter for a sequence of single trial responses.
+	 *
+	 * @param type
+	 *            the function type code: LOGISTIC, WEIBULL or GUMBEL.
+	 * @param x
+	 *            the stimulus values of the trials.
+	 * @param yes
+	 *            true for every trial which got a 'yes' response.
+	 * @param guessing
+	 *            the fixed guessing rate.
+	 * @param lapsing
+	 *            the fixed lapsing rate.
+	 */
+	public BinomialPMFFitter(int type, double[] x, boolean[] yes,
+			double guessing, double lapsing) {
+		this(type, x, new int[x.length], new int[x.length], guessing, lapsing);
+		for (int i = 0; i < x.length; i++) {
+			n[i] = 1;
+			y[i] = yes[i] ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Check whether the given function type is supported by this fitter.
+	 *
+	 * @param type
+	 *            a psychometric function type code.
+	 * @return true if the type is supported.
+	 */
+	public static boolean supports(int type) {
+		return (type == LOGISTIC) || (type == WEIBULL) || (type == GUMBEL);
+	}
+
+	/**
+	 * Create a set of starting points around the given initial estimate. The
+	 * first starting point is the estimate itself. The sign of the scale
+	 * parameter is kept such that decreasing functions are fitted as well.
+	 *
+	 * @param es
+	 *            an initial estimate of the location and scale parameter.
+	 * @return an array of starting points.
+	 */
+	public static double[][] startsAround(double[] es) {
+		double c = es[0];
+		double a = es[1];
+		if (a == 0.0 || Double.isNaN(a) || Double.isInfinite(a))
+			a = 1.0;
+		double d = Math.abs(a);
+		double[][] s = { { c, a }, { c, 0.5 * a }, { c, 2.0 * a },
+				{ c - d, a }, { c + d, a } };
+		return s;
+	}
+
+	/**
+	 * Fit the function starting from each of the given starting points and
+	 * return the best fit.
+	 *
+	 * @param starts
+	 *            an array of starting points.
+	 * @param pool
+	 *            an executor which runs the fits for the starting points
+	 *            concurrently. If this is null then the fits are run
+	 *            sequentially in the calling thread.
+	 * @return the parameter estimates with the smallest negative log
+	 *         likelihood or null if no fit converged.
+	 */
+	public double[] fit(final double[][] starts, ExecutorService pool) {
+		double[][] results = new double[starts.length][];
+		if (pool == null) {
+			for (int i = 0; i < starts.length; i++)
+				results[i] = fitFrom(starts[i]);
+		} else {
+			Future[] f = new Future[starts.length];
+			for (int i = 0; i < starts.length; i++) {
+				final double[] s = starts[i];
+				f[i] = pool.submit(new Callable() {
+					public Object call() {
+						return fitFrom(s);
+					}
+				});
+			}
+			for (int i = 0; i < starts.length; i++) {
+				try {
+					results[i] = (double[]) f[i].get();
+				} catch (InterruptedException ix) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException ex) {
+					results[i] = null;
+				}
+			}
+		}
+		double[] best = null;
+		double bestValue = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				double v = negativeLogLikelihood(results[i]);
+				if (v < bestValue) {
+					bestValue = v;
+					best = results[i];
+				}
+			}
+		}
+		minimum = (best != null) ? bestValue : Double.NaN;
+		return best;
+	}
+
+	/**
+	 * Get the negative log likelihood of the most recent result of fit().
+	 *
+	 * @return the minimum found or NaN if the fit failed.
+	 */
+	public double getMinimum() {
+		return minimum;
+	}
+
+	/**
+	 * Fit the function from a single starting point.
+	 *
+	 * @param start
+	 *            the starting point.
+	 * @return the parameter estimates or null if the procedure did not
+	 *         converge to a minimum.
+	 */
+	public double[] fitFrom(double[] start) {
+		double[] p = { start[0], start[1] };
+		if (!valid(p))
+			return null;
+		double f = negativeLogLikelihood(p);
+		if (Double.isNaN(f) || Double.isInfinite(f))
+			return null;
+		double[] g = new double[2];
+		double[][] h = new double[2][2];
+		double[] q = new double[2];
+		double lambda = 1.0e-3;
+		boolean converged = false;
+		for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+			derivatives(p, g, h);
+			double fn = f;
+			boolean accepted = false;
+			while (lambda < MAX_LAMBDA) {
+				double a00 = h[0][0] * (1.0 + lambda) + lambda * 1.0e-12;
+				double a11 = h[1][1] * (1.0 + lambda) + lambda * 1.0e-12;
+				double a01 = h[0][1];
+				double det = a00 * a11 - a01 * a01;
+				if (det <= 0.0 || Double.isNaN(det)) {
+					lambda *= 10.0;
+					continue;
+				}
+				q[0] = p[0] - (a11 * g[0] - a01 * g[1]) / det;
+				q[1] = p[1] - (a00 * g[1] - a01 * g[0]) / det;
+				if (valid(q)) {
+					fn = negativeLogLikelihood(q);
+					if (fn <= f) {
+						accepted = true;
+						break;
+					}
+				}
+				lambda *= 10.0;
+			}
+			if (!accepted) {
+				// No step decreases the likelihood. This is a minimum only
+				// if the gradient vanishes.
+				converged = Math.abs(g[0]) + Math.abs(g[1]) <= 1.0e-6 * (1.0 + Math
+						.abs(f));
+				break;
+			}
+			double dp = Math.abs(q[0] - p[0]) + Math.abs(q[1] - p[1]);
+			double df = f - fn;
+			p[0] = q[0];
+			p[1] = q[1];
+			f = fn;
+			lambda = Math.max(lambda / 10.0, 1.0e-12);
+			if (df <= TOLERANCE * (1.0 + Math.abs(f))
+					&& dp <= 1.0e-8 * (1.0 + Math.abs(p[0]) + Math.abs(p[1]))) {
+				converged = true;
+				break;
+			}
+		}
+		return converged ? p : null;
+	}
+
+	/** Check whether the given parameters are in the function's domain. */
+	private boolean valid(double[] p) {
+		if (Double.isNaN(p[0]) || Double.isNaN(p[1])
+				|| Double.isInfinite(p[0]) || Double.isInfinite(p[1]))
+			return false;
+		if (p[1] == 0.0)
+			return false;
+		return (type != WEIBULL) || (p[0] > 0.0);
+	}
+
+	/**
+	 * Compute the negative binomial log likelihood of the data without the
+	 * constant binomial coefficient terms.
+	 *
+	 * @param p
+	 *            the location and scale parameters.
+	 * @return the negative log likelihood.
+	 */
+	public double negativeLogLikelihood(double[] p) {
+		double s = 0.0;
+		for (int i = 0; i < x.length; i++) {
+			if (n[i] == 0)
+				continue;
+			double w = clip(valueOf(x[i], p[0], p[1]));
+			s -= y[i] * Math.log(w) + (n[i] - y[i]) * Math.log(1.0 - w);
+		}
+		return s;
+	}
+
+	/**
+	 * Compute the gradient and the Fisher information matrix of the negative
+	 * log likelihood.
+	 */
+	private void derivatives(double[] p, double[] g, double[][] h) {
+		double c = p[0];
+		double a = p[1];
+		double range = 1.0 - guessing - lapsing;
+		g[0] = g[1] = 0.0;
+		h[0][0] = h[0][1] = h[1][0] = h[1][1] = 0.0;
+		for (int i = 0; i < x.length; i++) {
+			if (n[i] == 0)
+				continue;
+			double xi = x[i];
+			double dGdc, dGda, G;
+			if (type == WEIBULL) {
+				if (xi <= 0.0) {
+					G = 0.0;
+					dGdc = dGda = 0.0;
+				} else {
+					double u = Math.pow(xi / c, a);
+					double e = Math.exp(-u);
+					G = 1.0 - e;
+					dGdc = -e * a * u / c;
+					dGda = e * u * Math.log(xi / c);
+				}
+			} else {
+				double z = (xi - c) / a;
+				double dGdz;
+				if (type == GUMBEL) {
+					double ez = Math.exp(z);
+					double e = Math.exp(-ez);
+					G = 1.0 - e;
+					dGdz = ez * e;
+				} else {
+					G = 1.0 / (1.0 + Math.exp(-z));
+					dGdz = G * (1.0 - G);
+				}
+				dGdc = -dGdz / a;
+				dGda = -dGdz * z / a;
+			}
+			double w = clip(guessing + range * G);
+			double dc = range * dGdc;
+			double da = range * dGda;
+			if (Double.isNaN(dc) || Double.isNaN(da))
+				continue;
+			double v = w * (1.0 - w);
+			double r = (y[i] - n[i] * w) / v;
+			g[0] -= r * dc;
+			g[1] -= r * da;
+			double fi = n[i] / v;
+			h[0][0] += fi * dc * dc;
+			h[0][1] += fi * dc * da;
+			h[1][1] += fi * da * da;
+		}
+		h[1][0] = h[0][1];
+	}
+
+	/**
+	 * Compute the psychometric function value.
+	 *
+	 * @param x
+	 *            the stimulus value.
+	 * @param c
+	 *            the location parameter.
+	 * @param a
+	 *            the scale parameter.
+	 * @return the probability of a 'yes' response.
+	 */
+	public double valueOf(double x, double c, double a) {
+		return valueOf(type, x, c, a, guessing, lapsing);
+	}
+
+	/**
+	 * Compute the value of a psychometric function.
+	 *
+	 * @param type
+	 *            the function type code: LOGISTIC, WEIBULL or GUMBEL.
+	 * @param x
+	 *            the stimulus value.
+	 * @param c
+	 *            the location parameter.
+	 * @param a
+	 *            the scale parameter.
+	 * @param guessing
+	 *            the guessing rate.
+	 * @param lapsing
+	 *            the lapsing rate.
+	 * @return the probability of a 'yes' response.
+	 */
+	public static double valueOf(int type, double x, double c, double a,
+			double guessing, double lapsing) {
+		double G;
+		if (type == WEIBULL) {
+			G = 1.0 - Math.exp(-Math.pow(x / c, a));
+		} else if (type == GUMBEL) {
+			G = 1.0 - Math.exp(-Math.exp((x - c) / a));
+		} else {
+			G = 1.0 / (1.0 + Math.exp((c - x) / a));
+		}
+		return guessing + (1.0 - guessing - lapsing) * G;
+	}
+
+	private static double clip(double w) {
+		return (w < P_LIMIT) ? P_LIMIT : ((w > 1.0 - P_LIMIT) ? 1.0 - P_LIMIT
+				: w);
+	}
+}
@@ -0,0 +1,255 @@
+package de.pxlab.stat;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Computes bootstrap confidence intervals for the parameters of a
+ * BootstrapModel. The replications are independent of each other and are run
+ * on a fork-join pool. Every replication gets its own random number generator
+ * whose seed is derived from the bootstrap seed and the replication index.
+ * Thus the results depend only on the seed and not on the number of threads
+ * or on task scheduling.
+ *
+ * <p>
+ * Two types of intervals are available: percentile intervals and bias
+ * corrected and accelerated (BCa) intervals (Efron & Tibshirani, 1993). The
+ * acceleration constant of BCa intervals is estimated by the jackknife.
+ *
+ * @version 0.1.0
+ * @see BootstrapModel
+ */
+public class Bootstrap {
+	/** Replications per fork-join task which are not split further. */
+	private static final int TASK_SIZE = 32;
+	private BootstrapModel model;
+	private double[] estimate;
+	private int replications;
+	private long seed;
+	/** Sorted replicated estimates for every parameter. */
+	private double[][] values;
+	/** Acceleration constants for every parameter. */
+	private double[] acceleration;
+
+	/**
+	 * Create a bootstrap for the given model.
+	 *
+	 * @param model
+	 *            the model which is resampled.
+	 * @param estimate
+	 *            the parameter estimates of the original data.
+	 * @param replications
+	 *            the number of bootstrap replications.
+	 * @param seed
+	 *            the seed of the random number generators.
+	 */
+	public Bootstrap(BootstrapModel model, double[] estimate,
+			int replications, long seed) {
+		this.model = model;
+		this.estimate = estimate;
+		this.replications = replications;
+		this.seed = seed;
+	}
+
+	/** Run the bootstrap replications and the jackknife estimates. */
+	public void run() {
+		final double[][] r = new double[replications][];
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			pool.invoke(new ReplicationTask(r, 0, replications));
+		} finally {
+			pool.shutdown();
+		}
+		int m = estimate.length;
+		int valid = 0;
+		for (int i = 0; i < replications; i++)
+			if (r[i] != null)
+				valid++;
+		values = new double[m][valid];
+		int j = 0;
+		for (int i = 0; i < replications; i++) {
+			if (r[i] != null) {
+				for (int k = 0; k < m; k++)
+					values[k][j] = r[i][k];
+				j++;
+			}
+		}
+		for (int k = 0; k < m; k++)
+			Arrays.sort(values[k]);
+		acceleration = jackknifeAcceleration();
+	}
+
+	/**
+	 * Get the number of replications which resulted in valid estimates.
+	 *
+	 * @return the number of valid replications.
+	 */
+	public int getValidReplications() {
+		return values[0].length;
+	}
+
+	/**
+	 * Get the bootstrap estimate of a parameter's standard error.
+	 *
+	 * @param k
+	 *            the parameter index.
+	 * @return the standard deviation of the replicated estimates.
+	 */
+	public double standardError(int k) {
+		double[] v = values[k];
+		int n = v.length;
+		double s = 0.0, ss = 0.0;
+		for (int i = 0; i < n; i++) {
+			s += v[i];
+			ss += v[i] * v[i];
+		}
+		return Math.sqrt((ss - s * s / n) / (n - 1.0));
+	}
+
+	/**
+	 * Get the percentile confidence interval of a parameter.
+	 *
+	 * @param k
+	 *            the parameter index.
+	 * @param level
+	 *            the confidence level, for example 0.95.
+	 * @return an array which contains the lower and the upper limit.
+	 */
+	public double[] percentileInterval(int k, double level) {
+		double alpha = (1.0 - level) / 2.0;
+		double[] c = new double[2];
+		c[0] = quantile(values[k], alpha);
+		c[1] = quantile(values[k], 1.0 - alpha);
+		return c;
+	}
+
+	/**
+	 * Get the bias corrected and accelerated confidence interval of a
+	 * parameter.
+	 *
+	 * @param k
+	 *            the parameter index.
+	 * @param level
+	 *            the confidence level, for example 0.95.
+	 * @return an array which contains the lower and the upper limit.
+	 */
+	public double[] bcaInterval(int k, double level) {
+		double[] v = values[k];
+		int n = v.length;
+		double e = estimate[k];
+		int below = 0, equal = 0;
+		for (int i = 0; i < n; i++) {
+			if (v[i] < e)
+				below++;
+			else if (v[i] == e)
+				equal++;
+		}
+		double p0 = (below + 0.5 * equal) / n;
+		double lim = 0.5 / n;
+		p0 = Math.max(lim, Math.min(1.0 - lim, p0));
+		double z0 = ZDist.criticalValueFor(p0);
+		double a = acceleration[k];
+		double alpha = (1.0 - level) / 2.0;
+		double[] c = new double[2];
+		c[0] = quantile(v, adjusted(z0, a, ZDist.criticalValueFor(alpha)));
+		c[1] = quantile(v, adjusted(z0, a, ZDist.criticalValueFor(1.0 - alpha)));
+		return c;
+	}
+
+	private static double adjusted(double z0, double a, double z) {
+		double w = z0 + z;
+		return ZDist.probabilityOf(z0 + w / (1.0 - a * w));
+	}
+
+	/** Get a quantile of a sorted array by linear interpolation. */
+	private static double quantile(double[] v, double p) {
+		int n = v.length;
+		if (n == 0)
+			return Double.NaN;
+		double h = p * (n - 1);
+		if (h <= 0.0)
+			return v[0];
+		if (h >= n - 1)
+			return v[n - 1];
+		int i = (int) h;
+		return v[i] + (h - i) * (v[i + 1] - v[i]);
+	}
+
+	/**
+	 * Compute the acceleration constants from the weighted jackknife
+	 * estimates. If the model does not support the jackknife then the
+	 * constants are 0 and BCa intervals are bias corrected only.
+	 */
+	private double[] jackknifeAcceleration() {
+		int m = estimate.length;
+		double[] a = new double[m];
+		int nj = model.jackknifeSize();
+		if (nj == 0)
+			return a;
+		double[][] jk = new double[nj][];
+		double[] w = new double[nj];
+		double sw = 0.0;
+		for (int i = 0; i < nj; i++) {
+			w[i] = model.jackknifeWeight(i);
+			if (w[i] > 0.0)
+				jk[i] = model.jackknife(i);
+			if (jk[i] != null)
+				sw += w[i];
+		}
+		if (sw == 0.0)
+			return a;
+		for (int k = 0; k < m; k++) {
+			double mean = 0.0;
+			for (int i = 0; i < nj; i++)
+				if (jk[i] != null)
+					mean += w[i] * jk[i][k];
+			mean /= sw;
+			double s2 = 0.0, s3 = 0.0;
+			for (int i = 0; i < nj; i++) {
+				if (jk[i] != null) {
+					double d = mean - jk[i][k];
+					s2 += w[i] * d * d;
+					s3 += w[i] * d * d * d;
+				}
+			}
+			a[k] = (s2 > 0.0) ? s3 / (6.0 * Math.pow(s2, 1.5)) : 0.0;
+		}
+		return a;
+	}
+
+	/**
+	 * Create the random number generator for a replication. The seed is a
+	 * well mixed function of the bootstrap seed and the replication index
+	 * such that neighbouring replications get unrelated streams.
+	 */
+	private Random randomFor(int replication) {
+		long z = seed + (replication + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return new Random(z ^ (z >>> 31));
+	}
+
+	/** Runs a range of replications, splitting it if it is large. */
+	private class ReplicationTask extends RecursiveAction {
+		private double[][] results;
+		private int from;
+		private int to;
+
+		ReplicationTask(double[][] results, int from, int to) {
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= TASK_SIZE) {
+				for (int i = from; i < to; i++)
+					results[i] = model.resample(randomFor(i));
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ReplicationTask(results, from, mid),
+						new ReplicationTask(results, mid, to));
+			}
+		}
+	}
+}
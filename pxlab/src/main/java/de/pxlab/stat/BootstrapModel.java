@@ -0,0 +1,53 @@
+package de.pxlab.stat;
+
+import java.util.Random;
+
+/**
+ * A statistical model whose parameter estimates are evaluated by a Bootstrap.
+ * The model contains the original data and the parameters estimated from
+ * them. Implementations must be safe for concurrent calls of resample() and
+ * jackknife() since the Bootstrap runs replications in parallel.
+ *
+ * @version 0.1.0
+ * @see Bootstrap
+ */
+public interface BootstrapModel {
+	/**
+	 * Generate a resampled data set and estimate the model parameters from
+	 * it.
+	 *
+	 * @param rnd
+	 *            the random number generator which must be used for
+	 *            resampling. It is not shared with other threads.
+	 * @return the parameter estimates or null if the estimation failed.
+	 */
+	public double[] resample(Random rnd);
+
+	/**
+	 * Get the number of distinct jackknife data sets. Every jackknife data set
+	 * results from deleting a single observation from the original data.
+	 *
+	 * @return the number of jackknife data sets or 0 if the model does not
+	 *         support jackknife estimation.
+	 */
+	public int jackknifeSize();
+
+	/**
+	 * Get the number of observations whose deletion results in the given
+	 * jackknife data set.
+	 *
+	 * @param i
+	 *            the jackknife data set index.
+	 * @return the weight of the jackknife data set.
+	 */
+	public double jackknifeWeight(int i);
+
+	/**
+	 * Estimate the model parameters from a jackknife data set.
+	 *
+	 * @param i
+	 *            the jackknife data set index.
+	 * @return the parameter estimates or null if the estimation failed.
+	 */
+	public double[] jackknife(int i);
+}
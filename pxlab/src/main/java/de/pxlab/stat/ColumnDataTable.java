@@ -0,0 +1,313 @@
+package de.pxlab.stat;
+
+import java.io.*;
+import java.util.*;
+
+import de.pxlab.util.StringExt;
+import de.pxlab.pxl.Debug;
+
+/**
+ * A table with a fixed number of typed columns. In contrast to DataTable,
+ * which is a list of row arrays, this table stores every column in a single
+ * primitive array. Column types are inferred while the data are read: a column
+ * starts as a LONG column, is widened to a DOUBLE column when the first
+ * floating point token shows up and is widened to a dictionary encoded STRING
+ * column when the first non-numeric token shows up. Numeric columns only
+ * accept tokens whose canonical String representation is identical to the
+ * token itself, thus every entry's String value is exactly the token which
+ * has been read.
+ *
+ * <p>
+ * The file reading constructor streams the input file line by line and never
+ * holds more than a single line of text in memory.
+ *
+ * @version 0.1.0
+ * @see DataColumn
+ */
+public class ColumnDataTable {
+	private DataColumn[] columns = null;
+	/** The names of the table columns. */
+	private String[] columnNames = null;
+	private int rows = 0;
+
+	/**
+	 * Create an empty table. The number of columns is defined by the first
+	 * row added to the table.
+	 */
+	public ColumnDataTable() {
+	}
+
+	/**
+	 * Read the given file into a column table. Every nonempty line of input
+	 * which does not start with a '#' character is a row of the table and
+	 * contains whitespace separated tokens. All rows must have the same number
+	 * of tokens.
+	 *
+	 * @param fn
+	 *            the name of the data file.
+	 */
+	public ColumnDataTable(String fn) {
+		try {
+			Debug.show(Debug.FILES, "ColumnDataTable(): Open data file " + fn);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(fn)), 65536);
+			String line;
+			String[] tokens = null;
+			int n = 0;
+			while ((line = reader.readLine()) != null) {
+				n++;
+				line = line.trim();
+				if ((line.length() > 0) && !line.startsWith("#")) {
+					StringTokenizer st = new StringTokenizer(line);
+					int m = st.countTokens();
+					if (tokens == null) {
+						tokens = new String[m];
+					} else if (m != tokens.length) {
+						reader.close();
+						throw new RuntimeException(
+								"Wrong number of entries in line " + n
+										+ " of file " + fn);
+					}
+					for (int j = 0; j < m; j++)
+						tokens[j] = st.nextToken();
+					addRow(tokens);
+				}
+			}
+			reader.close();
+			Debug.show(Debug.FILES, "ColumnDataTable(): Closed file " + fn);
+		} catch (IOException iox) {
+			System.out.println("Read error on file " + fn);
+		}
+	}
+
+	/**
+	 * Add a row of tokens to the table. The column types are widened if
+	 * necessary.
+	 *
+	 * @param row
+	 *            an array of tokens. If this table is nonempty, then the
+	 *            number of array elements must be identical to the number of
+	 *            columns in this table.
+	 */
+	public void addRow(String[] row) {
+		if (columns == null) {
+			columns = new DataColumn[row.length];
+			for (int j = 0; j < row.length; j++)
+				columns[j] = new LongDataColumn();
+		} else if (row.length != columns.length) {
+			throw new RuntimeException(
+					"Can't add a row with different number of columns.");
+		}
+		for (int j = 0; j < row.length; j++) {
+			DataColumn c = columns[j];
+			String s = row[j];
+			if (!c.accepts(s)) {
+				c = widen(c, s);
+				columns[j] = c;
+			}
+			c.add(s);
+		}
+		rows++;
+	}
+
+	/**
+	 * Add a row which is made of entries of another table's row. Entries are
+	 * copied from column to column without converting them to Strings as
+	 * long as the column types match. The column types of this table are
+	 * widened if necessary.
+	 *
+	 * @param t
+	 *            the table which contains the source row.
+	 * @param r
+	 *            the index of the source row.
+	 * @param k
+	 *            for every column of this table the index of the column of
+	 *            table t whose entry is copied. If this table is nonempty,
+	 *            then the number of array elements must be identical to the
+	 *            number of columns in this table.
+	 */
+	public void addRow(ColumnDataTable t, int r, int[] k) {
+		if (columns == null) {
+			columns = new DataColumn[k.length];
+			for (int j = 0; j < k.length; j++)
+				columns[j] = new LongDataColumn();
+		} else if (k.length != columns.length) {
+			throw new RuntimeException(
+					"Can't add a row with different number of columns.");
+		}
+		for (int j = 0; j < k.length; j++) {
+			DataColumn c = columns[j];
+			DataColumn s = t.columns[k[j]];
+			if (!c.accepts(s, r)) {
+				c = widen(c, s, r);
+				columns[j] = c;
+			}
+			c.add(s, r);
+		}
+		rows++;
+	}
+
+	/**
+	 * Create a column which contains all entries of the given column and
+	 * accepts the given token.
+	 */
+	private DataColumn widen(DataColumn c, String s) {
+		if ((c.getType() == DataColumn.LONG)
+				&& ((LongDataColumn) c).isExactDouble()) {
+			DoubleDataColumn d = new DoubleDataColumn((LongDataColumn) c);
+			if (d.accepts(s))
+				return d;
+		}
+		return new StringDataColumn(c);
+	}
+
+	/**
+	 * Create a column which contains all entries of the given column and
+	 * accepts entry r of column s.
+	 */
+	private DataColumn widen(DataColumn c, DataColumn s, int r) {
+		if ((c.getType() == DataColumn.LONG)
+				&& ((LongDataColumn) c).isExactDouble()) {
+			DoubleDataColumn d = new DoubleDataColumn((LongDataColumn) c);
+			if (d.accepts(s, r))
+				return d;
+		}
+		return new StringDataColumn(c);
+	}
+
+	/**
+	 * Return the number of columns in this table.
+	 *
+	 * @return number of columns.
+	 */
+	public int getColumns() {
+		return (columns == null) ? 0 : columns.length;
+	}
+
+	/**
+	 * Return the number of rows in this table.
+	 *
+	 * @return number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Set the names of the table columns.
+	 *
+	 * @param cn
+	 *            an array of Strings which are the names of the table columns.
+	 */
+	public void setColumnNames(String[] cn) {
+		columnNames = cn;
+	}
+
+	/**
+	 * Get the names of the table columns.
+	 *
+	 * @return a String array of names or null if no names have been set.
+	 */
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * Find the column index for the given column name.
+	 *
+	 * @param name
+	 *            the column name whose index is requested.
+	 * @return the column index of the given name or -1 if the name is not
+	 *         known.
+	 */
+	public int columnIndex(String name) {
+		return (columnNames == null) ? -1 : StringExt
+				.indexOf(name, columnNames);
+	}
+
+	/**
+	 * Get a column of this table.
+	 *
+	 * @param k
+	 *            the index of the column.
+	 * @return the DataColumn object.
+	 */
+	public DataColumn column(int k) {
+		if (k < 0 || k >= getColumns()) {
+			throw new RuntimeException("Illegal column requested: " + k
+					+ ". Table has only " + getColumns() + " columns.");
+		}
+		return columns[k];
+	}
+
+	/**
+	 * Get the type of a column.
+	 *
+	 * @param k
+	 *            the index of the column.
+	 * @return one of the type codes defined in class DataColumn.
+	 */
+	public int getColumnType(int k) {
+		return column(k).getType();
+	}
+
+	/**
+	 * Get an indexed column of this table as a double array.
+	 *
+	 * @param k
+	 *            the index of the column.
+	 * @return an array of all column entries. Non-numeric entries are NaN.
+	 */
+	public double[] doubleColumn(int k) {
+		return column(k).doubleArray();
+	}
+
+	/**
+	 * Get a named column of this table as a double array.
+	 *
+	 * @param n
+	 *            the name of the column.
+	 * @return an array of all column entries. Non-numeric entries are NaN.
+	 */
+	public double[] doubleColumn(String n) {
+		return doubleColumn(columnIndex(n));
+	}
+
+	/**
+	 * Get an indexed column of this table as an integer array.
+	 *
+	 * @param k
+	 *            the index of the column.
+	 * @return an array of all column entries rounded to integers.
+	 */
+	public int[] intColumn(int k) {
+		return column(k).intArray();
+	}
+
+	/**
+	 * Get a single entry of this table as a double value.
+	 *
+	 * @param r
+	 *            row
+	 * @param c
+	 *            column
+	 * @return the entry's value.
+	 */
+	public double doubleEntry(int r, int c) {
+		return columns[c].doubleValue(r);
+	}
+
+	/**
+	 * Get a single entry of this table as the String which has been read from
+	 * the input.
+	 *
+	 * @param r
+	 *            row
+	 * @param c
+	 *            column
+	 * @return the entry's String value.
+	 */
+	public String stringEntry(int r, int c) {
+		return columns[c].stringValue(r);
+	}
+}
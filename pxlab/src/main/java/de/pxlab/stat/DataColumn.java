@@ -0,0 +1,197 @@
+package de.pxlab.stat;
+
+/**
+ * A single typed column of a ColumnDataTable. Column values are stored in
+ * primitive arrays which grow as rows are appended. Every column is able to
+ * return its entries as double values and as the exact String which has been
+ * read from the data file.
+ *
+ * @version 0.1.0
+ * @see ColumnDataTable
+ */
+abstract public class DataColumn {
+	/** Type code for columns which contain integer values only. */
+	public static final int LONG = 0;
+	/** Type code for columns which contain floating point numbers. */
+	public static final int DOUBLE = 1;
+	/** Type code for columns which contain arbitrary strings. */
+	public static final int STRING = 2;
+	/** The digits of Long.MAX_VALUE. */
+	private static final String MAX_LONG_DIGITS = "9223372036854775807";
+	/** The digits of Long.MIN_VALUE without the sign. */
+	private static final String MIN_LONG_DIGITS = "9223372036854775808";
+	/** Number of entries in this column. */
+	protected int size = 0;
+
+	/**
+	 * Get the number of entries in this column.
+	 *
+	 * @return the number of rows of this column.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the type code of this column.
+	 *
+	 * @return one of LONG, DOUBLE or STRING.
+	 */
+	abstract public int getType();
+
+	/**
+	 * Check whether the given token can be stored in this column without
+	 * changing its String representation.
+	 *
+	 * @param s
+	 *            a token from the data file.
+	 * @return true if the token can be added to this column.
+	 */
+	abstract public boolean accepts(String s);
+
+	/**
+	 * Append a token to this column. The token must have been accepted by
+	 * accepts().
+	 *
+	 * @param s
+	 *            the token to be added.
+	 */
+	abstract public void add(String s);
+
+	/**
+	 * Check whether an entry of another column can be stored in this column
+	 * without changing its String representation.
+	 *
+	 * @param c
+	 *            the column which contains the entry.
+	 * @param r
+	 *            the row index of the entry.
+	 * @return true if the entry can be added to this column.
+	 */
+	public boolean accepts(DataColumn c, int r) {
+		return accepts(c.stringValue(r));
+	}
+
+	/**
+	 * Append an entry of another column to this column. The entry must have
+	 * been accepted by accepts(DataColumn, int). Subclasses copy entries of
+	 * columns of their own type without converting them to a String.
+	 *
+	 * @param c
+	 *            the column which contains the entry.
+	 * @param r
+	 *            the row index of the entry.
+	 */
+	public void add(DataColumn c, int r) {
+		add(c.stringValue(r));
+	}
+
+	/**
+	 * Get an entry of this column as a double value.
+	 *
+	 * @param r
+	 *            the row index.
+	 * @return the double value of the entry or NaN if the entry is not a
+	 *         number.
+	 */
+	abstract public double doubleValue(int r);
+
+	/**
+	 * Get an entry of this column as the String which has been read from the
+	 * input file.
+	 *
+	 * @param r
+	 *            the row index.
+	 * @return the String value of the entry.
+	 */
+	abstract public String stringValue(int r);
+
+	/**
+	 * Get all entries of this column as a double array.
+	 *
+	 * @return a newly allocated array containing all column entries.
+	 */
+	public double[] doubleArray() {
+		double[] a = new double[size];
+		for (int i = 0; i < size; i++)
+			a[i] = doubleValue(i);
+		return a;
+	}
+
+	/**
+	 * Get all entries of this column as an integer array. Entries are rounded
+	 * in the same way as ExParValue objects round their double values.
+	 *
+	 * @return a newly allocated array containing all column entries.
+	 */
+	public int[] intArray() {
+		int[] a = new int[size];
+		for (int i = 0; i < size; i++)
+			a[i] = (int) Math.round(doubleValue(i));
+		return a;
+	}
+
+	/**
+	 * Compute a new capacity for an array which must hold at least the given
+	 * number of entries.
+	 */
+	protected static int grownCapacity(int capacity, int minCapacity) {
+		int n = (capacity < 16) ? 16 : capacity + (capacity >> 1);
+		return (n < minCapacity) ? minCapacity : n;
+	}
+
+	/**
+	 * Check whether the given String is the canonical decimal representation
+	 * of a long value. Only these tokens are stored as numbers by LONG
+	 * columns, since only they can be converted back to the original String.
+	 */
+	protected static boolean isCanonicalLong(String s) {
+		int n = s.length();
+		if (n == 0 || n > 20)
+			return false;
+		int k = 0;
+		char c = s.charAt(0);
+		if (c == '-') {
+			if (n == 1)
+				return false;
+			k = 1;
+		}
+		if (s.charAt(k) == '0' && n > k + 1)
+			return false;
+		for (int i = k; i < n; i++) {
+			c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return false;
+		}
+		if (s.equals("-0"))
+			return false;
+		int digits = n - k;
+		if (digits < MAX_LONG_DIGITS.length())
+			return true;
+		if (digits > MAX_LONG_DIGITS.length())
+			return false;
+		// 19 digits may overflow. Digit strings of equal length compare like
+		// the numbers they represent.
+		String max = (k == 0) ? MAX_LONG_DIGITS : MIN_LONG_DIGITS;
+		return s.substring(k).compareTo(max) <= 0;
+	}
+
+	/**
+	 * Check whether the given String is the representation of a double value
+	 * which is created by Double.toString(). Only these tokens are stored as
+	 * numbers by DOUBLE columns.
+	 */
+	protected static boolean isCanonicalDouble(String s) {
+		int n = s.length();
+		if (n == 0)
+			return false;
+		char c = s.charAt(n - 1);
+		if (c != 'N' && c != 'y' && (c < '0' || c > '9'))
+			return false;
+		try {
+			return Double.toString(Double.parseDouble(s)).equals(s);
+		} catch (NumberFormatException nfx) {
+			return false;
+		}
+	}
+}
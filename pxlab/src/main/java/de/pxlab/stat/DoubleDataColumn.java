@@ -0,0 +1,132 @@
+package de.pxlab.stat;
+
+/**
+ * A DataColumn whose entries are floating point numbers stored in a double
+ * array. Entries which have been read as integer numbers are marked such that
+ * their String value is identical to the input token.
+ *
+ * @version 0.1.0
+ */
+public class DoubleDataColumn extends DataColumn {
+	private double[] values;
+	/** Marks entries which have been given as integer tokens. */
+	private java.util.BitSet integral = new java.util.BitSet();
+
+	/** Create an empty column. */
+	public DoubleDataColumn() {
+		values = new double[64];
+	}
+
+	/**
+	 * Create a column which contains all entries of the given integer column.
+	 * This is used when a LONG column has to be widened during type inference.
+	 *
+	 * @param c
+	 *            the column whose entries are copied.
+	 */
+	public DoubleDataColumn(LongDataColumn c) {
+		int n = c.size();
+		values = new double[grownCapacity(n, n + 1)];
+		for (int i = 0; i < n; i++)
+			values[i] = c.doubleValue(i);
+		integral.set(0, n);
+		size = n;
+	}
+
+	public int getType() {
+		return DOUBLE;
+	}
+
+	public boolean accepts(String s) {
+		return isExactLong(s) || isCanonicalDouble(s);
+	}
+
+	public void add(String s) {
+		if (isExactLong(s)) {
+			integral.set(size);
+			add((double) Long.parseLong(s));
+		} else {
+			add(Double.parseDouble(s));
+		}
+	}
+
+	public boolean accepts(DataColumn c, int r) {
+		int type = c.getType();
+		if (type == DOUBLE)
+			return true;
+		if (type == LONG)
+			return isExactLong(((LongDataColumn) c).longValue(r));
+		return super.accepts(c, r);
+	}
+
+	public void add(DataColumn c, int r) {
+		int type = c.getType();
+		if (type == DOUBLE) {
+			if (((DoubleDataColumn) c).isIntegral(r))
+				integral.set(size);
+			add(c.doubleValue(r));
+		} else if (type == LONG) {
+			integral.set(size);
+			add(c.doubleValue(r));
+		} else {
+			super.add(c, r);
+		}
+	}
+
+	/**
+	 * Append a double value to this column.
+	 *
+	 * @param v
+	 *            the value to be added.
+	 */
+	public void add(double v) {
+		if (size == values.length) {
+			double[] a = new double[grownCapacity(values.length, size + 1)];
+			System.arraycopy(values, 0, a, 0, size);
+			values = a;
+		}
+		values[size++] = v;
+	}
+
+	/**
+	 * Integer tokens are stored as such only if they have less than 16 digits
+	 * and thus are exactly representable as a double.
+	 */
+	private static boolean isExactLong(String s) {
+		return (s.length() < 16) && isCanonicalLong(s);
+	}
+
+	/**
+	 * Check whether the String representation of the given value has less
+	 * than 16 characters as it is required by isExactLong(String).
+	 */
+	private static boolean isExactLong(long v) {
+		return (v < 1000000000000000L) && (v > -100000000000000L);
+	}
+
+	public double doubleValue(int r) {
+		return values[r];
+	}
+
+	/**
+	 * Check whether an entry has been given as an integer token.
+	 *
+	 * @param r
+	 *            the row index.
+	 * @return true if the entry has been read as an integer number.
+	 */
+	public boolean isIntegral(int r) {
+		return integral.get(r);
+	}
+
+	public String stringValue(int r) {
+		return integral.get(r) ? Long.toString((long) values[r]) : Double
+				.toString(values[r]);
+	}
+
+	public double[] doubleArray() {
+		double[] a = new double[size];
+		System.arraycopy(values, 0, a, 0, size);
+		return a;
+	}
+}
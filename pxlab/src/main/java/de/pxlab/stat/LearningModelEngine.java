@@ -39,6 +39,11 @@ public class LearningModelEngine extends StatEngine implements
 	private int minimizationFunction;
 	private String minimizationFunctionName;
 	protected DataTable data;
+	protected int bootstrapReplications = 0;
+	protected long bootstrapSeed = 0L;
+	protected double confidenceLevel = 0.95;
+	private double[] percentileInterval = { Double.NaN, Double.NaN };
+	private double[] bcaInterval = { Double.NaN, Double.NaN };
 
 	/**
 	 * Create an estimation engine for the given factorial frequency table.
@@ -79,6 +84,45 @@ public class LearningModelEngine extends StatEngine implements
 		}
 	}
 
+	/**
+	 * Request parametric bootstrap confidence intervals for the learning rate.
+	 * The bootstrap is run after the parameters have been estimated.
+	 * 
+	 * @param replications
+	 *            the number of bootstrap replications. No bootstrap is run if
+	 *            this is 0.
+	 * @param seed
+	 *            the random number seed. Identical seeds give identical
+	 *            intervals.
+	 * @param level
+	 *            the confidence level of the intervals.
+	 */
+	public void setBootstrap(int replications, long seed, double level) {
+		bootstrapReplications = replications;
+		bootstrapSeed = seed;
+		confidenceLevel = level;
+	}
+
+	/**
+	 * Get the bootstrap percentile confidence interval of the learning rate.
+	 * 
+	 * @return an array which contains the lower and the upper limit. These
+	 *         are NaN if no bootstrap has been run.
+	 */
+	public double[] getPercentileInterval() {
+		return percentileInterval;
+	}
+
+	/**
+	 * Get the bootstrap BCa confidence interval of the learning rate.
+	 * 
+	 * @return an array which contains the lower and the upper limit. These
+	 *         are NaN if no bootstrap has been run.
+	 */
+	public double[] getBCaInterval() {
+		return bcaInterval;
+	}
+
 	public void computeStatistics() {
 		int nItems = data.getRows();
 		int nTrials = data.getColumns() - 1;
@@ -256,6 +300,43 @@ public class LearningModelEngine extends StatEngine implements
 			append("</tr>");
 			endTable();
 		}
+		if (bootstrapReplications > 0 && totalE > 0) {
+			Bootstrap bs = new Bootstrap(new AoNBootstrapModel(nItems, nTrials,
+					guessingRate, alpha, t), new double[] { alpha },
+					bootstrapReplications, bootstrapSeed);
+			bs.run();
+			if (bs.getValidReplications() > 1) {
+				percentileInterval = bs.percentileInterval(0, confidenceLevel);
+				bcaInterval = bs.bcaInterval(0, confidenceLevel);
+				if (rPr) {
+					beginTable("Bootstrap Confidence Intervals of the Learning Rate ("
+							+ bs.getValidReplications()
+							+ " Replications, "
+							+ dfm(100.0 * confidenceLevel) + "%)");
+					append(nl + "<tr>");
+					append("<td align=\"right\">Learning Rate</td>");
+					append("<td align=\"right\">SE</td>");
+					append("<td align=\"center\" colspan=\"2\">Percentile</td>");
+					append("<td align=\"center\" colspan=\"2\">BCa</td>");
+					append("</tr>");
+					append(nl + "<tr><td colspan=\"6\"><hr></td></tr>");
+					append(nl + "<tr>");
+					append("<td align=\"right\">" + dfm2(alpha) + "</td>");
+					append("<td align=\"right\">" + dfm(bs.standardError(0))
+							+ "</td>");
+					append("<td align=\"right\">" + dfm(percentileInterval[0])
+							+ "</td>");
+					append("<td align=\"right\">" + dfm(percentileInterval[1])
+							+ "</td>");
+					append("<td align=\"right\">" + dfm(bcaInterval[0])
+							+ "</td>");
+					append("<td align=\"right\">" + dfm(bcaInterval[1])
+							+ "</td>");
+					append("</tr>");
+					endTable();
+				}
+			}
+		}
 		if (rPr) {
 			beginTable("Goodness of Fit Test for Learning Curve");
 			append(nl + "<tr>");
@@ -349,4 +430,58 @@ public class LearningModelEngine extends StatEngine implements
 		 * dfm(par[1]) + " " + dfm(fixedPar[0]) + " " + dfm(fixedPar[1])); }
 		 */
 	}
+	/**
+	 * A parametric bootstrap model of the all-or-nothing learning model.
+	 * Every item starts unlearned, produces an error with the guessing rate as
+	 * long as it is unlearned and is learned after every trial with the
+	 * learning rate. The learning rate estimate of a data set is the guessing
+	 * rate divided by the mean number of errors per item. Jackknife data sets
+	 * result from deleting single items.
+	 */
+	private static class AoNBootstrapModel implements BootstrapModel {
+		private int nItems;
+		private int nTrials;
+		private double guessingRate;
+		private double alpha;
+		private int[] t;
+		private int totalE;
+
+		AoNBootstrapModel(int nItems, int nTrials, double guessingRate,
+				double alpha, int[] t) {
+			this.nItems = nItems;
+			this.nTrials = nTrials;
+			this.guessingRate = guessingRate;
+			this.alpha = alpha;
+			this.t = t;
+			for (int i = 0; i < nItems; i++)
+				totalE += t[i];
+		}
+
+		public double[] resample(Random rnd) {
+			int e = 0;
+			for (int i = 0; i < nItems; i++) {
+				for (int j = 0; j < nTrials; j++) {
+					if (rnd.nextDouble() < guessingRate)
+						e++;
+					if (rnd.nextDouble() < alpha)
+						break;
+				}
+			}
+			return (e > 0) ? new double[] { guessingRate * nItems / e } : null;
+		}
+
+		public int jackknifeSize() {
+			return (nItems > 1) ? nItems : 0;
+		}
+
+		public double jackknifeWeight(int i) {
+			return 1.0;
+		}
+
+		public double[] jackknife(int i) {
+			int e = totalE - t[i];
+			return (e > 0) ? new double[] { guessingRate * (nItems - 1) / e }
+					: null;
+		}
+	}
 }
@@ -0,0 +1,98 @@
+package de.pxlab.stat;
+
+/**
+ * A DataColumn whose entries are integer numbers stored in a long array.
+ *
+ * @version 0.1.0
+ */
+public class LongDataColumn extends DataColumn {
+	private static final long MAX_EXACT_DOUBLE = 1L << 53;
+	private long[] values;
+	/** True as long as every entry is exactly representable as a double. */
+	private boolean exactDouble = true;
+
+	/** Create an empty column. */
+	public LongDataColumn() {
+		this(64);
+	}
+
+	/**
+	 * Create an empty column with the given initial capacity.
+	 *
+	 * @param n
+	 *            the initial capacity.
+	 */
+	public LongDataColumn(int n) {
+		values = new long[(n > 0) ? n : 16];
+	}
+
+	public int getType() {
+		return LONG;
+	}
+
+	public boolean accepts(String s) {
+		return isCanonicalLong(s);
+	}
+
+	public void add(String s) {
+		add(Long.parseLong(s));
+	}
+
+	public boolean accepts(DataColumn c, int r) {
+		return (c.getType() == LONG) || super.accepts(c, r);
+	}
+
+	public void add(DataColumn c, int r) {
+		if (c.getType() == LONG) {
+			add(((LongDataColumn) c).longValue(r));
+		} else {
+			super.add(c, r);
+		}
+	}
+
+	/**
+	 * Append a long value to this column.
+	 *
+	 * @param v
+	 *            the value to be added.
+	 */
+	public void add(long v) {
+		if (size == values.length) {
+			long[] a = new long[grownCapacity(values.length, size + 1)];
+			System.arraycopy(values, 0, a, 0, size);
+			values = a;
+		}
+		values[size++] = v;
+		if (v > MAX_EXACT_DOUBLE || v < -MAX_EXACT_DOUBLE)
+			exactDouble = false;
+	}
+
+	/**
+	 * Check whether all entries of this column may be converted to double
+	 * values without loosing precision.
+	 *
+	 * @return true if this column may be widened to a DoubleDataColumn.
+	 */
+	public boolean isExactDouble() {
+		return exactDouble;
+	}
+
+	/**
+	 * Get an entry of this column.
+	 *
+	 * @param r
+	 *            the row index.
+	 * @return the entry's value.
+	 */
+	public long longValue(int r) {
+		return values[r];
+	}
+
+	public double doubleValue(int r) {
+		return (double) values[r];
+	}
+
+	public String stringValue(int r) {
+		return Long.toString(values[r]);
+	}
+}
@@ -0,0 +1,247 @@
+package de.pxlab.stat;
+
+import java.util.ArrayList;
+
+/**
+ * Accumulates descriptive statistics of a stream of data values with constant
+ * memory. Mean and central moments are updated with Welford's method and its
+ * generalization to third and fourth moments, which is numerically stable even
+ * for long streams. Quantiles are estimated by a QuantileSketch. Accumulators
+ * may be updated value by value, for example after every trial of a session,
+ * and accumulators of different data sets may be merged.
+ *
+ * <p>
+ * All statistics are defined in the same way as those computed by the
+ * StatisticsEngine. Quantiles and the average deviation are estimates.
+ *
+ * @version 0.1.0
+ * @see StatisticsEngine
+ */
+public class OnlineStatistics {
+	private int n = 0;
+	private double mean = 0.0;
+	/** Sums of powers of deviations from the mean. */
+	private double m2 = 0.0, m3 = 0.0, m4 = 0.0;
+	private double sum = 0.0;
+	private double sumOfSquares = 0.0;
+	private double sumOfCubes = 0.0;
+	private double sumOfFourthPowers = 0.0;
+	private double sumOfLogs = 0.0;
+	private double sumOfInverses = 0.0;
+	private boolean allGreaterZero = true;
+	private double minimum = Double.POSITIVE_INFINITY;
+	private double maximum = Double.NEGATIVE_INFINITY;
+	private QuantileSketch sketch;
+
+	/** Create an empty accumulator. */
+	public OnlineStatistics() {
+		sketch = new QuantileSketch();
+	}
+
+	/**
+	 * Create an empty accumulator with the given quantile sketch compression.
+	 *
+	 * @param compression
+	 *            the compression parameter of the quantile sketch.
+	 */
+	public OnlineStatistics(double compression) {
+		sketch = new QuantileSketch(compression);
+	}
+
+	/**
+	 * Add a data value.
+	 *
+	 * @param x
+	 *            the new data value.
+	 */
+	public void add(double x) {
+		int n1 = n;
+		n++;
+		double delta = x - mean;
+		double delta_n = delta / n;
+		double delta_n2 = delta_n * delta_n;
+		double term1 = delta * delta_n * n1;
+		mean += delta_n;
+		m4 += term1 * delta_n2 * ((double) n * n - 3.0 * n + 3.0) + 6.0
+				* delta_n2 * m2 - 4.0 * delta_n * m3;
+		m3 += term1 * delta_n * (n - 2.0) - 3.0 * delta_n * m2;
+		m2 += term1;
+		double xx = x * x;
+		sum += x;
+		sumOfSquares += xx;
+		sumOfCubes += xx * x;
+		sumOfFourthPowers += xx * xx;
+		if (allGreaterZero && x > 0.0) {
+			sumOfLogs += Math.log(x);
+			sumOfInverses += 1.0 / x;
+		} else {
+			allGreaterZero = false;
+		}
+		if (x < minimum)
+			minimum = x;
+		if (x > maximum)
+			maximum = x;
+		sketch.add(x);
+	}
+
+	/**
+	 * Add an array of data values.
+	 *
+	 * @param a
+	 *            the data values.
+	 */
+	public void add(double[] a) {
+		for (int i = 0; i < a.length; i++)
+			add(a[i]);
+	}
+
+	/**
+	 * Merge the data of another accumulator into this one. The result is
+	 * identical to an accumulator which has seen the data of both.
+	 *
+	 * @param s
+	 *            the accumulator whose data are added.
+	 */
+	public void merge(OnlineStatistics s) {
+		if (s.n == 0)
+			return;
+		if (n == 0) {
+			n = s.n;
+			mean = s.mean;
+			m2 = s.m2;
+			m3 = s.m3;
+			m4 = s.m4;
+		} else {
+			double na = n, nb = s.n;
+			double nn = na + nb;
+			double delta = s.mean - mean;
+			double delta2 = delta * delta;
+			double delta3 = delta2 * delta;
+			double delta4 = delta2 * delta2;
+			double q4 = m4 + s.m4 + delta4 * na * nb
+					* (na * na - na * nb + nb * nb) / (nn * nn * nn) + 6.0
+					* delta2 * (na * na * s.m2 + nb * nb * m2) / (nn * nn)
+					+ 4.0 * delta * (na * s.m3 - nb * m3) / nn;
+			double q3 = m3 + s.m3 + delta3 * na * nb * (na - nb) / (nn * nn)
+					+ 3.0 * delta * (na * s.m2 - nb * m2) / nn;
+			m2 = m2 + s.m2 + delta2 * na * nb / nn;
+			m3 = q3;
+			m4 = q4;
+			mean = mean + delta * nb / nn;
+			n += s.n;
+		}
+		sum += s.sum;
+		sumOfSquares += s.sumOfSquares;
+		sumOfCubes += s.sumOfCubes;
+		sumOfFourthPowers += s.sumOfFourthPowers;
+		sumOfLogs += s.sumOfLogs;
+		sumOfInverses += s.sumOfInverses;
+		allGreaterZero = allGreaterZero && s.allGreaterZero;
+		if (s.minimum < minimum)
+			minimum = s.minimum;
+		if (s.maximum > maximum)
+			maximum = s.maximum;
+		sketch.merge(s.sketch);
+	}
+
+	public int n() {
+		return n;
+	}
+
+	public double sum() {
+		return sum;
+	}
+
+	public double sumOfSquares() {
+		return sumOfSquares;
+	}
+
+	public double mean() {
+		return mean;
+	}
+
+	public double geometricMean() {
+		return allGreaterZero ? Math.exp(sumOfLogs / n) : 0.0;
+	}
+
+	public double harmonicMean() {
+		return allGreaterZero ? n / sumOfInverses : 0.0;
+	}
+
+	/** Get the variance estimate with denominator n-1. */
+	public double variance() {
+		return m2 / (n - 1.0);
+	}
+
+	public double standardDeviation() {
+		return Math.sqrt(variance());
+	}
+
+	public double standardError() {
+		return Math.sqrt(variance() / n);
+	}
+
+	public double variationCoefficient() {
+		return (mean != 0.0) ? standardDeviation() / mean : 0.0;
+	}
+
+	public double skew() {
+		double v = variance();
+		return (v > 0.0) ? m3 / (n * v * Math.sqrt(v)) : sumOfCubes / n;
+	}
+
+	public double kurtosis() {
+		double v = variance();
+		return (v > 0.0) ? m4 / (n * v * v) : sumOfFourthPowers / n - 3.0;
+	}
+
+	public double minimum() {
+		return minimum;
+	}
+
+	public double maximum() {
+		return maximum;
+	}
+
+	public double range() {
+		return maximum - minimum;
+	}
+
+	/** Get an estimate of the average absolute deviation from the mean. */
+	public double averageDeviation() {
+		return sketch.sumOfAbsoluteDeviations(mean) / n;
+	}
+
+	/**
+	 * Get an estimate of a quantile.
+	 *
+	 * @param p
+	 *            the probability whose quantile is requested.
+	 * @return the estimated quantile.
+	 */
+	public double quantile(double p) {
+		return sketch.quantile(p);
+	}
+
+	public double quantile25() {
+		return quantile(0.25);
+	}
+
+	public double median() {
+		return quantile(0.5);
+	}
+
+	public double quantile75() {
+		return quantile(0.75);
+	}
+
+	/**
+	 * Get an approximation of the cumulative distribution.
+	 *
+	 * @return a list of double arrays containing a data value and its
+	 *         cumulative relative frequency.
+	 */
+	public ArrayList cumulative() {
+		return sketch.cumulative();
+	}
+}
@@ -0,0 +1,139 @@
+package de.pxlab.stat;
+
+import java.util.Random;
+
+import de.pxlab.util.Praxis;
+import de.pxlab.pxl.PsychometricFunction;
+
+/**
+ * A parametric bootstrap model for psychometric functions fitted to binomial
+ * response frequencies. Resampled data sets are generated by drawing the
+ * number of 'yes' responses at every stimulus value from the binomial
+ * distribution given by the fitted function. Every data set is refitted by
+ * the same minimization function as the original data: the maximum likelihood
+ * estimate is computed first and is the starting point for minimizing the chi
+ * square or logit criterion. The parameters are the location (threshold) and
+ * the scale (slope) parameter of the function.
+ *
+ * @version 0.1.0
+ * @see Bootstrap
+ * @see BinomialPMFFitter
+ */
+public class PMFBootstrapModel implements BootstrapModel,
+		de.pxlab.pxl.PsychometricFunctionCodes,
+		de.pxlab.pxl.MinimizationFunctionCodes {
+	private int type;
+	private int minimizationFunction;
+	private double[] x;
+	private int[] n;
+	private int[] y;
+	private double guessing;
+	private double lapsing;
+	private double[] par;
+	/** Fitted response probabilities. */
+	private double[] p;
+
+	/**
+	 * Create a bootstrap model for a fitted psychometric function.
+	 *
+	 * @param type
+	 *            the function type code: LOGISTIC, WEIBULL or GUMBEL.
+	 * @param mf
+	 *            the minimization function code which has been used for
+	 *            fitting the data: CHI_SQUARE, LOG_LIKELIHOOD or
+	 *            SQUARED_DEV_LOGIT.
+	 * @param x
+	 *            the stimulus values.
+	 * @param n
+	 *            the number of presentations of each stimulus.
+	 * @param y
+	 *            the number of 'yes' responses for each stimulus.
+	 * @param guessing
+	 *            the fixed guessing rate.
+	 * @param lapsing
+	 *            the fixed lapsing rate.
+	 * @param par
+	 *            the location and scale parameters fitted to the data.
+	 */
+	public PMFBootstrapModel(int type, int mf, double[] x, int[] n, int[] y,
+			double guessing, double lapsing, double[] par) {
+		this.type = type;
+		minimizationFunction = mf;
+		this.x = x;
+		this.n = n;
+		this.y = y;
+		this.guessing = guessing;
+		this.lapsing = lapsing;
+		this.par = par;
+		BinomialPMFFitter f = new BinomialPMFFitter(type, x, n, y, guessing,
+				lapsing);
+		p = new double[x.length];
+		for (int i = 0; i < x.length; i++)
+			p[i] = f.valueOf(x[i], par[0], par[1]);
+	}
+
+	public double[] resample(Random rnd) {
+		int k = x.length;
+		int[] yy = new int[k];
+		for (int i = 0; i < k; i++) {
+			int s = 0;
+			for (int j = 0; j < n[i]; j++)
+				if (rnd.nextDouble() < p[i])
+					s++;
+			yy[i] = s;
+		}
+		return refit(n, yy, rnd.nextLong());
+	}
+
+	/**
+	 * Jackknife data sets result from deleting a single 'yes' response (even
+	 * indices) or a single 'no' response (odd indices) at a stimulus value.
+	 */
+	public int jackknifeSize() {
+		return 2 * x.length;
+	}
+
+	public double jackknifeWeight(int i) {
+		int h = i / 2;
+		return ((i % 2) == 0) ? y[h] : (n[h] - y[h]);
+	}
+
+	public double[] jackknife(int i) {
+		int h = i / 2;
+		int[] nn = (int[]) n.clone();
+		int[] yy = (int[]) y.clone();
+		nn[h]--;
+		if ((i % 2) == 0)
+			yy[h]--;
+		return refit(nn, yy, i);
+	}
+
+	/**
+	 * Fit a data set starting from the original estimates. This follows the
+	 * fitting procedure of PsychometricFunctionEngine. The seed makes the
+	 * random steps of the Praxis minimization reproducible.
+	 */
+	private double[] refit(int[] nn, int[] yy, long seed) {
+		BinomialPMFFitter f = new BinomialPMFFitter(type, x, nn, yy, guessing,
+				lapsing);
+		double[] r = f.fitFrom(par);
+		if (r == null)
+			r = f.fit(BinomialPMFFitter.startsAround(par), null);
+		if (minimizationFunction == LOG_LIKELIHOOD)
+			return r;
+		double[] p = (r != null) ? r : (double[]) par.clone();
+		Praxis praxis = new Praxis();
+		praxis.setSeed(seed);
+		praxis.minimize(new PMFMinimizationFunction(minimizationFunction,
+				new Function(), x, nn, yy, guessing, lapsing), p);
+		return (Double.isNaN(p[0]) || Double.isNaN(p[1])) ? null : p;
+	}
+
+	/** The fitted function type with variable asymptotes. */
+	private class Function implements PsychometricFunction {
+		public double valueOf(double x, double pse, double jnd, double lo,
+				double hi) {
+			return BinomialPMFFitter.valueOf(type, x, pse, jnd, lo, hi);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package de.pxlab.stat;
+
+import de.pxlab.util.PraxisFunction;
+import de.pxlab.pxl.MinimizationFunctionCodes;
+import de.pxlab.pxl.PsychometricFunction;
+
+/**
+ * The function which is minimized when fitting a psychometric function to
+ * binomial response frequencies. The criterion is one of the codes in
+ * MinimizationFunctionCodes: the sum of chi square terms, the negative log
+ * likelihood, or the weighted sum of squared deviations of logit transforms.
+ * 
+ * @version 0.1.0
+ * @see PsychometricFunctionEngine
+ * @see PMFBootstrapModel
+ */
+class PMFMinimizationFunction implements PraxisFunction,
+		MinimizationFunctionCodes {
+	private int minimizationFunction;
+	private PsychometricFunction f;
+	private double[] x;
+	private int[] n;
+	private int[] y;
+	private double guessing;
+	private double lapsing;
+
+	/**
+	 * Create the minimization function for a data set.
+	 * 
+	 * @param mf
+	 *            the criterion code: CHI_SQUARE, LOG_LIKELIHOOD or
+	 *            SQUARED_DEV_LOGIT.
+	 * @param f
+	 *            the psychometric function.
+	 * @param x
+	 *            the stimulus values.
+	 * @param n
+	 *            the number of presentations of each stimulus.
+	 * @param y
+	 *            the number of 'yes' responses for each stimulus.
+	 * @param guessing
+	 *            the fixed guessing rate.
+	 * @param lapsing
+	 *            the fixed lapsing rate.
+	 */
+	public PMFMinimizationFunction(int mf, PsychometricFunction f, double[] x,
+			int[] n, int[] y, double guessing, double lapsing) {
+		minimizationFunction = mf;
+		this.f = f;
+		this.x = x;
+		this.n = n;
+		this.y = y;
+		this.guessing = guessing;
+		this.lapsing = lapsing;
+	}
+
+	public double valueOf(double[] p) {
+		if (minimizationFunction == CHI_SQUARE) {
+			return valueOfChiSquare(p);
+		} else if (minimizationFunction == LOG_LIKELIHOOD) {
+			return valueOfLogLikelihood(p);
+		} else if (minimizationFunction == SQUARED_DEV_LOGIT) {
+			return valueOfSquaredDevLogit(p);
+		}
+		return valueOfChiSquare(p);
+	}
+
+	public double valueOfSquaredDevLogit(double[] p) {
+		double chsq = 0.0;
+		double lg_w, lg_y, d, w;
+		for (int i = 0; i < x.length; i++) {
+			w = f.valueOf(x[i], p[0], p[1], guessing, lapsing);
+			lg_w = Math.log(w / (1.0 - w));
+			lg_y = Math.log((y[i] + 0.5) / (n[i] - y[i] + 0.5));
+			d = lg_y - lg_w;
+			chsq += n[i] * w * (1.0 - w) * d * d;
+			// System.out.println("x[i]=" + x[i] + " y[i]=" + y[i] + " e=" +
+			// e);
+		}
+		// System.out.println("p[0]=" + p[0] + " p[1]=" + p[1] + " chsq=" +
+		// chsq);
+		return chsq;
+	}
+
+	public double valueOfChiSquare(double[] p) {
+		double chsq = 0.0;
+		double e, d, w;
+		for (int i = 0; i < x.length; i++) {
+			w = f.valueOf(x[i], p[0], p[1], guessing, lapsing);
+			e = n[i] * w;
+			d = y[i] - e;
+			chsq += d * d / (e * (1.0 - w));
+			// System.out.println("x[i]=" + x[i] + " y[i]=" + y[i] + " e=" +
+			// e);
+		}
+		// System.out.println("p[0]=" + p[0] + " p[1]=" + p[1] + " chsq=" +
+		// chsq);
+		return chsq;
+	}
+
+	public double valueOfLogLikelihood(double[] p) {
+		double chsq = 0.0;
+		double d, w, lw, lv;
+		double logBinomialCoeff = 0.0;
+		for (int i = 0; i < x.length; i++) {
+			w = f.valueOf(x[i], p[0], p[1], guessing, lapsing);
+			lw = Math.log(w);
+			lv = Math.log(1.0 - w);
+			d = y[i] * lw + (n[i] - y[i]) * lv;
+			// logBinomialCoeff = MathExt.binom(n[i], y[i]);
+			chsq -= (logBinomialCoeff + d);
+			// System.out.println("x[i]=" + x[i] + " y[i]=" + y[i] + " e=" +
+			// e);
+		}
+		// System.out.println("p[0]=" + p[0] + " p[1]=" + p[1] + " chsq=" +
+		// chsq);
+		return chsq;
+	}
+}
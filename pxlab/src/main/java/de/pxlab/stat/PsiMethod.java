@@ -0,0 +1,309 @@
+package de.pxlab.stat;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+import de.pxlab.pxl.PsychometricFunctionCodes;
+
+/**
+ * The Psi method of Kontsevich and Tyler (1999), a Bayesian adaptive procedure
+ * which estimates the threshold and the slope of a psychometric function. The
+ * procedure keeps a posterior distribution over a grid of threshold and slope
+ * values. After every trial the posterior is updated by the response and the
+ * next stimulus is the candidate stimulus which minimizes the expected entropy
+ * of the posterior after the next response.
+ *
+ * <p>
+ * The response probabilities and their logarithms for every candidate
+ * stimulus and every grid point are computed once when the object is created.
+ * The posterior is updated in place. For large grids the expected entropies
+ * of the candidate stimuli are evaluated in parallel.
+ *
+ * <p>
+ * Kontsevich, L. L. & Tyler, C. W. (1999). Bayesian adaptive estimation of
+ * psychometric slope and threshold. Vision Research, 39, 2729-2737.
+ *
+ * @version 0.1.0
+ * @see BinomialPMFFitter
+ */
+public class PsiMethod implements PsychometricFunctionCodes {
+	/** Probabilities are kept this far away from 0 and 1. */
+	private static final double P_LIMIT = 1.0e-12;
+	/**
+	 * Table size above which expected entropies are evaluated in parallel.
+	 */
+	private static final int PARALLEL_SIZE = 1 << 16;
+	private static ForkJoinPool pool = null;
+	private int type;
+	private double guessing;
+	private double lapsing;
+	private double[] stimuli;
+	private double[] thresholds;
+	private double[] slopes;
+	/** Number of grid points: thresholds times slopes. */
+	private int m;
+	/**
+	 * Probability of a 'yes' response and its logarithms for every stimulus
+	 * and grid point. Entry [s * m + h] belongs to stimulus s and grid point
+	 * h = threshold index * slopes.length + slope index.
+	 */
+	private double[] pYes;
+	private double[] logYes;
+	private double[] logNo;
+	private double[] posterior;
+	private double[] logPosterior;
+	private double[] expectedEntropy;
+	private int trials = 0;
+
+	/**
+	 * Create a Psi procedure with a uniform prior.
+	 *
+	 * @param type
+	 *            the psychometric function type: LOGISTIC, WEIBULL or GUMBEL.
+	 * @param stimuli
+	 *            the candidate stimulus values.
+	 * @param thresholds
+	 *            the grid of threshold (location parameter) values.
+	 * @param slopes
+	 *            the grid of slope (scale parameter) values.
+	 * @param guessing
+	 *            the guessing rate.
+	 * @param lapsing
+	 *            the lapsing rate.
+	 */
+	public PsiMethod(int type, double[] stimuli, double[] thresholds,
+			double[] slopes, double guessing, double lapsing) {
+		this.type = type;
+		this.stimuli = (double[]) stimuli.clone();
+		Arrays.sort(this.stimuli);
+		this.thresholds = thresholds;
+		this.slopes = slopes;
+		this.guessing = guessing;
+		this.lapsing = lapsing;
+		m = thresholds.length * slopes.length;
+		int ns = this.stimuli.length;
+		pYes = new double[ns * m];
+		logYes = new double[ns * m];
+		logNo = new double[ns * m];
+		for (int s = 0; s < ns; s++) {
+			int k = s * m;
+			for (int h = 0; h < m; h++)
+				setProbability(k + h, valueOf(this.stimuli[s], h));
+		}
+		posterior = new double[m];
+		logPosterior = new double[m];
+		Arrays.fill(posterior, 1.0 / m);
+		expectedEntropy = new double[ns];
+	}
+
+	/**
+	 * Create a grid of equally spaced values.
+	 *
+	 * @param from
+	 *            the first value.
+	 * @param to
+	 *            the last value.
+	 * @param n
+	 *            the number of values.
+	 * @return the grid values.
+	 */
+	public static double[] linearGrid(double from, double to, int n) {
+		if (n < 2)
+			return new double[] { from };
+		double[] g = new double[n];
+		double d = (to - from) / (n - 1);
+		for (int i = 0; i < n; i++)
+			g[i] = from + i * d;
+		g[n - 1] = to;
+		return g;
+	}
+
+	/**
+	 * Update the posterior distribution by a response.
+	 *
+	 * @param x
+	 *            the stimulus value of the trial. This need not be one of the
+	 *            candidate stimuli.
+	 * @param yes
+	 *            true if the response was 'yes'.
+	 */
+	public void update(double x, boolean yes) {
+		int s = Arrays.binarySearch(stimuli, x);
+		double sum = 0.0;
+		if (s >= 0) {
+			int k = s * m;
+			for (int h = 0; h < m; h++) {
+				double p = pYes[k + h];
+				sum += (posterior[h] *= (yes ? p : 1.0 - p));
+			}
+		} else {
+			for (int h = 0; h < m; h++) {
+				double p = clip(valueOf(x, h));
+				sum += (posterior[h] *= (yes ? p : 1.0 - p));
+			}
+		}
+		if (sum > 0.0) {
+			for (int h = 0; h < m; h++)
+				posterior[h] /= sum;
+		} else {
+			Arrays.fill(posterior, 1.0 / m);
+		}
+		trials++;
+	}
+
+	/**
+	 * Get the candidate stimulus which minimizes the expected entropy of the
+	 * posterior distribution after the next trial.
+	 *
+	 * @return the next stimulus value.
+	 */
+	public double nextStimulus() {
+		return stimuli[nextStimulusIndex()];
+	}
+
+	/**
+	 * Get the index of the candidate stimulus which minimizes the expected
+	 * entropy of the posterior distribution after the next trial.
+	 *
+	 * @return an index into the array of candidate stimuli.
+	 */
+	public int nextStimulusIndex() {
+		for (int h = 0; h < m; h++)
+			logPosterior[h] = (posterior[h] > 0.0) ? Math.log(posterior[h])
+					: 0.0;
+		int ns = stimuli.length;
+		if ((long) ns * m >= PARALLEL_SIZE && ns > 1) {
+			getPool().invoke(new EntropyTask(0, ns));
+		} else {
+			computeEntropies(0, ns);
+		}
+		int best = 0;
+		for (int s = 1; s < ns; s++)
+			if (expectedEntropy[s] < expectedEntropy[best])
+				best = s;
+		return best;
+	}
+
+	/**
+	 * Compute the expected posterior entropies of a range of candidate
+	 * stimuli. With q = posterior times likelihood the entropy after a 'yes'
+	 * response is -sum(q log q)/P + log P where P is the sum of q. Weighting
+	 * by P and adding the 'no' case gives the expected entropy.
+	 */
+	private void computeEntropies(int from, int to) {
+		for (int s = from; s < to; s++) {
+			int k = s * m;
+			double py = 0.0, ay = 0.0, an = 0.0;
+			for (int h = 0; h < m; h++) {
+				double w = posterior[h];
+				if (w > 0.0) {
+					double p = pYes[k + h];
+					double lw = logPosterior[h];
+					double wy = w * p;
+					py += wy;
+					ay += wy * (lw + logYes[k + h]);
+					an += (w - wy) * (lw + logNo[k + h]);
+				}
+			}
+			double pn = 1.0 - py;
+			double e = -ay - an;
+			if (py > 0.0)
+				e += py * Math.log(py);
+			if (pn > 0.0)
+				e += pn * Math.log(pn);
+			expectedEntropy[s] = e;
+		}
+	}
+
+	/**
+	 * Get the number of responses which have been used to update the
+	 * posterior.
+	 */
+	public int getTrials() {
+		return trials;
+	}
+
+	/** Get the candidate stimulus values in increasing order. */
+	public double[] getStimuli() {
+		return stimuli;
+	}
+
+	/** Get the posterior mean of the threshold. */
+	public double thresholdMean() {
+		return moment(0, 1);
+	}
+
+	/** Get the posterior mean of the slope parameter. */
+	public double slopeMean() {
+		return moment(1, 1);
+	}
+
+	/** Get the posterior standard deviation of the threshold. */
+	public double thresholdDeviation() {
+		double mu = moment(0, 1);
+		return Math.sqrt(Math.max(0.0, moment(0, 2) - mu * mu));
+	}
+
+	/** Get the posterior standard deviation of the slope parameter. */
+	public double slopeDeviation() {
+		double mu = moment(1, 1);
+		return Math.sqrt(Math.max(0.0, moment(1, 2) - mu * mu));
+	}
+
+	/** Compute a raw posterior moment of the threshold or the slope. */
+	private double moment(int par, int power) {
+		int nb = slopes.length;
+		double s = 0.0;
+		for (int h = 0; h < m; h++) {
+			double v = (par == 0) ? thresholds[h / nb] : slopes[h % nb];
+			s += posterior[h] * ((power == 1) ? v : v * v);
+		}
+		return s;
+	}
+
+	private double valueOf(double x, int h) {
+		int nb = slopes.length;
+		return BinomialPMFFitter.valueOf(type, x, thresholds[h / nb],
+				slopes[h % nb], guessing, lapsing);
+	}
+
+	private void setProbability(int i, double p) {
+		p = clip(p);
+		pYes[i] = p;
+		logYes[i] = Math.log(p);
+		logNo[i] = Math.log(1.0 - p);
+	}
+
+	private static double clip(double p) {
+		if (Double.isNaN(p))
+			return 0.5;
+		return (p < P_LIMIT) ? P_LIMIT : ((p > 1.0 - P_LIMIT) ? 1.0 - P_LIMIT
+				: p);
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null)
+			pool = new ForkJoinPool();
+		return pool;
+	}
+
+	/** Computes the expected entropies of a range of candidate stimuli. */
+	private class EntropyTask extends RecursiveAction {
+		private int from;
+		private int to;
+
+		EntropyTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if ((to - from) * m <= PARALLEL_SIZE / 4 || to - from == 1) {
+				computeEntropies(from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new EntropyTask(from, mid), new EntropyTask(mid, to));
+			}
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package de.pxlab.stat;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import de.pxlab.util.*;
 import de.pxlab.pxl.PsychometricFunctionCodes;
@@ -73,6 +74,12 @@ public class PsychometricFunctionEngine extends StatEngine implements
 	protected double chiSquare;
 	protected int minimizationFunction;
 	protected String minimizationFunctionName;
+	protected int bootstrapReplications = 0;
+	protected long bootstrapSeed = 0L;
+	protected double confidenceLevel = 0.95;
+	/** Interval limits of all sections: c low, c high, a low, a high. */
+	private ArrayList percentileIntervals = new ArrayList();
+	private ArrayList bcaIntervals = new ArrayList();
 
 	/**
 	 * Create an estimation engine for the given factorial frequency table.
@@ -168,6 +175,58 @@ public class PsychometricFunctionEngine extends StatEngine implements
 				"Psychometric Function Parameter Estimation", printOption);
 	}
 
+	/**
+	 * Request parametric bootstrap confidence intervals for the location and
+	 * the scale parameter of every section's psychometric function. The
+	 * bootstrap is run after the parameters have been estimated.
+	 * 
+	 * @param replications
+	 *            the number of bootstrap replications. No bootstrap is run if
+	 *            this is 0.
+	 * @param seed
+	 *            the random number seed. Identical seeds give identical
+	 *            intervals.
+	 * @param level
+	 *            the confidence level of the intervals.
+	 */
+	public void setBootstrap(int replications, long seed, double level) {
+		bootstrapReplications = replications;
+		bootstrapSeed = seed;
+		confidenceLevel = level;
+	}
+
+	/**
+	 * Get the bootstrap percentile confidence intervals computed by
+	 * estimate().
+	 * 
+	 * @return an array which contains the lower and upper limit of the
+	 *         location parameter and the lower and upper limit of the scale
+	 *         parameter for every table section. Limits which could not be
+	 *         computed are NaN.
+	 */
+	public double[] getPercentileIntervals() {
+		return toArray(percentileIntervals);
+	}
+
+	/**
+	 * Get the bootstrap BCa confidence intervals computed by estimate().
+	 * 
+	 * @return an array which contains the lower and upper limit of the
+	 *         location parameter and the lower and upper limit of the scale
+	 *         parameter for every table section. Limits which could not be
+	 *         computed are NaN.
+	 */
+	public double[] getBCaIntervals() {
+		return toArray(bcaIntervals);
+	}
+
+	private static double[] toArray(ArrayList a) {
+		double[] d = new double[4 * a.size()];
+		for (int i = 0; i < a.size(); i++)
+			System.arraycopy((double[]) a.get(i), 0, d, 4 * i, 4);
+		return d;
+	}
+
 	public void setResults(double[] sP, boolean pr) {
 		setPar = sP;
 		doMinimization = false;
@@ -175,14 +234,22 @@ public class PsychometricFunctionEngine extends StatEngine implements
 	}
 
 	public void estimate() {
+		percentileIntervals.clear();
+		bcaIntervals.clear();
 		int[] m = new int[nFactors];
 		for (int i = 0; i < nFactors; i++)
 			m[i] = -1;
 		for (int i = 0; i < nCondFactors; i++)
 			m[1 + i] = 0;
-		for (Iterator it = data.subSectionIterator(m); it.hasNext();) {
+		ArrayList sections = new ArrayList();
+		for (Iterator it = data.subSectionIterator(m); it.hasNext();)
+			sections.add(new SectionFit((FactorialDataTable) it.next()));
+		// Estimate parameters
+		fitSections(sections);
+		for (int s = 0; s < sections.size(); s++) {
+			SectionFit sf = (SectionFit) sections.get(s);
 			// Create the table subsection
-			FactorialDataTable ftb = (FactorialDataTable) it.next();
+			FactorialDataTable ftb = sf.table;
 			// System.out.println(ftb.toString());
 			// System.out.println(ftb.describe());
 			// ftb.print(System.out);
@@ -207,59 +274,164 @@ public class PsychometricFunctionEngine extends StatEngine implements
 			}
 			if (aPr)
 				endTable();
-			// Estmate parameters
-			estimatePMF(ftb, functionType, yesCode, fixedPar);
+			reportPMF(sf);
+			if (bootstrapReplications > 0)
+				bootstrapPMF(sf, s);
 		}
 	}
 
-	private void estimatePMF(FactorialDataTable data, int functionType,
-			String yesCode, double[] fixedPar) {
-		Object[] key = data.keySet().toArray();
-		int[] m = data.factorLevelOfKey((Integer) key[0]);
-		int nFactors = data.numberOfFactors();
-		int kFactor = nFactors - 2;
-		int k = data.numberOfFactorLevels()[kFactor];
-		x = new double[k];
-		n = new int[k];
-		y = new int[k];
-		p_dat = new double[k];
-		p_est = new double[k];
-		// Create data arrays x[], n[], and y[]
-		for (int i = 0; i < k; i++) {
-			y[i] = 0;
-			n[i] = 0;
-			try {
-				x[i] = Double.valueOf(data.factorLevelName(kFactor, i))
-						.doubleValue();
-			} catch (NumberFormatException nfx) {
-				x[i] = 0.0;
+	/**
+	 * Run a parametric bootstrap for the estimated parameters of a table
+	 * section and report the confidence intervals.
+	 */
+	private void bootstrapPMF(SectionFit sf, int section) {
+		double[] pc = { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+		double[] bc = { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+		percentileIntervals.add(pc);
+		bcaIntervals.add(bc);
+		if (!BinomialPMFFitter.supports(functionType))
+			return;
+		Bootstrap b = new Bootstrap(new PMFBootstrapModel(functionType,
+				minimizationFunction, sf.x, sf.n, sf.y, fixedPar[0], fixedPar[1],
+				sf.par),
+				sf.par, bootstrapReplications, bootstrapSeed + section);
+		b.run();
+		if (b.getValidReplications() < 2)
+			return;
+		for (int k = 0; k < 2; k++) {
+			System.arraycopy(b.percentileInterval(k, confidenceLevel), 0, pc,
+					2 * k, 2);
+			System.arraycopy(b.bcaInterval(k, confidenceLevel), 0, bc, 2 * k,
+					2);
+		}
+		if (rPr) {
+			beginTable("Bootstrap Confidence Intervals ("
+					+ b.getValidReplications() + " Replications, "
+					+ dfm(100.0 * confidenceLevel) + "%)");
+			append(nl
+					+ "<tr><td>&nbsp;</td><td align=\"right\">Estimate</td><td align=\"right\">SE</td><td align=\"center\" colspan=\"2\">Percentile</td><td align=\"center\" colspan=\"2\">BCa</td></tr>");
+			append(nl + "<tr><td colspan=\"7\"><hr></td></tr>");
+			String[] name = { "c", "a" };
+			for (int k = 0; k < 2; k++) {
+				append(nl + "<tr><td>" + name[k] + "</td><td align=\"right\">"
+						+ dfm(sf.par[k]) + "</td><td align=\"right\">"
+						+ dfm(b.standardError(k)) + "</td><td align=\"right\">"
+						+ dfm(pc[2 * k]) + "</td><td align=\"right\">"
+						+ dfm(pc[2 * k + 1]) + "</td><td align=\"right\">"
+						+ dfm(bc[2 * k]) + "</td><td align=\"right\">"
+						+ dfm(bc[2 * k + 1]) + "</td></tr>");
 			}
+			endTable();
+		}
+	}
+
+	/**
+	 * Fit the psychometric functions of all table sections. The sections are
+	 * independent of each other and are fitted concurrently. If there is only
+	 * a single section then its starting points are fitted concurrently.
+	 * Fitting is sequential if Praxis trace output is requested since this
+	 * would be interleaved otherwise.
+	 */
+	private void fitSections(ArrayList sections) {
+		int ns = sections.size();
+		int nt = Runtime.getRuntime().availableProcessors();
+		if (xrPr || (nt < 2) || !doMinimization) {
+			for (int i = 0; i < ns; i++)
+				((SectionFit) sections.get(i)).fit(null);
+			return;
 		}
-		for (int j = 0; j < key.length; j++) {
-			int[] idx = data.factorLevelOfKey((Integer) key[j]);
-			int h = idx[kFactor];
-			int d = data.intValueFor(key[j]);
-			n[h] += d;
-			if (yesCode.equals(data.factorLevelName(kFactor + 1,
-					idx[kFactor + 1])))
-				y[h] += d;
+		ExecutorService pool = Executors.newFixedThreadPool(nt);
+		try {
+			if (ns == 1) {
+				((SectionFit) sections.get(0)).fit(pool);
+			} else {
+				Future[] f = new Future[ns];
+				for (int i = 0; i < ns; i++)
+					f[i] = pool.submit((SectionFit) sections.get(i));
+				for (int i = 0; i < ns; i++)
+					f[i].get();
+			}
+		} catch (InterruptedException ix) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		} finally {
+			pool.shutdown();
 		}
-		double[] es = initialEstimates();
-		/*
-		 * System.out.println("Estimate PMF for "); for (int i = 0; i < k; i++)
-		 * { System.out.println("\t" + x[i] + "\t" + n[i] + "\t" + y[i]); }
-		 * System.out.println("Initial estimates:  c=" + es[0] + "  a=" +
-		 * es[1]); /*
+	}
+
+	/**
+	 * The response frequencies and the parameter estimates of a single table
+	 * section.
+	 */
+	private class SectionFit implements Runnable {
+		FactorialDataTable table;
+		double[] x;
+		int[] n;
+		int[] y;
+		double[] par;
+		PsychometricFunction f;
+
+		SectionFit(FactorialDataTable table) {
+			this.table = table;
+		}
+
+		public void run() {
+			fit(null);
+		}
+
+		/**
+		 * Create the data arrays and estimate the parameters.
+		 * 
+		 * @param pool
+		 *            an executor for fitting the starting points concurrently
+		 *            or null.
 		 */
-		// Run minimization procedure
-		PsychometricFunction f = null;
-		par = new double[2];
-		if (functionType == ISOTONIC) {
-			IsotonicPMF isoPMF = new IsotonicPMF(x, n, y);
-			par[0] = isoPMF.argumentFor(0.5);
-			par[1] = (isoPMF.argumentFor(0.75) - isoPMF.argumentFor(0.25)) / 2.0;
-			f = isoPMF;
-		} else {
+		void fit(ExecutorService pool) {
+			FactorialDataTable data = table;
+			Object[] key = data.keySet().toArray();
+			int nFactors = data.numberOfFactors();
+			int kFactor = nFactors - 2;
+			int k = data.numberOfFactorLevels()[kFactor];
+			x = new double[k];
+			n = new int[k];
+			y = new int[k];
+			// Create data arrays x[], n[], and y[]
+			for (int i = 0; i < k; i++) {
+				y[i] = 0;
+				n[i] = 0;
+				try {
+					x[i] = Double.valueOf(data.factorLevelName(kFactor, i))
+							.doubleValue();
+				} catch (NumberFormatException nfx) {
+					x[i] = 0.0;
+				}
+			}
+			for (int j = 0; j < key.length; j++) {
+				int[] idx = data.factorLevelOfKey((Integer) key[j]);
+				int h = idx[kFactor];
+				int d = data.intValueFor(key[j]);
+				n[h] += d;
+				if (yesCode.equals(data.factorLevelName(kFactor + 1,
+						idx[kFactor + 1])))
+					y[h] += d;
+			}
+			double[] es = initialEstimates(x, n, y);
+			/*
+			 * System.out.println("Estimate PMF for "); for (int i = 0; i < k;
+			 * i++) { System.out.println("\t" + x[i] + "\t" + n[i] + "\t" +
+			 * y[i]); } System.out.println("Initial estimates:  c=" + es[0] +
+			 * "  a=" + es[1]); /*
+			 */
+			// Run minimization procedure
+			par = new double[2];
+			if (functionType == ISOTONIC) {
+				IsotonicPMF isoPMF = new IsotonicPMF(x, n, y);
+				par[0] = isoPMF.argumentFor(0.5);
+				par[1] = (isoPMF.argumentFor(0.75) - isoPMF.argumentFor(0.25)) / 2.0;
+				f = isoPMF;
+				return;
+			}
 			if (functionType == GUMBEL) {
 				f = new GumbelPMF();
 			} else if (functionType == WEIBULL) {
@@ -270,11 +442,28 @@ public class PsychometricFunctionEngine extends StatEngine implements
 			par[0] = es[0];
 			par[1] = es[1];
 			if (doMinimization) {
-				Praxis praxis = new Praxis();
-				praxis.setPrintControl(xrPr ? 3 : 0);
-				// praxis.setScaling(10.0);
-				double minSquare = praxis.minimize(new MinimizationFunction(f,
-						fixedPar[0], fixedPar[1]), par);
+				// The maximum likelihood estimate is computed from several
+				// starting points using analytic derivatives. It is the
+				// result for likelihood minimization and the starting point
+				// for the other minimization functions.
+				double[] ml = null;
+				if (BinomialPMFFitter.supports(functionType)) {
+					BinomialPMFFitter fitter = new BinomialPMFFitter(
+							functionType, x, n, y, fixedPar[0], fixedPar[1]);
+					ml = fitter.fit(BinomialPMFFitter.startsAround(es), pool);
+				}
+				if (ml != null) {
+					par[0] = ml[0];
+					par[1] = ml[1];
+				}
+				if ((ml == null) || (minimizationFunction != LOG_LIKELIHOOD)) {
+					Praxis praxis = new Praxis();
+					praxis.setPrintControl(xrPr ? 3 : 0);
+					// praxis.setScaling(10.0);
+					double minSquare = praxis.minimize(
+							new PMFMinimizationFunction(minimizationFunction, f,
+									x, n, y, fixedPar[0], fixedPar[1]), par);
+				}
 			} else {
 				if ((setPar != null) && (setPar.length == 2)) {
 					par[0] = setPar[0];
@@ -282,6 +471,21 @@ public class PsychometricFunctionEngine extends StatEngine implements
 				}
 			}
 		}
+	}
+
+	/**
+	 * Print the estimation results of a table section and compute the chi
+	 * square goodness of fit test.
+	 */
+	private void reportPMF(SectionFit sf) {
+		x = sf.x;
+		n = sf.n;
+		y = sf.y;
+		par = sf.par;
+		PsychometricFunction f = sf.f;
+		int k = x.length;
+		p_dat = new double[k];
+		p_est = new double[k];
 		// Ready to print the output
 		if (rPr) {
 			beginTable("Empirical Data and Estimated Probabilities");
@@ -440,7 +644,7 @@ public class PsychometricFunctionEngine extends StatEngine implements
 	 * Compute initial estimates for the psychometric function parameters. These
 	 * are computed according to the Berkson () method.
 	 */
-	private double[] initialEstimates() {
+	private double[] initialEstimates(double[] x, int[] n, int[] y) {
 		// System.out.println("Initial Estimates:");
 		int k = x.length;
 		double[] par = new double[2];
@@ -488,81 +692,6 @@ public class PsychometricFunctionEngine extends StatEngine implements
 		}
 		return par;
 	}
-	private class MinimizationFunction implements PraxisFunction {
-		private PsychometricFunction f;
-		private double guessing;
-		private double lapsing;
-
-		public MinimizationFunction(PsychometricFunction f, double guessing,
-				double lapsing) {
-			this.f = f;
-			this.guessing = guessing;
-			this.lapsing = lapsing;
-		}
-
-		public double valueOf(double[] p) {
-			if (minimizationFunction == CHI_SQUARE) {
-				return valueOfChiSquare(p);
-			} else if (minimizationFunction == LOG_LIKELIHOOD) {
-				return valueOfLogLikelihood(p);
-			} else if (minimizationFunction == SQUARED_DEV_LOGIT) {
-				return valueOfSquaredDevLogit(p);
-			}
-			return valueOfChiSquare(p);
-		}
-
-		public double valueOfSquaredDevLogit(double[] p) {
-			double chsq = 0.0;
-			double lg_w, lg_y, d, w;
-			for (int i = 0; i < x.length; i++) {
-				w = f.valueOf(x[i], p[0], p[1], guessing, lapsing);
-				lg_w = Math.log(w / (1.0 - w));
-				lg_y = Math.log((y[i] + 0.5) / (n[i] - y[i] + 0.5));
-				d = lg_y - lg_w;
-				chsq += n[i] * w * (1.0 - w) * d * d;
-				// System.out.println("x[i]=" + x[i] + " y[i]=" + y[i] + " e=" +
-				// e);
-			}
-			// System.out.println("p[0]=" + p[0] + " p[1]=" + p[1] + " chsq=" +
-			// chsq);
-			return chsq;
-		}
-
-		public double valueOfChiSquare(double[] p) {
-			double chsq = 0.0;
-			double e, d, w;
-			for (int i = 0; i < x.length; i++) {
-				w = f.valueOf(x[i], p[0], p[1], guessing, lapsing);
-				e = n[i] * w;
-				d = y[i] - e;
-				chsq += d * d / (e * (1.0 - w));
-				// System.out.println("x[i]=" + x[i] + " y[i]=" + y[i] + " e=" +
-				// e);
-			}
-			// System.out.println("p[0]=" + p[0] + " p[1]=" + p[1] + " chsq=" +
-			// chsq);
-			return chsq;
-		}
-
-		public double valueOfLogLikelihood(double[] p) {
-			double chsq = 0.0;
-			double d, w, lw, lv;
-			double logBinomialCoeff = 0.0;
-			for (int i = 0; i < x.length; i++) {
-				w = f.valueOf(x[i], p[0], p[1], guessing, lapsing);
-				lw = Math.log(w);
-				lv = Math.log(1.0 - w);
-				d = y[i] * lw + (n[i] - y[i]) * lv;
-				// logBinomialCoeff = MathExt.binom(n[i], y[i]);
-				chsq -= (logBinomialCoeff + d);
-				// System.out.println("x[i]=" + x[i] + " y[i]=" + y[i] + " e=" +
-				// e);
-			}
-			// System.out.println("p[0]=" + p[0] + " p[1]=" + p[1] + " chsq=" +
-			// chsq);
-			return chsq;
-		}
-	}
 	/**
 	 * A logistic psychometric function:
 	 * <p>
@@ -0,0 +1,243 @@
+package de.pxlab.stat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A mergeable sketch of a distribution which allows to estimate quantiles
+ * with constant memory. This is a merging t-digest: data values are collected
+ * in a small buffer and are periodically merged into a sorted list of
+ * weighted centroids. The maximum weight of a centroid is small at the tails
+ * of the distribution and large at its center, such that extreme quantiles
+ * are estimated more precisely than central ones. Two sketches may be merged
+ * and the result is a sketch of the pooled data.
+ *
+ * @version 0.1.0
+ * @see OnlineStatistics
+ */
+public class QuantileSketch {
+	private double compression;
+	private double[] mean;
+	private double[] weight;
+	private int centroids = 0;
+	private double[] buffer;
+	private int buffered = 0;
+	private double totalWeight = 0.0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	/** Unit weights for merging the buffer. */
+	private double[] unitWeight;
+
+	/** Create a sketch with default compression 100. */
+	public QuantileSketch() {
+		this(100.0);
+	}
+
+	/**
+	 * Create a sketch with the given compression.
+	 *
+	 * @param compression
+	 *            the compression parameter. Larger values give more precise
+	 *            estimates and need more memory. The number of centroids
+	 *            retained is about the compression parameter.
+	 */
+	public QuantileSketch(double compression) {
+		this.compression = compression;
+		int n = 2 * (int) Math.ceil(compression) + 10;
+		mean = new double[n];
+		weight = new double[n];
+		buffer = new double[5 * n];
+		unitWeight = new double[buffer.length];
+		Arrays.fill(unitWeight, 1.0);
+	}
+
+	/**
+	 * Add a data value to the sketch.
+	 *
+	 * @param x
+	 *            the value to be added. NaN values are ignored.
+	 */
+	public void add(double x) {
+		if (Double.isNaN(x))
+			return;
+		if (buffered == buffer.length)
+			flush();
+		buffer[buffered++] = x;
+		if (x < min)
+			min = x;
+		if (x > max)
+			max = x;
+	}
+
+	/**
+	 * Merge the data of another sketch into this sketch.
+	 *
+	 * @param s
+	 *            the sketch whose data are added to this sketch. The argument
+	 *            is not modified except that its buffer is flushed.
+	 */
+	public void merge(QuantileSketch s) {
+		flush();
+		s.flush();
+		if (s.centroids == 0)
+			return;
+		merge(s.mean, s.weight, s.centroids);
+		if (s.min < min)
+			min = s.min;
+		if (s.max > max)
+			max = s.max;
+	}
+
+	/**
+	 * Get the number of values contained in this sketch.
+	 *
+	 * @return the total weight of all values.
+	 */
+	public double size() {
+		return totalWeight + buffered;
+	}
+
+	/**
+	 * Estimate a quantile of the distribution.
+	 *
+	 * @param p
+	 *            the probability whose quantile is requested. Must be in the
+	 *            range 0 to 1.
+	 * @return the quantile estimate or NaN if the sketch is empty.
+	 */
+	public double quantile(double p) {
+		flush();
+		int n = centroids;
+		if (n == 0)
+			return Double.NaN;
+		if (n == 1 || p <= 0.0)
+			return (p <= 0.0) ? min : mean[0];
+		if (p >= 1.0)
+			return max;
+		double index = p * totalWeight;
+		if (index < weight[0] / 2.0) {
+			return min + (mean[0] - min) * index / (weight[0] / 2.0);
+		}
+		double weightSoFar = weight[0] / 2.0;
+		for (int i = 0; i < n - 1; i++) {
+			double dw = (weight[i] + weight[i + 1]) / 2.0;
+			if (weightSoFar + dw > index) {
+				return mean[i] + (index - weightSoFar) / dw
+						* (mean[i + 1] - mean[i]);
+			}
+			weightSoFar += dw;
+		}
+		double z = (index - weightSoFar) / (weight[n - 1] / 2.0);
+		return mean[n - 1] + Math.min(z, 1.0) * (max - mean[n - 1]);
+	}
+
+	/**
+	 * Get the cumulative distribution as it is represented by the centroids
+	 * of this sketch.
+	 *
+	 * @return a list of double arrays of size 2 which contain a centroid's
+	 *         value and the cumulative relative frequency up to and including
+	 *         this centroid.
+	 */
+	public ArrayList cumulative() {
+		flush();
+		ArrayList a = new ArrayList(centroids);
+		double w = 0.0;
+		for (int i = 0; i < centroids; i++) {
+			w += weight[i];
+			double[] c = new double[2];
+			c[0] = mean[i];
+			c[1] = w / totalWeight;
+			a.add(c);
+		}
+		return a;
+	}
+
+	/**
+	 * Compute the weighted sum of absolute deviations of the centroids from
+	 * the given value. This is an approximation to the sum of the absolute
+	 * deviations of all data values.
+	 */
+	double sumOfAbsoluteDeviations(double x) {
+		flush();
+		double s = 0.0;
+		for (int i = 0; i < centroids; i++)
+			s += weight[i] * Math.abs(mean[i] - x);
+		return s;
+	}
+
+	/** Merge the buffered data values into the centroid list. */
+	private void flush() {
+		if (buffered == 0)
+			return;
+		Arrays.sort(buffer, 0, buffered);
+		int n = buffered;
+		buffered = 0;
+		merge(buffer, unitWeight, n);
+	}
+
+	/**
+	 * Merge the given sorted list of weighted values with the current
+	 * centroid list and compress the result.
+	 */
+	private void merge(double[] m2, double[] w2, int n2) {
+		int n1 = centroids;
+		double[] m1 = mean;
+		double[] w1 = weight;
+		double total = totalWeight;
+		for (int i = 0; i < n2; i++)
+			total += w2[i];
+		double[] newMean = new double[mean.length];
+		double[] newWeight = new double[weight.length];
+		int k = 0;
+		int i1 = 0, i2 = 0;
+		double cm = 0.0, cw = 0.0;
+		double weightSoFar = 0.0;
+		while (i1 < n1 || i2 < n2) {
+			double xm, xw;
+			if (i2 >= n2 || (i1 < n1 && m1[i1] <= m2[i2])) {
+				xm = m1[i1];
+				xw = w1[i1++];
+			} else {
+				xm = m2[i2];
+				xw = w2[i2++];
+			}
+			if (cw == 0.0) {
+				cm = xm;
+				cw = xw;
+			} else {
+				double proposed = cw + xw;
+				double q0 = weightSoFar / total;
+				double q2 = (weightSoFar + proposed) / total;
+				if ((scale(q2) - scale(q0) <= 1.0)
+						|| (k == newMean.length - 1)) {
+					cm += (xm - cm) * xw / proposed;
+					cw = proposed;
+				} else {
+					newMean[k] = cm;
+					newWeight[k++] = cw;
+					weightSoFar += cw;
+					cm = xm;
+					cw = xw;
+				}
+			}
+		}
+		if (cw > 0.0) {
+			newMean[k] = cm;
+			newWeight[k++] = cw;
+		}
+		mean = newMean;
+		weight = newWeight;
+		centroids = k;
+		totalWeight = total;
+	}
+
+	/**
+	 * The scale function which limits the size of centroids. A centroid may
+	 * cover at most one unit of this function's range, which contains
+	 * compression/2 units.
+	 */
+	private double scale(double q) {
+		return compression / (2.0 * Math.PI) * Math.asin(2.0 * q - 1.0);
+	}
+}
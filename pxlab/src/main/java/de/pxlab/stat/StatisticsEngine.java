@@ -18,6 +18,9 @@ public class StatisticsEngine extends StatEngine {
 	private ArrayList cumulative_;
 	private int stats;
 	private DataTable data;
+	private double[] values;
+	private OnlineStatistics accumulator;
+	private String variable;
 
 	public StatisticsEngine(DataTable dt, int requestedStats, String title,
 			int printOption) {
@@ -30,7 +33,45 @@ public class StatisticsEngine extends StatEngine {
 		this(dt, requestedStats, "Descriptive Statistics", printOption);
 	}
 
+	/**
+	 * Create a statistics engine which describes the given array of data.
+	 * 
+	 * @param a
+	 *            the data array.
+	 * @param v
+	 *            the name of the variable contained in the data array.
+	 */
+	public StatisticsEngine(double[] a, String v, int requestedStats,
+			String title, int printOption) {
+		super(title, printOption);
+		values = a;
+		variable = v;
+		stats = requestedStats;
+	}
+
+	/**
+	 * Create a statistics engine which reports the statistics of an online
+	 * accumulator. No data table is needed in this case. Quantiles, the
+	 * average deviation and the cumulative distribution are estimates.
+	 * 
+	 * @param acc
+	 *            the accumulator which has collected the data.
+	 * @param v
+	 *            the name of the variable described by the accumulator.
+	 */
+	public StatisticsEngine(OnlineStatistics acc, String v,
+			int requestedStats, String title, int printOption) {
+		super(title, printOption);
+		accumulator = acc;
+		variable = v;
+		stats = requestedStats;
+	}
+
 	public void computeStatistics() {
+		if (accumulator != null) {
+			computeOnlineStatistics();
+			return;
+		}
 		double x;
 		double xx;
 		double sx = 0.0;
@@ -40,8 +81,14 @@ public class StatisticsEngine extends StatEngine {
 		double gMean = 0.0;
 		double hMean = 0.0;
 		boolean allGreaterZero = true;
-		int column = data.getColumns() - 1;
-		double[] a = data.doubleColumn(column);
+		double[] a;
+		if (values != null) {
+			a = values;
+		} else {
+			int column = data.getColumns() - 1;
+			a = data.doubleColumn(column);
+			variable = data.getColumnNames()[column];
+		}
 		m = a.length;
 		for (int i = 0; i < m; i++) {
 			x = a[i];
@@ -116,7 +163,37 @@ public class StatisticsEngine extends StatEngine {
 		quantile25_ = b[i25];
 		quantile50_ = b[i50];
 		quantile75_ = b[i75];
-		createHTMLResults(data.getColumnNames()[column]);
+		createHTMLResults(variable);
+		for (int i = 0; i < cumulative_.size(); i++) {
+			double[] cum = (double[]) cumulative_.get(i);
+			addPlotDataLine("cumulative", i + " " + cum[0] + " " + cum[1]);
+		}
+	}
+
+	/** Get the results from the online accumulator. */
+	private void computeOnlineStatistics() {
+		OnlineStatistics a = accumulator;
+		m = a.n();
+		sum_ = a.sum();
+		sumOfSquares_ = a.sumOfSquares();
+		mean_ = a.mean();
+		geometricMean_ = a.geometricMean();
+		harmonicMean_ = a.harmonicMean();
+		variance_ = a.variance();
+		standardDeviation_ = a.standardDeviation();
+		standardError_ = a.standardError();
+		variationCoefficient_ = a.variationCoefficient();
+		skew_ = a.skew();
+		kurtosis_ = a.kurtosis();
+		minimum_ = a.minimum();
+		maximum_ = a.maximum();
+		range_ = a.range();
+		averageDeviation_ = a.averageDeviation();
+		quantile25_ = a.quantile25();
+		quantile50_ = a.median();
+		quantile75_ = a.quantile75();
+		cumulative_ = a.cumulative();
+		createHTMLResults(variable);
 		for (int i = 0; i < cumulative_.size(); i++) {
 			double[] cum = (double[]) cumulative_.get(i);
 			addPlotDataLine("cumulative", i + " " + cum[0] + " " + cum[1]);
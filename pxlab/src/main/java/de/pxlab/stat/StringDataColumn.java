@@ -0,0 +1,117 @@
+package de.pxlab.stat;
+
+import java.util.*;
+
+/**
+ * A dictionary encoded DataColumn. Every distinct String is stored only once
+ * and the column entries are integer codes into the dictionary. Data files
+ * usually contain only a few distinct non-numeric values like factor levels
+ * or response codes, thus this is much more compact than a String array.
+ *
+ * @version 0.1.0
+ */
+public class StringDataColumn extends DataColumn {
+	private int[] codes;
+	private ArrayList dictionary = new ArrayList(16);
+	private HashMap codeMap = new HashMap(32);
+	/** Numeric values of the dictionary entries, NaN for non-numeric ones. */
+	private double[] dictionaryValues = new double[16];
+
+	/** Create an empty column. */
+	public StringDataColumn() {
+		codes = new int[64];
+	}
+
+	/**
+	 * Create a column which contains the String values of all entries of the
+	 * given column. This is used when a numeric column has to be widened
+	 * during type inference.
+	 *
+	 * @param c
+	 *            the column whose entries are copied.
+	 */
+	public StringDataColumn(DataColumn c) {
+		int n = c.size();
+		codes = new int[grownCapacity(n, n + 1)];
+		for (int i = 0; i < n; i++)
+			add(c.stringValue(i));
+	}
+
+	public int getType() {
+		return STRING;
+	}
+
+	public boolean accepts(String s) {
+		return true;
+	}
+
+	public void add(String s) {
+		Integer k = (Integer) codeMap.get(s);
+		int code;
+		if (k == null) {
+			code = dictionary.size();
+			dictionary.add(s);
+			codeMap.put(s, Integer.valueOf(code));
+			if (code == dictionaryValues.length) {
+				double[] a = new double[2 * code];
+				System.arraycopy(dictionaryValues, 0, a, 0, code);
+				dictionaryValues = a;
+			}
+			double v;
+			try {
+				v = Double.parseDouble(s);
+			} catch (NumberFormatException nfx) {
+				v = Double.NaN;
+			}
+			dictionaryValues[code] = v;
+		} else {
+			code = k.intValue();
+		}
+		if (size == codes.length) {
+			int[] a = new int[grownCapacity(codes.length, size + 1)];
+			System.arraycopy(codes, 0, a, 0, size);
+			codes = a;
+		}
+		codes[size++] = code;
+	}
+
+	/**
+	 * Get the dictionary code of an entry. Entries are equal if and only if
+	 * their codes are equal.
+	 *
+	 * @param r
+	 *            the row index.
+	 * @return the entry's code.
+	 */
+	public int code(int r) {
+		return codes[r];
+	}
+
+	/**
+	 * Get the number of distinct values in this column.
+	 *
+	 * @return the dictionary size.
+	 */
+	public int getDictionarySize() {
+		return dictionary.size();
+	}
+
+	/**
+	 * Get an entry of the dictionary.
+	 *
+	 * @param code
+	 *            the dictionary code.
+	 * @return the String which has the given code.
+	 */
+	public String dictionaryEntry(int code) {
+		return (String) dictionary.get(code);
+	}
+
+	public double doubleValue(int r) {
+		return dictionaryValues[codes[r]];
+	}
+
+	public String stringValue(int r) {
+		return (String) dictionary.get(codes[r]);
+	}
+}
@@ -0,0 +1,359 @@
+package de.pxlab.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Create random orders of a list of items which satisfy sequential
+ * constraints on the items' conditions. Every item has a condition label and
+ * the following constraints may be requested:
+ * 
+ * <ul>
+ * <li>The maximum number of successive items which have the same condition.
+ * <li>The minimum distance between two items of the same condition. A
+ * distance of 1 means that items of the same condition may follow each other
+ * immediately.
+ * <li>Balanced transitions: every ordered pair of conditions should follow
+ * each other about as often as expected from the conditions' frequencies.
+ * </ul>
+ * 
+ * <p>
+ * The sequence of conditions is first built position by position. A condition
+ * is chosen at random with a probability proportional to its number of
+ * remaining items among those conditions which do not violate a constraint
+ * and leave a remainder which still may be completed. If this runs into a
+ * dead end then it is started again. The sequence then is mixed by a Markov
+ * chain of random exchanges of two positions. An exchange is accepted if it
+ * does not violate a constraint and does not increase the transition
+ * imbalance. Checking an exchange needs only the neighbourhood of the two
+ * positions, thus even long sequences are created in a fraction of a second.
+ * Finally the items of every condition are assigned to the condition's
+ * positions in random order.
+ * 
+ * <p>
+ * The result depends only on the state of the random number generator which
+ * is given to the constructor. Thus a seeded generator creates reproducible
+ * orders.
+ * 
+ * @version 0.1.0
+ * @see Randomizer
+ */
+public class ConstrainedRandomizer {
+	/** Number of times the construction is started again after a dead end. */
+	private static final int MAX_ATTEMPTS = 200;
+	/** Number of exchanges per item when mixing the sequence. */
+	private static final int MIX_STEPS = 8;
+	/** Number of exchanges per item when transitions have to be balanced. */
+	private static final int BALANCE_STEPS = 64;
+	/** Transitions are not balanced for more conditions than this. */
+	private static final int MAX_BALANCED_CONDITIONS = 1024;
+	private Random rnd;
+	private int maxRunLength = 0;
+	private int minRepeatDistance = 1;
+	private boolean balanceTransitions = false;
+	// Working arrays
+	private int[] seq;
+	private int[] trans;
+	private double[] expected;
+	private int nLabels;
+
+	/**
+	 * Create a constrained randomizer.
+	 * 
+	 * @param rnd
+	 *            the random number generator to be used.
+	 */
+	public ConstrainedRandomizer(Random rnd) {
+		this.rnd = rnd;
+	}
+
+	/**
+	 * Set the maximum number of successive items which have the same
+	 * condition.
+	 * 
+	 * @param n
+	 *            the maximum run length. Values smaller than 1 remove the
+	 *            constraint.
+	 */
+	public void setMaxRunLength(int n) {
+		maxRunLength = (n < 1) ? 0 : n;
+	}
+
+	/**
+	 * Set the minimum distance between the positions of two items which have
+	 * the same condition.
+	 * 
+	 * @param d
+	 *            the minimum distance. Values smaller than 2 remove the
+	 *            constraint.
+	 */
+	public void setMinRepeatDistance(int d) {
+		minRepeatDistance = (d < 1) ? 1 : d;
+	}
+
+	/**
+	 * Request that transitions between conditions are balanced.
+	 * 
+	 * @param b
+	 *            true if transitions should be balanced.
+	 */
+	public void setBalanceTransitions(boolean b) {
+		balanceTransitions = b;
+	}
+
+	/**
+	 * Check whether any constraint has been set.
+	 */
+	public boolean isConstrained() {
+		return (maxRunLength > 0) || (minRepeatDistance > 1)
+				|| balanceTransitions;
+	}
+
+	/**
+	 * Create a random order of items.
+	 * 
+	 * @param labels
+	 *            the condition label of every item. Labels must be in the range
+	 *            0 to n-1 where n is the number of items.
+	 * @return an array which contains the item indices in their new order or
+	 *         null if no order has been found which satisfies the constraints.
+	 */
+	public int[] order(int[] labels) {
+		int n = labels.length;
+		nLabels = 0;
+		for (int i = 0; i < n; i++)
+			if (labels[i] >= nLabels)
+				nLabels = labels[i] + 1;
+		int[] count = new int[nLabels];
+		for (int i = 0; i < n; i++)
+			count[labels[i]]++;
+		seq = new int[n];
+		boolean found = false;
+		for (int a = 0; !found && (a < MAX_ATTEMPTS); a++)
+			found = construct(count);
+		if (!found) {
+			seq = null;
+			return null;
+		}
+		boolean balance = balanceTransitions && (n > 2)
+				&& (nLabels <= MAX_BALANCED_CONDITIONS);
+		if (balance)
+			initTransitions(count);
+		long steps = (long) n * (balance ? BALANCE_STEPS : MIX_STEPS);
+		for (long s = 0; s < steps; s++)
+			exchange(balance);
+		// Assign items to the positions of their condition
+		int[] start = new int[nLabels + 1];
+		for (int k = 0; k < nLabels; k++)
+			start[k + 1] = start[k] + count[k];
+		int[] items = new int[n];
+		int[] next = (int[]) start.clone();
+		for (int i = 0; i < n; i++)
+			items[next[labels[i]]++] = i;
+		for (int k = 0; k < nLabels; k++)
+			shuffle(items, start[k], start[k + 1]);
+		int[] r = new int[n];
+		System.arraycopy(start, 0, next, 0, nLabels);
+		for (int p = 0; p < n; p++)
+			r[p] = items[next[seq[p]]++];
+		seq = null;
+		trans = null;
+		expected = null;
+		return r;
+	}
+
+	/**
+	 * Build the sequence of condition labels position by position.
+	 * 
+	 * @return true if a sequence has been found which satisfies the
+	 *         constraints.
+	 */
+	private boolean construct(int[] count) {
+		int n = seq.length;
+		int[] cnt = (int[]) count.clone();
+		int[] last = new int[nLabels];
+		Arrays.fill(last, Integer.MIN_VALUE / 2);
+		// Number of labels for every remaining count
+		int[] freq = new int[n + 1];
+		int cmax = 0;
+		for (int k = 0; k < nLabels; k++) {
+			freq[cnt[k]]++;
+			if (cnt[k] > cmax)
+				cmax = cnt[k];
+		}
+		int d = minRepeatDistance;
+		int[] cand = new int[nLabels];
+		int run = 0;
+		for (int p = 0; p < n; p++) {
+			int rest = n - p - 1;
+			int nc = 0;
+			int w = 0;
+			for (int k = 0; k < nLabels; k++) {
+				int c = cnt[k];
+				if (c == 0)
+					continue;
+				if ((p - last[k]) < d)
+					continue;
+				if ((maxRunLength > 0) && (p > 0) && (seq[p - 1] == k)
+						&& (run >= maxRunLength))
+					continue;
+				// The largest remaining count and its frequency after
+				// choosing label k.
+				int cm = cmax;
+				int t = freq[cmax];
+				if (c == cmax) {
+					if (t == 1) {
+						cm = cmax - 1;
+						t = freq[cm] + 1;
+					} else {
+						t--;
+					}
+				}
+				if (cm > 0) {
+					if ((maxRunLength > 0)
+							&& (cm > maxRunLength * (rest - cm + 1)))
+						continue;
+					if ((cm - 1) * d + Math.min(t, d) > rest)
+						continue;
+				}
+				cand[nc++] = k;
+				w += c;
+			}
+			if (nc == 0)
+				return false;
+			int x = rnd.nextInt(w);
+			int k = cand[0];
+			for (int i = 0; i < nc; i++) {
+				k = cand[i];
+				x -= cnt[k];
+				if (x < 0)
+					break;
+			}
+			run = ((p > 0) && (seq[p - 1] == k)) ? run + 1 : 1;
+			seq[p] = k;
+			last[k] = p;
+			freq[cnt[k]]--;
+			cnt[k]--;
+			freq[cnt[k]]++;
+			while ((cmax > 0) && (freq[cmax] == 0))
+				cmax--;
+		}
+		return true;
+	}
+
+	/**
+	 * Try to exchange the conditions at two random positions.
+	 */
+	private void exchange(boolean balance) {
+		int n = seq.length;
+		int i = rnd.nextInt(n);
+		int j = rnd.nextInt(n);
+		int a = seq[i];
+		int b = seq[j];
+		if (a == b)
+			return;
+		double cost = 0.0;
+		if (balance)
+			cost = changeTransitions(i, j, -1);
+		seq[i] = b;
+		seq[j] = a;
+		if (balance)
+			cost += changeTransitions(i, j, 1);
+		if ((cost > 1.0e-9) || !valid(i) || !valid(j)) {
+			if (balance)
+				changeTransitions(i, j, -1);
+			seq[i] = a;
+			seq[j] = b;
+			if (balance)
+				changeTransitions(i, j, 1);
+		}
+	}
+
+	/**
+	 * Check whether the condition at a position violates a constraint. Since
+	 * the sequence satisfied the constraints before an exchange, only the
+	 * exchanged positions have to be checked.
+	 */
+	private boolean valid(int p) {
+		int n = seq.length;
+		int k = seq[p];
+		if (maxRunLength > 0) {
+			int r = 1;
+			for (int q = p - 1; (q >= 0) && (seq[q] == k) && (r <= maxRunLength); q--)
+				r++;
+			for (int q = p + 1; (q < n) && (seq[q] == k) && (r <= maxRunLength); q++)
+				r++;
+			if (r > maxRunLength)
+				return false;
+		}
+		int d = minRepeatDistance;
+		if (d > 1) {
+			int q0 = Math.max(0, p - d + 1);
+			int q1 = Math.min(n - 1, p + d - 1);
+			for (int q = q0; q <= q1; q++)
+				if ((q != p) && (seq[q] == k))
+					return false;
+		}
+		return true;
+	}
+
+	/** Count the transitions of the sequence and their expected values. */
+	private void initTransitions(int[] count) {
+		int n = seq.length;
+		trans = new int[nLabels * nLabels];
+		expected = new double[nLabels * nLabels];
+		// If a condition may not follow itself then its transitions are
+		// expected to be distributed among the other conditions.
+		boolean noSelf = (maxRunLength == 1) || (minRepeatDistance > 1);
+		for (int a = 0; a < nLabels; a++) {
+			double f = (double) (n - 1) * count[a] / n;
+			double m = noSelf ? (n - count[a]) : n;
+			for (int b = 0; b < nLabels; b++) {
+				if (noSelf && (a == b))
+					continue;
+				if (m > 0.0)
+					expected[a * nLabels + b] = f * count[b] / m;
+			}
+		}
+		for (int p = 1; p < n; p++)
+			trans[seq[p - 1] * nLabels + seq[p]]++;
+	}
+
+	/**
+	 * Add or remove the transitions which contain position i or j and return
+	 * the change of the squared deviation from the expected transition counts.
+	 */
+	private double changeTransitions(int i, int j, int delta) {
+		double c = 0.0;
+		int n = seq.length;
+		int lo = Math.min(i, j);
+		int hi = Math.max(i, j);
+		// Transitions are identified by the position of their second element
+		if (lo > 0)
+			c += changeTransition(lo, delta);
+		if (lo + 1 < n)
+			c += changeTransition(lo + 1, delta);
+		if ((hi > lo + 1) && (hi > 0))
+			c += changeTransition(hi, delta);
+		if ((hi + 1 < n) && (hi > lo))
+			c += changeTransition(hi + 1, delta);
+		return c;
+	}
+
+	private double changeTransition(int p, int delta) {
+		int t = seq[p - 1] * nLabels + seq[p];
+		double e = trans[t] - expected[t];
+		trans[t] += delta;
+		return 2.0 * delta * e + 1.0;
+	}
+
+	/** Shuffle the entries of an array section. */
+	private void shuffle(int[] a, int from, int to) {
+		for (int i = to - 1; i > from; i--) {
+			int k = from + rnd.nextInt(i - from + 1);
+			int x = a[i];
+			a[i] = a[k];
+			a[k] = x;
+		}
+	}
+}
@@ -923,4 +923,12 @@ public class Praxis {
 	public int getMaximumNumberOfFunctionCalls() {
 		return maxfun;
 	}
+
+	/**
+	 * Set the seed of the random steps which are used for ill conditioned
+	 * problems. Identical seeds give identical results.
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+	}
 }
@@ -0,0 +1,221 @@
+package it.cnr.itd.pxlab;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import com.sun.net.httpserver.*;
+
+import de.pxlab.pxl.DataUploader;
+
+/**
+ * Sends records through a DataUploader to an in-process HTTP server. The
+ * server rejects the first two requests and appends a batch only if its
+ * offset is equal to the size of the received data. The received data must be
+ * identical to the appended records. A second server answers too late for
+ * the upload timeout. The upload thread must then stop when the request
+ * returns. Finally an upload which could not be completed must be resumed
+ * from its spool file by the next uploader.
+ */
+public class DataUploaderTest {
+
+	public static void main(String[] args) throws Exception {
+		// Spool files are stored below the local PXLab directory which
+		// defaults to the user's home directory.
+		File home = File.createTempFile("uploader", "");
+		home.delete();
+		home.mkdirs();
+		System.setProperty("user.home", home.getPath());
+		File spoolDir = new File(home, "pxlab-spool");
+		testRetry();
+		testTimeout();
+		testResume(spoolDir);
+		delete(home);
+		TestSupport.report("DataUploaderTest");
+	}
+
+	private static void testRetry() throws Exception {
+		Receiver r = new Receiver(2, 0L);
+		HttpServer server = start(r);
+		DataUploader u = new DataUploader(url(server), "test.dat", null);
+		StringBuffer b = new StringBuffer();
+		for (int i = 0; i < 20000; i++) {
+			String s = "subject\t" + i + "\t" + (i * 0.5) + "\n";
+			b.append(s);
+			u.append(s);
+		}
+		boolean done = u.finish(60000L);
+		server.stop(0);
+		TestSupport.check("upload complete", done);
+		TestSupport.check("data are identical", b.toString().equals(
+				r.getData("test.dat")));
+		TestSupport.check("failed requests repeated", r.getRequests() > 3);
+		TestSupport.check("final batch", r.hasFinal("test.dat"));
+	}
+
+	private static void testTimeout() throws Exception {
+		Receiver r = new Receiver(0, 1500L);
+		HttpServer server = start(r);
+		DataUploader u = new DataUploader(url(server), "late.dat", null);
+		u.append("late record\n");
+		boolean done = u.finish(200L);
+		TestSupport.check("late upload is incomplete", !done);
+		TestSupport.check("upload thread still running", uploadThreadAlive());
+		long t = System.currentTimeMillis() + 5000L;
+		while (uploadThreadAlive() && (System.currentTimeMillis() < t))
+			Thread.sleep(50L);
+		TestSupport.check("upload thread stopped", !uploadThreadAlive());
+		server.stop(0);
+	}
+
+	private static void testResume(File spoolDir) throws Exception {
+		Receiver r = new Receiver(Integer.MAX_VALUE, 0L);
+		HttpServer server = start(r);
+		DataUploader u = new DataUploader(url(server), "resume.dat", null);
+		u.append("first record\n");
+		u.append("second record\n");
+		boolean done = u.finish(300L);
+		TestSupport.check("failing upload is incomplete", !done);
+		waitForUploadThreads();
+		TestSupport.check("spool file kept", spoolFiles(spoolDir) == 2);
+		r.setFailures(0);
+		DataUploader v = new DataUploader(url(server), "next.dat", null);
+		v.append("next record\n");
+		TestSupport.check("next upload complete", v.finish(60000L));
+		waitForUploadThreads();
+		server.stop(0);
+		TestSupport.check("spool file resumed", "first record\nsecond record\n"
+				.equals(r.getData("resume.dat")));
+		TestSupport.check("resumed upload finished", r.hasFinal("resume.dat"));
+		TestSupport.check("next data sent", "next record\n".equals(r
+				.getData("next.dat")));
+		TestSupport.check("spool files deleted", spoolFiles(spoolDir) == 0);
+	}
+
+	private static int spoolFiles(File dir) {
+		String[] a = dir.list();
+		return (a == null) ? 0 : a.length;
+	}
+
+	private static void waitForUploadThreads() throws InterruptedException {
+		long t = System.currentTimeMillis() + 10000L;
+		while (uploadThreadAlive() && (System.currentTimeMillis() < t))
+			Thread.sleep(50L);
+	}
+
+	private static void delete(File f) {
+		File[] a = f.listFiles();
+		if (a != null) {
+			for (int i = 0; i < a.length; i++)
+				delete(a[i]);
+		}
+		f.delete();
+	}
+
+	private static boolean uploadThreadAlive() {
+		Thread[] a = new Thread[Thread.activeCount() + 8];
+		int n = Thread.enumerate(a);
+		for (int i = 0; i < n; i++)
+			if ("DataUploader".equals(a[i].getName()) && a[i].isAlive())
+				return true;
+		return false;
+	}
+
+	private static HttpServer start(Receiver r) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getByName("127.0.0.1"), 0), 0);
+		server.createContext("/upload", r);
+		server.start();
+		return server;
+	}
+
+	private static URL url(HttpServer server) throws MalformedURLException {
+		return new URL("http://127.0.0.1:" + server.getAddress().getPort()
+				+ "/upload");
+	}
+
+	/** Collects the uploaded batches for every data file name. */
+	private static class Receiver implements HttpHandler {
+		private int failures;
+		private long delay;
+		private int requests;
+		private HashMap data = new HashMap();
+		private HashSet last = new HashSet();
+
+		Receiver(int failures, long delay) {
+			this.failures = failures;
+			this.delay = delay;
+		}
+
+		public void handle(HttpExchange ex) throws IOException {
+			byte[] body = read(new GZIPInputStream(ex.getRequestBody()));
+			int code = 200;
+			synchronized (this) {
+				requests++;
+				if (failures > 0) {
+					failures--;
+					code = 500;
+				} else {
+					String q = ex.getRequestURI().getRawQuery();
+					String fn = URLDecoder.decode(value(q, "DataFileName"),
+							"UTF-8");
+					ByteArrayOutputStream d = (ByteArrayOutputStream) data
+							.get(fn);
+					if (d == null) {
+						d = new ByteArrayOutputStream();
+						data.put(fn, d);
+					}
+					if (Long.parseLong(value(q, "Offset")) == d.size())
+						d.write(body);
+					if (value(q, "Final").equals("1"))
+						last.add(fn);
+				}
+			}
+			if (delay > 0L) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException iex) {
+				}
+			}
+			ex.sendResponseHeaders(code, -1);
+			ex.close();
+		}
+
+		synchronized String getData(String fn)
+				throws UnsupportedEncodingException {
+			ByteArrayOutputStream d = (ByteArrayOutputStream) data.get(fn);
+			return (d == null) ? null : d.toString("UTF-8");
+		}
+
+		synchronized void setFailures(int n) {
+			failures = n;
+		}
+
+		synchronized int getRequests() {
+			return requests;
+		}
+
+		synchronized boolean hasFinal(String fn) {
+			return last.contains(fn);
+		}
+
+		private static String value(String q, String name) {
+			String[] p = q.split("&");
+			for (int i = 0; i < p.length; i++)
+				if (p[i].startsWith(name + "="))
+					return p[i].substring(name.length() + 1);
+			return "";
+		}
+
+		private static byte[] read(InputStream in) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] b = new byte[4096];
+			int n;
+			while ((n = in.read(b)) > 0)
+				out.write(b, 0, n);
+			in.close();
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package it.cnr.itd.pxlab;
+
+import java.lang.management.ManagementFactory;
+
+import de.pxlab.pxl.Debug;
+
+/**
+ * Calls the Debug.show() variants which are used on time critical paths a
+ * million times while debugging is off and measures the bytes allocated by
+ * the calling thread. No garbage may be created. A control run with a
+ * concatenated message makes sure that allocations are measured at all.
+ */
+public class DebugAllocationTest {
+	private static final int CALLS = 1000000;
+	private static int sink = 0;
+
+	public static void main(String[] args) {
+		java.lang.management.ThreadMXBean mx = ManagementFactory
+				.getThreadMXBean();
+		if (!(mx instanceof com.sun.management.ThreadMXBean)
+				|| !((com.sun.management.ThreadMXBean) mx)
+						.isThreadAllocatedMemorySupported()) {
+			System.out
+					.println("DebugAllocationTest: thread allocation measurement is not supported");
+			System.exit(0);
+		}
+		com.sun.management.ThreadMXBean tmx = (com.sun.management.ThreadMXBean) mx;
+		tmx.setThreadAllocatedMemoryEnabled(true);
+		long id = Thread.currentThread().getId();
+		Debug.remove(Debug.EVENTS | Debug.FILES | Debug.COLOR_GAMUT);
+		// Warm up such that the loops are compiled.
+		for (int k = 0; k < 5; k++) {
+			debugCalls(CALLS / 10);
+			concatenatedCalls(CALLS / 10);
+		}
+		long a = tmx.getThreadAllocatedBytes(id);
+		debugCalls(CALLS);
+		long b = tmx.getThreadAllocatedBytes(id);
+		concatenatedCalls(CALLS);
+		long c = tmx.getThreadAllocatedBytes(id);
+		// Reading the counter may allocate a few bytes itself.
+		TestSupport.check("no garbage while debugging is off (" + (b - a)
+				+ " bytes)", (b - a) < 1024L);
+		TestSupport.check("allocations are measured (" + (c - b) + " bytes)",
+				(c - b) > CALLS);
+		TestSupport.report("DebugAllocationTest");
+	}
+
+	private static void debugCalls(int n) {
+		for (int i = 0; i < n; i++) {
+			Debug.show(Debug.EVENTS, "Key pressed: ", i);
+			Debug.show(Debug.EVENTS, "Event time: ", (long) i);
+			Debug.show(Debug.EVENTS, "Latency: ", 0.5 * i);
+			Debug.show(Debug.FILES, "Loading image.");
+			if (Debug.isActive(Debug.COLOR_GAMUT))
+				Debug.show(Debug.COLOR_GAMUT, "Color " + i + " -> " + (i + 1));
+		}
+	}
+
+	private static void concatenatedCalls(int n) {
+		for (int i = 0; i < n; i++) {
+			String s = "Key pressed: " + i;
+			sink += s.length();
+		}
+	}
+}
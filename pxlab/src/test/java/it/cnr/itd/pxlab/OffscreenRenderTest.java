@@ -0,0 +1,133 @@
+package it.cnr.itd.pxlab;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+
+import de.pxlab.pxl.*;
+
+/**
+ * Runs a small design twice on an OffscreenDisplayDevice in headless mode.
+ * Both runs must produce identical images pixel by pixel and the bars of the
+ * two trials must cover the expected pixels. A third run with capturing
+ * disabled must still record rendering times. A fourth run writes the images
+ * to a capture directory and must not keep them in memory.
+ */
+public class OffscreenRenderTest {
+	private static final String DESIGN = "Experiment() {\n"
+			+ "  Context() {\n"
+			+ "    AssignmentGroup() {\n"
+			+ "      SubjectCode = \"offscreen\";\n"
+			+ "      RandomizeTrials = 0;\n"
+			+ "    }\n"
+			+ "    Trial(SimpleBar.Width) {\n"
+			+ "      SimpleBar() {\n"
+			+ "        Timer = de.pxlab.pxl.TimerCodes.CLOCK_TIMER;\n"
+			+ "        Duration = 100;\n"
+			+ "        Height = 200;\n"
+			+ "        Color = White;\n"
+			+ "      }\n"
+			+ "    }\n"
+			+ "  }\n"
+			+ "  Procedure() {\n"
+			+ "    Session() {\n"
+			+ "      Block() {\n"
+			+ "        Trial(100);\n"
+			+ "        Trial(300);\n"
+			+ "      }\n"
+			+ "    }\n"
+			+ "  }\n"
+			+ "}\n";
+
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		Base.setApplication();
+		File f = File.createTempFile("offscreen", ".pxd");
+		f.deleteOnExit();
+		Writer w = new FileWriter(f);
+		w.write(DESIGN);
+		w.close();
+		OffscreenDisplayDevice a = run(f, true);
+		OffscreenDisplayDevice b = run(f, true);
+		OffscreenDisplayDevice c = run(f, false);
+		File dir = new File(f.getPath() + ".png");
+		OffscreenDisplayDevice d = run(f, true, dir);
+		int n = a.getCapturedImageCount();
+		TestSupport.check("two images captured", n == 2);
+		TestSupport.check("same number of images",
+				b.getCapturedImageCount() == n);
+		for (int i = 0; (i < n) && (i < b.getCapturedImageCount()); i++) {
+			TestSupport.check("image " + i + " is identical", equal(a
+					.getCapturedImage(i).getImage(), b.getCapturedImage(i)
+					.getImage()));
+		}
+		if (n == 2) {
+			BufferedImage narrow = a.getCapturedImage(0).getImage();
+			BufferedImage wide = a.getCapturedImage(1).getImage();
+			int x = narrow.getWidth() / 2;
+			int y = narrow.getHeight() / 2;
+			int background = narrow.getRGB(0, 0);
+			int bar = narrow.getRGB(x, y);
+			TestSupport.check("bar differs from background", bar != background);
+			TestSupport.check("narrow bar ends",
+					narrow.getRGB(x + 100, y) == background);
+			TestSupport.check("wide bar covers",
+					wide.getRGB(x + 100, y) == bar);
+			TestSupport.check("wide bar ends",
+					wide.getRGB(x + 200, y) == background);
+			TestSupport.check("bar height", (narrow.getRGB(x, y - 90) == bar)
+					&& (narrow.getRGB(x, y - 110) == background));
+		}
+		TestSupport.check("no images stored", c.getCapturedImageCount() == 0);
+		TestSupport.check("timing groups counted",
+				c.getShownTimingGroupCount() == a.getShownTimingGroupCount());
+		TestSupport.check("render time recorded", c.getTotalRenderTime() > 0L);
+		TestSupport.check("render time of captured images",
+				a.getTotalRenderTime() > 0L);
+		String[] png = dir.list();
+		TestSupport.check("images written", (png != null) && (png.length == 2));
+		TestSupport.check("written images not kept",
+				d.getCapturedImageCount() == 0);
+		if (png != null) {
+			for (int i = 0; i < png.length; i++)
+				new File(dir, png[i]).delete();
+		}
+		dir.delete();
+		TestSupport.report("OffscreenRenderTest");
+	}
+
+	private static OffscreenDisplayDevice run(File f, boolean capture)
+			throws Exception {
+		return run(f, capture, null);
+	}
+
+	private static OffscreenDisplayDevice run(File f, boolean capture,
+			File dir) throws Exception {
+		ExDesign d = new ExDesign(f.getPath(), null);
+		OffscreenDisplayDevice device = new OffscreenDisplayDevice(640, 480);
+		device.setCaptureEnabled(capture);
+		if (dir != null)
+			device.setCaptureDirectory(dir);
+		PresentationManager pm = new PresentationManager(null, device);
+		boolean stopped = d.runBatchSession(pm, new ExDesignDataProcessor() {
+			public void setDataDestination(DataDestination ds) {
+			}
+
+			public void processData(DisplayList displayList, ExDesignNode data) {
+			}
+		});
+		TestSupport.check("design has been run", !stopped);
+		// Disposing the PresentationManager would also clear the captured
+		// images.
+		return device;
+	}
+
+	private static boolean equal(BufferedImage a, BufferedImage b) {
+		if ((a.getWidth() != b.getWidth()) || (a.getHeight() != b.getHeight()))
+			return false;
+		for (int y = 0; y < a.getHeight(); y++)
+			for (int x = 0; x < a.getWidth(); x++)
+				if (a.getRGB(x, y) != b.getRGB(x, y))
+					return false;
+		return true;
+	}
+}
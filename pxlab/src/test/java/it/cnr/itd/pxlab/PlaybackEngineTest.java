@@ -0,0 +1,241 @@
+package it.cnr.itd.pxlab;
+
+import java.io.*;
+import javax.sound.sampled.*;
+
+import de.pxlab.pxl.*;
+import de.pxlab.pxl.sound.*;
+
+/**
+ * Runs a PlaybackEngine against a simulated line which consumes frames in
+ * real time. Two players which are started together must be mixed, the
+ * streams of a single player must follow each other, and the reported first
+ * sample times must match the simulated line.
+ */
+public class PlaybackEngineTest {
+	private static final AudioFormat FORMAT = new AudioFormat(8000.0F, 16, 1,
+			true, true);
+
+	public static void main(String[] args) throws Exception {
+		SimulatedLine line = new SimulatedLine();
+		PlaybackEngine engine = new PlaybackEngine(FORMAT, line);
+		Player a = new Player(FORMAT, engine);
+		Player b = new Player(FORMAT, engine);
+		Listener la = new Listener();
+		Listener lb = new Listener();
+		a.setMediaEventListener(la);
+		b.setMediaEventListener(lb);
+		Thread.sleep(100L);
+		// 100 ms of 1000 from player a, 100 ms of 2000 and then 100 ms of
+		// 4000 from player b.
+		a.addInputStream(stream(1000, 800), false);
+		b.addInputStream(stream(2000, 800), false);
+		b.addInputStream(stream(4000, 800), false);
+		a.play();
+		b.play();
+		la.await();
+		lb.await();
+		engine.close();
+		short[] out = line.getSamples();
+		int first = -1;
+		for (int i = 0; (i < out.length) && (first < 0); i++)
+			if (out[i] != 0)
+				first = i;
+		TestSupport.check("sound has been written", first >= 0);
+		if (first >= 0) {
+			TestSupport.check("players are mixed",
+					count(out, first, 800, 3000) == 800);
+			TestSupport.check("player streams are sequential", count(out,
+					first + 800, 800, 4000) == 800);
+			TestSupport.check("sound has ended", out[first + 1600] == 0);
+			long t = line.getFrameTime(first);
+			TestSupport.check("start time of a",
+					Math.abs(a.getStartTime() - t) < 2000000L);
+			TestSupport.check("start time of b",
+					Math.abs(b.getStartTime() - t) < 2000000L);
+			TestSupport.check("media time of a",
+					Math.abs(la.mediaTime - 100000000L) < 1000000L);
+			TestSupport.check("media time of b",
+					Math.abs(lb.mediaTime - 200000000L) < 1000000L);
+			TestSupport.check("end of a", Math.abs(la.when
+					- line.getFrameTime(first + 800)) < 20000000L);
+			TestSupport.check("end of b", Math.abs(lb.when
+					- line.getFrameTime(first + 1600)) < 20000000L);
+		}
+		TestSupport.report("PlaybackEngineTest");
+	}
+
+	private static int count(short[] s, int from, int n, int v) {
+		int c = 0;
+		for (int i = from; i < from + n; i++)
+			if (s[i] == v)
+				c++;
+		return c;
+	}
+
+	private static AudioInputStream stream(int value, int frames) {
+		byte[] b = new byte[2 * frames];
+		for (int i = 0; i < frames; i++) {
+			b[2 * i] = (byte) (value >> 8);
+			b[2 * i + 1] = (byte) value;
+		}
+		return new AudioInputStream(new ByteArrayInputStream(b), FORMAT,
+				frames);
+	}
+
+	private static class Listener implements MediaEventListener {
+		long mediaTime = -1L;
+		long when;
+
+		public synchronized void mediaActionPerformed(MediaEvent e) {
+			mediaTime = e.getMediaTimeNanos();
+			when = e.getWhen();
+			notifyAll();
+		}
+
+		synchronized void await() throws InterruptedException {
+			long t = System.currentTimeMillis() + 5000L;
+			while ((mediaTime < 0L) && (System.currentTimeMillis() < t))
+				wait(100L);
+			TestSupport.check("media event", mediaTime >= 0L);
+		}
+	}
+
+	/**
+	 * A line which plays its frames at the format's frame rate. Every frame
+	 * is stored such that the output may be checked.
+	 */
+	private static class SimulatedLine implements SourceDataLine {
+		private ByteArrayOutputStream data = new ByteArrayOutputStream();
+		private int bufferSize;
+		private boolean open;
+		private long startNanos;
+		private long written;
+
+		public void open(AudioFormat format, int bufferSize) {
+			this.bufferSize = bufferSize;
+			open = true;
+		}
+
+		public void open(AudioFormat format) {
+			open(format, 8000);
+		}
+
+		public void open() {
+			open(FORMAT);
+		}
+
+		public void start() {
+			startNanos = HiresClock.getTimeNanos();
+		}
+
+		/** Get the time when the given frame has been played. */
+		long getFrameTime(int frame) {
+			return startNanos
+					+ Math.round(frame * 1000000000.0 / FORMAT.getFrameRate());
+		}
+
+		public long getLongFramePosition() {
+			long p = Math.round((HiresClock.getTimeNanos() - startNanos)
+					* FORMAT.getFrameRate() / 1000000000.0);
+			synchronized (this) {
+				return Math.min(p, written);
+			}
+		}
+
+		public int write(byte[] b, int off, int len) {
+			while ((2 * written - 2 * getLongFramePosition() + len) > bufferSize) {
+				try {
+					Thread.sleep(1L);
+				} catch (InterruptedException iex) {
+				}
+			}
+			synchronized (this) {
+				data.write(b, off, len);
+				written += len / 2;
+			}
+			return len;
+		}
+
+		synchronized short[] getSamples() {
+			byte[] b = data.toByteArray();
+			short[] s = new short[b.length / 2];
+			for (int i = 0; i < s.length; i++)
+				s[i] = (short) ((b[2 * i] << 8) | (b[2 * i + 1] & 0xFF));
+			return s;
+		}
+
+		public int getFramePosition() {
+			return (int) getLongFramePosition();
+		}
+
+		public long getMicrosecondPosition() {
+			return Math.round(getLongFramePosition() * 1000000.0
+					/ FORMAT.getFrameRate());
+		}
+
+		public int getBufferSize() {
+			return bufferSize;
+		}
+
+		public int available() {
+			return bufferSize
+					- (int) (2 * (written - getLongFramePosition()));
+		}
+
+		public AudioFormat getFormat() {
+			return FORMAT;
+		}
+
+		public void drain() {
+		}
+
+		public void flush() {
+		}
+
+		public void stop() {
+		}
+
+		public void close() {
+			open = false;
+		}
+
+		public boolean isOpen() {
+			return open;
+		}
+
+		public boolean isRunning() {
+			return open;
+		}
+
+		public boolean isActive() {
+			return open;
+		}
+
+		public float getLevel() {
+			return AudioSystem.NOT_SPECIFIED;
+		}
+
+		public javax.sound.sampled.Line.Info getLineInfo() {
+			return new DataLine.Info(SourceDataLine.class, FORMAT);
+		}
+
+		public Control[] getControls() {
+			return new Control[0];
+		}
+
+		public boolean isControlSupported(Control.Type control) {
+			return false;
+		}
+
+		public Control getControl(Control.Type control) {
+			throw new IllegalArgumentException("No controls");
+		}
+
+		public void addLineListener(LineListener listener) {
+		}
+
+		public void removeLineListener(LineListener listener) {
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package it.cnr.itd.pxlab;
+
+import de.pxlab.pxl.ResponseEventQueue;
+
+/**
+ * Several producer threads offer records to a ResponseEventQueue at the same
+ * time while a consumer drains it. Producers offer a record again if the
+ * queue is full. Every record must arrive exactly once, with consistent
+ * fields, and in the order of its producer.
+ */
+public class ResponseEventQueueTest {
+	private static final int PRODUCERS = 4;
+	private static final int RECORDS = 50000;
+
+	public static void main(String[] args) throws Exception {
+		final ResponseEventQueue q = new ResponseEventQueue(64);
+		Thread[] p = new Thread[PRODUCERS];
+		for (int k = 0; k < PRODUCERS; k++) {
+			final int id = k;
+			p[k] = new Thread() {
+				public void run() {
+					for (int i = 0; i < RECORDS; i++) {
+						long t = ((long) id << 32) | i;
+						while (!q.offer(t, -t, id, i))
+							Thread.yield();
+					}
+				}
+			};
+		}
+		for (int k = 0; k < PRODUCERS; k++)
+			p[k].start();
+		int[] last = new int[PRODUCERS];
+		int[] received = new int[PRODUCERS];
+		for (int k = 0; k < PRODUCERS; k++)
+			last[k] = -1;
+		int invalid = 0;
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (int k = 0; k < PRODUCERS; k++)
+				running = running || p[k].isAlive();
+			while (q.poll()) {
+				int id = q.getType();
+				int i = q.getCode();
+				long t = q.getTime();
+				if ((id < 0) || (id >= PRODUCERS) || (t != (((long) id << 32) | i))
+						|| (q.getLatency() != -t) || (i <= last[id])) {
+					invalid++;
+				} else {
+					last[id] = i;
+					received[id]++;
+				}
+			}
+		}
+		TestSupport.check(invalid + " invalid records", invalid == 0);
+		for (int k = 0; k < PRODUCERS; k++)
+			TestSupport.check(received[k] + " of " + RECORDS
+					+ " records of producer " + k, received[k] == RECORDS);
+		TestSupport.report("ResponseEventQueueTest");
+	}
+}
@@ -0,0 +1,121 @@
+package it.cnr.itd.pxlab;
+
+import java.util.ArrayList;
+
+import de.pxlab.pxl.*;
+
+/**
+ * Sends frames through a LoopbackSerialTransport pair to a SerialLink and
+ * checks framing and time stamps. A frame which arrives in several pieces must
+ * be stamped by the arrival time of its first byte.
+ */
+public class SerialLinkTest {
+
+	public static void main(String[] args) throws Exception {
+		testLines();
+		testDelimiter();
+		testFixedLength();
+		TestSupport.report("SerialLinkTest");
+	}
+
+	private static void testLines() throws Exception {
+		SerialFramer framer = SerialFramer.lines();
+		framer.setStripDelimiter(true);
+		Collector c = new Collector();
+		LoopbackSerialTransport device = open(framer, c);
+		long t0 = HiresClock.getTimeNanos();
+		send(device, "first line\r\n");
+		long t1 = HiresClock.getTimeNanos();
+		send(device, "sec");
+		Thread.sleep(50L);
+		send(device, "ond line\n");
+		c.await(2);
+		TestSupport.check("line count", c.size() == 2);
+		TestSupport.check("first line", "first line".equals(c.text(0)));
+		TestSupport.check("second line", "second line".equals(c.text(1)));
+		// The link thread may stamp the first line after send() returned.
+		long d0 = c.when(0) - t0;
+		TestSupport.check("first line time", (d0 >= 0L) && (d0 < 40000000L));
+		long d = c.when(1) - t1;
+		TestSupport.check("second line stamped by first byte", (d >= 0L)
+				&& (d < 40000000L));
+		device.close();
+	}
+
+	private static void testDelimiter() throws Exception {
+		SerialFramer framer = new SerialFramer(SerialFramer.DELIMITER, ';', 4);
+		Collector c = new Collector();
+		LoopbackSerialTransport device = open(framer, c);
+		send(device, "a;bc;defgh;");
+		c.await(4);
+		TestSupport.check("delimiter count", c.size() == 4);
+		TestSupport.check("delimited frame", "a;".equals(c.text(0))
+				&& "bc;".equals(c.text(1)));
+		TestSupport.check("frames are cut at the maximum length",
+				"defg".equals(c.text(2)) && "h;".equals(c.text(3)));
+		device.close();
+	}
+
+	private static void testFixedLength() throws Exception {
+		// The frame length is larger than the maximum length.
+		SerialFramer framer = new SerialFramer(SerialFramer.FIXED_LENGTH, 6, 2);
+		Collector c = new Collector();
+		LoopbackSerialTransport device = open(framer, c);
+		send(device, "0123");
+		Thread.sleep(20L);
+		long t = HiresClock.getTimeNanos();
+		send(device, "45abcdef");
+		c.await(2);
+		TestSupport.check("fixed length count", c.size() == 2);
+		TestSupport.check("fixed length frames", "012345".equals(c.text(0))
+				&& "abcdef".equals(c.text(1)));
+		TestSupport.check("fixed length time", (c.when(0) < t)
+				&& (c.when(1) >= t));
+		device.close();
+	}
+
+	private static LoopbackSerialTransport open(SerialFramer framer,
+			Collector c) {
+		LoopbackSerialTransport[] pair = LoopbackSerialTransport
+				.createPair(64);
+		framer.setListener(pair[0], c);
+		// A small read buffer makes frames arrive in several pieces.
+		new SerialLink(pair[0], framer, 3).start();
+		return pair[1];
+	}
+
+	private static void send(LoopbackSerialTransport t, String s) {
+		byte[] b = s.getBytes();
+		t.write(b, 0, b.length);
+		t.flush();
+	}
+
+	private static class Collector implements SerialCommunicationListener {
+		private ArrayList events = new ArrayList();
+
+		public synchronized void serialLineInput(SerialLineInputEvent e) {
+			events.add(e);
+			notifyAll();
+		}
+
+		synchronized void await(int n) throws InterruptedException {
+			long t = System.currentTimeMillis() + 2000L;
+			while ((events.size() < n) && (System.currentTimeMillis() < t))
+				wait(100L);
+		}
+
+		synchronized int size() {
+			return events.size();
+		}
+
+		synchronized String text(int i) {
+			return (i < events.size()) ? ((SerialLineInputEvent) events.get(i))
+					.getText() : null;
+		}
+
+		synchronized long when(int i) {
+			return (i < events.size()) ? ((SerialLineInputEvent) events.get(i))
+					.getWhen() : -1L;
+		}
+	}
+}
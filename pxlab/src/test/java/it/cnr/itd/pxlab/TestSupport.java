@@ -0,0 +1,27 @@
+package it.cnr.itd.pxlab;
+
+/**
+ * Counts the failed checks of a test program and reports them. Every test
+ * runs in its own virtual machine and exits with a nonzero status if a check
+ * has failed.
+ */
+final class TestSupport {
+	private static int errors = 0;
+
+	private TestSupport() {
+	}
+
+	/** Count and print a failure if the given condition does not hold. */
+	static void check(String s, boolean ok) {
+		if (!ok) {
+			errors++;
+			System.out.println("Failed: " + s);
+		}
+	}
+
+	/** Print the number of failed checks and exit. */
+	static void report(String name) {
+		System.out.println(name + ": " + errors + " errors");
+		System.exit((errors == 0) ? 0 : 1);
+	}
+}